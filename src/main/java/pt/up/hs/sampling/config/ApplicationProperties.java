@@ -26,6 +26,13 @@ public class ApplicationProperties {
         private boolean cleanOnStartup = false;
         private String cron = "0 0 * * * *";
         private String path = "previews/";
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int chunkSize = 10;
+        private Renderer renderer = Renderer.JAVA2D;
+        private long renditionCacheSize = 256L * 1024 * 1024;
+        private long queueDelay = 2000;
+        private int queueCapacity = 10000;
+        private long lease = 300000;
 
         public boolean isCleanOnStartup() {
             return cleanOnStartup;
@@ -52,10 +59,129 @@ public class ApplicationProperties {
             this.cron = cron;
             return this;
         }
+
+        /**
+         * Number of threads generating previews (each one generating those
+         * of a range of protocol IDs).
+         *
+         * @return number of threads generating previews.
+         */
+        public int getThreads() {
+            return threads;
+        }
+
+        public Preview setThreads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Number of previews generated per transaction.
+         *
+         * @return number of previews generated per transaction.
+         */
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public Preview setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Renderer drawing the previews.
+         *
+         * @return renderer drawing the previews.
+         */
+        public Renderer getRenderer() {
+            return renderer;
+        }
+
+        public Preview setRenderer(Renderer renderer) {
+            this.renderer = renderer;
+            return this;
+        }
+
+        /**
+         * Maximum number of bytes of renditions (previews in other sizes,
+         * rendered on demand) kept on disk.
+         *
+         * @return maximum number of bytes of renditions kept on disk.
+         */
+        public long getRenditionCacheSize() {
+            return renditionCacheSize;
+        }
+
+        public Preview setRenditionCacheSize(long renditionCacheSize) {
+            this.renditionCacheSize = renditionCacheSize;
+            return this;
+        }
+
+        /**
+         * Time (in ms) a changed protocol waits in the preview queue, so
+         * that further changes within it are generated once.
+         *
+         * @return time a changed protocol waits in the preview queue.
+         */
+        public long getQueueDelay() {
+            return queueDelay;
+        }
+
+        public Preview setQueueDelay(long queueDelay) {
+            this.queueDelay = queueDelay;
+            return this;
+        }
+
+        /**
+         * Maximum number of protocols waiting in the preview queue (beyond
+         * which they are left to the batch job).
+         *
+         * @return maximum number of protocols waiting in the preview queue.
+         */
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public Preview setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Time (in ms) for which a worker claims the previews it generates,
+         * after which other workers (of any instance) may claim them (e.g.,
+         * if its instance stopped meanwhile).
+         *
+         * @return time for which a worker claims the previews it generates.
+         */
+        public long getLease() {
+            return lease;
+        }
+
+        public Preview setLease(long lease) {
+            this.lease = lease;
+            return this;
+        }
+
+        public enum Renderer {
+            /** Draw strokes directly on an image with Java2D. */
+            JAVA2D,
+            /** Convert the page to SVG and transcode it with Batik. */
+            SVG
+        }
     }
 
     public static class Importing {
         private String path = "importing/";
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = 2 * Runtime.getRuntime().availableProcessors();
+        private int batchSize = 50;
+        private String watchCron = "-";
+        private int textMaxLength = 1000000;
+        private long textTimeout = 30000;
+        private long uploadMaxLength = 1024L * 1024 * 1024;
+        private long uploadExpiration = 86400000;
 
         public String getPath() {
             return path;
@@ -65,5 +191,121 @@ public class ApplicationProperties {
             this.path = path;
             return this;
         }
+
+        /**
+         * Number of threads parsing imported files.
+         *
+         * @return number of threads parsing imported files.
+         */
+        public int getThreads() {
+            return threads;
+        }
+
+        public Importing setThreads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Maximum number of imported files being parsed or waiting to be
+         * saved at a time.
+         *
+         * @return maximum number of imported files in memory.
+         */
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public Importing setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Number of imported pages saved per transaction.
+         *
+         * @return number of imported pages saved per transaction.
+         */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public Importing setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Cron expression of the polls of the drop folder ({@code inbox/}
+         * under the importing path), or "-" to disable it.
+         *
+         * @return cron expression of the polls of the drop folder.
+         */
+        public String getWatchCron() {
+            return watchCron;
+        }
+
+        public Importing setWatchCron(String watchCron) {
+            this.watchCron = watchCron;
+            return this;
+        }
+
+        /**
+         * Maximum number of characters extracted from an imported text
+         * document (the rest is discarded).
+         *
+         * @return maximum number of characters of an imported text.
+         */
+        public int getTextMaxLength() {
+            return textMaxLength;
+        }
+
+        public Importing setTextMaxLength(int textMaxLength) {
+            this.textMaxLength = textMaxLength;
+            return this;
+        }
+
+        /**
+         * Maximum time to extract the text of an imported document (ms).
+         *
+         * @return maximum time to extract the text of an imported document.
+         */
+        public long getTextTimeout() {
+            return textTimeout;
+        }
+
+        public Importing setTextTimeout(long textTimeout) {
+            this.textTimeout = textTimeout;
+            return this;
+        }
+
+        /**
+         * Maximum length of a file sent in a resumable upload (bytes).
+         *
+         * @return maximum length of a file sent in a resumable upload.
+         */
+        public long getUploadMaxLength() {
+            return uploadMaxLength;
+        }
+
+        public Importing setUploadMaxLength(long uploadMaxLength) {
+            this.uploadMaxLength = uploadMaxLength;
+            return this;
+        }
+
+        /**
+         * Time after which a resumable upload that received nothing is
+         * deleted (ms).
+         *
+         * @return time after which an idle resumable upload is deleted.
+         */
+        public long getUploadExpiration() {
+            return uploadExpiration;
+        }
+
+        public Importing setUploadExpiration(long uploadExpiration) {
+            this.uploadExpiration = uploadExpiration;
+            return this;
+        }
     }
 }
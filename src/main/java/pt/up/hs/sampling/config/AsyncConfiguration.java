@@ -23,9 +23,14 @@ public class AsyncConfiguration implements AsyncConfigurer {
     private final Logger log = LoggerFactory.getLogger(AsyncConfiguration.class);
 
     private final TaskExecutionProperties taskExecutionProperties;
+    private final ApplicationProperties applicationProperties;
 
-    public AsyncConfiguration(TaskExecutionProperties taskExecutionProperties) {
+    public AsyncConfiguration(
+        TaskExecutionProperties taskExecutionProperties,
+        ApplicationProperties applicationProperties
+    ) {
         this.taskExecutionProperties = taskExecutionProperties;
+        this.applicationProperties = applicationProperties;
     }
 
     @Override
@@ -40,6 +45,58 @@ public class AsyncConfiguration implements AsyncConfigurer {
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    /**
+     * Executor parsing imported files. Callers bound the number of files
+     * submitted at a time, so its queue is never longer than
+     * {@code application.importing.queue-capacity}.
+     *
+     * @return the executor parsing imported files.
+     */
+    @Bean(name = "importExecutor")
+    public ThreadPoolTaskExecutor importExecutor() {
+        log.debug("Creating Import Task Executor");
+        int threads = Math.max(1, applicationProperties.getImporting().getThreads());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("sampling-import-");
+        return executor;
+    }
+
+    /**
+     * Executor generating previews, one partition of the dirty previews per
+     * thread ({@code application.preview.threads}).
+     *
+     * @return the executor generating previews.
+     */
+    @Bean(name = "previewExecutor")
+    public ThreadPoolTaskExecutor previewExecutor() {
+        log.debug("Creating Preview Task Executor");
+        int threads = Math.max(1, applicationProperties.getPreview().getThreads());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("sampling-preview-");
+        return executor;
+    }
+
+    /**
+     * Executor running the workers of the preview queue (as many as the
+     * threads generating previews).
+     *
+     * @return the executor running the workers of the preview queue.
+     */
+    @Bean(name = "previewQueueExecutor")
+    public ThreadPoolTaskExecutor previewQueueExecutor() {
+        log.debug("Creating Preview Queue Task Executor");
+        int threads = Math.max(1, applicationProperties.getPreview().getThreads());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("sampling-preview-queue-");
+        return executor;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
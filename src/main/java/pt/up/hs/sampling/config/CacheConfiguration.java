@@ -109,6 +109,8 @@ public class CacheConfiguration {
 
         config.getMapConfigs().put("project.permissions", initializeProjectPermissionMapConfig());
 
+        config.getMapConfigs().put("protocol.imports", initializeProtocolImportMapConfig());
+
         return Hazelcast.newHazelcastInstance(config);
     }
 
@@ -162,4 +164,16 @@ public class CacheConfiguration {
         return mapConfig;
     }
 
+    /**
+     * Results of imports by idempotency key, kept for a day so that clients
+     * retrying an import get its result rather than importing again.
+     */
+    private MapConfig initializeProtocolImportMapConfig() {
+        MapConfig mapConfig = new MapConfig();
+        mapConfig.setTimeToLiveSeconds(86400);
+        mapConfig.setEvictionPolicy(EvictionPolicy.LRU);
+        mapConfig.setMaxSizeConfig(new MaxSizeConfig(1000, MaxSizeConfig.MaxSizePolicy.PER_NODE));
+        return mapConfig;
+    }
+
 }
@@ -1,5 +1,9 @@
 package pt.up.hs.sampling.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -7,8 +11,18 @@ import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.zalando.problem.ProblemModule;
 import org.zalando.problem.violations.ConstraintViolationProblemModule;
+import pt.up.hs.sampling.constants.MediaTypes;
+import pt.up.hs.sampling.domain.codec.EncodedStrokesDeserializer;
+import pt.up.hs.sampling.domain.codec.EncodedStrokesSerializer;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.service.dto.ProtocolDataDTO;
+
+import java.util.Collections;
+import java.util.List;
 
 @Configuration
 public class JacksonConfiguration {
@@ -58,4 +72,39 @@ public class JacksonConfiguration {
     ConstraintViolationProblemModule constraintViolationProblemModule() {
         return new ConstraintViolationProblemModule();
     }
+
+    /*
+     * Binary (CBOR) representation of the protocol data.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter protocolDataCborHttpMessageConverter(
+        Jackson2ObjectMapperBuilder builder
+    ) {
+        MappingJackson2CborHttpMessageConverter converter =
+            new MappingJackson2CborHttpMessageConverter(protocolDataCborMapper(builder));
+        converter.setSupportedMediaTypes(Collections.singletonList(MediaTypes.PROTOCOL_DATA_CBOR));
+        return converter;
+    }
+
+    /**
+     * Build the mapper for {@link MediaTypes#PROTOCOL_DATA_CBOR}: CBOR, with
+     * the strokes of {@link ProtocolDataDTO} in the binary format of
+     * {@link pt.up.hs.sampling.domain.codec.StrokeCodec}.
+     *
+     * @param builder builder with the application settings.
+     * @return the mapper.
+     */
+    public static ObjectMapper protocolDataCborMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder
+            .factory(new CBORFactory())
+            .mixIn(ProtocolDataDTO.class, ProtocolDataCborMixIn.class)
+            .build();
+    }
+
+    abstract static class ProtocolDataCborMixIn {
+
+        @JsonSerialize(using = EncodedStrokesSerializer.class)
+        @JsonDeserialize(using = EncodedStrokesDeserializer.class)
+        private List<Stroke> strokes;
+    }
 }
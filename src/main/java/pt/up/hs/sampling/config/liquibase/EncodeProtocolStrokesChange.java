@@ -0,0 +1,56 @@
+package pt.up.hs.sampling.config.liquibase;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pt.up.hs.sampling.domain.codec.StrokeCodec;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts the strokes of existing protocols from JSON (column
+ * {@code strokes}) to the binary format of {@link StrokeCodec} (column
+ * {@code strokes_bin}).
+ *
+ * @author José Carlos Paiva
+ */
+public class EncodeProtocolStrokesChange extends PagedBackfillChange<String> {
+
+    private final ObjectMapper mapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Override
+    protected String getSelectSql() {
+        return "SELECT protocol_id, strokes FROM protocol_data WHERE protocol_id > ? ORDER BY protocol_id";
+    }
+
+    @Override
+    protected String getUpdateSql() {
+        return "UPDATE protocol_data SET strokes_bin = ? WHERE protocol_id = ?";
+    }
+
+    @Override
+    protected String read(ResultSet rs) throws SQLException {
+        return rs.getString(2);
+    }
+
+    @Override
+    protected void bind(PreparedStatement update, long id, String json) throws SQLException, IOException {
+        List<Stroke> strokes = json == null
+            ? new ArrayList<>()
+            : mapper.readValue(json, new TypeReference<List<Stroke>>() {});
+        update.setBytes(1, StrokeCodec.encode(strokes));
+        update.setLong(2, id);
+    }
+
+    @Override
+    protected String getDescription() {
+        return "encoded protocol strokes";
+    }
+}
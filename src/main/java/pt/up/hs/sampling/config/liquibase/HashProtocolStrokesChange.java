@@ -0,0 +1,54 @@
+package pt.up.hs.sampling.config.liquibase;
+
+import pt.up.hs.sampling.domain.codec.StrokeCodec;
+import pt.up.hs.sampling.domain.codec.StrokeHash;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Computes the content hash ({@link StrokeHash}) of existing protocols from
+ * their strokes.
+ * <p>
+ * Protocols with appended segments are left without one, as their strokes
+ * no longer match those imported.
+ *
+ * @author José Carlos Paiva
+ */
+public class HashProtocolStrokesChange extends PagedBackfillChange<byte[]> {
+
+    @Override
+    protected String getSelectSql() {
+        return "SELECT d.protocol_id, d.strokes FROM protocol_stroke_data d WHERE d.protocol_id > ? " +
+            "AND NOT EXISTS (SELECT 1 FROM protocol_stroke_segment s WHERE s.protocol_id = d.protocol_id) " +
+            "ORDER BY d.protocol_id";
+    }
+
+    @Override
+    protected String getUpdateSql() {
+        return "UPDATE protocol SET content_hash = ? WHERE id = ?";
+    }
+
+    @Override
+    protected byte[] read(ResultSet rs) throws SQLException {
+        return rs.getBytes(2);
+    }
+
+    @Override
+    protected void bind(PreparedStatement update, long id, byte[] strokes) throws SQLException {
+        String hash = StrokeHash.of(StrokeCodec.decode(strokes));
+        if (hash == null) {
+            update.setNull(1, Types.VARCHAR);
+        } else {
+            update.setString(1, hash);
+        }
+        update.setLong(2, id);
+    }
+
+    @Override
+    protected String getDescription() {
+        return "hashed protocol strokes";
+    }
+}
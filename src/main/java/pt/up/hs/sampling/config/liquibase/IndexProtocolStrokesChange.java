@@ -0,0 +1,104 @@
+package pt.up.hs.sampling.config.liquibase;
+
+import liquibase.database.Database;
+import liquibase.exception.ValidationErrors;
+import pt.up.hs.sampling.domain.codec.StrokeCodec;
+import pt.up.hs.sampling.domain.codec.StrokeIndex;
+import pt.up.hs.sampling.domain.codec.StrokePyramid;
+import pt.up.hs.sampling.domain.codec.StrokeSpatialIndex;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Builds an index of the strokes of existing protocols. The index to build
+ * is given by the parameter {@code column}: {@code stroke_index}
+ * ({@link StrokeIndex}, default), {@code spatial_index}
+ * ({@link StrokeSpatialIndex}) or {@code stroke_lods} ({@link StrokePyramid}).
+ * The parameter {@code table} tells whether to index the strokes of the
+ * protocols ({@code protocol_stroke_data}, default) or those appended to
+ * them ({@code protocol_stroke_segment}).
+ *
+ * @author José Carlos Paiva
+ */
+public class IndexProtocolStrokesChange extends PagedBackfillChange<byte[]> {
+
+    private static final String STROKE_INDEX = "stroke_index";
+    private static final String SPATIAL_INDEX = "spatial_index";
+    private static final String STROKE_LODS = "stroke_lods";
+
+    private static final String STROKE_DATA = "protocol_stroke_data";
+    private static final String STROKE_SEGMENT = "protocol_stroke_segment";
+
+    private String column = STROKE_INDEX;
+
+    private String table = STROKE_DATA;
+
+    public String getColumn() {
+        return column;
+    }
+
+    public void setColumn(String column) {
+        this.column = column;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    @Override
+    protected String getSelectSql() {
+        String key = getKey();
+        return "SELECT " + key + ", strokes FROM " + table + " WHERE " + key + " > ? ORDER BY " + key;
+    }
+
+    @Override
+    protected String getUpdateSql() {
+        return "UPDATE " + table + " SET " + column + " = ? WHERE " + getKey() + " = ?";
+    }
+
+    @Override
+    protected byte[] read(ResultSet rs) throws SQLException {
+        return rs.getBytes(2);
+    }
+
+    @Override
+    protected void bind(PreparedStatement update, long id, byte[] data) throws SQLException {
+        byte[] index;
+        if (SPATIAL_INDEX.equals(column)) {
+            index = StrokeSpatialIndex.of(StrokeCodec.decode(data)).encode();
+        } else if (STROKE_LODS.equals(column)) {
+            index = StrokePyramid.encode(StrokeCodec.decode(data));
+        } else {
+            index = StrokeIndex.of(StrokeCodec.decode(data)).encode();
+        }
+        update.setBytes(1, index);
+        update.setLong(2, id);
+    }
+
+    @Override
+    protected String getDescription() {
+        return "indexed " + (STROKE_SEGMENT.equals(table) ? "appended" : "protocol") + " strokes, " + column;
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        ValidationErrors errors = new ValidationErrors();
+        if (!STROKE_INDEX.equals(column) && !SPATIAL_INDEX.equals(column) && !STROKE_LODS.equals(column)) {
+            errors.addError("Unknown stroke index column " + column);
+        }
+        if (!STROKE_DATA.equals(table) && !STROKE_SEGMENT.equals(table)) {
+            errors.addError("Unknown strokes table " + table);
+        }
+        return errors;
+    }
+
+    private String getKey() {
+        return STROKE_SEGMENT.equals(table) ? "id" : "protocol_id";
+    }
+}
@@ -0,0 +1,166 @@
+package pt.up.hs.sampling.config.liquibase;
+
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.SetupException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills columns of existing rows computed from other columns, a page of rows
+ * at a time (in order of ID, so that pages are found through the primary key,
+ * however many rows there are). Each page is read first and then updated
+ * with a single batch.
+ * <p>
+ * The values are computed with the codecs of the running version (e.g.,
+ * {@code StrokeCodec}, {@code StrokeIndex}, {@code StrokeHash} or
+ * {@code ProtocolSummary}), not frozen at the version of the change set. On a
+ * new database, this computes exactly what the application reads and writes
+ * today, which is what it must find there. Databases migrated earlier keep
+ * the values of the version that migrated them, so a change to the output of
+ * those codecs (other than a new version that they still read) must come
+ * with a new change set recomputing the column, which takes a few lines with
+ * the same change. For the same reason, the codecs must keep reading the
+ * source columns as stored by older versions.
+ *
+ * @param <T> type of the values read from each row.
+ * @author José Carlos Paiva
+ */
+public abstract class PagedBackfillChange<T> implements CustomTaskChange {
+
+    private static final Logger log = LoggerFactory.getLogger(PagedBackfillChange.class);
+
+    private static final int PAGE_SIZE = 50;
+
+    private int updated = 0;
+
+    /**
+     * Get the query selecting the ID (first column) and the values of rows
+     * with an ID greater than the parameter, in order of ID.
+     *
+     * @return the query, without limit.
+     */
+    protected abstract String getSelectSql();
+
+    /**
+     * Get the statement updating a row.
+     *
+     * @return the update statement.
+     */
+    protected abstract String getUpdateSql();
+
+    /**
+     * Read the values of the current row of the selected page.
+     *
+     * @param rs the selected page.
+     * @return the values of the row.
+     * @throws SQLException if the values could not be read.
+     */
+    protected abstract T read(ResultSet rs) throws SQLException;
+
+    /**
+     * Bind the parameters to update a row, computed from its values.
+     *
+     * @param update the update statement.
+     * @param id     ID of the row.
+     * @param values values of the row.
+     * @throws Exception if the parameters could not be computed.
+     */
+    protected abstract void bind(PreparedStatement update, long id, T values) throws Exception;
+
+    /**
+     * Get a description of the rows updated, for messages.
+     *
+     * @return description of the rows updated (e.g., "hashed strokes").
+     */
+    protected abstract String getDescription();
+
+    /**
+     * Prepare any other statements needed to compute the updates.
+     *
+     * @param connection the connection to the database.
+     * @throws SQLException if the statements could not be prepared.
+     */
+    protected void open(Connection connection) throws SQLException {
+    }
+
+    /**
+     * Close the statements prepared in {@link #open(Connection)}.
+     *
+     * @throws SQLException if the statements could not be closed.
+     */
+    protected void close() throws SQLException {
+    }
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+        try (
+            PreparedStatement select = connection.prepareStatement(getSelectSql() + " LIMIT " + PAGE_SIZE);
+            PreparedStatement update = connection.prepareStatement(getUpdateSql())
+        ) {
+            open(connection);
+            try {
+                long lastId = Long.MIN_VALUE;
+                boolean more = true;
+                while (more) {
+                    List<Long> ids = new ArrayList<>(PAGE_SIZE);
+                    List<T> values = new ArrayList<>(PAGE_SIZE);
+                    select.setLong(1, lastId);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            ids.add(rs.getLong(1));
+                            values.add(read(rs));
+                        }
+                    }
+
+                    for (int i = 0; i < ids.size(); i++) {
+                        bind(update, ids.get(i), values.get(i));
+                        update.addBatch();
+                    }
+                    if (!ids.isEmpty()) {
+                        update.executeBatch();
+                        lastId = ids.get(ids.size() - 1);
+                        updated += ids.size();
+                    }
+                    more = ids.size() == PAGE_SIZE;
+                }
+            } finally {
+                close();
+            }
+        } catch (Exception e) {
+            throw new CustomChangeException("Failed to update rows (" + getDescription() + ").", e);
+        }
+
+        log.info("{}", getConfirmationMessage());
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Updated " + updated + " rows (" + getDescription() + ")";
+    }
+
+    @Override
+    public void setUp() throws SetupException {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
@@ -0,0 +1,88 @@
+package pt.up.hs.sampling.config.liquibase;
+
+import pt.up.hs.sampling.domain.ProtocolSummary;
+import pt.up.hs.sampling.domain.codec.StrokeCodec;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Computes the {@link ProtocolSummary} of existing protocols from their
+ * strokes (including appended segments).
+ *
+ * @author José Carlos Paiva
+ */
+public class SummarizeProtocolStrokesChange extends PagedBackfillChange<byte[]> {
+
+    private static final String SELECT_SEGMENTS =
+        "SELECT strokes FROM protocol_stroke_segment WHERE protocol_id = ? ORDER BY seq";
+
+    private PreparedStatement selectSegments;
+
+    @Override
+    protected String getSelectSql() {
+        return "SELECT protocol_id, strokes FROM protocol_stroke_data WHERE protocol_id > ? ORDER BY protocol_id";
+    }
+
+    @Override
+    protected String getUpdateSql() {
+        return "UPDATE protocol SET stroke_count = ?, dot_count = ?, start_time = ?, end_time = ?, duration = ?, " +
+            "min_x = ?, min_y = ?, max_x = ?, max_y = ?, mean_pressure = ? WHERE id = ?";
+    }
+
+    @Override
+    protected void open(Connection connection) throws SQLException {
+        selectSegments = connection.prepareStatement(SELECT_SEGMENTS);
+    }
+
+    @Override
+    protected void close() throws SQLException {
+        if (selectSegments != null) {
+            selectSegments.close();
+        }
+    }
+
+    @Override
+    protected byte[] read(ResultSet rs) throws SQLException {
+        return rs.getBytes(2);
+    }
+
+    @Override
+    protected void bind(PreparedStatement update, long id, byte[] strokes) throws SQLException {
+        ProtocolSummary summary = ProtocolSummary.of(StrokeCodec.decode(strokes));
+        selectSegments.setLong(1, id);
+        try (ResultSet rs = selectSegments.executeQuery()) {
+            while (rs.next()) {
+                summary.add(StrokeCodec.decode(rs.getBytes(1)));
+            }
+        }
+        update.setInt(1, summary.getStrokeCount());
+        update.setInt(2, summary.getDotCount());
+        setNullable(update, 3, summary.getStartTime(), Types.BIGINT);
+        setNullable(update, 4, summary.getEndTime(), Types.BIGINT);
+        setNullable(update, 5, summary.getDuration(), Types.BIGINT);
+        setNullable(update, 6, summary.getMinX(), Types.DOUBLE);
+        setNullable(update, 7, summary.getMinY(), Types.DOUBLE);
+        setNullable(update, 8, summary.getMaxX(), Types.DOUBLE);
+        setNullable(update, 9, summary.getMaxY(), Types.DOUBLE);
+        setNullable(update, 10, summary.getMeanPressure(), Types.DOUBLE);
+        update.setLong(11, id);
+    }
+
+    @Override
+    protected String getDescription() {
+        return "summarized protocol strokes";
+    }
+
+    private static void setNullable(PreparedStatement statement, int index, Object value, int sqlType)
+        throws SQLException {
+        if (value == null) {
+            statement.setNull(index, sqlType);
+        } else {
+            statement.setObject(index, value, sqlType);
+        }
+    }
+}
@@ -10,4 +10,6 @@ public final class ErrorKeys {
     public static final String ERR_READ_IMPORT = "error.readImport";
     public static final String ERR_EXPORT_BULK = "error.readImport";
     public static final String ERR_READING_PREVIEW = "error.readingPreview";
+    public static final String ERR_INVALID_RANGE = "error.invalidRange";
+    public static final String ERR_UPLOAD_OFFSET = "error.uploadOffset";
 }
@@ -0,0 +1,27 @@
+package pt.up.hs.sampling.constants;
+
+import org.springframework.http.MediaType;
+
+public final class MediaTypes {
+    /**
+     * CBOR representation of the protocol data, with the strokes in the
+     * binary format of {@link pt.up.hs.sampling.domain.codec.StrokeCodec}
+     * (schema in {@code /schema/protocol-data.cddl}).
+     */
+    public static final String PROTOCOL_DATA_CBOR_VALUE = "application/vnd.handspy.protocol-data+cbor";
+    public static final MediaType PROTOCOL_DATA_CBOR = MediaType.valueOf(PROTOCOL_DATA_CBOR_VALUE);
+
+    /**
+     * ZIP archive (also sent as {@code application/x-zip-compressed} by
+     * some browsers).
+     */
+    public static final String APPLICATION_ZIP_VALUE = "application/zip";
+    public static final String APPLICATION_X_ZIP_COMPRESSED_VALUE = "application/x-zip-compressed";
+
+    /**
+     * Newline-delimited JSON, i.e., one JSON value per line (used to stream
+     * results as they are produced).
+     */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+}
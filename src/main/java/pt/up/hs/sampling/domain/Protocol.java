@@ -57,6 +57,22 @@ public class Protocol extends AbstractAuditingEntity {
     @Column(name = "language", length = 5)
     private String language;
 
+    /**
+     * Summary statistics of the strokes of the protocol (null if the
+     * protocol has no data).
+     */
+    @Embedded
+    private ProtocolSummary summary;
+
+    /**
+     * Fingerprint of the strokes of the protocol (see
+     * {@link pt.up.hs.sampling.domain.codec.StrokeHash}), to recognize pages
+     * imported again (null if unknown or if the protocol has no strokes).
+     */
+    @Size(max = 64)
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here, do not remove
     public Long getId() {
         return id;
@@ -131,6 +147,32 @@ public class Protocol extends AbstractAuditingEntity {
         this.language = language;
     }
 
+    public ProtocolSummary getSummary() {
+        return summary;
+    }
+
+    public Protocol summary(ProtocolSummary summary) {
+        this.summary = summary;
+        return this;
+    }
+
+    public void setSummary(ProtocolSummary summary) {
+        this.summary = summary;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public Protocol contentHash(String contentHash) {
+        this.contentHash = contentHash;
+        return this;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here, do not remove
 
     @Override
@@ -3,18 +3,17 @@ package pt.up.hs.sampling.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.hibernate.annotations.*;
 import org.hibernate.annotations.Cache;
-import pt.up.hs.sampling.domain.pojo.Stroke;
 
 import javax.persistence.*;
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
 import javax.persistence.Table;
-import javax.validation.constraints.NotNull;
+import java.time.Instant;
 import java.util.*;
 
 /**
  * Handwritten data collected using a smartpen for analysis (part of the
- * sample).
+ * sample). The strokes are stored in {@link ProtocolStrokeData}.
  *
  * @author José Carlos Paiva
  */
@@ -53,14 +52,6 @@ public class ProtocolData extends AbstractAuditingEntity {
     @Type(type = "jsonb")
     private Map<String, Object> metadata = new HashMap<>();
 
-    /**
-     * Strokes captured.
-     */
-    @NotNull
-    @Type(type = "jsonb")
-    // @Column(columnDefinition = "jsonb")
-    private List<Stroke> strokes = new ArrayList<>();
-
     /**
      * Is the preview of this protocol dirty/outdated?
      */
@@ -68,6 +59,21 @@ public class ProtocolData extends AbstractAuditingEntity {
     @JsonIgnore
     private boolean dirtyPreview = true;
 
+    /**
+     * Worker (of an instance) generating the preview of this protocol (if any).
+     */
+    @Column(name = "preview_claimed_by", length = 64)
+    @JsonIgnore
+    private String previewClaimedBy;
+
+    /**
+     * Time until which the preview of this protocol is claimed by
+     * {@link #previewClaimedBy}, after which other workers may claim it.
+     */
+    @Column(name = "preview_claimed_until")
+    @JsonIgnore
+    private Instant previewClaimedUntil;
+
     public Long getProtocolId() {
         return protocolId;
     }
@@ -111,24 +117,6 @@ public class ProtocolData extends AbstractAuditingEntity {
         this.height = height;
     }
 
-    public List<Stroke> getStrokes() {
-        return strokes;
-    }
-
-    public ProtocolData strokes(List<Stroke> strokes) {
-        this.strokes = strokes;
-        return this;
-    }
-
-    public ProtocolData addStroke(Stroke stroke) {
-        this.strokes.add(stroke);
-        return this;
-    }
-
-    public void setStrokes(List<Stroke> strokes) {
-        this.strokes = strokes;
-    }
-
     public Map<String, Object> getMetadata() {
         return metadata;
     }
@@ -160,6 +148,32 @@ public class ProtocolData extends AbstractAuditingEntity {
         this.dirtyPreview = dirtyPreview;
     }
 
+    public String getPreviewClaimedBy() {
+        return previewClaimedBy;
+    }
+
+    public ProtocolData previewClaimedBy(String previewClaimedBy) {
+        this.previewClaimedBy = previewClaimedBy;
+        return this;
+    }
+
+    public void setPreviewClaimedBy(String previewClaimedBy) {
+        this.previewClaimedBy = previewClaimedBy;
+    }
+
+    public Instant getPreviewClaimedUntil() {
+        return previewClaimedUntil;
+    }
+
+    public ProtocolData previewClaimedUntil(Instant previewClaimedUntil) {
+        this.previewClaimedUntil = previewClaimedUntil;
+        return this;
+    }
+
+    public void setPreviewClaimedUntil(Instant previewClaimedUntil) {
+        this.previewClaimedUntil = previewClaimedUntil;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -179,7 +193,6 @@ public class ProtocolData extends AbstractAuditingEntity {
             ", protocol=" + protocol +
             ", width=" + width +
             ", height=" + height +
-            ", strokes=" + strokes +
             ", dirtyPreview=" + dirtyPreview +
             '}';
     }
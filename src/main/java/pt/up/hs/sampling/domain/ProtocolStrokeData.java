@@ -0,0 +1,190 @@
+package pt.up.hs.sampling.domain;
+
+import org.hibernate.annotations.Type;
+import pt.up.hs.sampling.domain.codec.StrokeIndex;
+import pt.up.hs.sampling.domain.codec.StrokePyramid;
+import pt.up.hs.sampling.domain.codec.StrokeSpatialIndex;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Strokes of a {@link ProtocolData}, kept apart so that the (large) payload
+ * is only loaded when explicitly requested.
+ *
+ * @author José Carlos Paiva
+ */
+@Entity
+@Table(name = "protocol_stroke_data")
+public class ProtocolStrokeData implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "protocol_id", unique = true, nullable = false)
+    private Long protocolId;
+
+    @OneToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "protocol_id")
+    @MapsId
+    private ProtocolData protocolData;
+
+    /**
+     * Strokes captured (see {@link pt.up.hs.sampling.domain.codec.StrokeCodec}
+     * for the storage format). Replace the list to have changes persisted
+     * (and the indexes below rebuilt).
+     */
+    @NotNull
+    @Type(type = "strokes")
+    @Column(name = "strokes", nullable = false)
+    private List<Stroke> strokes = new ArrayList<>();
+
+    /**
+     * Time range of each stroke (see {@link StrokeIndex}), rebuilt whenever
+     * the strokes are replaced.
+     */
+    @Column(name = "stroke_index")
+    private byte[] strokeIndex;
+
+    /**
+     * Bounding boxes of the strokes (see {@link StrokeSpatialIndex}), rebuilt
+     * whenever the strokes are replaced.
+     */
+    @Column(name = "spatial_index")
+    private byte[] spatialIndex;
+
+    /**
+     * Simplified strokes for each level of detail (see
+     * {@link StrokePyramid}), rebuilt whenever the strokes are replaced.
+     */
+    @Column(name = "stroke_lods")
+    private byte[] strokeLods;
+
+    /**
+     * Strokes appended after the strokes were saved (not covered by the
+     * indexes above, each segment has its own).
+     */
+    @OneToMany(mappedBy = "strokeData")
+    @OrderBy("seq")
+    private List<ProtocolStrokeSegment> segments = new ArrayList<>();
+
+    public Long getProtocolId() {
+        return protocolId;
+    }
+
+    public ProtocolData getProtocolData() {
+        return protocolData;
+    }
+
+    public ProtocolStrokeData protocolData(ProtocolData protocolData) {
+        this.protocolData = protocolData;
+        return this;
+    }
+
+    public void setProtocolData(ProtocolData protocolData) {
+        this.protocolData = protocolData;
+    }
+
+    public List<Stroke> getStrokes() {
+        return strokes;
+    }
+
+    public ProtocolStrokeData strokes(List<Stroke> strokes) {
+        setStrokes(strokes);
+        return this;
+    }
+
+    /**
+     * Replace the strokes, rebuilding their indexes (unless it is the same
+     * list).
+     *
+     * @param strokes the new strokes.
+     */
+    public void setStrokes(List<Stroke> strokes) {
+        if (strokes == this.strokes) {
+            return;
+        }
+        this.strokes = strokes;
+        if (strokes == null) {
+            strokeIndex = null;
+            spatialIndex = null;
+            strokeLods = null;
+        } else {
+            strokeIndex = StrokeIndex.of(strokes).encode();
+            spatialIndex = StrokeSpatialIndex.of(strokes).encode();
+            strokeLods = StrokePyramid.encode(strokes);
+        }
+    }
+
+    /**
+     * Replace the strokes by those of other stroke data, along with the
+     * indexes already built for them.
+     *
+     * @param other the stroke data to copy the strokes from.
+     */
+    public void copyStrokes(ProtocolStrokeData other) {
+        this.strokes = other.strokes;
+        this.strokeIndex = other.strokeIndex;
+        this.spatialIndex = other.spatialIndex;
+        this.strokeLods = other.strokeLods;
+    }
+
+    public List<ProtocolStrokeSegment> getSegments() {
+        return segments;
+    }
+
+    /**
+     * Get the saved strokes followed by the strokes of the appended
+     * segments.
+     *
+     * @return all the strokes of the protocol.
+     */
+    public List<Stroke> getAllStrokes() {
+        if (segments == null || segments.isEmpty()) {
+            return strokes;
+        }
+        List<Stroke> all = new ArrayList<>(strokes);
+        for (ProtocolStrokeSegment segment : segments) {
+            all.addAll(segment.getStrokes());
+        }
+        return all;
+    }
+
+    public byte[] getStrokeIndex() {
+        return strokeIndex;
+    }
+
+    public byte[] getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    public byte[] getStrokeLods() {
+        return strokeLods;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ProtocolStrokeData that = (ProtocolStrokeData) o;
+        return Objects.equals(getProtocolId(), that.getProtocolId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getProtocolId());
+    }
+
+    @Override
+    public String toString() {
+        return "ProtocolStrokeData{" +
+            "protocolId=" + protocolId +
+            ", strokes=" + (strokes == null ? 0 : strokes.size()) +
+            '}';
+    }
+}
@@ -0,0 +1,193 @@
+package pt.up.hs.sampling.domain;
+
+import org.hibernate.annotations.Type;
+import pt.up.hs.sampling.domain.codec.StrokeIndex;
+import pt.up.hs.sampling.domain.codec.StrokePyramid;
+import pt.up.hs.sampling.domain.codec.StrokeSpatialIndex;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Strokes appended to a {@link ProtocolStrokeData} after it was saved, kept
+ * in their own rows so that appending does not rewrite the strokes already
+ * stored. Segments are read after the strokes of the protocol, ordered by
+ * {@link #getSeq()}, and carry the same indexes as {@link ProtocolStrokeData}
+ * for their own strokes (stroke positions relative to the segment).
+ *
+ * @author José Carlos Paiva
+ */
+@Entity
+@Table(name = "protocol_stroke_segment")
+public class ProtocolStrokeSegment implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    private Long id;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "protocol_id", nullable = false)
+    private ProtocolStrokeData strokeData;
+
+    /**
+     * Position of the segment among the segments of the protocol.
+     */
+    @NotNull
+    @Column(name = "seq", nullable = false)
+    private Integer seq;
+
+    /**
+     * Number of strokes in the segment.
+     */
+    @NotNull
+    @Column(name = "stroke_count", nullable = false)
+    private Integer strokeCount = 0;
+
+    /**
+     * Strokes appended (see {@link pt.up.hs.sampling.domain.codec.StrokeCodec}
+     * for the storage format). Replace the list to have changes persisted
+     * (and the indexes below rebuilt).
+     */
+    @NotNull
+    @Type(type = "strokes")
+    @Column(name = "strokes", nullable = false)
+    private List<Stroke> strokes = new ArrayList<>();
+
+    /**
+     * Time range of each stroke (see {@link StrokeIndex}), rebuilt whenever
+     * the strokes are replaced.
+     */
+    @Column(name = "stroke_index")
+    private byte[] strokeIndex;
+
+    /**
+     * Bounding boxes of the strokes (see {@link StrokeSpatialIndex}), rebuilt
+     * whenever the strokes are replaced.
+     */
+    @Column(name = "spatial_index")
+    private byte[] spatialIndex;
+
+    /**
+     * Simplified strokes for each level of detail (see
+     * {@link StrokePyramid}), rebuilt whenever the strokes are replaced.
+     */
+    @Column(name = "stroke_lods")
+    private byte[] strokeLods;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public ProtocolStrokeData getStrokeData() {
+        return strokeData;
+    }
+
+    public ProtocolStrokeSegment strokeData(ProtocolStrokeData strokeData) {
+        this.strokeData = strokeData;
+        return this;
+    }
+
+    public void setStrokeData(ProtocolStrokeData strokeData) {
+        this.strokeData = strokeData;
+    }
+
+    public Integer getSeq() {
+        return seq;
+    }
+
+    public ProtocolStrokeSegment seq(Integer seq) {
+        this.seq = seq;
+        return this;
+    }
+
+    public void setSeq(Integer seq) {
+        this.seq = seq;
+    }
+
+    public Integer getStrokeCount() {
+        return strokeCount;
+    }
+
+    public List<Stroke> getStrokes() {
+        return strokes;
+    }
+
+    public ProtocolStrokeSegment strokes(List<Stroke> strokes) {
+        setStrokes(strokes);
+        return this;
+    }
+
+    /**
+     * Replace the strokes, rebuilding their indexes (unless it is the same
+     * list).
+     *
+     * @param strokes the new strokes.
+     */
+    public void setStrokes(List<Stroke> strokes) {
+        if (strokes == this.strokes) {
+            return;
+        }
+        this.strokes = strokes;
+        if (strokes == null) {
+            strokeIndex = null;
+            spatialIndex = null;
+            strokeLods = null;
+        } else {
+            strokeIndex = StrokeIndex.of(strokes).encode();
+            spatialIndex = StrokeSpatialIndex.of(strokes).encode();
+            strokeLods = StrokePyramid.encode(strokes);
+        }
+    }
+
+    public byte[] getStrokeIndex() {
+        return strokeIndex;
+    }
+
+    public byte[] getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    public byte[] getStrokeLods() {
+        return strokeLods;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void updateStrokeCount() {
+        strokeCount = strokes == null ? 0 : strokes.size();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ProtocolStrokeSegment that = (ProtocolStrokeSegment) o;
+        return id != null && Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    @Override
+    public String toString() {
+        return "ProtocolStrokeSegment{" +
+            "id=" + id +
+            ", seq=" + seq +
+            ", strokeCount=" + strokeCount +
+            '}';
+    }
+}
@@ -0,0 +1,277 @@
+package pt.up.hs.sampling.domain;
+
+import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.domain.pojo.StrokeBuffer;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Summary statistics of the strokes of a protocol, kept in indexed columns
+ * of the protocol so that protocols can be listed and filtered by them
+ * without reading their strokes.
+ * <p>
+ * Summaries are computed when the strokes are saved and extended with
+ * {@link #add(List)} when strokes are appended. Values that cannot be
+ * computed (e.g., bounding box of strokes without coordinates) are
+ * {@code null}.
+ *
+ * @author José Carlos Paiva
+ */
+@Embeddable
+public class ProtocolSummary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Number of strokes.
+     */
+    @Column(name = "stroke_count")
+    private Integer strokeCount;
+
+    /**
+     * Number of dots.
+     */
+    @Column(name = "dot_count")
+    private Integer dotCount;
+
+    /**
+     * Timestamp at which the first stroke started.
+     */
+    @Column(name = "start_time")
+    private Long startTime;
+
+    /**
+     * Timestamp at which the last stroke ended.
+     */
+    @Column(name = "end_time")
+    private Long endTime;
+
+    /**
+     * Writing duration, i.e., sum of the durations of the strokes (pen
+     * down time).
+     */
+    @Column(name = "duration")
+    private Long duration;
+
+    @Column(name = "min_x")
+    private Double minX;
+
+    @Column(name = "min_y")
+    private Double minY;
+
+    @Column(name = "max_x")
+    private Double maxX;
+
+    @Column(name = "max_y")
+    private Double maxY;
+
+    /**
+     * Mean pressure of the dots.
+     */
+    @Column(name = "mean_pressure")
+    private Double meanPressure;
+
+    /**
+     * Compute the summary of a list of strokes.
+     *
+     * @param strokes the strokes.
+     * @return the summary.
+     */
+    public static ProtocolSummary of(List<Stroke> strokes) {
+        return new ProtocolSummary().add(strokes);
+    }
+
+    /**
+     * Extend this summary with strokes written after the ones already
+     * summarized. The mean pressure kept is weighted by the number of dots,
+     * so it is exact as long as dots either all have pressure or none have.
+     *
+     * @param strokes the strokes.
+     * @return this summary.
+     */
+    public ProtocolSummary add(List<Stroke> strokes) {
+        int strokes0 = strokeCount == null ? 0 : strokeCount;
+        int dots0 = dotCount == null ? 0 : dotCount;
+        if (strokes == null) {
+            strokeCount = strokes0;
+            dotCount = dots0;
+            return this;
+        }
+
+        int dots = 0;
+        int pressureCount = 0;
+        double pressureSum = 0;
+        for (Stroke stroke : strokes) {
+            StrokeBuffer buffer = stroke.getDots();
+            int n = buffer == null ? 0 : buffer.size();
+            dots += n;
+            for (int i = 0; i < n; i++) {
+                double x = buffer.getX(i), y = buffer.getY(i);
+                if (!Double.isNaN(x)) {
+                    minX = minX == null ? x : Math.min(minX, x);
+                    maxX = maxX == null ? x : Math.max(maxX, x);
+                }
+                if (!Double.isNaN(y)) {
+                    minY = minY == null ? y : Math.min(minY, y);
+                    maxY = maxY == null ? y : Math.max(maxY, y);
+                }
+                double pressure = buffer.getPressure(i);
+                if (!Double.isNaN(pressure)) {
+                    pressureSum += pressure;
+                    pressureCount++;
+                }
+            }
+
+            Long start = stroke.getStartTime();
+            Long end = stroke.getEndTime();
+            if (start == null && n > 0 && buffer.getTimestamp(0) != StrokeBuffer.NO_TIMESTAMP) {
+                start = buffer.getTimestamp(0);
+            }
+            if (end == null && n > 0 && buffer.getTimestamp(n - 1) != StrokeBuffer.NO_TIMESTAMP) {
+                end = buffer.getTimestamp(n - 1);
+            }
+            if (start != null) {
+                startTime = startTime == null ? start : Math.min(startTime, start);
+            }
+            if (end != null) {
+                endTime = endTime == null ? end : Math.max(endTime, end);
+            }
+            if (start != null && end != null) {
+                duration = (duration == null ? 0 : duration) + Math.max(0, end - start);
+            }
+        }
+
+        if (pressureCount > 0) {
+            double mean = pressureSum / pressureCount;
+            meanPressure = meanPressure == null || dots0 == 0
+                ? mean
+                : (meanPressure * dots0 + mean * dots) / (dots0 + dots);
+        }
+        strokeCount = strokes0 + strokes.size();
+        dotCount = dots0 + dots;
+        return this;
+    }
+
+    public Integer getStrokeCount() {
+        return strokeCount;
+    }
+
+    public void setStrokeCount(Integer strokeCount) {
+        this.strokeCount = strokeCount;
+    }
+
+    public Integer getDotCount() {
+        return dotCount;
+    }
+
+    public void setDotCount(Integer dotCount) {
+        this.dotCount = dotCount;
+    }
+
+    public Long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Long startTime) {
+        this.startTime = startTime;
+    }
+
+    public Long getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(Long endTime) {
+        this.endTime = endTime;
+    }
+
+    public Long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Long duration) {
+        this.duration = duration;
+    }
+
+    public Double getMinX() {
+        return minX;
+    }
+
+    public void setMinX(Double minX) {
+        this.minX = minX;
+    }
+
+    public Double getMinY() {
+        return minY;
+    }
+
+    public void setMinY(Double minY) {
+        this.minY = minY;
+    }
+
+    public Double getMaxX() {
+        return maxX;
+    }
+
+    public void setMaxX(Double maxX) {
+        this.maxX = maxX;
+    }
+
+    public Double getMaxY() {
+        return maxY;
+    }
+
+    public void setMaxY(Double maxY) {
+        this.maxY = maxY;
+    }
+
+    public Double getMeanPressure() {
+        return meanPressure;
+    }
+
+    public void setMeanPressure(Double meanPressure) {
+        this.meanPressure = meanPressure;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ProtocolSummary that = (ProtocolSummary) o;
+        return Objects.equals(strokeCount, that.strokeCount) &&
+            Objects.equals(dotCount, that.dotCount) &&
+            Objects.equals(startTime, that.startTime) &&
+            Objects.equals(endTime, that.endTime) &&
+            Objects.equals(duration, that.duration) &&
+            Objects.equals(minX, that.minX) &&
+            Objects.equals(minY, that.minY) &&
+            Objects.equals(maxX, that.maxX) &&
+            Objects.equals(maxY, that.maxY) &&
+            Objects.equals(meanPressure, that.meanPressure);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(strokeCount, dotCount, startTime, endTime, duration,
+            minX, minY, maxX, maxY, meanPressure);
+    }
+
+    @Override
+    public String toString() {
+        return "ProtocolSummary{" +
+            "strokeCount=" + strokeCount +
+            ", dotCount=" + dotCount +
+            ", startTime=" + startTime +
+            ", endTime=" + endTime +
+            ", duration=" + duration +
+            ", minX=" + minX +
+            ", minY=" + minY +
+            ", maxX=" + maxX +
+            ", maxY=" + maxY +
+            ", meanPressure=" + meanPressure +
+            '}';
+    }
+}
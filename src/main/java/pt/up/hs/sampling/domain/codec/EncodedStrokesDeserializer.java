@@ -0,0 +1,33 @@
+package pt.up.hs.sampling.domain.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads a list of strokes from a single binary value holding their
+ * {@link StrokeCodec} encoding.
+ *
+ * @author José Carlos Paiva
+ */
+public class EncodedStrokesDeserializer extends StdDeserializer<List<Stroke>> {
+
+    public EncodedStrokesDeserializer() {
+        super(List.class);
+    }
+
+    @Override
+    public List<Stroke> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        byte[] encoded = p.getBinaryValue();
+        try {
+            return StrokeCodec.decode(encoded);
+        } catch (IllegalArgumentException e) {
+            throw JsonMappingException.from(p, "Invalid encoded strokes: " + e.getMessage(), e);
+        }
+    }
+}
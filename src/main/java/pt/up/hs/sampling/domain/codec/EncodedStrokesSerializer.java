@@ -0,0 +1,31 @@
+package pt.up.hs.sampling.domain.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a list of strokes as a single binary value holding their
+ * {@link StrokeCodec} encoding. Meant for binary formats (e.g., CBOR), where
+ * binary values are not base64-encoded.
+ *
+ * @author José Carlos Paiva
+ */
+public class EncodedStrokesSerializer extends StdSerializer<List<Stroke>> {
+
+    @SuppressWarnings("unchecked")
+    public EncodedStrokesSerializer() {
+        super((Class<List<Stroke>>) (Class<?>) List.class);
+    }
+
+    @Override
+    public void serialize(
+        List<Stroke> strokes, JsonGenerator gen, SerializerProvider provider
+    ) throws IOException {
+        gen.writeBinary(StrokeCodec.encode(strokes));
+    }
+}
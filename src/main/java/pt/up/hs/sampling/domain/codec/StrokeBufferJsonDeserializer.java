@@ -0,0 +1,102 @@
+package pt.up.hs.sampling.domain.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import pt.up.hs.sampling.domain.enumeration.DotType;
+import pt.up.hs.sampling.domain.pojo.StrokeBuffer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads a JSON list of dots straight into a {@link StrokeBuffer}, without
+ * creating an object per dot.
+ *
+ * @author José Carlos Paiva
+ */
+public class StrokeBufferJsonDeserializer extends StdDeserializer<StrokeBuffer> {
+
+    public StrokeBufferJsonDeserializer() {
+        super(StrokeBuffer.class);
+    }
+
+    @Override
+    public StrokeBuffer deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!p.isExpectedStartArrayToken()) {
+            return (StrokeBuffer) ctxt.handleUnexpectedToken(StrokeBuffer.class, p);
+        }
+
+        JavaType metadataType = ctxt.getTypeFactory()
+            .constructMapType(HashMap.class, String.class, Object.class);
+
+        StrokeBuffer buffer = new StrokeBuffer();
+        JsonToken token;
+        while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                ctxt.handleUnexpectedToken(StrokeBuffer.class, p);
+                continue;
+            }
+
+            double x = Double.NaN;
+            double y = Double.NaN;
+            double pressure = Double.NaN;
+            long timestamp = StrokeBuffer.NO_TIMESTAMP;
+            DotType type = null;
+            Map<String, Object> metadata = null;
+
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken value = p.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "x":
+                        x = p.getValueAsDouble(Double.NaN);
+                        break;
+                    case "y":
+                        y = p.getValueAsDouble(Double.NaN);
+                        break;
+                    case "pressure":
+                        pressure = p.getValueAsDouble(Double.NaN);
+                        break;
+                    case "timestamp":
+                        timestamp = p.getValueAsLong(StrokeBuffer.NO_TIMESTAMP);
+                        break;
+                    case "type":
+                        type = readType(p);
+                        break;
+                    case "metadata":
+                        metadata = ctxt.readValue(p, metadataType);
+                        break;
+                    default:
+                        p.skipChildren();
+                }
+            }
+
+            buffer.add(x, y, timestamp, type, pressure);
+            if (metadata != null) {
+                buffer.setMetadata(buffer.size() - 1, metadata);
+            }
+        }
+        buffer.trimToSize();
+        return buffer;
+    }
+
+    private static DotType readType(JsonParser p) throws IOException {
+        String name = p.getValueAsString();
+        if (name == null) {
+            throw JsonMappingException.from(p, "Invalid dot type: " + p.getText());
+        }
+        try {
+            return DotType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw JsonMappingException.from(p, "Invalid dot type: " + name, e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package pt.up.hs.sampling.domain.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import pt.up.hs.sampling.domain.enumeration.DotType;
+import pt.up.hs.sampling.domain.pojo.StrokeBuffer;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes a {@link StrokeBuffer} as the JSON list of dots that it holds,
+ * without creating an object per dot.
+ *
+ * @author José Carlos Paiva
+ */
+public class StrokeBufferJsonSerializer extends StdSerializer<StrokeBuffer> {
+
+    public StrokeBufferJsonSerializer() {
+        super(StrokeBuffer.class);
+    }
+
+    @Override
+    public void serialize(
+        StrokeBuffer buffer, JsonGenerator gen, SerializerProvider provider
+    ) throws IOException {
+        gen.writeStartArray(buffer.size());
+        StrokeBuffer.Cursor dot = buffer.cursor();
+        while (dot.next()) {
+            gen.writeStartObject();
+            writeDouble(gen, "x", dot.x());
+            writeDouble(gen, "y", dot.y());
+            if (dot.timestamp() == StrokeBuffer.NO_TIMESTAMP) {
+                gen.writeNullField("timestamp");
+            } else {
+                gen.writeNumberField("timestamp", dot.timestamp());
+            }
+            DotType type = dot.type();
+            if (type == null) {
+                gen.writeNullField("type");
+            } else {
+                gen.writeStringField("type", type.name());
+            }
+            writeDouble(gen, "pressure", dot.pressure());
+            Map<String, Object> metadata = dot.metadata();
+            if (metadata == null) {
+                gen.writeNullField("metadata");
+            } else {
+                gen.writeFieldName("metadata");
+                provider.defaultSerializeValue(metadata, gen);
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeDouble(JsonGenerator gen, String name, double value) throws IOException {
+        if (Double.isNaN(value)) {
+            gen.writeNullField(name);
+        } else {
+            gen.writeNumberField(name, value);
+        }
+    }
+}
@@ -0,0 +1,840 @@
+package pt.up.hs.sampling.domain.codec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pt.up.hs.sampling.domain.enumeration.DotType;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.domain.pojo.StrokeBuffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact binary codec for the strokes of a protocol.
+ * <p>
+ * Layout (all integers are unsigned LEB128 varints unless stated otherwise,
+ * signed values are zig-zag encoded first):
+ * <pre>
+ * header   := 'H' 'S' 'K' version:byte strokeCount
+ * stroke   := length:varint record
+ * record   := flags:byte dotCount [startTime] [endTime] [metadata]
+ *             timestamps x y pressure types [dotMetadata]
+ * </pre>
+ * Each stroke is self-contained and length-prefixed, so strokes can be
+ * skipped without decoding them. Within a stroke, dot attributes are stored
+ * column by column:
+ * <ul>
+ *     <li>timestamps as zig-zag deltas from the previous timestamp (the
+ *     first one relative to the start time of the stroke);</li>
+ *     <li>coordinates and pressure as zig-zag deltas of the value scaled by
+ *     {@link #QUANTIZATION_SCALE} when that is lossless (the import already
+ *     normalizes to 3 decimal places), as 32-bit floats when those are
+ *     exact, or as raw 64-bit doubles otherwise;</li>
+ *     <li>types omitted when they follow the usual DOWN, MOVE..., UP
+ *     sequence.</li>
+ * </ul>
+ * Missing values are kept through a presence bitmap in front of the column.
+ * Metadata maps are stored as JSON, as they have no fixed schema.
+ * <p>
+ * Every stroke takes at least one byte and every dot at least one byte of
+ * its stroke (types are stored explicitly if no other column has a value
+ * for every dot), so counts larger than the bytes remaining are rejected
+ * as malformed before anything is allocated for them.
+ *
+ * @author José Carlos Paiva
+ */
+public final class StrokeCodec {
+
+    public static final byte VERSION = 1;
+
+    public static final double QUANTIZATION_SCALE = 1000D;
+
+    private static final byte[] MAGIC = {'H', 'S', 'K'};
+
+    private static final int FLAG_START_TIME = 0x01;
+    private static final int FLAG_END_TIME = 0x02;
+    private static final int FLAG_METADATA = 0x04;
+    private static final int FLAG_DOT_METADATA = 0x08;
+
+    private static final int COLUMN_ABSENT = 0;
+    private static final int COLUMN_DELTA = 1;
+    private static final int COLUMN_FLOAT = 2;
+    private static final int COLUMN_DOUBLE = 3;
+    private static final int COLUMN_NULLS = 0x80;
+
+    private static final int TYPES_ABSENT = 0;
+    private static final int TYPES_SEQUENCE = 1;
+    private static final int TYPES_EXPLICIT = 2;
+
+    private static final DotType[] DOT_TYPES = DotType.values();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> MAP_TYPE =
+        new TypeReference<Map<String, Object>>() {};
+
+    private StrokeCodec() {
+    }
+
+    /**
+     * Encode a list of strokes.
+     *
+     * @param strokes strokes to encode.
+     * @return the encoded strokes.
+     */
+    public static byte[] encode(List<Stroke> strokes) {
+        int count = strokes == null ? 0 : strokes.size();
+
+        Output out = new Output(64 + count * 256);
+        out.writeBytes(MAGIC, 0, MAGIC.length);
+        out.writeByte(VERSION);
+        out.writeVarInt(count);
+
+        Output record = new Output(1024);
+        for (int i = 0; i < count; i++) {
+            record.reset();
+            encodeStroke(strokes.get(i), record);
+            out.writeVarInt(record.size());
+            out.writeBytes(record.buffer(), 0, record.size());
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a list of strokes.
+     *
+     * @param data encoded strokes.
+     * @return the decoded strokes.
+     */
+    public static List<Stroke> decode(byte[] data) {
+        StrokeIterator it = iterate(data);
+        List<Stroke> strokes = new ArrayList<>(it.count());
+        while (it.hasNext()) {
+            strokes.add(it.next());
+        }
+        return strokes;
+    }
+
+    /**
+     * Decode strokes one at a time, as they are requested, so that only one
+     * decoded stroke needs to be kept in memory.
+     *
+     * @param data encoded strokes.
+     * @return iterator over the decoded strokes.
+     */
+    public static StrokeIterator iterate(byte[] data) {
+        Input in = new Input(data);
+        readHeader(in);
+        return new StrokeIterator(in, in.readCount());
+    }
+
+    /**
+     * Copy the selected strokes into a new encoding, without decoding them.
+     *
+     * @param data     encoded strokes.
+     * @param selected indexes of the strokes to keep.
+     * @return the encoded selected strokes.
+     */
+    public static byte[] slice(byte[] data, BitSet selected) {
+        Input in = new Input(data);
+        readHeader(in);
+        int count = in.readCount();
+
+        Output out = new Output(data.length);
+        out.writeBytes(MAGIC, 0, MAGIC.length);
+        out.writeByte(VERSION);
+        out.writeVarInt(selected.get(0, count).cardinality());
+        for (int i = 0; i < count; i++) {
+            int start = in.position();
+            int length = in.readCount();
+            int end = in.position() + length;
+            if (selected.get(i)) {
+                out.writeBytes(data, start, end - start);
+            }
+            in.seek(end);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Concatenate encoded strokes into a single encoding, without decoding
+     * them.
+     *
+     * @param parts encoded strokes, in order.
+     * @return the encoded strokes of all parts.
+     */
+    public static byte[] concat(List<byte[]> parts) {
+        Concatenation concatenation = new Concatenation(parts);
+        Output out = new Output(16 + concatenation.bodyLength);
+        writeHeader(out, concatenation.count);
+        for (int i = 0; i < parts.size(); i++) {
+            byte[] part = parts.get(i);
+            out.writeBytes(part, concatenation.offsets[i], part.length - concatenation.offsets[i]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Length of the concatenation of encoded strokes (see
+     * {@link #concat(List)}), without building it.
+     *
+     * @param parts encoded strokes, in order.
+     * @return the length of the encoded strokes of all parts.
+     */
+    public static int concatLength(List<byte[]> parts) {
+        Concatenation concatenation = new Concatenation(parts);
+        return header(concatenation.count).length + concatenation.bodyLength;
+    }
+
+    /**
+     * Read the concatenation of encoded strokes (see {@link #concat(List)})
+     * from the parts themselves, one after the other, without copying them.
+     *
+     * @param parts encoded strokes, in order.
+     * @return stream of the encoded strokes of all parts.
+     */
+    public static InputStream concatStream(List<byte[]> parts) {
+        Concatenation concatenation = new Concatenation(parts);
+        List<InputStream> streams = new ArrayList<>(parts.size() + 1);
+        streams.add(new ByteArrayInputStream(header(concatenation.count)));
+        for (int i = 0; i < parts.size(); i++) {
+            byte[] part = parts.get(i);
+            int offset = concatenation.offsets[i];
+            streams.add(new ByteArrayInputStream(part, offset, part.length - offset));
+        }
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
+    /**
+     * Check whether the given bytes start with the header of this codec.
+     *
+     * @param data bytes to check.
+     * @return {@code true} if they look like encoded strokes.
+     */
+    public static boolean isEncoded(byte[] data) {
+        if (data == null || data.length < MAGIC.length + 1) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] header(int count) {
+        Output out = new Output(16);
+        writeHeader(out, count);
+        return out.toByteArray();
+    }
+
+    private static void writeHeader(Output out, int count) {
+        out.writeBytes(MAGIC, 0, MAGIC.length);
+        out.writeByte(VERSION);
+        out.writeVarInt(count);
+    }
+
+    private static void readHeader(Input in) {
+        if (!isEncoded(in.data)) {
+            throw new IllegalArgumentException("Unknown stroke encoding.");
+        }
+        in.seek(MAGIC.length);
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported stroke encoding version " + version + ".");
+        }
+    }
+
+    /* Encoding */
+
+    private static void encodeStroke(Stroke stroke, Output out) {
+        StrokeBuffer dots = stroke.getDots() == null ? new StrokeBuffer(0) : stroke.getDots();
+        int n = dots.size();
+        boolean hasDotMetadata = dots.hasMetadata();
+
+        int flags = 0;
+        if (stroke.getStartTime() != null) flags |= FLAG_START_TIME;
+        if (stroke.getEndTime() != null) flags |= FLAG_END_TIME;
+        if (stroke.getMetadata() != null) flags |= FLAG_METADATA;
+        if (hasDotMetadata) flags |= FLAG_DOT_METADATA;
+
+        out.writeByte(flags);
+        out.writeVarInt(n);
+        long base = 0L;
+        if (stroke.getStartTime() != null) {
+            base = stroke.getStartTime();
+            out.writeVarLong(zigZag(base));
+        }
+        if (stroke.getEndTime() != null) {
+            out.writeVarLong(zigZag(stroke.getEndTime() - base));
+        }
+        if (stroke.getMetadata() != null) {
+            writeJson(stroke.getMetadata(), out);
+        }
+
+        // whether some column has a value for every dot
+        boolean dense = false;
+
+        // timestamps
+        boolean[] present = new boolean[n];
+        int presentCount = 0;
+        for (int i = 0; i < n; i++) {
+            present[i] = dots.getTimestamp(i) != StrokeBuffer.NO_TIMESTAMP;
+            if (present[i]) {
+                presentCount++;
+            }
+        }
+        if (presentCount == 0) {
+            out.writeByte(COLUMN_ABSENT);
+        } else {
+            dense = presentCount == n;
+            out.writeByte(COLUMN_DELTA | (presentCount < n ? COLUMN_NULLS : 0));
+            if (presentCount < n) {
+                writeBitmap(present, out);
+            }
+            long previous = base;
+            for (int i = 0; i < n; i++) {
+                if (present[i]) {
+                    long timestamp = dots.getTimestamp(i);
+                    out.writeVarLong(zigZag(timestamp - previous));
+                    previous = timestamp;
+                }
+            }
+        }
+
+        // coordinates and pressure
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) values[i] = dots.getX(i);
+        dense |= writeDoubleColumn(values, present, out);
+        for (int i = 0; i < n; i++) values[i] = dots.getY(i);
+        dense |= writeDoubleColumn(values, present, out);
+        for (int i = 0; i < n; i++) values[i] = dots.getPressure(i);
+        dense |= writeDoubleColumn(values, present, out);
+
+        // types
+        boolean allNull = true;
+        boolean sequence = true;
+        for (int i = 0; i < n; i++) {
+            byte type = dots.getTypeOrdinal(i);
+            allNull &= type < 0;
+            sequence &= type == sequenceType(i, n);
+        }
+        if (allNull && dense) {
+            out.writeByte(TYPES_ABSENT);
+        } else if (sequence && dense) {
+            out.writeByte(TYPES_SEQUENCE);
+        } else {
+            out.writeByte(TYPES_EXPLICIT);
+            for (int i = 0; i < n; i++) {
+                out.writeByte(dots.getTypeOrdinal(i) + 1);
+            }
+        }
+
+        // dot metadata
+        if (hasDotMetadata) {
+            for (int i = 0; i < n; i++) {
+                Map<String, Object> metadata = dots.getMetadata(i);
+                if (metadata == null) {
+                    out.writeVarInt(0);
+                } else {
+                    writeJson(metadata, out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a column of doubles (NaN for missing values).
+     *
+     * @return {@code true} if every value is present.
+     */
+    private static boolean writeDoubleColumn(double[] values, boolean[] present, Output out) {
+        int n = values.length;
+        int presentCount = 0;
+        boolean quantizable = true;
+        boolean floatExact = true;
+        for (int i = 0; i < n; i++) {
+            double value = values[i];
+            present[i] = !Double.isNaN(value);
+            if (present[i]) {
+                presentCount++;
+                quantizable &= isQuantizable(value);
+                floatExact &= isFloatExact(value);
+            }
+        }
+
+        if (presentCount == 0) {
+            out.writeByte(COLUMN_ABSENT);
+            return n == 0;
+        }
+
+        int mode = quantizable ? COLUMN_DELTA : (floatExact ? COLUMN_FLOAT : COLUMN_DOUBLE);
+        out.writeByte(mode | (presentCount < n ? COLUMN_NULLS : 0));
+        if (presentCount < n) {
+            writeBitmap(present, out);
+        }
+
+        long previous = 0L;
+        for (int i = 0; i < n; i++) {
+            if (!present[i]) {
+                continue;
+            }
+            switch (mode) {
+                case COLUMN_DELTA:
+                    long quantized = Math.round(values[i] * QUANTIZATION_SCALE);
+                    out.writeVarLong(zigZag(quantized - previous));
+                    previous = quantized;
+                    break;
+                case COLUMN_FLOAT:
+                    out.writeInt(Float.floatToIntBits((float) values[i]));
+                    break;
+                default:
+                    out.writeLong(Double.doubleToLongBits(values[i]));
+            }
+        }
+        return presentCount == n;
+    }
+
+    private static void writeBitmap(boolean[] bits, Output out) {
+        byte[] bitmap = new byte[(bits.length + 7) >>> 3];
+        for (int i = 0; i < bits.length; i++) {
+            if (bits[i]) {
+                bitmap[i >>> 3] |= 1 << (i & 7);
+            }
+        }
+        out.writeBytes(bitmap, 0, bitmap.length);
+    }
+
+    private static void writeJson(Map<String, Object> value, Output out) {
+        byte[] json;
+        try {
+            json = MAPPER.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        out.writeVarInt(json.length);
+        out.writeBytes(json, 0, json.length);
+    }
+
+    /* Decoding */
+
+    private static Stroke decodeStroke(Input in) {
+        int flags = in.readByte() & 0xFF;
+        int n = in.readCount();
+
+        Stroke stroke = new Stroke();
+        long base = 0L;
+        if ((flags & FLAG_START_TIME) != 0) {
+            base = unZigZag(in.readVarLong());
+            stroke.setStartTime(base);
+        }
+        if ((flags & FLAG_END_TIME) != 0) {
+            stroke.setEndTime(base + unZigZag(in.readVarLong()));
+        }
+        if ((flags & FLAG_METADATA) != 0) {
+            stroke.setMetadata(readJson(in));
+        }
+
+        // timestamps
+        long[] timestamps = new long[n];
+        int mode = in.readByte() & 0xFF;
+        if (mode == COLUMN_ABSENT) {
+            Arrays.fill(timestamps, StrokeBuffer.NO_TIMESTAMP);
+        } else {
+            boolean[] present = readPresence(mode, n, in);
+            long previous = base;
+            for (int i = 0; i < n; i++) {
+                if (present[i]) {
+                    previous += unZigZag(in.readVarLong());
+                    timestamps[i] = previous;
+                } else {
+                    timestamps[i] = StrokeBuffer.NO_TIMESTAMP;
+                }
+            }
+        }
+
+        // coordinates and pressure
+        double[] x = new double[n];
+        readDoubleColumn(x, in);
+        double[] y = new double[n];
+        readDoubleColumn(y, in);
+        double[] pressure = new double[n];
+        readDoubleColumn(pressure, in);
+
+        // types
+        byte[] types = new byte[n];
+        int typesMode = in.readByte() & 0xFF;
+        for (int i = 0; i < n; i++) {
+            if (typesMode == TYPES_SEQUENCE) {
+                types[i] = sequenceType(i, n);
+            } else if (typesMode == TYPES_EXPLICIT) {
+                int ordinal = in.readByte() & 0xFF;
+                if (ordinal > DOT_TYPES.length) {
+                    throw new IllegalArgumentException("Unknown dot type " + ordinal + ".");
+                }
+                types[i] = (byte) (ordinal - 1);
+            } else {
+                types[i] = -1;
+            }
+        }
+
+        StrokeBuffer dots = StrokeBuffer.wrap(n, x, y, pressure, timestamps, types);
+
+        // dot metadata
+        if ((flags & FLAG_DOT_METADATA) != 0) {
+            for (int i = 0; i < n; i++) {
+                dots.setMetadata(i, readJson(in));
+            }
+        }
+
+        stroke.setDots(dots);
+        return stroke;
+    }
+
+    /**
+     * Read a column of doubles into {@code values}, using NaN for missing
+     * values.
+     */
+    private static void readDoubleColumn(double[] values, Input in) {
+        int mode = in.readByte() & 0xFF;
+        if (mode == COLUMN_ABSENT) {
+            Arrays.fill(values, Double.NaN);
+            return;
+        }
+        int n = values.length;
+        boolean[] present = readPresence(mode, n, in);
+        long previous = 0L;
+        for (int i = 0; i < n; i++) {
+            if (!present[i]) {
+                values[i] = Double.NaN;
+                continue;
+            }
+            switch (mode & ~COLUMN_NULLS) {
+                case COLUMN_DELTA:
+                    previous += unZigZag(in.readVarLong());
+                    values[i] = previous / QUANTIZATION_SCALE;
+                    break;
+                case COLUMN_FLOAT:
+                    values[i] = Float.intBitsToFloat(in.readInt());
+                    break;
+                case COLUMN_DOUBLE:
+                    values[i] = Double.longBitsToDouble(in.readLong());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown column encoding " + mode + ".");
+            }
+        }
+    }
+
+    private static boolean[] readPresence(int mode, int n, Input in) {
+        boolean[] present = new boolean[n];
+        if ((mode & COLUMN_NULLS) == 0) {
+            Arrays.fill(present, true);
+            return present;
+        }
+        byte[] bitmap = in.readBytes((n + 7) >>> 3);
+        for (int i = 0; i < n; i++) {
+            present[i] = (bitmap[i >>> 3] & (1 << (i & 7))) != 0;
+        }
+        return present;
+    }
+
+    private static Map<String, Object> readJson(Input in) {
+        int length = in.readCount();
+        if (length == 0) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(in.data, in.position(), length, MAP_TYPE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed metadata in stroke encoding.", e);
+        } finally {
+            in.seek(in.position() + length);
+        }
+    }
+
+    /* Helpers */
+
+    private static byte sequenceType(int i, int n) {
+        if (i == 0) return (byte) DotType.DOWN.ordinal();
+        if (i == n - 1) return (byte) DotType.UP.ordinal();
+        return (byte) DotType.MOVE.ordinal();
+    }
+
+    private static boolean isQuantizable(double value) {
+        if (Math.abs(value) >= 1e12) {
+            return false;
+        }
+        long quantized = Math.round(value * QUANTIZATION_SCALE);
+        return Double.doubleToLongBits(quantized / QUANTIZATION_SCALE) == Double.doubleToLongBits(value);
+    }
+
+    private static boolean isFloatExact(double value) {
+        return Double.doubleToLongBits((float) value) == Double.doubleToLongBits(value);
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Stroke count and start of the strokes of each part of a
+     * concatenation.
+     */
+    private static final class Concatenation {
+
+        private final int count;
+        private final int[] offsets;
+        private final int bodyLength;
+
+        private Concatenation(List<byte[]> parts) {
+            int count = 0;
+            int bodyLength = 0;
+            offsets = new int[parts.size()];
+            for (int i = 0; i < parts.size(); i++) {
+                Input in = new Input(parts.get(i));
+                readHeader(in);
+                count += in.readCount();
+                offsets[i] = in.position();
+                bodyLength += parts.get(i).length - offsets[i];
+            }
+            this.count = count;
+            this.bodyLength = bodyLength;
+        }
+    }
+
+    /**
+     * Lazy iterator over encoded strokes.
+     */
+    public static final class StrokeIterator implements Iterator<Stroke> {
+
+        private final Input in;
+        private final int count;
+        private int index = 0;
+
+        private StrokeIterator(Input in, int count) {
+            this.in = in;
+            this.count = count;
+        }
+
+        /**
+         * Total number of strokes.
+         *
+         * @return number of strokes.
+         */
+        public int count() {
+            return count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < count;
+        }
+
+        @Override
+        public Stroke next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int length = in.readCount();
+            int end = in.position() + length;
+            Stroke stroke = decodeStroke(in);
+            in.seek(end);
+            index++;
+            return stroke;
+        }
+
+        /**
+         * Skip the next stroke without decoding it.
+         */
+        public void skip() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int length = in.readCount();
+            in.seek(in.position() + length);
+            index++;
+        }
+    }
+
+    /**
+     * Growable byte buffer.
+     */
+    static final class Output {
+
+        private byte[] buffer;
+        private int size;
+
+        Output(int capacity) {
+            this.buffer = new byte[Math.max(16, capacity)];
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] buffer() {
+            return buffer;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + extra));
+            }
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            buffer[size++] = (byte) value;
+            buffer[size++] = (byte) (value >>> 8);
+            buffer[size++] = (byte) (value >>> 16);
+            buffer[size++] = (byte) (value >>> 24);
+        }
+
+        void writeLong(long value) {
+            writeInt((int) value);
+            writeInt((int) (value >>> 32));
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+    }
+
+    /**
+     * Cursor over encoded bytes.
+     */
+    static final class Input {
+
+        private final byte[] data;
+        private int position;
+
+        Input(byte[] data) {
+            this.data = data;
+        }
+
+        int position() {
+            return position;
+        }
+
+        void seek(int position) {
+            if (position < 0 || position > data.length) {
+                throw new IllegalArgumentException("Truncated stroke encoding.");
+            }
+            this.position = position;
+        }
+
+        int remaining() {
+            return data.length - position;
+        }
+
+        private void require(int length) {
+            if (length < 0 || length > remaining()) {
+                throw new IllegalArgumentException("Truncated stroke encoding.");
+            }
+        }
+
+        byte readByte() {
+            require(1);
+            return data[position++];
+        }
+
+        byte[] readBytes(int length) {
+            require(length);
+            byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        int readInt() {
+            require(4);
+            int value = (data[position] & 0xFF)
+                | (data[position + 1] & 0xFF) << 8
+                | (data[position + 2] & 0xFF) << 16
+                | (data[position + 3] & 0xFF) << 24;
+            position += 4;
+            return value;
+        }
+
+        long readLong() {
+            long low = readInt() & 0xFFFFFFFFL;
+            long high = readInt() & 0xFFFFFFFFL;
+            return low | (high << 32);
+        }
+
+        int readVarInt() {
+            return (int) readVarLong();
+        }
+
+        /**
+         * Read a count (or length) of items taking at least one byte each,
+         * rejecting it if negative or larger than the bytes remaining.
+         */
+        int readCount() {
+            long count = readVarLong();
+            if (count < 0 || count > remaining()) {
+                throw new IllegalArgumentException("Malformed stroke encoding.");
+            }
+            return (int) count;
+        }
+
+        long readVarLong() {
+            long value = 0L;
+            int shift = 0;
+            byte b;
+            do {
+                if (shift > 63) {
+                    throw new IllegalArgumentException("Malformed stroke encoding.");
+                }
+                b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package pt.up.hs.sampling.domain.codec;
+
+import pt.up.hs.sampling.domain.enumeration.DotType;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.domain.pojo.StrokeBuffer;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Fingerprint of the strokes of a protocol, used to recognize pages that
+ * were already imported.
+ * <p>
+ * It is the SHA-256 digest (in hexadecimal) of the normalized strokes:
+ * start and end times, and the timestamp, type and coordinates and pressure
+ * (rounded as in {@link StrokeCodec#QUANTIZATION_SCALE}) of each dot.
+ * Metadata is left out, as it describes the device rather than the writing.
+ *
+ * @author José Carlos Paiva
+ */
+public final class StrokeHash {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private StrokeHash() {
+    }
+
+    /**
+     * Compute the fingerprint of a list of strokes.
+     *
+     * @param strokes strokes to fingerprint.
+     * @return the fingerprint of the strokes, or {@code null} if there are
+     * no strokes (empty pages have nothing to tell them apart).
+     */
+    public static String of(List<Stroke> strokes) {
+        if (strokes == null || strokes.isEmpty()) {
+            return null;
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        putInt(digest, buffer, strokes.size());
+        for (Stroke stroke : strokes) {
+            putLong(digest, buffer, stroke.getStartTime() == null ? StrokeBuffer.NO_TIMESTAMP : stroke.getStartTime());
+            putLong(digest, buffer, stroke.getEndTime() == null ? StrokeBuffer.NO_TIMESTAMP : stroke.getEndTime());
+            StrokeBuffer dots = stroke.getDots();
+            int size = dots == null ? 0 : dots.size();
+            putInt(digest, buffer, size);
+            for (int i = 0; i < size; i++) {
+                putLong(digest, buffer, dots.getTimestamp(i));
+                DotType type = dots.getType(i);
+                putInt(digest, buffer, type == null ? -1 : type.ordinal());
+                putLong(digest, buffer, quantize(dots.getX(i)));
+                putLong(digest, buffer, quantize(dots.getY(i)));
+                putLong(digest, buffer, quantize(dots.getPressure(i)));
+            }
+        }
+        buffer.flip();
+        digest.update(buffer);
+
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[2 * i] = HEX[(hash[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private static long quantize(double value) {
+        return Double.isNaN(value) ? Long.MIN_VALUE : Math.round(value * StrokeCodec.QUANTIZATION_SCALE);
+    }
+
+    private static void putInt(MessageDigest digest, ByteBuffer buffer, int value) {
+        if (buffer.remaining() < Integer.BYTES) {
+            drain(digest, buffer);
+        }
+        buffer.putInt(value);
+    }
+
+    private static void putLong(MessageDigest digest, ByteBuffer buffer, long value) {
+        if (buffer.remaining() < Long.BYTES) {
+            drain(digest, buffer);
+        }
+        buffer.putLong(value);
+    }
+
+    private static void drain(MessageDigest digest, ByteBuffer buffer) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+    }
+}
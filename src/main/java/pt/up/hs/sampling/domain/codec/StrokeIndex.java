@@ -0,0 +1,186 @@
+package pt.up.hs.sampling.domain.codec;
+
+import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.domain.pojo.StrokeBuffer;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Time range of each stroke of a protocol, kept next to the encoded strokes
+ * so that a time window can be mapped to the strokes to decode without
+ * reading them.
+ * <p>
+ * The time range of a stroke is given by its start and end times or, when
+ * those are missing, by the timestamps of its dots. Strokes without any time
+ * information have no range.
+ * <p>
+ * Layout (varints as in {@link StrokeCodec}):
+ * <pre>
+ * index := version:byte strokeCount entry*
+ * entry := 0                                  (no range)
+ *        | 1 zigzag(start - previousStart) zigzag(end - start)
+ * </pre>
+ *
+ * @author José Carlos Paiva
+ */
+public final class StrokeIndex {
+
+    public static final byte VERSION = 1;
+
+    private final int size;
+    private final boolean[] timed;
+    private final long[] start;
+    private final long[] end;
+
+    private StrokeIndex(int size) {
+        this.size = size;
+        this.timed = new boolean[size];
+        this.start = new long[size];
+        this.end = new long[size];
+    }
+
+    /**
+     * Build the index of a list of strokes.
+     *
+     * @param strokes the strokes.
+     * @return the index.
+     */
+    public static StrokeIndex of(List<Stroke> strokes) {
+        int count = strokes == null ? 0 : strokes.size();
+        StrokeIndex index = new StrokeIndex(count);
+        for (int i = 0; i < count; i++) {
+            Stroke stroke = strokes.get(i);
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            if (stroke.getStartTime() != null) {
+                min = max = stroke.getStartTime();
+            }
+            if (stroke.getEndTime() != null) {
+                min = Math.min(min, stroke.getEndTime());
+                max = Math.max(max, stroke.getEndTime());
+            }
+            if (stroke.getStartTime() == null || stroke.getEndTime() == null) {
+                StrokeBuffer dots = stroke.getDots();
+                for (int j = 0; dots != null && j < dots.size(); j++) {
+                    long timestamp = dots.getTimestamp(j);
+                    if (timestamp != StrokeBuffer.NO_TIMESTAMP) {
+                        min = Math.min(min, timestamp);
+                        max = Math.max(max, timestamp);
+                    }
+                }
+            }
+            if (min <= max) {
+                index.timed[i] = true;
+                index.start[i] = min;
+                index.end[i] = max;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Join the indexes of consecutive lists of strokes into the index of
+     * the strokes of all the lists (in the given order).
+     *
+     * @param indexes the indexes.
+     * @return the joined index.
+     */
+    public static StrokeIndex concat(List<StrokeIndex> indexes) {
+        int count = 0;
+        for (StrokeIndex index : indexes) {
+            count += index.size;
+        }
+        StrokeIndex joined = new StrokeIndex(count);
+        int offset = 0;
+        for (StrokeIndex index : indexes) {
+            System.arraycopy(index.timed, 0, joined.timed, offset, index.size);
+            System.arraycopy(index.start, 0, joined.start, offset, index.size);
+            System.arraycopy(index.end, 0, joined.end, offset, index.size);
+            offset += index.size;
+        }
+        return joined;
+    }
+
+    /**
+     * Decode an index.
+     *
+     * @param data encoded index.
+     * @return the index.
+     */
+    public static StrokeIndex decode(byte[] data) {
+        StrokeCodec.Input in = new StrokeCodec.Input(data);
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported stroke index version " + version + ".");
+        }
+        StrokeIndex index = new StrokeIndex(in.readVarInt());
+        long previous = 0L;
+        for (int i = 0; i < index.size; i++) {
+            if (in.readByte() == 0) {
+                continue;
+            }
+            index.timed[i] = true;
+            index.start[i] = previous + StrokeCodec.unZigZag(in.readVarLong());
+            index.end[i] = index.start[i] + StrokeCodec.unZigZag(in.readVarLong());
+            previous = index.start[i];
+        }
+        return index;
+    }
+
+    /**
+     * Encode this index.
+     *
+     * @return encoded index.
+     */
+    public byte[] encode() {
+        StrokeCodec.Output out = new StrokeCodec.Output(8 + size * 4);
+        out.writeByte(VERSION);
+        out.writeVarInt(size);
+        long previous = 0L;
+        for (int i = 0; i < size; i++) {
+            if (!timed[i]) {
+                out.writeByte(0);
+                continue;
+            }
+            out.writeByte(1);
+            out.writeVarLong(StrokeCodec.zigZag(start[i] - previous));
+            out.writeVarLong(StrokeCodec.zigZag(end[i] - start[i]));
+            previous = start[i];
+        }
+        return out.toByteArray();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasTime(int i) {
+        return timed[i];
+    }
+
+    public long getStart(int i) {
+        return start[i];
+    }
+
+    public long getEnd(int i) {
+        return end[i];
+    }
+
+    /**
+     * Select the strokes whose time range overlaps the given window.
+     *
+     * @param from start of the window (inclusive, {@code null} if unbounded).
+     * @param to   end of the window (inclusive, {@code null} if unbounded).
+     * @return indexes of the selected strokes.
+     */
+    public BitSet overlapping(Long from, Long to) {
+        BitSet selected = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            if (timed[i] && (from == null || end[i] >= from) && (to == null || start[i] <= to)) {
+                selected.set(i);
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,192 @@
+package pt.up.hs.sampling.domain.codec;
+
+import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.domain.pojo.StrokeBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Simplified versions of the strokes of a protocol, one per level of detail,
+ * kept next to the encoded strokes for zoomed-out rendering.
+ * <p>
+ * Level {@code n} (1-based) holds every stroke simplified with
+ * Ramer-Douglas-Peucker at tolerance {@code TOLERANCES[n - 1]} (same units
+ * as the coordinates), always from the full-resolution strokes. Strokes are
+ * never dropped, so stroke indexes are the same at every level. Strokes
+ * with missing coordinates are kept as they are.
+ * <p>
+ * Layout (varints as in {@link StrokeCodec}, floats little-endian):
+ * <pre>
+ * pyramid := version:byte levelCount level*
+ * level   := tolerance:float length strokes   (strokes as in StrokeCodec)
+ * </pre>
+ *
+ * @author José Carlos Paiva
+ */
+public final class StrokePyramid {
+
+    public static final byte VERSION = 1;
+
+    /**
+     * Tolerances of the levels of detail, from finest to coarsest.
+     */
+    public static final double[] TOLERANCES = { 0.1, 0.5, 2.0 };
+
+    private StrokePyramid() {
+    }
+
+    /**
+     * Build and encode the levels of detail of a list of strokes.
+     *
+     * @param strokes the strokes.
+     * @return the encoded pyramid.
+     */
+    public static byte[] encode(List<Stroke> strokes) {
+        List<byte[]> levels = new ArrayList<>(TOLERANCES.length);
+        int size = 8;
+        for (double tolerance : TOLERANCES) {
+            byte[] level = StrokeCodec.encode(simplify(strokes, tolerance));
+            levels.add(level);
+            size += level.length + 9;
+        }
+        StrokeCodec.Output out = new StrokeCodec.Output(size);
+        out.writeByte(VERSION);
+        out.writeVarInt(TOLERANCES.length);
+        for (int i = 0; i < TOLERANCES.length; i++) {
+            byte[] level = levels.get(i);
+            out.writeInt(Float.floatToIntBits((float) TOLERANCES[i]));
+            out.writeVarInt(level.length);
+            out.writeBytes(level, 0, level.length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Get the encoded strokes of a level of detail, without decoding them.
+     *
+     * @param data  encoded pyramid.
+     * @param level level of detail (1-based).
+     * @return the encoded strokes of the level (as in {@link StrokeCodec}).
+     */
+    public static byte[] level(byte[] data, int level) {
+        StrokeCodec.Input in = new StrokeCodec.Input(data);
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported stroke pyramid version " + version + ".");
+        }
+        int count = in.readVarInt();
+        if (level < 1 || level > count) {
+            throw new IllegalArgumentException("No level of detail " + level + ".");
+        }
+        for (int i = 1; ; i++) {
+            in.readInt();
+            int length = in.readVarInt();
+            if (i == level) {
+                return in.readBytes(length);
+            }
+            in.seek(in.position() + length);
+        }
+    }
+
+    /**
+     * Simplify strokes with Ramer-Douglas-Peucker.
+     *
+     * @param strokes   the strokes.
+     * @param tolerance maximum distance from a removed dot to the
+     *                  simplified polyline.
+     * @return the simplified strokes (unchanged strokes are shared).
+     */
+    public static List<Stroke> simplify(List<Stroke> strokes, double tolerance) {
+        List<Stroke> simplified = new ArrayList<>(strokes == null ? 0 : strokes.size());
+        if (strokes == null) {
+            return simplified;
+        }
+        for (Stroke stroke : strokes) {
+            StrokeBuffer dots = simplify(stroke.getDots(), tolerance);
+            if (dots == stroke.getDots()) {
+                simplified.add(stroke);
+            } else {
+                simplified.add(new Stroke(stroke.getStartTime(), stroke.getEndTime(), dots)
+                    .metadata(stroke.getMetadata()));
+            }
+        }
+        return simplified;
+    }
+
+    /**
+     * Simplify the dots of a stroke with Ramer-Douglas-Peucker. The first
+     * and last dots are always kept.
+     *
+     * @param dots      the dots.
+     * @param tolerance maximum distance from a removed dot to the
+     *                  simplified polyline.
+     * @return the simplified dots (the same buffer if no dot is removed).
+     */
+    public static StrokeBuffer simplify(StrokeBuffer dots, double tolerance) {
+        int n = dots == null ? 0 : dots.size();
+        if (n <= 2) {
+            return dots;
+        }
+        for (int i = 0; i < n; i++) {
+            if (Double.isNaN(dots.getX(i)) || Double.isNaN(dots.getY(i))) {
+                return dots;
+            }
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = keep[n - 1] = true;
+        int kept = 2;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double max = -1;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double distance = segmentDistance(dots, i, first, last);
+                if (distance > max) {
+                    max = distance;
+                    farthest = i;
+                }
+            }
+            if (farthest >= 0 && max > tolerance) {
+                keep[farthest] = true;
+                kept++;
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+        if (kept == n) {
+            return dots;
+        }
+
+        StrokeBuffer simplified = new StrokeBuffer(kept);
+        StrokeBuffer.Cursor cursor = dots.cursor();
+        while (cursor.next()) {
+            if (keep[cursor.index()]) {
+                simplified.add(cursor.x(), cursor.y(), cursor.timestamp(), cursor.type(), cursor.pressure());
+                simplified.setMetadata(simplified.size() - 1, cursor.metadata());
+            }
+        }
+        return simplified;
+    }
+
+    private static double segmentDistance(StrokeBuffer dots, int i, int first, int last) {
+        double x = dots.getX(i), y = dots.getY(i);
+        double x0 = dots.getX(first), y0 = dots.getY(first);
+        double dx = dots.getX(last) - x0, dy = dots.getY(last) - y0;
+        double length = dx * dx + dy * dy;
+        double t = length == 0 ? 0 : Math.max(0, Math.min(1, ((x - x0) * dx + (y - y0) * dy) / length));
+        return Math.hypot(x - (x0 + t * dx), y - (y0 + t * dy));
+    }
+}
@@ -0,0 +1,383 @@
+package pt.up.hs.sampling.domain.codec;
+
+import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.domain.pojo.StrokeBuffer;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Packed R-tree over the bounding boxes of the strokes of a protocol, kept
+ * next to the encoded strokes so that the strokes lying in a region can be
+ * found without reading them all.
+ * <p>
+ * The tree is built once (sort-tile-recursive packing) and is immutable.
+ * Nodes are stored level by level, leaves first and root last, each with its
+ * box and either the index of the stroke (leaves) or the position of its
+ * first child (inner nodes). Boxes are stored as floats rounded outwards, so
+ * they always contain the exact box. Strokes without coordinates are left
+ * out.
+ * <p>
+ * Layout (varints as in {@link StrokeCodec}, floats little-endian):
+ * <pre>
+ * index := version:byte leafCount nodeSize node*
+ * node  := minX:float minY:float maxX:float maxY:float id
+ * </pre>
+ *
+ * @author José Carlos Paiva
+ */
+public final class StrokeSpatialIndex {
+
+    public static final byte VERSION = 1;
+
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    private final int leafCount;
+    private final int nodeSize;
+    private final int[] levelBounds;
+    private final float[] boxes;
+    private final int[] ids;
+
+    private StrokeSpatialIndex(int leafCount, int nodeSize) {
+        this.leafCount = leafCount;
+        this.nodeSize = nodeSize;
+        this.levelBounds = levelBounds(leafCount, nodeSize);
+        int nodeCount = levelBounds[levelBounds.length - 1];
+        this.boxes = new float[nodeCount * 4];
+        this.ids = new int[nodeCount];
+    }
+
+    /**
+     * Build the index of a list of strokes.
+     *
+     * @param strokes the strokes.
+     * @return the index.
+     */
+    public static StrokeSpatialIndex of(List<Stroke> strokes) {
+        return of(strokes, DEFAULT_NODE_SIZE);
+    }
+
+    /**
+     * Build the index of a list of strokes.
+     *
+     * @param strokes  the strokes.
+     * @param nodeSize maximum number of children of a node.
+     * @return the index.
+     */
+    public static StrokeSpatialIndex of(List<Stroke> strokes, int nodeSize) {
+        if (nodeSize < 2) {
+            throw new IllegalArgumentException("Node size must be at least 2.");
+        }
+        int count = strokes == null ? 0 : strokes.size();
+        double[] bounds = new double[count * 4];
+        int[] items = new int[count];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (bounds(strokes.get(i).getDots(), bounds, n * 4)) {
+                items[n++] = i;
+            }
+        }
+
+        StrokeSpatialIndex index = new StrokeSpatialIndex(n, nodeSize);
+        if (n == 0) {
+            return index;
+        }
+
+        // sort-tile-recursive: vertical slices by center x, then by center y
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(
+            bounds[a * 4] + bounds[a * 4 + 2], bounds[b * 4] + bounds[b * 4 + 2]));
+        int leafNodes = (n + nodeSize - 1) / nodeSize;
+        int sliceSize = nodeSize * (int) Math.ceil(Math.sqrt(leafNodes));
+        for (int from = 0; from < n; from += sliceSize) {
+            Arrays.sort(order, from, Math.min(n, from + sliceSize), (a, b) -> Double.compare(
+                bounds[a * 4 + 1] + bounds[a * 4 + 3], bounds[b * 4 + 1] + bounds[b * 4 + 3]));
+        }
+
+        for (int pos = 0; pos < n; pos++) {
+            int item = order[pos];
+            index.boxes[pos * 4] = floor(bounds[item * 4]);
+            index.boxes[pos * 4 + 1] = floor(bounds[item * 4 + 1]);
+            index.boxes[pos * 4 + 2] = ceil(bounds[item * 4 + 2]);
+            index.boxes[pos * 4 + 3] = ceil(bounds[item * 4 + 3]);
+            index.ids[pos] = items[item];
+        }
+
+        int pos = 0;
+        int parent = n;
+        for (int level = 0; level < index.levelBounds.length - 1; level++) {
+            int end = index.levelBounds[level];
+            while (pos < end) {
+                int first = pos;
+                float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+                float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+                for (int last = Math.min(pos + nodeSize, end); pos < last; pos++) {
+                    minX = Math.min(minX, index.boxes[pos * 4]);
+                    minY = Math.min(minY, index.boxes[pos * 4 + 1]);
+                    maxX = Math.max(maxX, index.boxes[pos * 4 + 2]);
+                    maxY = Math.max(maxY, index.boxes[pos * 4 + 3]);
+                }
+                index.boxes[parent * 4] = minX;
+                index.boxes[parent * 4 + 1] = minY;
+                index.boxes[parent * 4 + 2] = maxX;
+                index.boxes[parent * 4 + 3] = maxY;
+                index.ids[parent] = first;
+                parent++;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Decode an index.
+     *
+     * @param data encoded index.
+     * @return the index.
+     */
+    public static StrokeSpatialIndex decode(byte[] data) {
+        StrokeCodec.Input in = new StrokeCodec.Input(data);
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported stroke spatial index version " + version + ".");
+        }
+        int leafCount = in.readVarInt();
+        int nodeSize = in.readVarInt();
+        if (leafCount < 0 || nodeSize < 2) {
+            throw new IllegalArgumentException("Invalid stroke spatial index.");
+        }
+        StrokeSpatialIndex index = new StrokeSpatialIndex(leafCount, nodeSize);
+        for (int i = 0; i < index.ids.length; i++) {
+            index.boxes[i * 4] = Float.intBitsToFloat(in.readInt());
+            index.boxes[i * 4 + 1] = Float.intBitsToFloat(in.readInt());
+            index.boxes[i * 4 + 2] = Float.intBitsToFloat(in.readInt());
+            index.boxes[i * 4 + 3] = Float.intBitsToFloat(in.readInt());
+            index.ids[i] = in.readVarInt();
+        }
+        return index;
+    }
+
+    /**
+     * Encode this index.
+     *
+     * @return encoded index.
+     */
+    public byte[] encode() {
+        StrokeCodec.Output out = new StrokeCodec.Output(8 + ids.length * 18);
+        out.writeByte(VERSION);
+        out.writeVarInt(leafCount);
+        out.writeVarInt(nodeSize);
+        for (int i = 0; i < ids.length; i++) {
+            out.writeInt(Float.floatToIntBits(boxes[i * 4]));
+            out.writeInt(Float.floatToIntBits(boxes[i * 4 + 1]));
+            out.writeInt(Float.floatToIntBits(boxes[i * 4 + 2]));
+            out.writeInt(Float.floatToIntBits(boxes[i * 4 + 3]));
+            out.writeVarInt(ids[i]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Number of strokes in the index (strokes without coordinates excluded).
+     *
+     * @return number of strokes in the index.
+     */
+    public int size() {
+        return leafCount;
+    }
+
+    /**
+     * Select the strokes whose bounding box intersects the given box (bounds
+     * inclusive).
+     *
+     * @param minX minimum x coordinate.
+     * @param minY minimum y coordinate.
+     * @param maxX maximum x coordinate.
+     * @param maxY maximum y coordinate.
+     * @return indexes of the selected strokes.
+     */
+    public BitSet search(double minX, double minY, double maxX, double maxY) {
+        BitSet selected = new BitSet();
+        if (leafCount == 0) {
+            return selected;
+        }
+        int[] stack = new int[levelBounds.length * nodeSize * 2];
+        int top = 0;
+        int node = ids.length - 1;
+        int level = levelBounds.length - 1;
+        while (true) {
+            int end = Math.min(node + nodeSize, levelBounds[level]);
+            for (int pos = node; pos < end; pos++) {
+                if (boxes[pos * 4 + 2] < minX || boxes[pos * 4 + 3] < minY ||
+                    boxes[pos * 4] > maxX || boxes[pos * 4 + 1] > maxY) {
+                    continue;
+                }
+                if (level == 0) {
+                    selected.set(ids[pos]);
+                } else {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = ids[pos];
+                    stack[top++] = level - 1;
+                }
+            }
+            if (top == 0) {
+                return selected;
+            }
+            level = stack[--top];
+            node = stack[--top];
+        }
+    }
+
+    /**
+     * Check whether the polyline through the dots of a stroke intersects a
+     * box (bounds inclusive).
+     *
+     * @param dots dots of the stroke.
+     * @param minX minimum x coordinate.
+     * @param minY minimum y coordinate.
+     * @param maxX maximum x coordinate.
+     * @param maxY maximum y coordinate.
+     * @return {@code true} if the stroke intersects the box.
+     */
+    public static boolean intersects(StrokeBuffer dots, double minX, double minY, double maxX, double maxY) {
+        double px = Double.NaN, py = Double.NaN;
+        StrokeBuffer.Cursor cursor = dots.cursor();
+        while (cursor.next()) {
+            double x = cursor.x(), y = cursor.y();
+            if (Double.isNaN(x) || Double.isNaN(y)) {
+                continue;
+            }
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                return true;
+            }
+            if (!Double.isNaN(px) && clips(px, py, x, y, minX, minY, maxX, maxY)) {
+                return true;
+            }
+            px = x;
+            py = y;
+        }
+        return false;
+    }
+
+    /**
+     * Distance from a point to the polyline through the dots of a stroke.
+     *
+     * @param dots dots of the stroke.
+     * @param x    x coordinate of the point.
+     * @param y    y coordinate of the point.
+     * @return the distance ({@link Double#POSITIVE_INFINITY} if the stroke
+     * has no coordinates).
+     */
+    public static double distance(StrokeBuffer dots, double x, double y) {
+        double min = Double.POSITIVE_INFINITY;
+        double px = Double.NaN, py = Double.NaN;
+        StrokeBuffer.Cursor cursor = dots.cursor();
+        while (cursor.next()) {
+            double cx = cursor.x(), cy = cursor.y();
+            if (Double.isNaN(cx) || Double.isNaN(cy)) {
+                continue;
+            }
+            if (Double.isNaN(px)) {
+                min = Math.hypot(x - cx, y - cy);
+            } else {
+                min = Math.min(min, segmentDistance(x, y, px, py, cx, cy));
+            }
+            px = cx;
+            py = cy;
+        }
+        return min;
+    }
+
+    private static boolean bounds(StrokeBuffer dots, double[] bounds, int offset) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; dots != null && i < dots.size(); i++) {
+            double x = dots.getX(i), y = dots.getY(i);
+            if (Double.isNaN(x) || Double.isNaN(y)) {
+                continue;
+            }
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        if (minX > maxX) {
+            return false;
+        }
+        bounds[offset] = minX;
+        bounds[offset + 1] = minY;
+        bounds[offset + 2] = maxX;
+        bounds[offset + 3] = maxY;
+        return true;
+    }
+
+    private static int[] levelBounds(int leafCount, int nodeSize) {
+        int[] bounds = new int[] { leafCount };
+        int count = leafCount;
+        int total = leafCount;
+        while (count > 1) {
+            count = (count + nodeSize - 1) / nodeSize;
+            total += count;
+            bounds = Arrays.copyOf(bounds, bounds.length + 1);
+            bounds[bounds.length - 1] = total;
+        }
+        if (leafCount == 1) {
+            // a single leaf still gets a root
+            bounds = new int[] { 1, 2 };
+        }
+        return bounds;
+    }
+
+    /**
+     * Liang-Barsky clipping of the segment against the box.
+     */
+    private static boolean clips(
+        double x0, double y0, double x1, double y1,
+        double minX, double minY, double maxX, double maxY
+    ) {
+        double dx = x1 - x0, dy = y1 - y0;
+        double[] p = { -dx, dx, -dy, dy };
+        double[] q = { x0 - minX, maxX - x0, y0 - minY, maxY - y0 };
+        double t0 = 0, t1 = 1;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    return false;
+                }
+            } else {
+                double t = q[i] / p[i];
+                if (p[i] < 0) {
+                    t0 = Math.max(t0, t);
+                } else {
+                    t1 = Math.min(t1, t);
+                }
+                if (t0 > t1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static double segmentDistance(double x, double y, double x0, double y0, double x1, double y1) {
+        double dx = x1 - x0, dy = y1 - y0;
+        double length = dx * dx + dy * dy;
+        double t = length == 0 ? 0 : Math.max(0, Math.min(1, ((x - x0) * dx + (y - y0) * dy) / length));
+        return Math.hypot(x - (x0 + t * dx), y - (y0 + t * dy));
+    }
+
+    private static float floor(double value) {
+        float f = (float) value;
+        return f > value ? Math.nextDown(f) : f;
+    }
+
+    private static float ceil(double value) {
+        float f = (float) value;
+        return f < value ? Math.nextUp(f) : f;
+    }
+}
@@ -0,0 +1,105 @@
+package pt.up.hs.sampling.domain.codec;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.usertype.UserType;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Hibernate type persisting a list of {@link Stroke} in a binary column
+ * through {@link StrokeCodec}.
+ * <p>
+ * The value is treated as immutable: changes are detected by reference,
+ * so the list must be replaced (not modified in place) to be persisted.
+ * This avoids copying and comparing tens of thousands of dots on every
+ * flush. The second-level cache keeps the encoded bytes.
+ *
+ * @author José Carlos Paiva
+ */
+public class StrokesType implements UserType {
+
+    @Override
+    public int[] sqlTypes() {
+        return new int[]{Types.VARBINARY};
+    }
+
+    @Override
+    public Class<?> returnedClass() {
+        return List.class;
+    }
+
+    @Override
+    public boolean equals(Object x, Object y) throws HibernateException {
+        return x == y;
+    }
+
+    @Override
+    public int hashCode(Object x) throws HibernateException {
+        return Objects.hashCode(x);
+    }
+
+    @Override
+    public Object nullSafeGet(
+        ResultSet rs, String[] names,
+        SharedSessionContractImplementor session, Object owner
+    ) throws HibernateException, SQLException {
+        byte[] bytes = rs.getBytes(names[0]);
+        if (bytes == null) {
+            return null;
+        }
+        return StrokeCodec.decode(bytes);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void nullSafeSet(
+        PreparedStatement st, Object value, int index,
+        SharedSessionContractImplementor session
+    ) throws HibernateException, SQLException {
+        if (value == null) {
+            st.setNull(index, Types.VARBINARY);
+        } else {
+            st.setBytes(index, StrokeCodec.encode((List<Stroke>) value));
+        }
+    }
+
+    @Override
+    public Object deepCopy(Object value) throws HibernateException {
+        return value;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Serializable disassemble(Object value) throws HibernateException {
+        if (value == null) {
+            return null;
+        }
+        return StrokeCodec.encode((List<Stroke>) value);
+    }
+
+    @Override
+    public Object assemble(Serializable cached, Object owner) throws HibernateException {
+        if (cached == null) {
+            return null;
+        }
+        return StrokeCodec.decode((byte[]) cached);
+    }
+
+    @Override
+    public Object replace(Object original, Object target, Object owner) throws HibernateException {
+        return original;
+    }
+}
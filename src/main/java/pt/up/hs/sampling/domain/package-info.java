@@ -1,5 +1,10 @@
 /**
  * JPA domain objects.
  */
-@org.hibernate.annotations.TypeDef(name = "jsonb", typeClass = JsonbType.class)
+@org.hibernate.annotations.TypeDefs({
+    @org.hibernate.annotations.TypeDef(name = "jsonb", typeClass = JsonbType.class),
+    @org.hibernate.annotations.TypeDef(name = "strokes", typeClass = StrokesType.class)
+})
 package pt.up.hs.sampling.domain;
+
+import pt.up.hs.sampling.domain.codec.StrokesType;
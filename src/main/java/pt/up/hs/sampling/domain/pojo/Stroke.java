@@ -1,8 +1,6 @@
 package pt.up.hs.sampling.domain.pojo;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -11,15 +9,15 @@ public class Stroke implements Serializable {
     private Long startTime;
     private Long endTime;
 
-    private List<Dot> dots;
+    private StrokeBuffer dots;
 
     private Map<String, Object> metadata;
 
     public Stroke() {
-        dots = new ArrayList<>();
+        dots = new StrokeBuffer();
     }
 
-    public Stroke(Long startTime, Long endTime, List<Dot> dots) {
+    public Stroke(Long startTime, Long endTime, StrokeBuffer dots) {
         this.startTime = startTime;
         this.endTime = endTime;
         this.dots = dots;
@@ -51,16 +49,21 @@ public class Stroke implements Serializable {
         this.endTime = endTime;
     }
 
-    public List<Dot> getDots() {
+    public StrokeBuffer getDots() {
         return dots;
     }
 
+    public Stroke dots(StrokeBuffer dots) {
+        this.dots = dots;
+        return this;
+    }
+
     public Stroke addDot(Dot dot) {
         dots.add(dot);
         return this;
     }
 
-    public void setDots(List<Dot> dots) {
+    public void setDots(StrokeBuffer dots) {
         this.dots = dots;
     }
 
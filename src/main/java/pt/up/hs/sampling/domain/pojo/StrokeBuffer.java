@@ -0,0 +1,393 @@
+package pt.up.hs.sampling.domain.pojo;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import pt.up.hs.sampling.domain.codec.StrokeBufferJsonDeserializer;
+import pt.up.hs.sampling.domain.codec.StrokeBufferJsonSerializer;
+import pt.up.hs.sampling.domain.enumeration.DotType;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Dots of a stroke kept in parallel primitive arrays, one per attribute.
+ * <p>
+ * Missing values are represented by {@link Double#NaN} (coordinates and
+ * pressure), {@link #NO_TIMESTAMP} (timestamp) and {@code null} (type and
+ * metadata). Per-dot metadata is rare, so its array is only allocated when
+ * needed. Dots are iterated through a reusable {@link Cursor} rather than
+ * through one object per dot.
+ * <p>
+ * In JSON, it is represented as the list of dots that it holds.
+ *
+ * @author José Carlos Paiva
+ */
+@JsonSerialize(using = StrokeBufferJsonSerializer.class)
+@JsonDeserialize(using = StrokeBufferJsonDeserializer.class)
+public class StrokeBuffer implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final byte NO_TYPE = -1;
+    private static final DotType[] TYPES = DotType.values();
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int size;
+
+    private double[] x;
+    private double[] y;
+    private double[] pressure;
+    private long[] timestamp;
+    private byte[] type;
+    private Map<String, Object>[] metadata;
+
+    public StrokeBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public StrokeBuffer(int capacity) {
+        capacity = Math.max(1, capacity);
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.pressure = new double[capacity];
+        this.timestamp = new long[capacity];
+        this.type = new byte[capacity];
+    }
+
+    /**
+     * Wrap existing arrays (not copied). Types are given as ordinals of
+     * {@link DotType}, or -1 when missing.
+     *
+     * @param size      number of dots.
+     * @param x         x coordinates.
+     * @param y         y coordinates.
+     * @param pressure  pressure values.
+     * @param timestamp timestamps.
+     * @param types     type ordinals.
+     * @return the buffer.
+     */
+    public static StrokeBuffer wrap(
+        int size, double[] x, double[] y, double[] pressure, long[] timestamp, byte[] types
+    ) {
+        if (x.length < size || y.length < size || pressure.length < size ||
+            timestamp.length < size || types.length < size) {
+            throw new IllegalArgumentException("Arrays are shorter than the number of dots.");
+        }
+        StrokeBuffer buffer = new StrokeBuffer(0);
+        buffer.size = size;
+        buffer.x = x;
+        buffer.y = y;
+        buffer.pressure = pressure;
+        buffer.timestamp = timestamp;
+        buffer.type = types;
+        return buffer;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public double getX(int i) {
+        checkIndex(i);
+        return x[i];
+    }
+
+    public void setX(int i, double value) {
+        checkIndex(i);
+        x[i] = value;
+    }
+
+    public double getY(int i) {
+        checkIndex(i);
+        return y[i];
+    }
+
+    public void setY(int i, double value) {
+        checkIndex(i);
+        y[i] = value;
+    }
+
+    public double getPressure(int i) {
+        checkIndex(i);
+        return pressure[i];
+    }
+
+    public void setPressure(int i, double value) {
+        checkIndex(i);
+        pressure[i] = value;
+    }
+
+    public long getTimestamp(int i) {
+        checkIndex(i);
+        return timestamp[i];
+    }
+
+    public void setTimestamp(int i, long value) {
+        checkIndex(i);
+        timestamp[i] = value;
+    }
+
+    public DotType getType(int i) {
+        checkIndex(i);
+        return type[i] == NO_TYPE ? null : TYPES[type[i]];
+    }
+
+    public void setType(int i, DotType value) {
+        checkIndex(i);
+        type[i] = value == null ? NO_TYPE : (byte) value.ordinal();
+    }
+
+    /**
+     * Type of the i-th dot as an ordinal of {@link DotType} (-1 if missing).
+     *
+     * @param i index of the dot.
+     * @return type ordinal.
+     */
+    public byte getTypeOrdinal(int i) {
+        checkIndex(i);
+        return type[i];
+    }
+
+    public Map<String, Object> getMetadata(int i) {
+        checkIndex(i);
+        return metadata == null ? null : metadata[i];
+    }
+
+    public void setMetadata(int i, Map<String, Object> value) {
+        checkIndex(i);
+        if (metadata == null) {
+            if (value == null) {
+                return;
+            }
+            metadata = newMetadataArray(x.length);
+        }
+        metadata[i] = value;
+    }
+
+    /**
+     * Check whether any dot has metadata.
+     *
+     * @return {@code true} if any dot has metadata.
+     */
+    public boolean hasMetadata() {
+        if (metadata == null) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (metadata[i] != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Append a dot.
+     *
+     * @param x         x coordinate (NaN if missing).
+     * @param y         y coordinate (NaN if missing).
+     * @param timestamp timestamp ({@link #NO_TIMESTAMP} if missing).
+     * @param type      type of dot.
+     * @param pressure  pressure (NaN if missing).
+     * @return this buffer.
+     */
+    public StrokeBuffer add(double x, double y, long timestamp, DotType type, double pressure) {
+        ensureCapacity(size + 1);
+        this.x[size] = x;
+        this.y[size] = y;
+        this.timestamp[size] = timestamp;
+        this.type[size] = type == null ? NO_TYPE : (byte) type.ordinal();
+        this.pressure[size] = pressure;
+        size++;
+        return this;
+    }
+
+    /**
+     * Append a dot.
+     *
+     * @param dot the dot.
+     * @return this buffer.
+     */
+    public StrokeBuffer add(Dot dot) {
+        add(
+            dot.getX() == null ? Double.NaN : dot.getX(),
+            dot.getY() == null ? Double.NaN : dot.getY(),
+            dot.getTimestamp() == null ? NO_TIMESTAMP : dot.getTimestamp(),
+            dot.getType(),
+            dot.getPressure() == null ? Double.NaN : dot.getPressure()
+        );
+        setMetadata(size - 1, dot.getMetadata());
+        return this;
+    }
+
+    /**
+     * Copy the i-th dot into a new {@link Dot}. Prefer {@link #cursor()}
+     * when iterating.
+     *
+     * @param i index of the dot.
+     * @return a copy of the dot.
+     */
+    public Dot getDot(int i) {
+        checkIndex(i);
+        return new Dot()
+            .x(Double.isNaN(x[i]) ? null : x[i])
+            .y(Double.isNaN(y[i]) ? null : y[i])
+            .timestamp(timestamp[i] == NO_TIMESTAMP ? null : timestamp[i])
+            .type(getType(i))
+            .pressure(Double.isNaN(pressure[i]) ? null : pressure[i])
+            .metadata(getMetadata(i));
+    }
+
+    /**
+     * Create a cursor positioned before the first dot.
+     *
+     * @return a new cursor.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity <= x.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, x.length + (x.length >> 1) + 1);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        pressure = Arrays.copyOf(pressure, newCapacity);
+        timestamp = Arrays.copyOf(timestamp, newCapacity);
+        type = Arrays.copyOf(type, newCapacity);
+        if (metadata != null) {
+            metadata = Arrays.copyOf(metadata, newCapacity);
+        }
+    }
+
+    public void trimToSize() {
+        if (size == x.length || size == 0) {
+            return;
+        }
+        x = Arrays.copyOf(x, size);
+        y = Arrays.copyOf(y, size);
+        pressure = Arrays.copyOf(pressure, size);
+        timestamp = Arrays.copyOf(timestamp, size);
+        type = Arrays.copyOf(type, size);
+        if (metadata != null) {
+            metadata = Arrays.copyOf(metadata, size);
+        }
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object>[] newMetadataArray(int length) {
+        return (Map<String, Object>[]) new Map[length];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StrokeBuffer that = (StrokeBuffer) o;
+        if (size != that.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (Double.doubleToLongBits(x[i]) != Double.doubleToLongBits(that.x[i]) ||
+                Double.doubleToLongBits(y[i]) != Double.doubleToLongBits(that.y[i]) ||
+                Double.doubleToLongBits(pressure[i]) != Double.doubleToLongBits(that.pressure[i]) ||
+                timestamp[i] != that.timestamp[i] ||
+                type[i] != that.type[i] ||
+                !Objects.equals(getMetadata(i), that.getMetadata(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = size;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + Double.hashCode(x[i]);
+            result = 31 * result + Double.hashCode(y[i]);
+            result = 31 * result + Long.hashCode(timestamp[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "StrokeBuffer{" +
+            "size=" + size +
+            '}';
+    }
+
+    /**
+     * Flyweight view over one dot of the buffer at a time.
+     */
+    public final class Cursor {
+
+        private int index = -1;
+
+        private Cursor() {
+        }
+
+        /**
+         * Move to the next dot.
+         *
+         * @return {@code false} if there are no more dots.
+         */
+        public boolean next() {
+            if (index + 1 >= size) {
+                index = size;
+                return false;
+            }
+            index++;
+            return true;
+        }
+
+        public Cursor moveTo(int index) {
+            checkIndex(index);
+            this.index = index;
+            return this;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public double x() {
+            return x[index];
+        }
+
+        public double y() {
+            return y[index];
+        }
+
+        public double pressure() {
+            return pressure[index];
+        }
+
+        public long timestamp() {
+            return timestamp[index];
+        }
+
+        public DotType type() {
+            return type[index] == NO_TYPE ? null : TYPES[type[index]];
+        }
+
+        public Map<String, Object> metadata() {
+            return metadata == null ? null : metadata[index];
+        }
+    }
+}
@@ -5,50 +5,51 @@ import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
-import org.springframework.batch.item.ItemReader;
-import org.springframework.batch.item.support.IteratorItemReader;
+import org.springframework.batch.item.NonTransientResourceException;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
 import pt.up.hs.sampling.config.ApplicationProperties;
-import pt.up.hs.sampling.domain.ProtocolData;
-import pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationListener;
-import pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationProcessor;
-import pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationReader;
-import pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationWriter;
-import pt.up.hs.uhc.models.Page;
 
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.List;
-import java.util.stream.Collectors;
 
 import static pt.up.hs.sampling.processing.importing.BatchImportProtocolConstants.IMPORT_PROTOCOL_JOB;
 import static pt.up.hs.sampling.processing.importing.BatchImportProtocolConstants.IMPORT_PROTOCOL_STEP;
 
+/**
+ * Job importing the files in a directory as protocols. Each file is parsed
+ * and saved in its own chunk, on the import executor, so files are imported
+ * in parallel and a file that cannot be imported is skipped (and counted)
+ * without affecting the others. Drop folder imports move each file to a
+ * directory for done or failed files as it is imported.
+ */
 @Configuration
 public class BatchImportProtocolConfig {
 
-    /*private final ApplicationProperties applicationProperties;
+    private final ApplicationProperties applicationProperties;
 
     private final JobBuilderFactory jobBuilderFactory;
     private final StepBuilderFactory stepBuilderFactory;
 
-    private final ProtocolPreviewGenerationReader reader;
-    private final ProtocolPreviewGenerationProcessor processor;
-    private final ProtocolPreviewGenerationWriter writer;
-    private final ProtocolPreviewGenerationListener listener;
+    private final ImportProtocolReader reader;
+    private final ImportProtocolProcessor processor;
+    private final ImportProtocolWriter writer;
+    private final ImportProtocolListener listener;
+    private final ImportProtocolSkipListener skipListener;
+
+    private final TaskExecutor importExecutor;
 
     public BatchImportProtocolConfig(
         ApplicationProperties applicationProperties,
         JobBuilderFactory jobBuilderFactory,
         StepBuilderFactory stepBuilderFactory,
-        Import reader,
-        ProtocolPreviewGenerationProcessor processor,
-        ProtocolPreviewGenerationWriter writer,
-        ProtocolPreviewGenerationListener listener
+        ImportProtocolReader reader,
+        ImportProtocolProcessor processor,
+        ImportProtocolWriter writer,
+        ImportProtocolListener listener,
+        ImportProtocolSkipListener skipListener,
+        @Qualifier("importExecutor") TaskExecutor importExecutor
     ) {
         this.applicationProperties = applicationProperties;
         this.jobBuilderFactory = jobBuilderFactory;
@@ -57,34 +58,35 @@ public class BatchImportProtocolConfig {
         this.processor = processor;
         this.writer = writer;
         this.listener = listener;
+        this.skipListener = skipListener;
+        this.importExecutor = importExecutor;
     }
 
     @Bean
-    public ItemReader<File> itemReader() throws IOException {
-        List<File> files = Files.walk(Paths.get(applicationProperties.getImporting().getPath(), ""))
-            .filter(Files::isRegularFile)
-            .map(Path::toFile)
-            .collect(Collectors.toList());
-        return new IteratorItemReader<>(files);
-    }
-
-    @Bean
-    public Step step() {
+    public Step importProtocolStep() {
         return stepBuilderFactory.get(IMPORT_PROTOCOL_STEP)
-            .<ProtocolData, Page>chunk(1)
+            .<File, ImportedFile>chunk(1)
             .reader(reader)
             .processor(processor)
             .writer(writer)
+            .faultTolerant()
+            .skip(Exception.class)
+            .noSkip(NonTransientResourceException.class)
+            .skipLimit(Integer.MAX_VALUE)
+            .listener(listener)
+            .listener(skipListener)
+            .taskExecutor(importExecutor)
+            .throttleLimit(Math.max(1, applicationProperties.getImporting().getThreads()))
             .build();
     }
 
     @Bean
-    public Job job() {
+    public Job importProtocolJob() {
         return jobBuilderFactory.get(IMPORT_PROTOCOL_JOB)
             .incrementer(new RunIdIncrementer())
             .listener(listener)
-            .flow(step())
-            .end()
+            .start(importProtocolStep())
+            .preventRestart()
             .build();
-    }*/
+    }
 }
@@ -13,4 +13,13 @@ public interface BatchImportProtocolConstants {
     String IMPORT_PROTOCOL_PROJECT_ID_PARAMETER = "projectId";
     String IMPORT_PROTOCOL_ID_PARAMETER = "id";
     String IMPORT_PROTOCOL_UNIQUENESS_PARAMETER = "uniqueness";
+    String IMPORT_PROTOCOL_TYPE_PARAMETER = "type";
+    String IMPORT_PROTOCOL_PATH_PARAMETER = "path";
+    String IMPORT_PROTOCOL_FILES_PARAMETER = "files";
+    String IMPORT_PROTOCOL_LOGIN_PARAMETER = "login";
+    String IMPORT_PROTOCOL_DONE_PARAMETER = "done";
+    String IMPORT_PROTOCOL_FAILED_PARAMETER = "failed";
+
+    String IMPORT_PROTOCOL_PAGES_KEY = "pages";
+    String IMPORT_PROTOCOL_IDS_KEY = "protocolIds";
 }
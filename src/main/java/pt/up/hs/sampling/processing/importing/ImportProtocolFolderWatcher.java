@@ -0,0 +1,228 @@
+package pt.up.hs.sampling.processing.importing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pt.up.hs.sampling.config.ApplicationProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Imports the files dropped in {@code inbox/<projectId>/} under the
+ * importing path, bypassing the HTTP layer for bulk loads. On each poll,
+ * the files that have not been modified for a while (i.e., that are no
+ * longer being copied) are moved to a directory of their own (under
+ * {@code processing/<projectId>/}) and imported by the import job, which
+ * moves each of them to {@code done/<projectId>/} or
+ * {@code failed/<projectId>/}.
+ * <p>
+ * Files left in {@code processing/} by an instance stopped while importing
+ * them are moved back to {@code inbox/<projectId>/} before the first poll.
+ */
+@Component
+public class ImportProtocolFolderWatcher {
+
+    public static final String INBOX_DIRECTORY = "inbox";
+    public static final String PROCESSING_DIRECTORY = "processing";
+    public static final String DONE_DIRECTORY = "done";
+    public static final String FAILED_DIRECTORY = "failed";
+
+    /**
+     * Time for which a file must not have been modified to be imported (ms).
+     */
+    private static final long SETTLE_TIME = 5000;
+
+    private final Logger log = LoggerFactory.getLogger(ImportProtocolFolderWatcher.class);
+
+    private final ApplicationProperties properties;
+    private final ImportProtocolJobLauncher jobLauncher;
+
+    private boolean recovered = false;
+
+    public ImportProtocolFolderWatcher(
+        ApplicationProperties properties,
+        ImportProtocolJobLauncher jobLauncher
+    ) {
+        this.properties = properties;
+        this.jobLauncher = jobLauncher;
+    }
+
+    @Scheduled(cron = "${application.importing.watch-cron:-}")
+    public void schedule() {
+        poll();
+    }
+
+    /**
+     * Launch the import of the files ready in each project directory of the
+     * drop folder.
+     *
+     * @return the import jobs launched.
+     */
+    public synchronized List<JobExecution> poll() {
+        if (!recovered) {
+            recover();
+            recovered = true;
+        }
+
+        List<JobExecution> jobExecutions = new ArrayList<>();
+        Path inbox = Paths.get(properties.getImporting().getPath(), INBOX_DIRECTORY);
+        if (!Files.isDirectory(inbox)) {
+            return jobExecutions;
+        }
+
+        List<Path> projectDirectories;
+        try (Stream<Path> paths = Files.list(inbox)) {
+            projectDirectories = paths
+                .filter(Files::isDirectory)
+                .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.error("Could not list drop folder {}", inbox, e);
+            return jobExecutions;
+        }
+
+        for (Path projectDirectory : projectDirectories) {
+            Long projectId;
+            try {
+                projectId = Long.valueOf(projectDirectory.getFileName().toString());
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring {} in drop folder, as it is not a project ID", projectDirectory);
+                continue;
+            }
+            try {
+                JobExecution jobExecution = importFiles(projectId, projectDirectory);
+                if (jobExecution != null) {
+                    jobExecutions.add(jobExecution);
+                }
+            } catch (IOException | JobExecutionException e) {
+                log.error("Could not import files dropped in {}", projectDirectory, e);
+            }
+        }
+        return jobExecutions;
+    }
+
+    /**
+     * Move the files left in {@code processing/<projectId>/} (by an import
+     * interrupted by a stop) back to {@code inbox/<projectId>/}, to be
+     * imported again. Files whose name was meanwhile dropped again are moved
+     * to {@code failed/<projectId>/} instead.
+     */
+    public synchronized void recover() {
+        String root = properties.getImporting().getPath();
+        Path processing = Paths.get(root, PROCESSING_DIRECTORY);
+        if (!Files.isDirectory(processing)) {
+            return;
+        }
+
+        List<Path> projectDirectories;
+        try (Stream<Path> paths = Files.list(processing)) {
+            projectDirectories = paths
+                .filter(Files::isDirectory)
+                .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.error("Could not list processing folder {}", processing, e);
+            return;
+        }
+
+        for (Path projectDirectory : projectDirectories) {
+            String projectId = projectDirectory.getFileName().toString();
+            try {
+                Long.valueOf(projectId);
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring {} in processing folder, as it is not a project ID", projectDirectory);
+                continue;
+            }
+            try {
+                recoverFiles(projectDirectory, Paths.get(root, INBOX_DIRECTORY, projectId),
+                    Paths.get(root, FAILED_DIRECTORY, projectId));
+            } catch (IOException e) {
+                log.error("Could not recover files left in {}", projectDirectory, e);
+            }
+        }
+    }
+
+    private void recoverFiles(Path projectDirectory, Path inbox, Path failed) throws IOException {
+        List<Path> directories;
+        try (Stream<Path> paths = Files.list(projectDirectory)) {
+            directories = paths
+                .filter(Files::isDirectory)
+                .collect(Collectors.toList());
+        }
+
+        int moved = 0;
+        for (Path directory : directories) {
+            File[] files = directory.toFile().listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (Files.exists(inbox.resolve(ImportProtocolJobLauncher.originalFilename(file)))) {
+                        ImportProtocolJobLauncher.moveFile(file, failed.toString());
+                    } else {
+                        ImportProtocolJobLauncher.moveFile(file, inbox.toString());
+                        moved++;
+                    }
+                }
+            }
+            Files.delete(directory);
+        }
+        if (moved > 0) {
+            log.info("Moved {} files left in {} back to {}", moved, projectDirectory, inbox);
+        }
+    }
+
+    private JobExecution importFiles(Long projectId, Path projectDirectory)
+        throws IOException, JobExecutionException {
+        long settledBefore = System.currentTimeMillis() - SETTLE_TIME;
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(projectDirectory)) {
+            files = paths
+                .filter(Files::isRegularFile)
+                .filter(path -> !path.getFileName().toString().startsWith("."))
+                .filter(path -> path.toFile().lastModified() < settledBefore)
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        if (files.isEmpty()) {
+            return null;
+        }
+
+        String root = properties.getImporting().getPath();
+        Path directory = Paths.get(root, PROCESSING_DIRECTORY, projectId.toString(), UUID.randomUUID().toString());
+        Files.createDirectories(directory);
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            Files.move(file, directory.resolve(
+                ImportProtocolJobLauncher.storedFilename(i, file.getFileName().toString())
+            ));
+        }
+
+        log.info("Importing {} files dropped in {}", files.size(), projectDirectory);
+        Path failed = Paths.get(root, FAILED_DIRECTORY, projectId.toString());
+        try {
+            return jobLauncher.run(
+                projectId, null, directory, files.size(), null,
+                Paths.get(root, DONE_DIRECTORY, projectId.toString()),
+                failed
+            );
+        } catch (JobExecutionException e) {
+            File[] staged = directory.toFile().listFiles();
+            if (staged != null) {
+                for (File file : staged) {
+                    ImportProtocolJobLauncher.moveFile(file, failed.toString());
+                }
+            }
+            Files.delete(directory);
+            throw e;
+        }
+    }
+}
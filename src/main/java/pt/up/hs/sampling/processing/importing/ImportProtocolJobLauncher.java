@@ -0,0 +1,159 @@
+package pt.up.hs.sampling.processing.importing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionException;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import static pt.up.hs.sampling.processing.importing.BatchImportProtocolConstants.*;
+
+/**
+ * Launches import jobs in the background, returning as soon as the job
+ * execution is created, so that its progress can be followed through its ID.
+ *
+ * @author José Carlos Paiva
+ */
+@Component
+public class ImportProtocolJobLauncher {
+
+    private final Logger log = LoggerFactory.getLogger(ImportProtocolJobLauncher.class);
+
+    private final SimpleJobLauncher jobLauncher;
+    private final BatchImportProtocolConfig config;
+
+    public ImportProtocolJobLauncher(JobRepository jobRepository, BatchImportProtocolConfig config) {
+        this.jobLauncher = new SimpleJobLauncher();
+        this.jobLauncher.setJobRepository(jobRepository);
+        this.jobLauncher.setTaskExecutor(new SimpleAsyncTaskExecutor("sampling-import-job-"));
+        this.config = config;
+    }
+
+    /**
+     * Name of the file to store an uploaded file with, so that files are
+     * imported in upload order and keep their original name.
+     *
+     * @param index    position of the file in the upload.
+     * @param filename original name of the file.
+     * @return name of the file to store.
+     */
+    public static String storedFilename(int index, String filename) {
+        return String.format("%05d-%s", index, filename);
+    }
+
+    /**
+     * Original name of a stored file (see {@link #storedFilename(int, String)}).
+     *
+     * @param file the stored file.
+     * @return original name of the file.
+     */
+    public static String originalFilename(File file) {
+        String name = file.getName();
+        int separator = name.indexOf('-');
+        return separator < 0 ? name : name.substring(separator + 1);
+    }
+
+    /**
+     * Move a stored file to a directory, with its original name (see
+     * {@link #storedFilename(int, String)}), replacing any file with the
+     * same name.
+     *
+     * @param file      the stored file.
+     * @param directory the directory to move the file to.
+     * @throws IOException if the file could not be moved.
+     */
+    public static void moveFile(File file, String directory) throws IOException {
+        Path target = Paths.get(directory);
+        Files.createDirectories(target);
+        Files.move(file.toPath(), target.resolve(originalFilename(file)), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Launch the import of the files in a directory.
+     *
+     * @param projectId ID of the project to import into.
+     * @param type      type of protocols (null to detect from file names).
+     * @param directory directory with the files to import (deleted once
+     *                  the job finishes).
+     * @param files     number of files in the directory.
+     * @param login     login of the user importing the files.
+     * @return the job execution.
+     * @throws JobExecutionException if the job could not be launched.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public JobExecution run(
+        @Nonnull Long projectId,
+        String type,
+        @Nonnull Path directory,
+        int files,
+        String login
+    ) throws JobExecutionException {
+        return run(projectId, type, directory, files, login, null, null);
+    }
+
+    /**
+     * Launch the import of the files in a directory, moving each file to
+     * the directory for done or failed files once imported.
+     *
+     * @param projectId ID of the project to import into.
+     * @param type      type of protocols (null to detect from file names).
+     * @param directory directory with the files to import (deleted once
+     *                  the job finishes).
+     * @param files     number of files in the directory.
+     * @param login     login of the user importing the files.
+     * @param done      directory for files imported (null to delete them).
+     * @param failed    directory for files that could not be imported (null
+     *                  to delete them).
+     * @return the job execution.
+     * @throws JobExecutionException if the job could not be launched.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public JobExecution run(
+        @Nonnull Long projectId,
+        String type,
+        @Nonnull Path directory,
+        int files,
+        String login,
+        Path done,
+        Path failed
+    ) throws JobExecutionException {
+        JobParametersBuilder jobParametersBuilder = new JobParametersBuilder()
+            .addLong(IMPORT_PROTOCOL_UNIQUENESS_PARAMETER, System.nanoTime())
+            .addLong(IMPORT_PROTOCOL_PROJECT_ID_PARAMETER, projectId)
+            .addString(IMPORT_PROTOCOL_PATH_PARAMETER, directory.toAbsolutePath().toString())
+            .addLong(IMPORT_PROTOCOL_FILES_PARAMETER, (long) files);
+        if (type != null) {
+            jobParametersBuilder.addString(IMPORT_PROTOCOL_TYPE_PARAMETER, type);
+        }
+        if (login != null) {
+            jobParametersBuilder.addString(IMPORT_PROTOCOL_LOGIN_PARAMETER, login);
+        }
+        if (done != null) {
+            jobParametersBuilder.addString(IMPORT_PROTOCOL_DONE_PARAMETER, done.toAbsolutePath().toString());
+        }
+        if (failed != null) {
+            jobParametersBuilder.addString(IMPORT_PROTOCOL_FAILED_PARAMETER, failed.toAbsolutePath().toString());
+        }
+
+        JobExecution jobExecution = jobLauncher.run(
+            config.importProtocolJob(),
+            jobParametersBuilder.toJobParameters()
+        );
+        log.info("Launched job: " + jobExecution.toString());
+        return jobExecution;
+    }
+}
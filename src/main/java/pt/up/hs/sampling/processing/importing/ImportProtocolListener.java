@@ -0,0 +1,62 @@
+package pt.up.hs.sampling.processing.importing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.listener.JobExecutionListenerSupport;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import static pt.up.hs.sampling.processing.importing.BatchImportProtocolConstants.IMPORT_PROTOCOL_LOGIN_PARAMETER;
+import static pt.up.hs.sampling.processing.importing.BatchImportProtocolConstants.IMPORT_PROTOCOL_PATH_PARAMETER;
+
+/**
+ * Listener of the import job. Chunks run on pooled threads, so the user who
+ * started the import is set as the current user of each chunk (for
+ * auditing). Once the job finishes, the imported files are deleted (the
+ * previews of the new protocols are queued as they are saved).
+ */
+@Component
+public class ImportProtocolListener extends JobExecutionListenerSupport implements ChunkListener {
+
+    private final Logger log = LoggerFactory.getLogger(ImportProtocolListener.class);
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        log.info("Import job {} finished with status {}", jobExecution.getId(), jobExecution.getStatus());
+        String path = jobExecution.getJobParameters().getString(IMPORT_PROTOCOL_PATH_PARAMETER);
+        try {
+            FileSystemUtils.deleteRecursively(Paths.get(path));
+        } catch (IOException e) {
+            log.warn("Could not delete imported files in {}", path, e);
+        }
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        Object login = context.getStepContext().getJobParameters().get(IMPORT_PROTOCOL_LOGIN_PARAMETER);
+        if (login != null) {
+            SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(login, null, Collections.emptyList())
+            );
+        }
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        SecurityContextHolder.clearContext();
+    }
+}
@@ -2,37 +2,40 @@ package pt.up.hs.sampling.processing.importing;
 
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.ItemProcessor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import pt.up.hs.sampling.domain.ProtocolData;
-import pt.up.hs.sampling.repository.ProtocolDataRepository;
-import pt.up.hs.sampling.service.mapper.UhcPageMapper;
-import pt.up.hs.uhc.models.Page;
+import pt.up.hs.sampling.service.ProtocolImportService;
 
 import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import static pt.up.hs.sampling.processing.importing.BatchImportProtocolConstants.IMPORT_PROTOCOL_TYPE_PARAMETER;
 
 /**
- * Import protocol page into database.
+ * Parse the pages of a file to import.
  */
 @Component
 @StepScope
-public class ImportProtocolProcessor implements ItemProcessor<Page, ProtocolData> {
+public class ImportProtocolProcessor implements ItemProcessor<File, ImportedFile> {
+
+    private final ProtocolImportService protocolImportService;
 
-    private final ProtocolDataRepository protocolDataRepository;
-    private final UhcPageMapper uhcPageMapper;
+    @Value("#{jobParameters['" + IMPORT_PROTOCOL_TYPE_PARAMETER + "']}")
+    private String type;
 
-    public ImportProtocolProcessor(
-        ProtocolDataRepository protocolDataRepository,
-        UhcPageMapper uhcPageMapper
-    ) {
-        this.protocolDataRepository = protocolDataRepository;
-        this.uhcPageMapper = uhcPageMapper;
+    public ImportProtocolProcessor(ProtocolImportService protocolImportService) {
+        this.protocolImportService = protocolImportService;
     }
 
     @Override
-    public ProtocolData process(@Nonnull Page page) {
-        ProtocolData protocolData = uhcPageMapper.uhcPageToProtocolData(page);
-        ProtocolData saved = protocolDataRepository.save(protocolData);
-        protocolDataRepository.flush();
-        return saved;
+    public ImportedFile process(@Nonnull File file) throws Exception {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return new ImportedFile(
+                file,
+                protocolImportService.parseProtocol(type, ImportProtocolJobLauncher.originalFilename(file), in)
+            );
+        }
     }
 }
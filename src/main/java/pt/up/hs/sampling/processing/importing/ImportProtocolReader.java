@@ -1,67 +1,54 @@
 package pt.up.hs.sampling.processing.importing;
 
-import org.springframework.batch.core.StepExecution;
-import org.springframework.batch.core.annotation.BeforeStep;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.NonTransientResourceException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
-import pt.up.hs.sampling.config.ApplicationProperties;
-import pt.up.hs.sampling.domain.ProtocolData;
-import pt.up.hs.sampling.repository.ProtocolDataRepository;
-import pt.up.hs.sampling.service.mapper.ProtocolDataMapper;
 
-import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_ID_PARAMETER;
-import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_PROJECT_ID_PARAMETER;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static pt.up.hs.sampling.processing.importing.BatchImportProtocolConstants.IMPORT_PROTOCOL_PATH_PARAMETER;
 
 /**
- * Import protocol into database.
+ * Read the files to import from the directory of the job, in name order.
+ * Reads are synchronized, as the step is multi-threaded.
  *
  * @author José Carlos Paiva
  */
 @Component
 @StepScope
-public class ImportProtocolReader implements ItemReader<ProtocolData> {
-
-    private final ApplicationProperties applicationProperties;
-    private int nextIndex;
+public class ImportProtocolReader implements ItemReader<File> {
 
-    private StepExecution stepExecution;
+    @Value("#{jobParameters['" + IMPORT_PROTOCOL_PATH_PARAMETER + "']}")
+    private String path;
 
-    public ImportProtocolReader(
-        ApplicationProperties applicationProperties
-    ) {
-        this.applicationProperties = applicationProperties;
-        this.nextIndex = 0;
-    }
-
-    @BeforeStep
-    public void beforeStep(final StepExecution stepExecution) {
-        this.stepExecution = stepExecution;
-    }
+    private Iterator<File> files;
 
     @Override
-    public ProtocolData read() {
-
-        /*ProtocolData pd = protocolDataRepository
-            .findFirstByDirtyPreviewTrue()
-            .orElse(null);
-
-        if (pd == null) {*/
-            return null;
-        /*}
-
-        stepExecution
-            .getJobExecution()
-            .getExecutionContext()
-            .put(PROTOCOL_PREVIEW_GENERATION_PROJECT_ID_PARAMETER, pd.getProtocol().getProjectId());
-
-        stepExecution
-            .getJobExecution()
-            .getExecutionContext()
-            .put(PROTOCOL_PREVIEW_GENERATION_ID_PARAMETER, pd.getProtocolId());
-
-        return pd;*/
+    public synchronized File read() {
+        if (files == null) {
+            if (path == null) {
+                throw new NonTransientResourceException("No directory of files to import");
+            }
+            try (Stream<Path> paths = Files.list(Paths.get(path))) {
+                files = paths
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .map(Path::toFile)
+                    .collect(Collectors.toList())
+                    .iterator();
+            } catch (IOException e) {
+                throw new NonTransientResourceException("Could not list files to import in " + path, e);
+            }
+        }
+        return files.hasNext() ? files.next() : null;
     }
 }
@@ -0,0 +1,53 @@
+package pt.up.hs.sampling.processing.importing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.SkipListener;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+
+import static pt.up.hs.sampling.processing.importing.BatchImportProtocolConstants.IMPORT_PROTOCOL_FAILED_PARAMETER;
+
+/**
+ * Move files that could not be imported to the directory for failed files
+ * of the job, if it has one (drop folder imports).
+ */
+@Component
+@StepScope
+public class ImportProtocolSkipListener implements SkipListener<File, ImportedFile> {
+
+    private final Logger log = LoggerFactory.getLogger(ImportProtocolSkipListener.class);
+
+    @Value("#{jobParameters['" + IMPORT_PROTOCOL_FAILED_PARAMETER + "']}")
+    private String failedDirectory;
+
+    @Override
+    public void onSkipInRead(Throwable t) {
+    }
+
+    @Override
+    public void onSkipInProcess(File item, Throwable t) {
+        fail(item, t);
+    }
+
+    @Override
+    public void onSkipInWrite(ImportedFile item, Throwable t) {
+        fail(item.getFile(), t);
+    }
+
+    private void fail(File file, Throwable t) {
+        log.warn("Could not import {}", file.getName(), t);
+        if (failedDirectory == null) {
+            return;
+        }
+        try {
+            ImportProtocolJobLauncher.moveFile(file, failedDirectory);
+        } catch (IOException e) {
+            log.error("Could not move {} to {}", file, failedDirectory, e);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package pt.up.hs.sampling.processing.importing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+import pt.up.hs.sampling.config.ApplicationProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Spools resumable uploads of protocol files to {@code resumable/<id>/}
+ * under the importing path, so that a large file can be sent in chunks and
+ * the upload resumed from the last byte received after a dropped
+ * connection. Everything about an upload is kept on disk (the bytes
+ * received in {@code data} and the rest in {@code upload.properties}), so
+ * the offset of an upload is the size of its data.
+ * <p>
+ * Uploads untouched for longer than the upload expiration are deleted when
+ * new uploads are created.
+ *
+ * @author José Carlos Paiva
+ */
+@Component
+public class ImportProtocolUploadStore {
+
+    public static final String RESUMABLE_DIRECTORY = "resumable";
+
+    private static final String DATA_FILE = "data";
+    private static final String INFO_FILE = "upload.properties";
+
+    private static final String PROJECT_ID_PROPERTY = "projectId";
+    private static final String FILENAME_PROPERTY = "filename";
+    private static final String TYPE_PROPERTY = "type";
+    private static final String LENGTH_PROPERTY = "length";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Logger log = LoggerFactory.getLogger(ImportProtocolUploadStore.class);
+
+    private final ApplicationProperties properties;
+
+    /**
+     * IDs of the uploads being written to (or taken), as a chunk must not
+     * be appended while another is.
+     */
+    private final Set<String> busy = ConcurrentHashMap.newKeySet();
+
+    public ImportProtocolUploadStore(ApplicationProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Create an upload.
+     *
+     * @param projectId ID of the project to import into.
+     * @param filename  name of the file being uploaded.
+     * @param type      type of protocols (null to detect from the file name).
+     * @param length    length of the file (null if not known yet).
+     * @return the upload created.
+     * @throws IOException if the upload could not be created.
+     */
+    public Upload create(Long projectId, String filename, String type, Long length) throws IOException {
+        purgeExpired();
+
+        Upload upload = new Upload(UUID.randomUUID().toString(), projectId, filename, type, length, 0);
+        Path directory = directory(upload.getId());
+        Files.createDirectories(directory);
+        Files.createFile(directory.resolve(DATA_FILE));
+        writeInfo(upload);
+        return upload;
+    }
+
+    /**
+     * Find an upload.
+     *
+     * @param id ID of the upload.
+     * @return the upload, if it exists.
+     */
+    public Optional<Upload> find(String id) {
+        if (!isValidId(id)) {
+            return Optional.empty();
+        }
+        Path directory = directory(id);
+        Path info = directory.resolve(INFO_FILE);
+        Path data = directory.resolve(DATA_FILE);
+        if (!Files.isRegularFile(info) || !Files.isRegularFile(data)) {
+            return Optional.empty();
+        }
+        try {
+            Properties props = new Properties();
+            try (Reader reader = Files.newBufferedReader(info, StandardCharsets.UTF_8)) {
+                props.load(reader);
+            }
+            String length = props.getProperty(LENGTH_PROPERTY);
+            return Optional.of(new Upload(
+                id,
+                Long.valueOf(props.getProperty(PROJECT_ID_PROPERTY)),
+                props.getProperty(FILENAME_PROPERTY),
+                props.getProperty(TYPE_PROPERTY),
+                length == null ? null : Long.valueOf(length),
+                Files.size(data)
+            ));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read upload {}", id, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Append a chunk to an upload. The chunk may start before the offset of
+     * the upload (e.g., when it is sent again because the response to it was
+     * lost), in which case the bytes already received are skipped, but not
+     * after it. Whatever is read before the stream fails is kept, so that the
+     * upload can be resumed from there.
+     *
+     * @param id          ID of the upload.
+     * @param start       position of the first byte of the chunk.
+     * @param chunkLength number of bytes of the chunk.
+     * @param total       length of the file (null if not known yet).
+     * @param in          contents of the chunk.
+     * @return the upload, after appending the chunk.
+     * @throws IOException              if the chunk could not be read or written.
+     * @throws IllegalStateException    if the upload is being written to or
+     *                                  the chunk starts after its offset.
+     * @throws IllegalArgumentException if the chunk does not fit in the file.
+     */
+    public Upload append(String id, long start, long chunkLength, Long total, InputStream in) throws IOException {
+        if (!busy.add(id)) {
+            throw new IllegalStateException("Upload is being written to");
+        }
+        try {
+            Upload upload = find(id).orElseThrow(() -> new IOException("Upload " + id + " does not exist"));
+            if (start > upload.getOffset()) {
+                throw new IllegalStateException("Chunk starts at " + start + ", but upload is at " + upload.getOffset());
+            }
+            Long length = upload.getLength();
+            if (length != null && total != null && !length.equals(total)) {
+                throw new IllegalArgumentException("Length of file is " + length + ", not " + total);
+            }
+            if (length == null && total != null) {
+                if (total > properties.getImporting().getUploadMaxLength()) {
+                    throw new IllegalArgumentException("Length of file is above " + properties.getImporting().getUploadMaxLength());
+                }
+                length = total;
+            }
+            long end = start + chunkLength;
+            long maxLength = length == null ? properties.getImporting().getUploadMaxLength() : length;
+            if (end > maxLength) {
+                throw new IllegalArgumentException("Chunk ends at " + end + ", after " + maxLength);
+            }
+            if (length != null && upload.getLength() == null) {
+                upload = new Upload(id, upload.getProjectId(), upload.getFilename(), upload.getType(), length, upload.getOffset());
+                writeInfo(upload);
+            }
+
+            long received = upload.getOffset();
+            skipFully(in, Math.min(received, end) - start);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (OutputStream out = Files.newOutputStream(directory(id).resolve(DATA_FILE), StandardOpenOption.APPEND)) {
+                long remaining = end - received;
+                while (remaining > 0) {
+                    int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        break;
+                    }
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+            return find(id).orElseThrow(() -> new IOException("Upload " + id + " does not exist"));
+        } finally {
+            busy.remove(id);
+        }
+    }
+
+    /**
+     * Take the file of an upload (deleting the upload).
+     *
+     * @param id     ID of the upload.
+     * @param target path to move the file of the upload to.
+     * @throws IOException           if the file could not be moved.
+     * @throws IllegalStateException if the upload is being written to.
+     */
+    public void take(String id, Path target) throws IOException {
+        if (!busy.add(id)) {
+            throw new IllegalStateException("Upload is being written to");
+        }
+        try {
+            Path directory = directory(id);
+            Files.move(directory.resolve(DATA_FILE), target);
+            FileSystemUtils.deleteRecursively(directory);
+        } finally {
+            busy.remove(id);
+        }
+    }
+
+    /**
+     * Delete an upload.
+     *
+     * @param id ID of the upload.
+     * @throws IOException           if the upload could not be deleted.
+     * @throws IllegalStateException if the upload is being written to.
+     */
+    public void delete(String id) throws IOException {
+        if (!busy.add(id)) {
+            throw new IllegalStateException("Upload is being written to");
+        }
+        try {
+            FileSystemUtils.deleteRecursively(directory(id));
+        } finally {
+            busy.remove(id);
+        }
+    }
+
+    /**
+     * Delete the uploads untouched for longer than the upload expiration.
+     */
+    public void purgeExpired() {
+        Path root = Paths.get(properties.getImporting().getPath(), RESUMABLE_DIRECTORY);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long expiredBefore = System.currentTimeMillis() - properties.getImporting().getUploadExpiration();
+        Set<Path> directories;
+        try (Stream<Path> paths = Files.list(root)) {
+            directories = paths
+                .filter(Files::isDirectory)
+                .collect(Collectors.toSet());
+        } catch (IOException e) {
+            log.error("Could not list uploads in {}", root, e);
+            return;
+        }
+        for (Path directory : directories) {
+            String id = directory.getFileName().toString();
+            if (directory.resolve(DATA_FILE).toFile().lastModified() >= expiredBefore || !busy.add(id)) {
+                continue;
+            }
+            try {
+                log.info("Deleting expired upload {}", id);
+                FileSystemUtils.deleteRecursively(directory);
+            } catch (IOException e) {
+                log.error("Could not delete expired upload {}", id, e);
+            } finally {
+                busy.remove(id);
+            }
+        }
+    }
+
+    private Path directory(String id) {
+        return Paths.get(properties.getImporting().getPath(), RESUMABLE_DIRECTORY, id);
+    }
+
+    private void writeInfo(Upload upload) throws IOException {
+        Properties props = new Properties();
+        props.setProperty(PROJECT_ID_PROPERTY, upload.getProjectId().toString());
+        props.setProperty(FILENAME_PROPERTY, upload.getFilename());
+        if (upload.getType() != null) {
+            props.setProperty(TYPE_PROPERTY, upload.getType());
+        }
+        if (upload.getLength() != null) {
+            props.setProperty(LENGTH_PROPERTY, upload.getLength().toString());
+        }
+        try (Writer writer = Files.newBufferedWriter(directory(upload.getId()).resolve(INFO_FILE), StandardCharsets.UTF_8)) {
+            props.store(writer, null);
+        }
+    }
+
+    private static boolean isValidId(String id) {
+        try {
+            return id != null && UUID.fromString(id).toString().equals(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new IOException("Chunk ended before the offset of the upload");
+                }
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    /**
+     * An upload, as stored.
+     */
+    public static class Upload {
+
+        private final String id;
+        private final Long projectId;
+        private final String filename;
+        private final String type;
+        private final Long length;
+        private final long offset;
+
+        Upload(String id, Long projectId, String filename, String type, Long length, long offset) {
+            this.id = id;
+            this.projectId = projectId;
+            this.filename = filename;
+            this.type = type;
+            this.length = length;
+            this.offset = offset;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Long getProjectId() {
+            return projectId;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Long getLength() {
+            return length;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+    }
+}
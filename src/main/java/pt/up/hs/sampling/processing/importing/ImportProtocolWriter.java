@@ -0,0 +1,80 @@
+package pt.up.hs.sampling.processing.importing;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pt.up.hs.sampling.service.ProtocolImportService;
+import pt.up.hs.sampling.service.dto.ProtocolDTO;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static pt.up.hs.sampling.processing.importing.BatchImportProtocolConstants.*;
+
+/**
+ * Save the pages of imported files as protocols, keeping the number of
+ * pages saved and the IDs of the protocols created in the step execution
+ * context. When the job has a directory for imported files (drop folder
+ * imports, which can be very large), each file is moved there once saved
+ * and the IDs are not kept.
+ */
+@Component
+@StepScope
+public class ImportProtocolWriter implements ItemWriter<ImportedFile> {
+
+    private final ProtocolImportService protocolImportService;
+
+    @Value("#{jobParameters['" + IMPORT_PROTOCOL_PROJECT_ID_PARAMETER + "']}")
+    private Long projectId;
+
+    @Value("#{jobParameters['" + IMPORT_PROTOCOL_DONE_PARAMETER + "']}")
+    private String doneDirectory;
+
+    private StepExecution stepExecution;
+
+    public ImportProtocolWriter(ProtocolImportService protocolImportService) {
+        this.protocolImportService = protocolImportService;
+    }
+
+    @BeforeStep
+    public void beforeStep(final StepExecution stepExecution) {
+        this.stepExecution = stepExecution;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void write(@Nonnull List<? extends ImportedFile> items) throws IOException {
+        int pages = 0;
+        List<Long> ids = new ArrayList<>();
+        for (ImportedFile item : items) {
+            for (ProtocolDTO protocolDTO : protocolImportService.importPages(projectId, item.getPages())) {
+                ids.add(protocolDTO.getId());
+                pages++;
+            }
+            if (doneDirectory != null) {
+                ImportProtocolJobLauncher.moveFile(item.getFile(), doneDirectory);
+            }
+        }
+
+        // the context is saved concurrently by other chunks, so its values
+        // are replaced rather than changed
+        ExecutionContext context = stepExecution.getExecutionContext();
+        synchronized (context) {
+            if (doneDirectory == null) {
+                List<Long> allIds = new ArrayList<>();
+                if (context.containsKey(IMPORT_PROTOCOL_IDS_KEY)) {
+                    allIds.addAll((List<Long>) context.get(IMPORT_PROTOCOL_IDS_KEY));
+                }
+                allIds.addAll(ids);
+                context.put(IMPORT_PROTOCOL_IDS_KEY, allIds);
+            }
+            context.putLong(IMPORT_PROTOCOL_PAGES_KEY, context.getLong(IMPORT_PROTOCOL_PAGES_KEY, 0) + pages);
+        }
+    }
+}
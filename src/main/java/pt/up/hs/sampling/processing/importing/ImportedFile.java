@@ -0,0 +1,28 @@
+package pt.up.hs.sampling.processing.importing;
+
+import pt.up.hs.uhc.models.Page;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * A file being imported, with the pages parsed from it.
+ */
+public class ImportedFile {
+
+    private final File file;
+    private final List<Page> pages;
+
+    public ImportedFile(File file, List<Page> pages) {
+        this.file = file;
+        this.pages = pages;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public List<Page> getPages() {
+        return pages;
+    }
+}
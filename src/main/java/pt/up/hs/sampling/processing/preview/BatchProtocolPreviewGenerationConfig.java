@@ -5,48 +5,94 @@ import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.item.NonTransientResourceException;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import pt.up.hs.sampling.config.ApplicationProperties;
 import pt.up.hs.sampling.domain.ProtocolData;
-import pt.up.hs.uhc.models.Page;
 
 import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_JOB;
 import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_STEP;
+import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_WORKER_STEP;
 
+/**
+ * Job generating the previews of the protocols with dirty previews. The
+ * protocols are partitioned into ranges of IDs, each generated by a worker on
+ * the preview executor, a chunk at a time. A protocol whose preview cannot be
+ * generated is skipped (and stays dirty) without affecting the others.
+ */
 @Configuration
 public class BatchProtocolPreviewGenerationConfig {
 
+    private final ApplicationProperties applicationProperties;
+
     private final JobBuilderFactory jobBuilderFactory;
     private final StepBuilderFactory stepBuilderFactory;
 
+    private final ProtocolPreviewGenerationPartitioner partitioner;
     private final ProtocolPreviewGenerationReader reader;
     private final ProtocolPreviewGenerationProcessor processor;
     private final ProtocolPreviewGenerationWriter writer;
     private final ProtocolPreviewGenerationListener listener;
 
+    private final TaskExecutor previewExecutor;
+
     public BatchProtocolPreviewGenerationConfig(
+        ApplicationProperties applicationProperties,
         JobBuilderFactory jobBuilderFactory,
         StepBuilderFactory stepBuilderFactory,
+        ProtocolPreviewGenerationPartitioner partitioner,
         ProtocolPreviewGenerationReader reader,
         ProtocolPreviewGenerationProcessor processor,
         ProtocolPreviewGenerationWriter writer,
-        ProtocolPreviewGenerationListener listener
+        ProtocolPreviewGenerationListener listener,
+        @Qualifier("previewExecutor") TaskExecutor previewExecutor
     ) {
+        this.applicationProperties = applicationProperties;
         this.jobBuilderFactory = jobBuilderFactory;
         this.stepBuilderFactory = stepBuilderFactory;
+        this.partitioner = partitioner;
         this.reader = reader;
         this.processor = processor;
         this.writer = writer;
         this.listener = listener;
+        this.previewExecutor = previewExecutor;
     }
 
     @Bean
-    public Step step() {
-        return stepBuilderFactory.get(PROTOCOL_PREVIEW_GENERATION_STEP)
-            .<ProtocolData, Page>chunk(1)
+    public ProtocolPreviewRenderer protocolPreviewRenderer() {
+        switch (applicationProperties.getPreview().getRenderer()) {
+            case SVG:
+                return new SvgProtocolPreviewRenderer();
+            case JAVA2D:
+            default:
+                return new Java2dProtocolPreviewRenderer();
+        }
+    }
+
+    @Bean
+    public Step workerStep() {
+        return stepBuilderFactory.get(PROTOCOL_PREVIEW_GENERATION_WORKER_STEP)
+            .<ProtocolData, ProtocolPreviewPage>chunk(Math.max(1, applicationProperties.getPreview().getChunkSize()))
             .reader(reader)
             .processor(processor)
             .writer(writer)
+            .faultTolerant()
+            .skip(Exception.class)
+            .noSkip(NonTransientResourceException.class)
+            .skipLimit(Integer.MAX_VALUE)
+            .build();
+    }
+
+    @Bean
+    public Step step() {
+        return stepBuilderFactory.get(PROTOCOL_PREVIEW_GENERATION_STEP)
+            .partitioner(PROTOCOL_PREVIEW_GENERATION_WORKER_STEP, partitioner)
+            .step(workerStep())
+            .gridSize(Math.max(1, applicationProperties.getPreview().getThreads()))
+            .taskExecutor(previewExecutor)
             .build();
     }
 
@@ -10,9 +10,15 @@ import org.springframework.stereotype.Component;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_UNIQUENESS_PARAMETER;
 
+/**
+ * Launch the batch job generating every dirty preview, as a safety net for
+ * the {@link ProtocolPreviewQueue}: on startup, on {@code preview.cron} and
+ * when the queue is full.
+ */
 @Component
 public class BatchProtocolPreviewGenerationJobLauncher {
     private static final long EXECUTION_DELAY = 20000;
@@ -25,6 +31,8 @@ public class BatchProtocolPreviewGenerationJobLauncher {
     private final JobLauncher jobLauncher;
     private final BatchProtocolPreviewGenerationConfig config;
 
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+
     public BatchProtocolPreviewGenerationJobLauncher(
         JobLauncher jobLauncher,
         BatchProtocolPreviewGenerationConfig config
@@ -38,9 +46,18 @@ public class BatchProtocolPreviewGenerationJobLauncher {
         newExecution();
     }
 
+    /**
+     * Schedule an execution of the job, unless one is already scheduled and
+     * has not started yet (requests within the delay are coalesced, as a
+     * single execution handles all the dirty previews).
+     */
     public void newExecution() {
+        if (!pending.compareAndSet(false, true)) {
+            return;
+        }
 
         executorService.schedule(() -> {
+            pending.set(false);
             try {
                 jobLauncher.run(config.job(), new JobParametersBuilder()
                     .addLong(PROTOCOL_PREVIEW_GENERATION_UNIQUENESS_PARAMETER, System.nanoTime())
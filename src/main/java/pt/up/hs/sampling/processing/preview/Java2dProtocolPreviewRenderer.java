@@ -0,0 +1,167 @@
+package pt.up.hs.sampling.processing.preview;
+
+import pt.up.hs.uhc.UniversalHandwritingConverter;
+import pt.up.hs.uhc.models.Dot;
+import pt.up.hs.uhc.models.Page;
+import pt.up.hs.uhc.models.Stroke;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Render previews by drawing the strokes of the page directly on an image
+ * with Java2D, each segment as wide as the pressure of its dots, on a
+ * transparent background.
+ *
+ * @author José Carlos Paiva
+ */
+public class Java2dProtocolPreviewRenderer implements ProtocolPreviewRenderer {
+
+    private static final float MIN_STROKE_WIDTH = 0.6F;
+    private static final float MAX_STROKE_WIDTH = 2F;
+    private static final double MIN_SEGMENT_LENGTH_SQ = 0.5 * 0.5;
+
+    // widths are rounded to a few levels, so that strokes are not created
+    // (and set) for every segment
+    private static final BasicStroke[] STROKES = new BasicStroke[4];
+
+    static {
+        for (int i = 0; i < STROKES.length; i++) {
+            STROKES[i] = new BasicStroke(
+                MIN_STROKE_WIDTH + (MAX_STROKE_WIDTH - MIN_STROKE_WIDTH) * i / (STROKES.length - 1),
+                BasicStroke.CAP_ROUND,
+                BasicStroke.JOIN_ROUND
+            );
+        }
+    }
+
+    @Override
+    public void render(Page page, int width, int height, OutputStream os) throws Exception {
+
+        new UniversalHandwritingConverter()
+            .page(page)
+            .center();
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            g.setColor(Color.BLACK);
+            drawStrokes(g, page, width, height);
+        } finally {
+            g.dispose();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(os)) {
+            writer.setOutput(ios);
+            writer.write(image);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private void drawStrokes(Graphics2D g, Page page, int width, int height) {
+
+        // the page fills the width of the image
+        double extent = page.getWidth() != null && page.getWidth() > 0 ? page.getWidth() : width;
+        double scale = width / extent;
+        double maxPressure = maxPressure(page);
+
+        // consecutive segments as wide are drawn as a single path
+        Path2D.Double path = new Path2D.Double();
+        int level = -1;
+        for (Stroke stroke : page.getStrokes()) {
+            List<Dot> dots = stroke.getDots();
+            double lastX = 0, lastY = 0;
+            Double lastPressure = null;
+            boolean started = false;
+            for (int i = 0, n = dots.size(); i < n; i++) {
+                Dot dot = dots.get(i);
+                if (dot.getX() == null || dot.getY() == null) {
+                    continue;
+                }
+                double x = dot.getX() * scale;
+                double y = dot.getY() * scale;
+                if (!started) {
+                    int dotLevel = level(dot.getPressure(), dot.getPressure(), maxPressure);
+                    if (dotLevel != level) {
+                        level = flush(g, path, level, dotLevel);
+                    }
+                    path.moveTo(x, y);
+                    // a stroke with a single dot is drawn as a point
+                    path.lineTo(x, y);
+                    started = true;
+                } else {
+                    // dots closer than half a pixel to the last one drawn add nothing
+                    double dx = x - lastX, dy = y - lastY;
+                    if (dx * dx + dy * dy < MIN_SEGMENT_LENGTH_SQ && i < n - 1) {
+                        continue;
+                    }
+                    int segmentLevel = level(lastPressure, dot.getPressure(), maxPressure);
+                    if (segmentLevel != level) {
+                        level = flush(g, path, level, segmentLevel);
+                        path.moveTo(lastX, lastY);
+                    }
+                    path.lineTo(x, y);
+                }
+                lastX = x;
+                lastY = y;
+                lastPressure = dot.getPressure();
+            }
+        }
+        flush(g, path, level, level);
+    }
+
+    /**
+     * Draw the path as wide as the current level, and start a new one.
+     *
+     * @return the new level.
+     */
+    private static int flush(Graphics2D g, Path2D.Double path, int level, int newLevel) {
+        if (level >= 0 && path.getCurrentPoint() != null) {
+            g.setStroke(STROKES[level]);
+            g.draw(path);
+        }
+        path.reset();
+        return newLevel;
+    }
+
+    /**
+     * Get the width level of a segment from the mean pressure of its dots,
+     * relative to the highest pressure in the page. Without pressure, it is
+     * drawn as wide as the widest.
+     */
+    private static int level(Double from, Double to, double maxPressure) {
+        if (from == null || to == null || maxPressure <= 0) {
+            return STROKES.length - 1;
+        }
+        double relative = Math.max(0, Math.min(1, (from + to) / 2 / maxPressure));
+        return (int) Math.round(relative * (STROKES.length - 1));
+    }
+
+    private static double maxPressure(Page page) {
+        double max = 0;
+        for (Stroke stroke : page.getStrokes()) {
+            List<Dot> dots = stroke.getDots();
+            for (int i = 0, n = dots.size(); i < n; i++) {
+                Double pressure = dots.get(i).getPressure();
+                if (pressure != null && pressure > max) {
+                    max = pressure;
+                }
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,96 @@
+package pt.up.hs.sampling.processing.preview;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.up.hs.sampling.config.ApplicationProperties;
+import pt.up.hs.sampling.repository.ProtocolDataRepository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Claims on the previews generated by the workers of this instance, so that
+ * workers (of this and other instances sharing the database) split the dirty
+ * previews instead of all generating the same. Previews are claimed for
+ * {@code preview.lease} ms, in their own transactions (so other instances see
+ * the claims at once), and cleaned only if still claimed by the same worker
+ * (i.e., the protocol did not change meanwhile). A worker is a thread, which
+ * claims, generates and cleans previews one chunk after the other.
+ *
+ * @author José Carlos Paiva
+ */
+@Component
+public class ProtocolPreviewClaims {
+
+    private final String instance = UUID.randomUUID().toString();
+
+    private final ApplicationProperties properties;
+    private final ProtocolDataRepository protocolDataRepository;
+    private final TransactionTemplate claimTransactionTemplate;
+
+    public ProtocolPreviewClaims(
+        ApplicationProperties properties,
+        ProtocolDataRepository protocolDataRepository,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.properties = properties;
+        this.protocolDataRepository = protocolDataRepository;
+        this.claimTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.claimTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Claim the dirty previews of up to {@code limit} protocols, in order of
+     * ID, after a given ID.
+     *
+     * @param after ID after which to start (exclusive).
+     * @param last  ID at which to stop (inclusive).
+     * @param limit maximum number of previews to claim.
+     * @return IDs of the claimed protocols, in order (empty if there are no
+     * more to claim).
+     */
+    public List<Long> claim(long after, long last, int limit) {
+        Instant now = Instant.now();
+        return claimTransactionTemplate.execute(status -> protocolDataRepository
+            .claimDirtyPreviews(owner(), now, leaseUntil(now), after, last, limit));
+    }
+
+    /**
+     * Claim the dirty previews of the given protocols (those claimed by
+     * others are skipped).
+     *
+     * @param protocolIds IDs of the protocols.
+     * @return IDs of the claimed protocols.
+     */
+    public List<Long> claim(Collection<Long> protocolIds) {
+        Instant now = Instant.now();
+        return claimTransactionTemplate.execute(status -> protocolDataRepository
+            .claimDirtyPreviews(owner(), now, leaseUntil(now), protocolIds));
+    }
+
+    /**
+     * Clean the previews of protocols claimed by the current worker, in the
+     * current transaction.
+     *
+     * @param protocolIds IDs of the protocols.
+     * @return number of cleaned previews.
+     */
+    public int clean(List<Long> protocolIds) {
+        return protocolDataRepository.cleanClaimedPreviews(protocolIds, owner());
+    }
+
+    /**
+     * Get the ID of the current worker, as owner of its claims.
+     */
+    private String owner() {
+        return instance + ":" + Thread.currentThread().getId();
+    }
+
+    private Instant leaseUntil(Instant now) {
+        return now.plusMillis(properties.getPreview().getLease());
+    }
+}
@@ -7,11 +7,12 @@ public interface ProtocolPreviewGenerationConstants {
 
     String PROTOCOL_PREVIEW_GENERATION_JOB = "protocolPreviewGenerationJob";
     String PROTOCOL_PREVIEW_GENERATION_STEP = "protocolPreviewGenerationStep";
+    String PROTOCOL_PREVIEW_GENERATION_WORKER_STEP = "protocolPreviewGenerationWorkerStep";
 
     String PROTOCOL_PREVIEW_GENERATION_READER = "protocolPreviewGenerationReader";
 
-    String PROTOCOL_PREVIEW_GENERATION_PROJECT_ID_PARAMETER = "projectId";
-    String PROTOCOL_PREVIEW_GENERATION_ID_PARAMETER = "id";
+    String PROTOCOL_PREVIEW_GENERATION_MIN_ID_PARAMETER = "minId";
+    String PROTOCOL_PREVIEW_GENERATION_MAX_ID_PARAMETER = "maxId";
     String PROTOCOL_PREVIEW_GENERATION_UNIQUENESS_PARAMETER = "uniqueness";
 
     int PROTOCOL_PREVIEW_WIDTH = 300;
@@ -0,0 +1,53 @@
+package pt.up.hs.sampling.processing.preview;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.stereotype.Component;
+import pt.up.hs.sampling.repository.ProtocolDataRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_MAX_ID_PARAMETER;
+import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_MIN_ID_PARAMETER;
+
+/**
+ * Split the protocols with dirty previews into (at most) {@code gridSize}
+ * ranges of IDs of the same length, one per worker. Protocols imported
+ * together have consecutive IDs, so they are spread across the workers.
+ *
+ * @author José Carlos Paiva
+ */
+@Component
+public class ProtocolPreviewGenerationPartitioner implements Partitioner {
+
+    private static final String PARTITION_PREFIX = "partition";
+
+    private final ProtocolDataRepository protocolDataRepository;
+
+    public ProtocolPreviewGenerationPartitioner(ProtocolDataRepository protocolDataRepository) {
+        this.protocolDataRepository = protocolDataRepository;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+
+        List<Object[]> range = protocolDataRepository.findDirtyPreviewIdRange();
+        if (range.isEmpty() || range.get(0)[0] == null) {
+            return partitions;
+        }
+        long minId = ((Number) range.get(0)[0]).longValue();
+        long maxId = ((Number) range.get(0)[1]).longValue();
+
+        long length = (maxId - minId) / Math.max(1, gridSize) + 1;
+        for (long start = minId, i = 0; start <= maxId; start += length, i++) {
+            ExecutionContext context = new ExecutionContext();
+            context.putLong(PROTOCOL_PREVIEW_GENERATION_MIN_ID_PARAMETER, start);
+            context.putLong(PROTOCOL_PREVIEW_GENERATION_MAX_ID_PARAMETER, Math.min(maxId, start + length - 1));
+            partitions.put(PARTITION_PREFIX + i, context);
+        }
+        return partitions;
+    }
+}
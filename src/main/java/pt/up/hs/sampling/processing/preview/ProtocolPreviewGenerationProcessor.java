@@ -5,10 +5,6 @@ import org.springframework.batch.item.ItemProcessor;
 import org.springframework.stereotype.Component;
 import pt.up.hs.sampling.domain.Protocol;
 import pt.up.hs.sampling.domain.ProtocolData;
-import pt.up.hs.sampling.service.dto.ProtocolDTO;
-import pt.up.hs.sampling.service.dto.ProtocolDataDTO;
-import pt.up.hs.sampling.service.mapper.UhcPageMapper;
-import pt.up.hs.uhc.models.Page;
 
 import javax.annotation.Nonnull;
 
@@ -19,16 +15,16 @@ import javax.annotation.Nonnull;
  */
 @Component
 @StepScope
-public class ProtocolPreviewGenerationProcessor implements ItemProcessor<ProtocolData, Page> {
+public class ProtocolPreviewGenerationProcessor implements ItemProcessor<ProtocolData, ProtocolPreviewPage> {
 
-    private final UhcPageMapper uhcPageMapper;
+    private final ProtocolPreviewGenerator generator;
 
-    public ProtocolPreviewGenerationProcessor(UhcPageMapper uhcPageMapper) {
-        this.uhcPageMapper = uhcPageMapper;
+    public ProtocolPreviewGenerationProcessor(ProtocolPreviewGenerator generator) {
+        this.generator = generator;
     }
 
     @Override
-    public Page process(@Nonnull ProtocolData pd) throws Exception {
-        return uhcPageMapper.protocolDataToUhcPage(pd);
+    public ProtocolPreviewPage process(@Nonnull ProtocolData pd) throws Exception {
+        return generator.page(pd);
     }
 }
@@ -3,19 +3,29 @@ package pt.up.hs.sampling.processing.preview;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.annotation.BeforeStep;
 import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.NonTransientResourceException;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.TransactionException;
+import pt.up.hs.sampling.config.ApplicationProperties;
 import pt.up.hs.sampling.domain.ProtocolData;
 import pt.up.hs.sampling.repository.ProtocolDataRepository;
-import pt.up.hs.sampling.service.mapper.ProtocolDataMapper;
 
-import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_ID_PARAMETER;
-import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_PROJECT_ID_PARAMETER;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_MAX_ID_PARAMETER;
+import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_MIN_ID_PARAMETER;
 
 /**
- * Read {@link ProtocolData} protocols' data requiring preview generation from database.
+ * Read {@link ProtocolData} protocols' data requiring preview generation from
+ * database, a page at a time, in order of ID within the range of the
+ * partition. Pages start after the last ID read (rather than at an offset),
+ * as previews are cleaned while they are read, and are claimed before being
+ * read, so that previews claimed by other instances are skipped.
  *
  * @author José Carlos Paiva
  */
@@ -23,46 +33,51 @@ import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationCons
 @StepScope
 public class ProtocolPreviewGenerationReader implements ItemReader<ProtocolData> {
 
+    private final ApplicationProperties properties;
     private final ProtocolDataRepository protocolDataRepository;
-    private final ProtocolDataMapper protocolDataMapper;
+    private final ProtocolPreviewClaims claims;
 
-    private StepExecution stepExecution;
+    private long lastId;
+    private long maxId;
+    private Iterator<ProtocolData> page = Collections.emptyIterator();
 
     public ProtocolPreviewGenerationReader(
+        ApplicationProperties properties,
         ProtocolDataRepository protocolDataRepository,
-        ProtocolDataMapper protocolDataMapper
+        ProtocolPreviewClaims claims
     ) {
+        this.properties = properties;
         this.protocolDataRepository = protocolDataRepository;
-        this.protocolDataMapper = protocolDataMapper;
+        this.claims = claims;
     }
 
     @BeforeStep
     public void beforeStep(final StepExecution stepExecution) {
-        this.stepExecution = stepExecution;
+        ExecutionContext context = stepExecution.getExecutionContext();
+        lastId = context.getLong(PROTOCOL_PREVIEW_GENERATION_MIN_ID_PARAMETER, Long.MIN_VALUE + 1) - 1;
+        maxId = context.getLong(PROTOCOL_PREVIEW_GENERATION_MAX_ID_PARAMETER, Long.MAX_VALUE);
     }
 
-    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
     @Override
     public ProtocolData read() {
 
-        ProtocolData pd = protocolDataRepository
-            .findFirstByDirtyPreviewTrue()
-            .orElse(null);
-
-        if (pd == null) {
-            return null;
+        // claimed protocols may have been deleted meanwhile
+        while (!page.hasNext()) {
+            try {
+                List<Long> ids = claims.claim(
+                    lastId, maxId,
+                    Math.max(1, properties.getPreview().getChunkSize())
+                );
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                lastId = ids.get(ids.size() - 1);
+                page = protocolDataRepository.findAllWithProtocolByProtocolIdIn(ids).iterator();
+            } catch (DataAccessException | TransactionException e) {
+                throw new NonTransientResourceException("Could not read protocols with dirty previews", e);
+            }
         }
 
-        stepExecution
-            .getJobExecution()
-            .getExecutionContext()
-            .put(PROTOCOL_PREVIEW_GENERATION_PROJECT_ID_PARAMETER, pd.getProtocol().getProjectId());
-
-        stepExecution
-            .getJobExecution()
-            .getExecutionContext()
-            .put(PROTOCOL_PREVIEW_GENERATION_ID_PARAMETER, pd.getProtocolId());
-
-        return pd;
+        return page.next();
     }
 }
@@ -0,0 +1,92 @@
+package pt.up.hs.sampling.processing.preview;
+
+import org.springframework.stereotype.Component;
+import pt.up.hs.sampling.config.ApplicationProperties;
+import pt.up.hs.sampling.domain.ProtocolData;
+import pt.up.hs.sampling.repository.ProtocolStrokeDataRepository;
+import pt.up.hs.sampling.service.mapper.UhcPageMapper;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_HEIGHT;
+import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_WIDTH;
+
+/**
+ * Generate the preview of a protocol, shared by the batch job and the
+ * preview queue.
+ *
+ * @author José Carlos Paiva
+ */
+@Component
+public class ProtocolPreviewGenerator {
+
+    private final ApplicationProperties properties;
+    private final ProtocolStrokeDataRepository protocolStrokeDataRepository;
+    private final UhcPageMapper uhcPageMapper;
+    private final ProtocolPreviewRenderer renderer;
+
+    public ProtocolPreviewGenerator(
+        ApplicationProperties properties,
+        ProtocolStrokeDataRepository protocolStrokeDataRepository,
+        UhcPageMapper uhcPageMapper,
+        ProtocolPreviewRenderer renderer
+    ) {
+        this.properties = properties;
+        this.protocolStrokeDataRepository = protocolStrokeDataRepository;
+        this.uhcPageMapper = uhcPageMapper;
+        this.renderer = renderer;
+    }
+
+    /**
+     * Get the page of a protocol (with its strokes).
+     *
+     * @param pd the protocol data (with the protocol).
+     * @return the page of the protocol.
+     */
+    public ProtocolPreviewPage page(ProtocolData pd) {
+        return new ProtocolPreviewPage(
+            pd.getProtocol().getProjectId(),
+            pd.getProtocolId(),
+            uhcPageMapper.protocolDataToUhcPage(
+                pd,
+                protocolStrokeDataRepository.findById(pd.getProtocolId()).orElse(null)
+            )
+        );
+    }
+
+    /**
+     * Render the preview of a page and write it to the previews' folder.
+     *
+     * @param previewPage the page.
+     * @throws Exception if the preview cannot be rendered or written.
+     */
+    public void write(ProtocolPreviewPage previewPage) throws Exception {
+
+        Path folder = Files.createDirectories(Paths.get(
+            properties.getPreview().getPath(),
+            Long.toString(previewPage.getProjectId())
+        ));
+        Path path = folder.resolve(previewPage.getProtocolId() + ".png");
+
+        // written aside and moved, as the same preview may be generated by
+        // the queue and the batch job at the same time
+        Path tmp = Files.createTempFile(folder, previewPage.getProtocolId() + "-", ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                renderer.render(
+                    previewPage.getPage(),
+                    PROTOCOL_PREVIEW_WIDTH,
+                    PROTOCOL_PREVIEW_HEIGHT,
+                    os
+                );
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package pt.up.hs.sampling.processing.preview;
+
+import pt.up.hs.uhc.models.Page;
+
+/**
+ * A protocol page whose preview is being generated.
+ *
+ * @author José Carlos Paiva
+ */
+public class ProtocolPreviewPage {
+
+    private final Long projectId;
+    private final Long protocolId;
+    private final Page page;
+
+    public ProtocolPreviewPage(Long projectId, Long protocolId, Page page) {
+        this.projectId = projectId;
+        this.protocolId = protocolId;
+        this.page = page;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public Long getProtocolId() {
+        return protocolId;
+    }
+
+    public Page getPage() {
+        return page;
+    }
+}
@@ -0,0 +1,210 @@
+package pt.up.hs.sampling.processing.preview;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.up.hs.sampling.config.ApplicationProperties;
+import pt.up.hs.sampling.domain.ProtocolData;
+import pt.up.hs.sampling.repository.ProtocolDataRepository;
+
+import javax.annotation.Nonnull;
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue of protocols whose previews must be generated. Protocols are queued
+ * once their changes are committed and generated {@code preview.queue-delay}
+ * ms later, by {@code preview.threads} workers, {@code preview.chunk-size}
+ * at a time. A protocol changed again while it waits is not queued twice.
+ * <p>
+ * A queued protocol is generated only if its preview is still dirty and not
+ * claimed by another worker (of this or another instance). A change while a
+ * worker generates it releases the claim, so it stays dirty and is generated
+ * again. Protocols beyond {@code preview.queue-capacity} are left dirty, for
+ * the batch job.
+ *
+ * @author José Carlos Paiva
+ */
+@Component
+public class ProtocolPreviewQueue {
+
+    private final Logger log = LoggerFactory.getLogger(ProtocolPreviewQueue.class);
+
+    private final ApplicationProperties properties;
+    private final ProtocolDataRepository protocolDataRepository;
+    private final ProtocolPreviewGenerator generator;
+    private final ProtocolPreviewClaims claims;
+    private final BatchProtocolPreviewGenerationJobLauncher previewGenerationJobLauncher;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor previewQueueExecutor;
+
+    private final DelayQueue<Entry> queue = new DelayQueue<>();
+    private final ConcurrentMap<Long, Entry> pending = new ConcurrentHashMap<>();
+
+    public ProtocolPreviewQueue(
+        ApplicationProperties properties,
+        ProtocolDataRepository protocolDataRepository,
+        ProtocolPreviewGenerator generator,
+        ProtocolPreviewClaims claims,
+        BatchProtocolPreviewGenerationJobLauncher previewGenerationJobLauncher,
+        PlatformTransactionManager transactionManager,
+        @Qualifier("previewQueueExecutor") TaskExecutor previewQueueExecutor
+    ) {
+        this.properties = properties;
+        this.protocolDataRepository = protocolDataRepository;
+        this.generator = generator;
+        this.claims = claims;
+        this.previewGenerationJobLauncher = previewGenerationJobLauncher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.previewQueueExecutor = previewQueueExecutor;
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0, n = Math.max(1, properties.getPreview().getThreads()); i < n; i++) {
+            previewQueueExecutor.execute(this::work);
+        }
+    }
+
+    /**
+     * Queue the preview of a protocol, once the current transaction (if any)
+     * commits.
+     *
+     * @param protocolId ID of the protocol.
+     */
+    public void enqueue(Long protocolId) {
+        enqueue(Collections.singletonList(protocolId));
+    }
+
+    /**
+     * Queue the previews of protocols, once the current transaction (if any)
+     * commits.
+     *
+     * @param protocolIds IDs of the protocols.
+     */
+    public void enqueue(Collection<Long> protocolIds) {
+        if (protocolIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            offer(protocolIds);
+            return;
+        }
+        List<Long> ids = new ArrayList<>(protocolIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                offer(ids);
+            }
+        });
+    }
+
+    /**
+     * Get the number of protocols waiting in the queue.
+     *
+     * @return number of protocols waiting in the queue.
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    private void offer(Collection<Long> protocolIds) {
+        long due = System.currentTimeMillis() + properties.getPreview().getQueueDelay();
+        boolean overflow = false;
+        for (Long protocolId : protocolIds) {
+            if (pending.size() >= properties.getPreview().getQueueCapacity()) {
+                overflow = true;
+                break;
+            }
+            Entry entry = new Entry(protocolId, due);
+            if (pending.putIfAbsent(protocolId, entry) == null) {
+                queue.add(entry);
+            }
+        }
+        if (overflow) {
+            log.warn("Preview queue is full, leaving previews to the batch job");
+            previewGenerationJobLauncher.newExecution();
+        }
+    }
+
+    private void work() {
+        int chunkSize = Math.max(1, properties.getPreview().getChunkSize());
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Long> ids = new ArrayList<>(chunkSize);
+            try {
+                Entry entry = queue.take();
+                do {
+                    // changes from now on queue the protocol again
+                    pending.remove(entry.protocolId, entry);
+                    ids.add(entry.protocolId);
+                } while (ids.size() < chunkSize && (entry = queue.poll()) != null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                generate(ids);
+            } catch (RuntimeException e) {
+                log.error("Failed to generate previews of protocols {}", ids, e);
+                // left dirty, for the batch job
+            }
+        }
+    }
+
+    private void generate(List<Long> ids) {
+        List<Long> claimed = claims.claim(ids);
+        if (claimed.isEmpty()) {
+            return;
+        }
+        transactionTemplate.execute(status -> {
+            List<Long> generated = new ArrayList<>(claimed.size());
+            for (ProtocolData pd : protocolDataRepository.findAllWithProtocolByProtocolIdIn(claimed)) {
+                try {
+                    generator.write(generator.page(pd));
+                    generated.add(pd.getProtocolId());
+                } catch (Exception e) {
+                    log.warn("Failed to generate preview of protocol {}", pd.getProtocolId(), e);
+                }
+            }
+            if (!generated.isEmpty()) {
+                claims.clean(generated);
+            }
+            return null;
+        });
+    }
+
+    private static class Entry implements Delayed {
+
+        private final Long protocolId;
+        private final long due;
+
+        Entry(Long protocolId, long due) {
+            this.protocolId = protocolId;
+            this.due = due;
+        }
+
+        @Override
+        public long getDelay(@Nonnull TimeUnit unit) {
+            return unit.convert(due - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(@Nonnull Delayed o) {
+            return Long.compare(due, ((Entry) o).due);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package pt.up.hs.sampling.processing.preview;
+
+import pt.up.hs.uhc.models.Page;
+
+import java.io.OutputStream;
+
+/**
+ * Render the preview of a protocol page as a PNG image.
+ *
+ * @author José Carlos Paiva
+ */
+public interface ProtocolPreviewRenderer {
+
+    /**
+     * Render the preview of a page as a PNG image. The page fills the width
+     * of the image, from the top down to the height of the image (i.e., a
+     * square image shows the square at the top of the page, as wide as the
+     * page).
+     *
+     * @param page   the page.
+     * @param width  width of the image.
+     * @param height height of the image.
+     * @param os     stream to write the PNG image to.
+     * @throws Exception if the preview cannot be rendered.
+     */
+    void render(Page page, int width, int height, OutputStream os) throws Exception;
+}
@@ -0,0 +1,322 @@
+package pt.up.hs.sampling.processing.preview;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import pt.up.hs.sampling.config.ApplicationProperties;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Disk-backed cache of preview renditions (previews of a protocol in other
+ * sizes, rendered on demand). Renditions are kept in
+ * {@code <preview.path>/renditions/<projectId>/<protocolId>-<width>.png}, up
+ * to {@code preview.rendition-cache-size} bytes, evicting the least recently
+ * used first. Concurrent requests for the same rendition wait for a single
+ * render, as do those for renditions which are not kept (of outdated
+ * previews) of the same version of a protocol.
+ *
+ * @author José Carlos Paiva
+ */
+@Component
+public class ProtocolPreviewRenditionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ProtocolPreviewRenditionCache.class);
+
+    public static final String RENDITIONS_FOLDER = "renditions";
+
+    /**
+     * Widths in which renditions are rendered (requests are served the
+     * smallest at least as wide as requested).
+     */
+    private static final int[] WIDTHS = { 150, 300, 600, 1200, 2400 };
+
+    /**
+     * Resolution (dots per inch) in which the width and height of requests
+     * are measured, unless another is given.
+     */
+    public static final int DEFAULT_DPI = 96;
+
+    private final ApplicationProperties properties;
+
+    // size of the renditions on disk, from least to most recently used
+    private final Map<Path, Long> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private long size = 0;
+    private boolean loaded = false;
+
+    // renders in progress, by path (or by version, for those not kept)
+    private final ConcurrentMap<Object, CompletableFuture<byte[]>> renders = new ConcurrentHashMap<>();
+
+    public ProtocolPreviewRenditionCache(ApplicationProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Get the width of the rendition serving a request, i.e., the smallest
+     * width at least as wide as requested (or the largest, if none is).
+     *
+     * @param pageWidth  width of the page.
+     * @param pageHeight height of the page.
+     * @param width      requested width (or {@code null}).
+     * @param height     requested height (or {@code null}), the rendition
+     *                   showing the whole page within it.
+     * @param dpi        resolution of the requested width and height (or
+     *                   {@code null}, for {@link #DEFAULT_DPI}).
+     * @return the width of the rendition.
+     */
+    public static int renditionWidth(
+        double pageWidth, double pageHeight,
+        Integer width, Integer height, Integer dpi
+    ) {
+        double scale = (dpi == null ? DEFAULT_DPI : dpi) / (double) DEFAULT_DPI;
+        double requested = Double.POSITIVE_INFINITY;
+        if (width != null) {
+            requested = width * scale;
+        }
+        if (height != null && pageHeight > 0) {
+            requested = Math.min(requested, height * scale * pageWidth / pageHeight);
+        }
+        if (Double.isInfinite(requested)) {
+            requested = ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_WIDTH;
+        }
+        for (int w : WIDTHS) {
+            if (w >= requested) {
+                return w;
+            }
+        }
+        return WIDTHS[WIDTHS.length - 1];
+    }
+
+    /**
+     * Get a rendition, rendering it if it is not on disk (or it is older than
+     * the given time).
+     *
+     * @param projectId  ID of the project.
+     * @param protocolId ID of the protocol.
+     * @param width      width of the rendition.
+     * @param notBefore  time (in ms since epoch) before which renditions on
+     *                   disk are outdated.
+     * @param render     renders the rendition.
+     * @return the rendition (PNG).
+     * @throws Exception if the rendition cannot be read nor rendered.
+     */
+    public byte[] get(
+        long projectId, long protocolId, int width, long notBefore,
+        Callable<byte[]> render
+    ) throws Exception {
+
+        Path path = path(projectId, protocolId, width);
+
+        byte[] cached = read(path, notBefore);
+        if (cached != null) {
+            return cached;
+        }
+
+        return renderOnce(path, () -> {
+            // it may have been stored meanwhile
+            byte[] bytes = read(path, notBefore);
+            if (bytes == null) {
+                bytes = render.call();
+                store(path, bytes);
+            }
+            return bytes;
+        });
+    }
+
+    /**
+     * Render a rendition which is not kept (e.g., of an outdated preview).
+     * Concurrent requests for the same version of the protocol wait for a
+     * single render.
+     *
+     * @param projectId  ID of the project.
+     * @param protocolId ID of the protocol.
+     * @param width      width of the rendition.
+     * @param version    version of the protocol (e.g., time of its last
+     *                   modification).
+     * @param render     renders the rendition.
+     * @return the rendition (PNG).
+     * @throws Exception if the rendition cannot be rendered.
+     */
+    public byte[] render(
+        long projectId, long protocolId, int width, long version,
+        Callable<byte[]> render
+    ) throws Exception {
+        return renderOnce(Arrays.asList(projectId, protocolId, width, version), render);
+    }
+
+    /**
+     * Render, unless a render with the same key is in progress, in which case
+     * wait for it instead.
+     */
+    private byte[] renderOnce(Object key, Callable<byte[]> render) throws Exception {
+        CompletableFuture<byte[]> rendering = new CompletableFuture<>();
+        CompletableFuture<byte[]> current = renders.putIfAbsent(key, rendering);
+        if (current != null) {
+            try {
+                return current.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+
+        try {
+            byte[] bytes = render.call();
+            rendering.complete(bytes);
+            return bytes;
+        } catch (Exception e) {
+            rendering.completeExceptionally(e);
+            throw e;
+        } finally {
+            renders.remove(key, rendering);
+        }
+    }
+
+    /**
+     * Delete the renditions of a protocol.
+     *
+     * @param projectId  ID of the project.
+     * @param protocolId ID of the protocol.
+     */
+    public void evict(long projectId, long protocolId) {
+        Path folder = root().resolve(Long.toString(projectId));
+        if (!Files.isDirectory(folder)) {
+            return;
+        }
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(folder, protocolId + "-*.png")) {
+            for (Path path : paths) {
+                Files.deleteIfExists(path);
+                synchronized (entries) {
+                    Long length = entries.remove(path);
+                    if (length != null) {
+                        size -= length;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to delete protocol preview renditions", e);
+            // ignore errors
+        }
+    }
+
+    private Path root() {
+        return Paths.get(properties.getPreview().getPath(), RENDITIONS_FOLDER);
+    }
+
+    private Path path(long projectId, long protocolId, int width) {
+        return root().resolve(Long.toString(projectId)).resolve(protocolId + "-" + width + ".png");
+    }
+
+    private byte[] read(Path path, long notBefore) throws IOException {
+        try {
+            if (Files.getLastModifiedTime(path).toMillis() < notBefore) {
+                return null;
+            }
+            byte[] bytes = Files.readAllBytes(path);
+            synchronized (entries) {
+                load();
+                entries.get(path);
+            }
+            return bytes;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void store(Path path, byte[] bytes) throws IOException {
+
+        // written aside and moved, so that it is never read half written
+        Path tmp = Files.createTempFile(Files.createDirectories(path.getParent()), "rendition", ".tmp");
+        try {
+            Files.write(tmp, bytes);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        List<Path> evicted = new ArrayList<>();
+        synchronized (entries) {
+            load();
+            Long previous = entries.put(path, (long) bytes.length);
+            size += bytes.length - (previous == null ? 0 : previous);
+
+            long budget = properties.getPreview().getRenditionCacheSize();
+            Iterator<Map.Entry<Path, Long>> it = entries.entrySet().iterator();
+            while (size > budget && it.hasNext()) {
+                Map.Entry<Path, Long> eldest = it.next();
+                if (eldest.getKey().equals(path)) {
+                    continue;
+                }
+                evicted.add(eldest.getKey());
+                size -= eldest.getValue();
+                it.remove();
+            }
+        }
+
+        for (Path p : evicted) {
+            try {
+                Files.deleteIfExists(p);
+            } catch (IOException e) {
+                log.error("Failed to delete protocol preview rendition", e);
+                // ignore errors
+            }
+        }
+    }
+
+    /**
+     * Load the renditions left on disk (e.g., by a previous run), from least
+     * to most recently modified. Must hold the lock on {@code entries}.
+     */
+    private void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        Path root = root();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(root, 2)) {
+            paths = walk
+                .filter(p -> p.getFileName().toString().endsWith(".png"))
+                .filter(Files::isRegularFile)
+                .sorted(Comparator.comparingLong(ProtocolPreviewRenditionCache::lastModified))
+                .collect(Collectors.toList());
+        }
+        for (Path p : paths) {
+            long length = Files.size(p);
+            Long previous = entries.putIfAbsent(p, length);
+            if (previous == null) {
+                size += length;
+            }
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package pt.up.hs.sampling.processing.preview;
+
+import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.image.PNGTranscoder;
+import pt.up.hs.uhc.UniversalHandwritingConverter;
+import pt.up.hs.uhc.models.Format;
+import pt.up.hs.uhc.models.Page;
+
+import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Render previews by converting the page to SVG and transcoding it to PNG
+ * with Batik.
+ *
+ * @author José Carlos Paiva
+ */
+public class SvgProtocolPreviewRenderer implements ProtocolPreviewRenderer {
+
+    @Override
+    public void render(Page page, int width, int height, OutputStream os) throws Exception {
+
+        byte[] svgBytes;
+
+        // protocol page to SVG
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            new UniversalHandwritingConverter()
+                .page(page)
+                .center()
+                .outputFormat(Format.SVG)
+                .write(baos);
+
+            svgBytes = baos.toByteArray();
+        }
+
+        // SVG to PNG
+        transcodeToPng(
+            new ByteArrayInputStream(svgBytes),
+            page.getWidth().intValue(),
+            page.getHeight().intValue(),
+            width,
+            height,
+            os
+        );
+    }
+
+    private void transcodeToPng(
+        InputStream is,
+        int originalWidth, int originalHeight,
+        int width, int height,
+        OutputStream os
+    ) throws TranscoderException {
+
+        PNGTranscoder t = new PNGTranscoder();
+        t.addTranscodingHint(PNGTranscoder.KEY_WIDTH, (float) width);
+        t.addTranscodingHint(PNGTranscoder.KEY_HEIGHT, (float) height);
+        t.addTranscodingHint(PNGTranscoder.KEY_AOI,
+            new Rectangle2D.Float(0, 0, originalWidth, (float) originalWidth * height / width));
+        t.addTranscodingHint(PNGTranscoder.KEY_FORCE_TRANSPARENT_WHITE, true);
+
+        TranscoderInput transcoderInput = new TranscoderInput(is);
+        TranscoderOutput transcoderOutput = new TranscoderOutput(os);
+
+        // Save the image.
+        t.transcode(transcoderInput, transcoderOutput);
+    }
+}
@@ -0,0 +1,267 @@
+package pt.up.hs.sampling.processing.text;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.WriteOutContentHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.xml.sax.SAXException;
+import pt.up.hs.sampling.config.ApplicationProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Extracts the plain text of documents (e.g., docx, odt, pdf, txt) with a
+ * single, shared Tika parser (parsers are stateless and thread-safe, so
+ * they are created once rather than per file). Files are extracted in
+ * parallel, at most {@code threads} at a time (across all requests), with
+ * at most {@code textMaxLength} characters kept per file and
+ * {@code textTimeout} milliseconds per file, both to start and to run (see
+ * {@link ApplicationProperties.Importing}).
+ * <p>
+ * Each file is parsed on a thread of its own, as parsers may ignore
+ * interrupts: a parse that times out is abandoned (its thread interrupted
+ * and left to finish on its own) and gives up its turn, so that it does not
+ * hold back the following files.
+ */
+@Component
+public class TextExtractor {
+
+    private static final long NOT_STARTED = -1;
+    private static final long ABANDONED = -2;
+
+    private final Logger log = LoggerFactory.getLogger(TextExtractor.class);
+
+    private final Parser parser;
+
+    private final ApplicationProperties properties;
+    private final Semaphore permits;
+    private final ThreadFactory threadFactory;
+
+    @Autowired
+    public TextExtractor(ApplicationProperties properties) {
+        this(properties, new AutoDetectParser());
+    }
+
+    TextExtractor(ApplicationProperties properties, Parser parser) {
+        this.properties = properties;
+        this.parser = parser;
+        this.permits = new Semaphore(Math.max(1, properties.getImporting().getThreads()));
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sampling-text-");
+        threadFactory.setDaemon(true);
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Extract the text of a document, truncated to the maximum length.
+     *
+     * @param name name of the document (a hint for type detection).
+     * @param in   contents of the document.
+     * @return the text of the document, trimmed.
+     * @throws IOException   if the document could not be read.
+     * @throws TikaException if the document could not be parsed.
+     */
+    public String extract(String name, InputStream in) throws IOException, TikaException {
+        int maxLength = properties.getImporting().getTextMaxLength();
+        WriteOutContentHandler handler = new WriteOutContentHandler(maxLength);
+        Metadata metadata = new Metadata();
+        if (name != null) {
+            metadata.set(Metadata.RESOURCE_NAME_KEY, name);
+        }
+        try {
+            parser.parse(in, new BodyContentHandler(handler), metadata, new ParseContext());
+        } catch (SAXException e) {
+            if (!handler.isWriteLimitReached(e)) {
+                throw new TikaException("Could not extract text of " + name, e);
+            }
+            log.warn("Text of {} truncated to {} characters", name, maxLength);
+        }
+        return handler.toString().trim();
+    }
+
+    /**
+     * Extract the text of many documents in parallel, reporting each one
+     * (in order) as soon as it and the ones before it are done.
+     *
+     * @param documents documents to extract the text from.
+     * @param consumer  consumer of the results.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void extractAll(List<Document> documents, Consumer<Result> consumer) throws InterruptedException {
+        int threads = Math.max(1, properties.getImporting().getThreads());
+        long timeout = properties.getImporting().getTextTimeout();
+
+        Iterator<Document> next = documents.iterator();
+        Deque<Extraction> extracting = new ArrayDeque<>(threads);
+        try {
+            while (next.hasNext() || !extracting.isEmpty()) {
+                if (next.hasNext() && extracting.size() < threads) {
+                    extracting.add(new Extraction(next.next(), timeout));
+                    continue;
+                }
+                consumer.accept(extracting.remove().await(timeout));
+            }
+        } finally {
+            extracting.forEach(Extraction::abandon);
+        }
+    }
+
+    /**
+     * A document to extract the text from.
+     */
+    public interface Document {
+
+        String getName();
+
+        InputStream getInputStream() throws IOException;
+    }
+
+    /**
+     * Text extracted from a document, or the reason why it could not be.
+     */
+    public static class Result {
+
+        private final String name;
+        private final String text;
+        private final Exception error;
+
+        private Result(String name, String text, Exception error) {
+            this.name = name;
+            this.text = text;
+            this.error = error;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+
+        public boolean isValid() {
+            return error == null;
+        }
+    }
+
+    /**
+     * An extraction running (or waiting to run) on a thread of its own. It
+     * fails if it does not start within the timeout from the moment it is
+     * submitted, or does not finish within the timeout from the moment it
+     * starts.
+     */
+    private class Extraction {
+
+        private final Document document;
+        private final long submitTime = System.currentTimeMillis();
+        private final AtomicLong startTime = new AtomicLong(NOT_STARTED);
+        private final AtomicBoolean holdingPermit = new AtomicBoolean(false);
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        private final Thread thread;
+
+        Extraction(Document document, long timeout) {
+            this.document = document;
+            this.thread = threadFactory.newThread(() -> run(timeout));
+            this.thread.start();
+        }
+
+        private void run(long timeout) {
+            try {
+                if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                    // failed by await
+                    return;
+                }
+            } catch (InterruptedException e) {
+                // abandoned
+                return;
+            }
+            holdingPermit.set(true);
+            try {
+                if (!startTime.compareAndSet(NOT_STARTED, System.currentTimeMillis())) {
+                    return;
+                }
+                try (InputStream in = document.getInputStream()) {
+                    String text = extract(document.getName(), in);
+                    if (text.isEmpty()) {
+                        throw new IOException("No text in " + document.getName());
+                    }
+                    future.complete(text);
+                }
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                releasePermit();
+            }
+        }
+
+        Result await(long timeout) throws InterruptedException {
+            try {
+                while (true) {
+                    long start = startTime.get();
+                    long deadline = (start == NOT_STARTED ? submitTime : start) + timeout;
+                    try {
+                        String text = future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                        return new Result(document.getName(), text, null);
+                    } catch (TimeoutException e) {
+                        if (start == NOT_STARTED && !startTime.compareAndSet(NOT_STARTED, ABANDONED)) {
+                            // started meanwhile, with a deadline of its own
+                            continue;
+                        }
+                        abandon();
+                        log.warn(start == NOT_STARTED
+                                ? "Text extraction of {} did not start within {} ms"
+                                : "Text extraction of {} timed out after {} ms",
+                            document.getName(), timeout);
+                        return new Result(document.getName(), null, e);
+                    }
+                }
+            } catch (ExecutionException e) {
+                log.warn("Could not extract text of {}", document.getName(), e.getCause());
+                return new Result(document.getName(), null,
+                    e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            }
+        }
+
+        /**
+         * Stop waiting for this extraction. If it is running, its thread is
+         * interrupted (parsers may ignore it and run until they finish) and
+         * its turn is given to the next one.
+         */
+        void abandon() {
+            startTime.compareAndSet(NOT_STARTED, ABANDONED);
+            thread.interrupt();
+            releasePermit();
+        }
+
+        private void releasePermit() {
+            if (holdingPermit.compareAndSet(true, false)) {
+                permits.release();
+            }
+        }
+    }
+}
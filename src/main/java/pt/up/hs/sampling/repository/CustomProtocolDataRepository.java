@@ -1,10 +1,71 @@
 package pt.up.hs.sampling.repository;
 
 import pt.up.hs.sampling.domain.ProtocolData;
+import pt.up.hs.sampling.domain.ProtocolStrokeData;
 
 import javax.annotation.Nonnull;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 public interface CustomProtocolDataRepository {
-    List<ProtocolData> bulkSave(@Nonnull List<ProtocolData> protocolsData);
+    List<ProtocolData> bulkSave(@Nonnull List<ProtocolStrokeData> protocolsData);
+
+    /**
+     * Claim the previews of up to {@code limit} protocols with dirty previews,
+     * in order of ID, after a given ID, which are not claimed (or whose claim
+     * has expired).
+     *
+     * @param owner ID of the claiming worker.
+     * @param now   current time (claims until before it have expired).
+     * @param until time until which the previews are claimed.
+     * @param after ID after which to start (exclusive).
+     * @param last  ID at which to stop (inclusive).
+     * @param limit maximum number of previews to claim.
+     * @return IDs of the claimed protocols, in order (empty if there are no
+     * more to claim).
+     */
+    List<Long> claimDirtyPreviews(
+        @Nonnull String owner, @Nonnull Instant now, @Nonnull Instant until,
+        long after, long last, int limit
+    );
+
+    /**
+     * Claim the previews of those of the given protocols with dirty previews
+     * which are not claimed (or whose claim has expired).
+     *
+     * @param owner       ID of the claiming worker.
+     * @param now         current time (claims until before it have expired).
+     * @param until       time until which the previews are claimed.
+     * @param protocolIds IDs of the protocols.
+     * @return IDs of the claimed protocols.
+     */
+    List<Long> claimDirtyPreviews(
+        @Nonnull String owner, @Nonnull Instant now, @Nonnull Instant until,
+        @Nonnull Collection<Long> protocolIds
+    );
+
+    /**
+     * Clean the previews of protocols claimed by a worker, releasing the
+     * claims. Previews no longer claimed by it (e.g., as the protocol changed
+     * meanwhile) are left dirty. Only these protocol data are evicted from
+     * the second-level cache, and the persistence context is kept, so the
+     * protocol data in it are not to be used afterwards.
+     *
+     * @param protocolIds IDs of the protocols.
+     * @param owner       ID of the worker which claimed the previews.
+     * @return number of cleaned previews.
+     */
+    int cleanClaimedPreviews(@Nonnull Collection<Long> protocolIds, @Nonnull String owner);
+
+    /**
+     * Mark the preview of a protocol as dirty, releasing any claim on it, so
+     * that a preview being generated from its previous state is not taken as
+     * up to date. Only this protocol data is evicted from the second-level
+     * cache, and the persistence context is kept, so the protocol data in it
+     * must be changed likewise.
+     *
+     * @param protocolId ID of the protocol.
+     */
+    void markDirtyPreview(@Nonnull Long protocolId);
 }
@@ -1,46 +1,437 @@
 package pt.up.hs.sampling.repository;
 
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.InstantType;
+import org.hibernate.type.Type;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.up.hs.sampling.config.Constants;
+import pt.up.hs.sampling.domain.AbstractAuditingEntity;
 import pt.up.hs.sampling.domain.Protocol;
 import pt.up.hs.sampling.domain.ProtocolData;
+import pt.up.hs.sampling.domain.ProtocolStrokeData;
 
 import javax.annotation.Nonnull;
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Saves new protocols with plain JDBC batches, bypassing the persistence
+ * context. IDs are taken from the identifier generator of {@link Protocol}
+ * (which allocates blocks of the sequence), the inserts are built from the
+ * mapping of each entity (see {@link BulkInsert}), values are bound with the
+ * Hibernate types of the mapped properties (so that custom types, such as
+ * strokes and metadata, are written as usual), and each table is written
+ * with one batched statement per {@code batchSize} rows.
+ * <p>
+ * Previews are claimed with plain SQL too. On PostgreSQL, rows are claimed
+ * with a single update of the rows selected {@code FOR UPDATE SKIP LOCKED},
+ * so that concurrent claims skip each other's rows instead of waiting for
+ * them. Elsewhere (e.g., H2 in tests), candidates are selected and claimed
+ * one by one with an update conditioned on them still being claimable, so
+ * each is claimed by a single worker. Claims and cleans evict only the
+ * protocol data they change from the second-level cache.
+ */
 public class CustomProtocolDataRepositoryImpl implements CustomProtocolDataRepository {
 
+    private static final String CLAIMABLE =
+        "dirty_preview = true AND (preview_claimed_until IS NULL OR preview_claimed_until < ?)";
+    private static final String CLAIM =
+        "UPDATE protocol_data SET preview_claimed_by = ?, preview_claimed_until = ? ";
+    private static final String CLAIM_RANGE_SKIP_LOCKED = CLAIM +
+        "WHERE protocol_id IN (SELECT protocol_id FROM protocol_data WHERE " + CLAIMABLE +
+        " AND protocol_id > ? AND protocol_id <= ? ORDER BY protocol_id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+        "RETURNING protocol_id";
+    private static final String CLAIM_IDS_SKIP_LOCKED = CLAIM +
+        "WHERE protocol_id IN (SELECT protocol_id FROM protocol_data WHERE " + CLAIMABLE +
+        " AND protocol_id IN (%s) FOR UPDATE SKIP LOCKED) " +
+        "RETURNING protocol_id";
+    private static final String SELECT_CLAIMABLE_RANGE =
+        "SELECT protocol_id FROM protocol_data WHERE " + CLAIMABLE +
+            " AND protocol_id > ? AND protocol_id <= ? ORDER BY protocol_id";
+    private static final String CLAIM_ONE = CLAIM + "WHERE protocol_id = ? AND " + CLAIMABLE;
+
+    private static final String CLEAN_CLAIMED =
+        "UPDATE protocol_data SET dirty_preview = false, preview_claimed_by = NULL, preview_claimed_until = NULL " +
+            "WHERE protocol_id IN (%s) AND preview_claimed_by = ?";
+
+    private static final String MARK_DIRTY_PREVIEW =
+        "UPDATE protocol_data SET dirty_preview = true, preview_claimed_by = NULL, preview_claimed_until = NULL " +
+            "WHERE protocol_id = ?";
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
     private final Logger log = LoggerFactory.getLogger(CustomProtocolDataRepositoryImpl.class);
 
-    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
-    private final int batchSize = 25;
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:25}")
+    private int batchSize = 25;
 
     @PersistenceContext
     private EntityManager em;
 
+    private final AuditorAware<String> auditorAware;
+
+    public CustomProtocolDataRepositoryImpl(AuditorAware<String> auditorAware) {
+        this.auditorAware = auditorAware;
+    }
+
     @Override
-    public List<ProtocolData> bulkSave(@Nonnull List<ProtocolData> protocolsData) {
-        List<ProtocolData> saved = new ArrayList<>();
-        for (int i = 1; i <= protocolsData.size(); i++) {
-            ProtocolData protocolData = protocolsData.get(i - 1);
-            if (protocolData.getProtocol() != null) {
-                Protocol protocol = em.merge(protocolData.getProtocol());
-                protocolData.setProtocol(protocol);
-            }
-            em.persist(protocolData);
-            if (i % batchSize == 0) {
-                em.flush();
-                em.clear();
+    public List<ProtocolData> bulkSave(@Nonnull List<ProtocolStrokeData> protocolsData) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister protocolPersister = session.getFactory().getMetamodel().entityPersister(Protocol.class);
+        EntityPersister protocolDataPersister = session.getFactory().getMetamodel().entityPersister(ProtocolData.class);
+        EntityPersister strokeDataPersister = session.getFactory().getMetamodel().entityPersister(ProtocolStrokeData.class);
+
+        // pending changes must reach the database before the inserts
+        em.flush();
+
+        String auditor = auditorAware.getCurrentAuditor().orElse(Constants.SYSTEM_ACCOUNT);
+        Instant now = Instant.now();
+
+        List<ProtocolData> saved = new ArrayList<>(protocolsData.size());
+        List<Protocol> newProtocols = new ArrayList<>(protocolsData.size());
+        for (ProtocolStrokeData strokeData : protocolsData) {
+            ProtocolData protocolData = strokeData.getProtocolData();
+            Protocol protocol = protocolData.getProtocol();
+            if (protocol.getId() == null) {
+                protocol.setId((Long) protocolPersister.getIdentifierGenerator().generate(session, protocol));
+                audit(protocol, auditor, now);
+                newProtocols.add(protocol);
             }
+            protocolDataPersister.setIdentifier(protocolData, protocol.getId(), session);
+            strokeDataPersister.setIdentifier(strokeData, protocol.getId(), session);
+            audit(protocolData, auditor, now);
             saved.add(protocolData);
-            log.error(String.valueOf(i));
         }
-        em.flush();
-        em.clear();
+
+        BulkInsert protocolInsert = new BulkInsert(protocolPersister);
+        BulkInsert protocolDataInsert = new BulkInsert(protocolDataPersister);
+        BulkInsert strokeDataInsert = new BulkInsert(strokeDataPersister);
+
+        session.doWork(connection -> {
+            try (
+                PreparedStatement insertProtocol = connection.prepareStatement(protocolInsert.getSql());
+                PreparedStatement insertProtocolData = connection.prepareStatement(protocolDataInsert.getSql());
+                PreparedStatement insertStrokeData = connection.prepareStatement(strokeDataInsert.getSql())
+            ) {
+                int size = Math.max(1, batchSize);
+                for (int from = 0; from < newProtocols.size(); from += size) {
+                    for (Protocol protocol : newProtocols.subList(from, Math.min(from + size, newProtocols.size()))) {
+                        protocolInsert.bind(insertProtocol, protocol, session);
+                    }
+                    insertProtocol.executeBatch();
+                }
+                for (int from = 0; from < protocolsData.size(); from += size) {
+                    List<ProtocolStrokeData> batch = protocolsData.subList(from, Math.min(from + size, protocolsData.size()));
+                    for (ProtocolStrokeData strokeData : batch) {
+                        protocolDataInsert.bind(insertProtocolData, strokeData.getProtocolData(), session);
+                    }
+                    insertProtocolData.executeBatch();
+                    for (ProtocolStrokeData strokeData : batch) {
+                        strokeDataInsert.bind(insertStrokeData, strokeData, session);
+                    }
+                    insertStrokeData.executeBatch();
+                }
+            }
+        });
+
+        log.debug("Bulk saved {} protocols", protocolsData.size());
         return saved;
     }
+
+    @Override
+    public List<Long> claimDirtyPreviews(
+        @Nonnull String owner, @Nonnull Instant now, @Nonnull Instant until,
+        long after, long last, int limit
+    ) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        List<Long> ids = session.doReturningWork(connection -> {
+            if (isPostgreSQL(connection)) {
+                try (PreparedStatement claim = connection.prepareStatement(CLAIM_RANGE_SKIP_LOCKED)) {
+                    bindClaim(claim, owner, now, until, session);
+                    claim.setLong(4, after);
+                    claim.setLong(5, last);
+                    claim.setInt(6, limit);
+                    List<Long> claimed = claimedIds(claim);
+                    Collections.sort(claimed);
+                    return claimed;
+                }
+            }
+            try (
+                PreparedStatement select = connection.prepareStatement(SELECT_CLAIMABLE_RANGE);
+                PreparedStatement claim = connection.prepareStatement(CLAIM_ONE)
+            ) {
+                select.setMaxRows(limit);
+                long from = after;
+                while (true) {
+                    InstantType.INSTANCE.nullSafeSet(select, now, 1, session);
+                    select.setLong(2, from);
+                    select.setLong(3, last);
+                    List<Long> candidates = new ArrayList<>(limit);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            candidates.add(rs.getLong(1));
+                        }
+                    }
+                    List<Long> claimed = claimOneByOne(claim, owner, now, until, candidates, session);
+                    // all candidates may have been claimed by others meanwhile
+                    if (!claimed.isEmpty() || candidates.size() < limit) {
+                        return claimed;
+                    }
+                    from = candidates.get(candidates.size() - 1);
+                }
+            }
+        });
+        evict(ids);
+        return ids;
+    }
+
+    @Override
+    public List<Long> claimDirtyPreviews(
+        @Nonnull String owner, @Nonnull Instant now, @Nonnull Instant until,
+        @Nonnull Collection<Long> protocolIds
+    ) {
+        if (protocolIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        List<Long> ids = session.doReturningWork(connection -> {
+            if (isPostgreSQL(connection)) {
+                String placeholders = String.join(", ", Collections.nCopies(protocolIds.size(), "?"));
+                try (PreparedStatement claim = connection.prepareStatement(
+                    String.format(CLAIM_IDS_SKIP_LOCKED, placeholders)
+                )) {
+                    bindClaim(claim, owner, now, until, session);
+                    int i = 4;
+                    for (Long protocolId : protocolIds) {
+                        claim.setLong(i++, protocolId);
+                    }
+                    return claimedIds(claim);
+                }
+            }
+            try (PreparedStatement claim = connection.prepareStatement(CLAIM_ONE)) {
+                return claimOneByOne(claim, owner, now, until, protocolIds, session);
+            }
+        });
+        evict(ids);
+        return ids;
+    }
+
+    @Override
+    public int cleanClaimedPreviews(@Nonnull Collection<Long> protocolIds, @Nonnull String owner) {
+        if (protocolIds.isEmpty()) {
+            return 0;
+        }
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        int cleaned = session.doReturningWork(connection -> {
+            String placeholders = String.join(", ", Collections.nCopies(protocolIds.size(), "?"));
+            try (PreparedStatement clean = connection.prepareStatement(String.format(CLEAN_CLAIMED, placeholders))) {
+                int i = 1;
+                for (Long protocolId : protocolIds) {
+                    clean.setLong(i++, protocolId);
+                }
+                clean.setString(i, owner);
+                return clean.executeUpdate();
+            }
+        });
+
+        evict(protocolIds);
+        return cleaned;
+    }
+
+    @Override
+    public void markDirtyPreview(@Nonnull Long protocolId) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        session.doWork(connection -> {
+            try (PreparedStatement update = connection.prepareStatement(MARK_DIRTY_PREVIEW)) {
+                update.setLong(1, protocolId);
+                update.executeUpdate();
+            }
+        });
+
+        evict(Collections.singletonList(protocolId));
+    }
+
+    /**
+     * Evict the given protocol data from the second-level cache, now and
+     * once the transaction completes (they may be cached again, as they
+     * were, before it commits). Bulk updates would evict the whole region,
+     * across the cluster.
+     */
+    private void evict(Collection<Long> protocolIds) {
+        if (protocolIds.isEmpty()) {
+            return;
+        }
+        Cache cache = em.getEntityManagerFactory().getCache();
+        for (Long protocolId : protocolIds) {
+            cache.evict(ProtocolData.class, protocolId);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> evicted = new ArrayList<>(protocolIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    for (Long protocolId : evicted) {
+                        cache.evict(ProtocolData.class, protocolId);
+                    }
+                }
+            });
+        }
+    }
+
+    private static boolean isPostgreSQL(Connection connection) throws SQLException {
+        return POSTGRESQL.equals(connection.getMetaData().getDatabaseProductName());
+    }
+
+    /**
+     * Bind the owner and end of a claim and the current time to the first
+     * three parameters of a claim statement.
+     */
+    private static void bindClaim(
+        PreparedStatement statement,
+        String owner, Instant now, Instant until,
+        SessionImplementor session
+    ) throws SQLException {
+        statement.setString(1, owner);
+        InstantType.INSTANCE.nullSafeSet(statement, until, 2, session);
+        InstantType.INSTANCE.nullSafeSet(statement, now, 3, session);
+    }
+
+    private static List<Long> claimedIds(PreparedStatement claim) throws SQLException {
+        List<Long> claimed = new ArrayList<>();
+        try (ResultSet rs = claim.executeQuery()) {
+            while (rs.next()) {
+                claimed.add(rs.getLong(1));
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Claim each of the given protocols with a conditional update, keeping
+     * those actually updated (i.e., not claimed by others meanwhile).
+     */
+    private static List<Long> claimOneByOne(
+        PreparedStatement claim,
+        String owner, Instant now, Instant until,
+        Collection<Long> protocolIds,
+        SessionImplementor session
+    ) throws SQLException {
+        List<Long> claimed = new ArrayList<>(protocolIds.size());
+        for (Long protocolId : protocolIds) {
+            claim.setString(1, owner);
+            InstantType.INSTANCE.nullSafeSet(claim, until, 2, session);
+            claim.setLong(3, protocolId);
+            InstantType.INSTANCE.nullSafeSet(claim, now, 4, session);
+            if (claim.executeUpdate() > 0) {
+                claimed.add(protocolId);
+            }
+        }
+        return claimed;
+    }
+
+    private static void audit(AbstractAuditingEntity entity, String auditor, Instant now) {
+        entity.setCreatedBy(auditor);
+        entity.setCreatedDate(now);
+        entity.setLastModifiedBy(auditor);
+        entity.setLastModifiedDate(now);
+    }
+
+    /**
+     * Insert of new rows of an entity, built from its mapping: the
+     * identifier and the columns of each insertable property, except those
+     * of associations sharing the identifier (i.e., {@code @MapsId}) and of
+     * collections. Properties mapped later are, therefore, written without
+     * changes here.
+     */
+    private static final class BulkInsert {
+
+        private final EntityPersister persister;
+        private final int[] properties;
+        private final boolean[][] settable;
+        private final String sql;
+
+        BulkInsert(EntityPersister persister) {
+            AbstractEntityPersister mapping = (AbstractEntityPersister) persister;
+            List<String> columns = new ArrayList<>(Arrays.asList(mapping.getIdentifierColumnNames()));
+            Set<String> identifierColumns = new HashSet<>(columns);
+
+            boolean[] insertable = persister.getPropertyInsertability();
+            List<Integer> included = new ArrayList<>();
+            List<boolean[]> includedColumns = new ArrayList<>();
+            for (int i = 0; i < insertable.length; i++) {
+                if (!insertable[i]) {
+                    continue;
+                }
+                String[] propertyColumns = mapping.getPropertyColumnNames(i);
+                boolean[] propertySettable = new boolean[propertyColumns.length];
+                for (int j = 0; j < propertyColumns.length; j++) {
+                    if (propertyColumns[j] != null && !identifierColumns.contains(propertyColumns[j])) {
+                        propertySettable[j] = true;
+                        columns.add(propertyColumns[j]);
+                    }
+                }
+                if (count(propertySettable) > 0) {
+                    included.add(i);
+                    includedColumns.add(propertySettable);
+                }
+            }
+            this.persister = persister;
+            this.properties = included.stream().mapToInt(Integer::intValue).toArray();
+            this.settable = includedColumns.toArray(new boolean[0][]);
+            this.sql = "INSERT INTO " + mapping.getTableName() + " (" + String.join(", ", columns) + ") " +
+                "VALUES (" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        }
+
+        String getSql() {
+            return sql;
+        }
+
+        /**
+         * Bind the identifier and the properties of an entity to the insert
+         * statement, in order, and add it to the batch.
+         */
+        void bind(PreparedStatement statement, Object entity, SessionImplementor session) throws SQLException {
+            Type identifierType = persister.getIdentifierType();
+            identifierType.nullSafeSet(statement, persister.getIdentifier(entity, session), 1, session);
+            int index = 1 + identifierType.getColumnSpan(session.getFactory());
+
+            Type[] types = persister.getPropertyTypes();
+            Object[] values = persister.getPropertyValues(entity);
+            for (int k = 0; k < properties.length; k++) {
+                types[properties[k]].nullSafeSet(statement, values[properties[k]], index, settable[k], session);
+                index += count(settable[k]);
+            }
+            statement.addBatch();
+        }
+
+        private static int count(boolean[] flags) {
+            int count = 0;
+            for (boolean flag : flags) {
+                if (flag) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
 }
@@ -1,12 +1,14 @@
 package pt.up.hs.sampling.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import pt.up.hs.sampling.domain.ProtocolData;
 
+import javax.persistence.LockModeType;
 import javax.validation.constraints.NotNull;
 import java.util.List;
 import java.util.Optional;
@@ -23,15 +25,43 @@ public interface ProtocolDataRepository extends JpaRepository<ProtocolData, Long
         Long protocolId
     );
 
-    Optional<ProtocolData> findFirstByDirtyPreviewTrue();
+    /**
+     * Get the data of a protocol, locking it until the end of the
+     * transaction (e.g., to serialize appends of strokes).
+     *
+     * @param projectId  ID of the project.
+     * @param protocolId ID of the protocol.
+     * @return the locked protocol data.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select pd from ProtocolData pd where pd.protocolId = :protocolId and pd.protocol.projectId = :projectId")
+    Optional<ProtocolData> findForUpdateByProjectIdAndProtocolId(
+        @Param("projectId") @NotNull Long projectId,
+        @Param("protocolId") @NotNull Long protocolId
+    );
 
-    @Modifying(clearAutomatically = true)
-    @Query("update ProtocolData pd set pd.dirtyPreview = false where pd.protocolId = :protocolId")
-    void cleanPreview(@Param("protocolId") @NotNull Long protocolId);
+    /**
+     * Get the lowest and highest IDs of protocols with dirty previews.
+     *
+     * @return the lowest and highest IDs (null if there are none).
+     */
+    @Query("select min(pd.protocolId), max(pd.protocolId) from ProtocolData pd where pd.dirtyPreview = true")
+    List<Object[]> findDirtyPreviewIdRange();
+
+    @Query("select pd from ProtocolData pd join fetch pd.protocol where pd.protocolId in :protocolIds " +
+        "order by pd.protocolId")
+    List<ProtocolData> findAllWithProtocolByProtocolIdIn(@Param("protocolIds") @NotNull List<Long> protocolIds);
 
     @Modifying(clearAutomatically = true)
-    @Query("update ProtocolData pd set pd.dirtyPreview = true")
+    @Query("update ProtocolData pd set pd.dirtyPreview = true, " +
+        "pd.previewClaimedBy = null, pd.previewClaimedUntil = null")
     void markAllForPreviewRegenerate();
 
-    void deleteAllByProtocolIdIn(@NotNull List<Long> ids);
+    @Modifying
+    @Query("delete from ProtocolData pd where pd.protocolId in " +
+        "(select p.id from Protocol p where p.projectId = :projectId and p.id in :ids)")
+    void deleteAllByProjectIdAndProtocolIdIn(
+        @Param("projectId") @NotNull Long projectId,
+        @Param("ids") @NotNull List<Long> ids
+    );
 }
@@ -12,6 +12,7 @@ import pt.up.hs.sampling.domain.ProtocolData;
 
 import javax.annotation.Nonnull;
 import javax.validation.constraints.NotNull;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +32,8 @@ public interface ProtocolRepository extends JpaRepository<Protocol, Long>, JpaSp
     @Query("select count(distinct protocol) from Protocol protocol where protocol.projectId = :projectId")
     long countByProjectId(@Param("projectId") @NotNull Long projectId);
 
+    List<Protocol> findAllByProjectIdAndContentHashIn(@NotNull Long projectId, @NotNull Collection<String> contentHashes);
+
     Optional<Protocol> findByProjectIdAndId(@NotNull Long projectId, @NotNull Long id);
 
     @Transactional
@@ -0,0 +1,79 @@
+package pt.up.hs.sampling.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pt.up.hs.sampling.domain.ProtocolStrokeData;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Spring Data  repository for the ProtocolStrokeData entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface ProtocolStrokeDataRepository extends JpaRepository<ProtocolStrokeData, Long> {
+
+    @Query("select sd from ProtocolStrokeData sd where sd.protocolId = :protocolId and sd.protocolData.protocol.projectId = :projectId")
+    Optional<ProtocolStrokeData> findByProjectIdAndProtocolId(
+        @Param("projectId") @NotNull Long projectId,
+        @Param("protocolId") @NotNull Long protocolId
+    );
+
+    /**
+     * Get the strokes of a protocol (and their indexes) as stored, without
+     * decoding them.
+     *
+     * @param protocolId ID of the protocol.
+     * @return the encoded strokes.
+     */
+    @Query(value = "select sd.strokes as strokes, sd.stroke_index as strokeIndex, " +
+        "sd.spatial_index as spatialIndex " +
+        "from protocol_stroke_data sd where sd.protocol_id = :protocolId", nativeQuery = true)
+    Optional<EncodedStrokes> findEncodedStrokesByProtocolId(@Param("protocolId") @NotNull Long protocolId);
+
+    /**
+     * Get the simplified strokes of a protocol (and their time index) as
+     * stored, without decoding them.
+     *
+     * @param protocolId ID of the protocol.
+     * @return the encoded levels of detail.
+     */
+    @Query(value = "select sd.stroke_lods as strokeLods, sd.stroke_index as strokeIndex " +
+        "from protocol_stroke_data sd where sd.protocol_id = :protocolId", nativeQuery = true)
+    Optional<EncodedStrokeLods> findEncodedStrokeLodsByProtocolId(@Param("protocolId") @NotNull Long protocolId);
+
+    @Modifying
+    @Query("delete from ProtocolStrokeData sd where sd.protocolId in " +
+        "(select p.id from Protocol p where p.projectId = :projectId and p.id in :ids)")
+    void deleteAllByProjectIdAndProtocolIdIn(
+        @Param("projectId") @NotNull Long projectId,
+        @Param("ids") @NotNull List<Long> ids
+    );
+
+    /**
+     * Projection of the strokes as stored.
+     */
+    interface EncodedStrokes {
+
+        byte[] getStrokes();
+
+        byte[] getStrokeIndex();
+
+        byte[] getSpatialIndex();
+    }
+
+    /**
+     * Projection of the levels of detail as stored.
+     */
+    interface EncodedStrokeLods {
+
+        byte[] getStrokeLods();
+
+        byte[] getStrokeIndex();
+    }
+}
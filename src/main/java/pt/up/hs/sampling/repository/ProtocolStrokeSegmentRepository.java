@@ -0,0 +1,86 @@
+package pt.up.hs.sampling.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pt.up.hs.sampling.domain.ProtocolStrokeSegment;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+/**
+ * Spring Data  repository for the ProtocolStrokeSegment entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface ProtocolStrokeSegmentRepository extends JpaRepository<ProtocolStrokeSegment, Long> {
+
+    /**
+     * Get the segments of a protocol, without their strokes.
+     *
+     * @param protocolId ID of the protocol.
+     * @return the segments, in order.
+     */
+    @Query("select s.id as id, s.seq as seq, s.strokeCount as strokeCount " +
+        "from ProtocolStrokeSegment s where s.strokeData.protocolId = :protocolId order by s.seq")
+    List<SegmentInfo> findInfoByProtocolId(@Param("protocolId") @NotNull Long protocolId);
+
+    /**
+     * Get the strokes of the segments of a protocol (and their indexes) as
+     * stored, without decoding them.
+     *
+     * @param protocolId ID of the protocol.
+     * @return the encoded strokes of each segment, in order.
+     */
+    @Query(value = "select s.strokes as strokes, s.stroke_index as strokeIndex, " +
+        "s.spatial_index as spatialIndex from protocol_stroke_segment s " +
+        "where s.protocol_id = :protocolId order by s.seq", nativeQuery = true)
+    List<ProtocolStrokeDataRepository.EncodedStrokes> findEncodedByProtocolId(
+        @Param("protocolId") @NotNull Long protocolId
+    );
+
+    /**
+     * Get the simplified strokes of the segments of a protocol (and their
+     * time indexes) as stored, without decoding them.
+     *
+     * @param protocolId ID of the protocol.
+     * @return the encoded levels of detail of each segment, in order.
+     */
+    @Query(value = "select s.stroke_lods as strokeLods, s.stroke_index as strokeIndex " +
+        "from protocol_stroke_segment s where s.protocol_id = :protocolId order by s.seq", nativeQuery = true)
+    List<ProtocolStrokeDataRepository.EncodedStrokeLods> findEncodedLodsByProtocolId(
+        @Param("protocolId") @NotNull Long protocolId
+    );
+
+    boolean existsByStrokeDataProtocolId(@NotNull Long protocolId);
+
+    @Modifying
+    @Query("delete from ProtocolStrokeSegment s where s.strokeData.protocolId = :protocolId")
+    void deleteAllByProtocolId(@Param("protocolId") @NotNull Long protocolId);
+
+    @Modifying
+    @Query("delete from ProtocolStrokeSegment s where s.id in :ids")
+    void deleteAllByIdIn(@Param("ids") @NotNull List<Long> ids);
+
+    @Modifying
+    @Query("delete from ProtocolStrokeSegment s where s.strokeData.protocolId in " +
+        "(select p.id from Protocol p where p.projectId = :projectId and p.id in :ids)")
+    void deleteAllByProjectIdAndProtocolIdIn(
+        @Param("projectId") @NotNull Long projectId,
+        @Param("ids") @NotNull List<Long> ids
+    );
+
+    /**
+     * Projection of a segment without its strokes.
+     */
+    interface SegmentInfo {
+
+        Long getId();
+
+        Integer getSeq();
+
+        Integer getStrokeCount();
+    }
+}
@@ -0,0 +1,187 @@
+package pt.up.hs.sampling.service;
+
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pt.up.hs.sampling.service.dto.BulkImportResultDTO;
+import pt.up.hs.sampling.service.dto.ImportJobDTO;
+import pt.up.hs.sampling.service.dto.ImportUploadDTO;
+import pt.up.hs.sampling.service.dto.ProtocolDTO;
+import pt.up.hs.uhc.models.Page;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service Interface for importing {@link pt.up.hs.sampling.domain.Protocol},
+ * in the request or in the background.
+ *
+ * @author José Carlos Paiva
+ */
+public interface ProtocolImportService {
+
+    /**
+     * Upload and import protocols in bulk.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param type      type of protocols being uploaded.
+     * @param files     {@link MultipartFile} the multipart files.
+     * @return {@link BulkImportResultDTO} upload summary.
+     */
+    BulkImportResultDTO<ProtocolDTO> bulkImportProtocols(Long projectId, String type, MultipartFile[] files);
+
+    /**
+     * Upload and import protocols in bulk, once per idempotency key: retries
+     * with the same key get the result of the first import.
+     *
+     * @param projectId      ID of the project to which this protocol belongs.
+     * @param type           type of protocols being uploaded.
+     * @param files          {@link MultipartFile} the multipart files.
+     * @param idempotencyKey key of the import (null to always import).
+     * @return {@link BulkImportResultDTO} upload summary.
+     */
+    BulkImportResultDTO<ProtocolDTO> bulkImportProtocols(
+        Long projectId, String type, MultipartFile[] files, String idempotencyKey
+    );
+
+    /**
+     * Import the protocols in a ZIP archive of protocol files, as it is
+     * read.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param type      type of protocols in the archive.
+     * @param archive   {@link InputStream} the ZIP archive.
+     * @return {@link BulkImportResultDTO} import summary.
+     */
+    BulkImportResultDTO<ProtocolDTO> importArchive(Long projectId, String type, InputStream archive);
+
+    /**
+     * Import the protocols in a ZIP archive of protocol files, once per
+     * idempotency key: retries with the same key get the result of the
+     * first import.
+     *
+     * @param projectId      ID of the project to which this protocol belongs.
+     * @param type           type of protocols in the archive.
+     * @param archive        {@link InputStream} the ZIP archive.
+     * @param idempotencyKey key of the import (null to always import).
+     * @return {@link BulkImportResultDTO} import summary.
+     */
+    BulkImportResultDTO<ProtocolDTO> importArchive(
+        Long projectId, String type, InputStream archive, String idempotencyKey
+    );
+
+    /**
+     * Upload and import protocols in bulk, writing the result of each file
+     * as newline-delimited JSON as soon as it is saved, followed by the
+     * summary.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param type      type of protocols being uploaded.
+     * @param files     {@link MultipartFile} the multipart files.
+     * @return the body writing the results.
+     */
+    StreamingResponseBody streamBulkImportProtocols(Long projectId, String type, MultipartFile[] files);
+
+    /**
+     * Import the protocols in a ZIP archive of protocol files, writing the
+     * result of each file as newline-delimited JSON as soon as it is saved,
+     * followed by the summary.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param type      type of protocols in the archive.
+     * @param archive   {@link InputStream} the ZIP archive.
+     * @return the body writing the results.
+     */
+    StreamingResponseBody streamImportArchive(Long projectId, String type, InputStream archive);
+
+    /**
+     * Upload protocols and import them in the background.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param type      type of protocols being uploaded.
+     * @param files     {@link MultipartFile} the multipart files.
+     * @return {@link ImportJobDTO} the import job, just started.
+     */
+    ImportJobDTO startImport(Long projectId, String type, MultipartFile[] files);
+
+    /**
+     * Get the progress (or result, once finished) of a background import.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param jobId     ID of the import job.
+     * @return {@link ImportJobDTO} the import job.
+     */
+    Optional<ImportJobDTO> findImport(Long projectId, Long jobId);
+
+    /**
+     * Create a resumable upload of a protocol file, to be sent in chunks.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param type      type of protocols in the file.
+     * @param filename  name of the file.
+     * @param length    length of the file (null if not known yet).
+     * @return {@link ImportUploadDTO} the upload created.
+     */
+    ImportUploadDTO createUpload(Long projectId, String type, String filename, Long length);
+
+    /**
+     * Get a resumable upload (e.g., to know where to resume it).
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param uploadId  ID of the upload.
+     * @return {@link ImportUploadDTO} the upload.
+     */
+    Optional<ImportUploadDTO> findUpload(Long projectId, String uploadId);
+
+    /**
+     * Append a chunk to a resumable upload.
+     *
+     * @param projectId   ID of the project to which the protocols belong.
+     * @param uploadId    ID of the upload.
+     * @param start       position of the first byte of the chunk in the file.
+     * @param chunkLength number of bytes of the chunk.
+     * @param total       length of the file (null if not known yet).
+     * @param chunk       {@link InputStream} the chunk.
+     * @return {@link ImportUploadDTO} the upload, after the chunk.
+     */
+    Optional<ImportUploadDTO> appendUpload(
+        Long projectId, String uploadId, long start, long chunkLength, Long total, InputStream chunk
+    );
+
+    /**
+     * Finish a resumable upload, importing its file in the background.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param uploadId  ID of the upload.
+     * @return {@link ImportJobDTO} the import job, just started.
+     */
+    Optional<ImportJobDTO> finishUpload(Long projectId, String uploadId);
+
+    /**
+     * Cancel a resumable upload, deleting what was received.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param uploadId  ID of the upload.
+     * @return {@code true} if the upload existed.
+     */
+    boolean deleteUpload(Long projectId, String uploadId);
+
+    /**
+     * Parse and normalize the pages of an imported file.
+     *
+     * @param type     type of protocol (null to detect from the file name).
+     * @param filename name of the file.
+     * @param in       contents of the file.
+     * @return the pages of the file.
+     */
+    List<Page> parseProtocol(String type, String filename, InputStream in);
+
+    /**
+     * Save imported pages as new protocols.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param pages     the pages.
+     * @return the protocols created, one per page.
+     */
+    List<ProtocolDTO> importPages(Long projectId, List<Page> pages);
+}
@@ -111,6 +111,46 @@ public class ProtocolQueryService extends QueryService<Protocol> {
             if (criteria.getLanguage() != null) {
                 specification = specification.and(buildStringSpecification(criteria.getLanguage(), Protocol_.language));
             }
+            if (criteria.getStrokeCount() != null) {
+                specification = specification.and(buildSpecification(criteria.getStrokeCount(),
+                    root -> root.get(Protocol_.summary).get(ProtocolSummary_.strokeCount)));
+            }
+            if (criteria.getDotCount() != null) {
+                specification = specification.and(buildSpecification(criteria.getDotCount(),
+                    root -> root.get(Protocol_.summary).get(ProtocolSummary_.dotCount)));
+            }
+            if (criteria.getStartTime() != null) {
+                specification = specification.and(buildSpecification(criteria.getStartTime(),
+                    root -> root.get(Protocol_.summary).get(ProtocolSummary_.startTime)));
+            }
+            if (criteria.getEndTime() != null) {
+                specification = specification.and(buildSpecification(criteria.getEndTime(),
+                    root -> root.get(Protocol_.summary).get(ProtocolSummary_.endTime)));
+            }
+            if (criteria.getDuration() != null) {
+                specification = specification.and(buildSpecification(criteria.getDuration(),
+                    root -> root.get(Protocol_.summary).get(ProtocolSummary_.duration)));
+            }
+            if (criteria.getMinX() != null) {
+                specification = specification.and(buildSpecification(criteria.getMinX(),
+                    root -> root.get(Protocol_.summary).get(ProtocolSummary_.minX)));
+            }
+            if (criteria.getMinY() != null) {
+                specification = specification.and(buildSpecification(criteria.getMinY(),
+                    root -> root.get(Protocol_.summary).get(ProtocolSummary_.minY)));
+            }
+            if (criteria.getMaxX() != null) {
+                specification = specification.and(buildSpecification(criteria.getMaxX(),
+                    root -> root.get(Protocol_.summary).get(ProtocolSummary_.maxX)));
+            }
+            if (criteria.getMaxY() != null) {
+                specification = specification.and(buildSpecification(criteria.getMaxY(),
+                    root -> root.get(Protocol_.summary).get(ProtocolSummary_.maxY)));
+            }
+            if (criteria.getMeanPressure() != null) {
+                specification = specification.and(buildSpecification(criteria.getMeanPressure(),
+                    root -> root.get(Protocol_.summary).get(ProtocolSummary_.meanPressure)));
+            }
         }
         return specification;
     }
@@ -1,9 +1,12 @@
 package pt.up.hs.sampling.service;
 
-import org.springframework.web.multipart.MultipartFile;
-import pt.up.hs.sampling.service.dto.BulkImportResultDTO;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pt.up.hs.sampling.domain.pojo.Stroke;
 import pt.up.hs.sampling.service.dto.ProtocolDTO;
 import pt.up.hs.sampling.service.dto.ProtocolDataDTO;
+import pt.up.hs.sampling.service.dto.StrokeMatchDTO;
+import pt.up.hs.sampling.service.dto.StrokeSelection;
 
 import java.io.InputStream;
 import java.util.List;
@@ -33,6 +36,16 @@ public interface ProtocolService {
      */
     ProtocolDTO saveData(Long projectId, ProtocolDataDTO protocolDataDTO);
 
+    /**
+     * Append strokes to the data of a protocol, without rewriting the
+     * strokes already stored.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param id        the id of the protocol.
+     * @param strokes   the strokes to append.
+     */
+    void appendStrokes(Long projectId, Long id, List<Stroke> strokes);
+
     /**
      * Get all the protocols.
      *
@@ -59,6 +72,56 @@ public interface ProtocolService {
      */
     Optional<ProtocolDataDTO> findOneData(Long projectId, Long id);
 
+    /**
+     * Get the "id" protocol's data as a stream, with the same
+     * representation as {@link ProtocolDataDTO}. In JSON, strokes are
+     * decoded and written one at a time. In
+     * {@link pt.up.hs.sampling.constants.MediaTypes#PROTOCOL_DATA_CBOR},
+     * they are written as stored.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param id        the id of the entity.
+     * @param mediaType the media type to write.
+     * @param selection the strokes to include.
+     * @param lod       level of detail (0 for full resolution, otherwise a
+     *                  level of {@link pt.up.hs.sampling.domain.codec.StrokePyramid}).
+     * @return the body writing the entity data.
+     */
+    Optional<StreamingResponseBody> streamOneData(
+        Long projectId, Long id, MediaType mediaType, StrokeSelection selection, int lod
+    );
+
+    /**
+     * Get the strokes of the "id" protocol that intersect a box (bounds
+     * inclusive), in the order they were written.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param id        the id of the entity.
+     * @param minX      minimum x coordinate.
+     * @param minY      minimum y coordinate.
+     * @param maxX      maximum x coordinate.
+     * @param maxY      maximum y coordinate.
+     * @return the matched strokes.
+     */
+    Optional<List<StrokeMatchDTO>> findStrokesInBox(
+        Long projectId, Long id, double minX, double minY, double maxX, double maxY
+    );
+
+    /**
+     * Get the strokes of the "id" protocol that pass within a distance of a
+     * point, nearest first.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param id        the id of the entity.
+     * @param x         x coordinate of the point.
+     * @param y         y coordinate of the point.
+     * @param tolerance maximum distance to the point.
+     * @return the matched strokes.
+     */
+    Optional<List<StrokeMatchDTO>> findStrokesAtPoint(
+        Long projectId, Long id, double x, double y, double tolerance
+    );
+
     /**
      * Delete the "id" protocol.
      *
@@ -76,23 +139,29 @@ public interface ProtocolService {
     void deleteMany(Long projectId, Long[] ids);
 
     /**
-     * Upload and import protocols in bulk.
+     * Get an {@link InputStream} to the image preview.
      *
      * @param projectId ID of the project to which this protocol belongs.
-     * @param type      type of protocols being uploaded.
-     * @param files     {@link MultipartFile} the multipart files.
-     * @return {@link BulkImportResultDTO} upload summary.
+     * @param id        the id of the entity.
+     * @return {@link InputStream} to the image preview.
      */
-    BulkImportResultDTO<ProtocolDTO> bulkImportProtocols(Long projectId, String type, MultipartFile[] files);
+    Optional<byte[]> getPreview(Long projectId, Long id);
 
     /**
-     * Get an {@link InputStream} to the image preview.
+     * Get the image preview in about the requested size. Renditions are
+     * rendered in a few widths (the smallest at least as wide as requested),
+     * showing the whole page, and kept on disk.
      *
      * @param projectId ID of the project to which this protocol belongs.
      * @param id        the id of the entity.
-     * @return {@link InputStream} to the image preview.
+     * @param width     requested width (or {@code null}).
+     * @param height    requested height (or {@code null}).
+     * @param dpi       resolution of the requested width and height (or
+     *                  {@code null}, for 96).
+     * @return the image preview (PNG), the one generated in batch if no size
+     * is requested.
      */
-    Optional<byte[]> getPreview(Long projectId, Long id);
+    Optional<byte[]> getPreview(Long projectId, Long id, Integer width, Integer height, Integer dpi);
 
     /**
      * Copy a protocol from a project to another.
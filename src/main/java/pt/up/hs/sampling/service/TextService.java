@@ -1,6 +1,7 @@
 package pt.up.hs.sampling.service;
 
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pt.up.hs.sampling.service.dto.BulkImportResultDTO;
 import pt.up.hs.sampling.service.dto.ProtocolDTO;
 import pt.up.hs.sampling.service.dto.TextDTO;
@@ -77,6 +78,17 @@ public interface TextService {
      */
     BulkImportResultDTO<TextDTO> bulkImportTexts(Long projectId, MultipartFile[] files);
 
+    /**
+     * Upload and import texts in bulk, writing the result of each file as
+     * newline-delimited JSON as soon as it is saved, followed by the
+     * summary.
+     *
+     * @param projectId ID of the project to which this text belongs.
+     * @param files     {@link MultipartFile} the multipart files.
+     * @return the body writing the results.
+     */
+    StreamingResponseBody streamBulkImportTexts(Long projectId, MultipartFile[] files);
+
     /**
      * Copy a text from a project to another.
      *
@@ -1,6 +1,7 @@
 package pt.up.hs.sampling.service.dto;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -10,6 +11,7 @@ public class BulkImportResultDTO<T extends Serializable> implements Serializable
 
     private int total;
     private int invalid;
+    private List<String> invalidFiles = new ArrayList<>();
 
     private List<T> data;
 
@@ -41,6 +43,14 @@ public class BulkImportResultDTO<T extends Serializable> implements Serializable
         this.invalid = invalid;
     }
 
+    public List<String> getInvalidFiles() {
+        return invalidFiles;
+    }
+
+    public void setInvalidFiles(List<String> invalidFiles) {
+        this.invalidFiles = invalidFiles;
+    }
+
     public List<T> getData() {
         return data;
     }
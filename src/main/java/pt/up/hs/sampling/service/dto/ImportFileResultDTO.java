@@ -0,0 +1,57 @@
+package pt.up.hs.sampling.service.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO for the result of importing one file of a bulk import.
+ */
+public class ImportFileResultDTO<T extends Serializable> implements Serializable {
+
+    private String file;
+    private boolean valid;
+
+    private List<T> data = new ArrayList<>();
+
+    public ImportFileResultDTO() {
+    }
+
+    public ImportFileResultDTO(String file, boolean valid, List<T> data) {
+        this.file = file;
+        this.valid = valid;
+        this.data = data;
+    }
+
+    public static <T extends Serializable> ImportFileResultDTO<T> valid(String file, List<T> data) {
+        return new ImportFileResultDTO<>(file, true, data);
+    }
+
+    public static <T extends Serializable> ImportFileResultDTO<T> invalid(String file) {
+        return new ImportFileResultDTO<>(file, false, new ArrayList<>());
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public void setValid(boolean valid) {
+        this.valid = valid;
+    }
+
+    public List<T> getData() {
+        return data;
+    }
+
+    public void setData(List<T> data) {
+        this.data = data;
+    }
+}
@@ -0,0 +1,176 @@
+package pt.up.hs.sampling.service.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A DTO for the progress and result of a background import of protocols.
+ *
+ * @author José Carlos Paiva
+ */
+@ApiModel(description = "Progress and result of a background import of protocols.")
+public class ImportJobDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    @ApiModelProperty(value = "ID of the project into which protocols are imported.")
+    private Long projectId;
+
+    @ApiModelProperty(value = "Status of the import (STARTING, STARTED, COMPLETED, FAILED, ...).")
+    private String status;
+
+    private Instant startTime;
+
+    private Instant endTime;
+
+    @ApiModelProperty(value = "Number of files uploaded.")
+    private int totalFiles;
+
+    @ApiModelProperty(value = "Number of files imported.")
+    private int filesDone;
+
+    @ApiModelProperty(value = "Number of files that could not be imported.")
+    private int filesFailed;
+
+    @ApiModelProperty(value = "Number of pages (protocols) created.")
+    private long pagesCreated;
+
+    @ApiModelProperty(value = "Files processed (imported or failed) per second.")
+    private double filesPerSecond;
+
+    @ApiModelProperty(value = "Pages created per second.")
+    private double pagesPerSecond;
+
+    @ApiModelProperty(value = "IDs of the protocols created.")
+    private List<Long> protocolIds = new ArrayList<>();
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(Long projectId) {
+        this.projectId = projectId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Instant startTime) {
+        this.startTime = startTime;
+    }
+
+    public Instant getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(Instant endTime) {
+        this.endTime = endTime;
+    }
+
+    public int getTotalFiles() {
+        return totalFiles;
+    }
+
+    public void setTotalFiles(int totalFiles) {
+        this.totalFiles = totalFiles;
+    }
+
+    public int getFilesDone() {
+        return filesDone;
+    }
+
+    public void setFilesDone(int filesDone) {
+        this.filesDone = filesDone;
+    }
+
+    public int getFilesFailed() {
+        return filesFailed;
+    }
+
+    public void setFilesFailed(int filesFailed) {
+        this.filesFailed = filesFailed;
+    }
+
+    public long getPagesCreated() {
+        return pagesCreated;
+    }
+
+    public void setPagesCreated(long pagesCreated) {
+        this.pagesCreated = pagesCreated;
+    }
+
+    public double getFilesPerSecond() {
+        return filesPerSecond;
+    }
+
+    public void setFilesPerSecond(double filesPerSecond) {
+        this.filesPerSecond = filesPerSecond;
+    }
+
+    public double getPagesPerSecond() {
+        return pagesPerSecond;
+    }
+
+    public void setPagesPerSecond(double pagesPerSecond) {
+        this.pagesPerSecond = pagesPerSecond;
+    }
+
+    public List<Long> getProtocolIds() {
+        return protocolIds;
+    }
+
+    public void setProtocolIds(List<Long> protocolIds) {
+        this.protocolIds = protocolIds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ImportJobDTO that = (ImportJobDTO) o;
+        return id != null && Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "ImportJobDTO{" +
+            "id=" + id +
+            ", projectId=" + projectId +
+            ", status='" + status + '\'' +
+            ", totalFiles=" + totalFiles +
+            ", filesDone=" + filesDone +
+            ", filesFailed=" + filesFailed +
+            ", pagesCreated=" + pagesCreated +
+            '}';
+    }
+}
@@ -0,0 +1,108 @@
+package pt.up.hs.sampling.service.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A DTO for a resumable upload of a protocol file.
+ *
+ * @author José Carlos Paiva
+ */
+@ApiModel(description = "Resumable upload of a protocol file.")
+public class ImportUploadDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String id;
+
+    @ApiModelProperty(value = "ID of the project into which the file is imported.")
+    private Long projectId;
+
+    @ApiModelProperty(value = "Name of the file.")
+    private String filename;
+
+    @ApiModelProperty(value = "Type of protocols in the file (detected from the file name if not set).")
+    private String type;
+
+    @ApiModelProperty(value = "Length of the file in bytes (if known).")
+    private Long length;
+
+    @ApiModelProperty(value = "Number of bytes received, i.e., where the next chunk starts.")
+    private long offset;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(Long projectId) {
+        this.projectId = projectId;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getLength() {
+        return length;
+    }
+
+    public void setLength(Long length) {
+        this.length = length;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ImportUploadDTO that = (ImportUploadDTO) o;
+        return id != null && Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "ImportUploadDTO{" +
+            "id='" + id + '\'' +
+            ", projectId=" + projectId +
+            ", filename='" + filename + '\'' +
+            ", type='" + type + '\'' +
+            ", length=" + length +
+            ", offset=" + offset +
+            '}';
+    }
+}
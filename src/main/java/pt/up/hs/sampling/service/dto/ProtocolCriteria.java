@@ -33,6 +33,26 @@ public class ProtocolCriteria implements Serializable, Criteria {
 
     private StringFilter language;
 
+    private IntegerFilter strokeCount;
+
+    private IntegerFilter dotCount;
+
+    private LongFilter startTime;
+
+    private LongFilter endTime;
+
+    private LongFilter duration;
+
+    private DoubleFilter minX;
+
+    private DoubleFilter minY;
+
+    private DoubleFilter maxX;
+
+    private DoubleFilter maxY;
+
+    private DoubleFilter meanPressure;
+
     public ProtocolCriteria() {
     }
 
@@ -44,6 +64,16 @@ public class ProtocolCriteria implements Serializable, Criteria {
         this.taskId = other.taskId == null ? null : other.taskId.copy();
         this.participantId = other.participantId == null ? null : other.participantId.copy();
         this.language = other.language == null ? null : other.language.copy();
+        this.strokeCount = other.strokeCount == null ? null : other.strokeCount.copy();
+        this.dotCount = other.dotCount == null ? null : other.dotCount.copy();
+        this.startTime = other.startTime == null ? null : other.startTime.copy();
+        this.endTime = other.endTime == null ? null : other.endTime.copy();
+        this.duration = other.duration == null ? null : other.duration.copy();
+        this.minX = other.minX == null ? null : other.minX.copy();
+        this.minY = other.minY == null ? null : other.minY.copy();
+        this.maxX = other.maxX == null ? null : other.maxX.copy();
+        this.maxY = other.maxY == null ? null : other.maxY.copy();
+        this.meanPressure = other.meanPressure == null ? null : other.meanPressure.copy();
     }
 
     @Override
@@ -107,6 +137,86 @@ public class ProtocolCriteria implements Serializable, Criteria {
         this.language = language;
     }
 
+    public IntegerFilter getStrokeCount() {
+        return strokeCount;
+    }
+
+    public void setStrokeCount(IntegerFilter strokeCount) {
+        this.strokeCount = strokeCount;
+    }
+
+    public IntegerFilter getDotCount() {
+        return dotCount;
+    }
+
+    public void setDotCount(IntegerFilter dotCount) {
+        this.dotCount = dotCount;
+    }
+
+    public LongFilter getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LongFilter startTime) {
+        this.startTime = startTime;
+    }
+
+    public LongFilter getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LongFilter endTime) {
+        this.endTime = endTime;
+    }
+
+    public LongFilter getDuration() {
+        return duration;
+    }
+
+    public void setDuration(LongFilter duration) {
+        this.duration = duration;
+    }
+
+    public DoubleFilter getMinX() {
+        return minX;
+    }
+
+    public void setMinX(DoubleFilter minX) {
+        this.minX = minX;
+    }
+
+    public DoubleFilter getMinY() {
+        return minY;
+    }
+
+    public void setMinY(DoubleFilter minY) {
+        this.minY = minY;
+    }
+
+    public DoubleFilter getMaxX() {
+        return maxX;
+    }
+
+    public void setMaxX(DoubleFilter maxX) {
+        this.maxX = maxX;
+    }
+
+    public DoubleFilter getMaxY() {
+        return maxY;
+    }
+
+    public void setMaxY(DoubleFilter maxY) {
+        this.maxY = maxY;
+    }
+
+    public DoubleFilter getMeanPressure() {
+        return meanPressure;
+    }
+
+    public void setMeanPressure(DoubleFilter meanPressure) {
+        this.meanPressure = meanPressure;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -123,7 +233,17 @@ public class ProtocolCriteria implements Serializable, Criteria {
             Objects.equals(pageNumber, that.pageNumber) &&
             Objects.equals(taskId, that.taskId) &&
             Objects.equals(participantId, that.participantId) &&
-            Objects.equals(language, that.language);
+            Objects.equals(language, that.language) &&
+            Objects.equals(strokeCount, that.strokeCount) &&
+            Objects.equals(dotCount, that.dotCount) &&
+            Objects.equals(startTime, that.startTime) &&
+            Objects.equals(endTime, that.endTime) &&
+            Objects.equals(duration, that.duration) &&
+            Objects.equals(minX, that.minX) &&
+            Objects.equals(minY, that.minY) &&
+            Objects.equals(maxX, that.maxX) &&
+            Objects.equals(maxY, that.maxY) &&
+            Objects.equals(meanPressure, that.meanPressure);
     }
 
     @Override
@@ -135,7 +255,17 @@ public class ProtocolCriteria implements Serializable, Criteria {
             pageNumber,
             taskId,
             participantId,
-            language
+            language,
+            strokeCount,
+            dotCount,
+            startTime,
+            endTime,
+            duration,
+            minX,
+            minY,
+            maxX,
+            maxY,
+            meanPressure
         );
     }
 
@@ -149,6 +279,16 @@ public class ProtocolCriteria implements Serializable, Criteria {
                 (taskId != null ? "taskId=" + taskId + ", " : "") +
                 (participantId != null ? "participantId=" + participantId + ", " : "") +
                 (language != null ? "language=" + language + ", " : "") +
+                (strokeCount != null ? "strokeCount=" + strokeCount + ", " : "") +
+                (dotCount != null ? "dotCount=" + dotCount + ", " : "") +
+                (startTime != null ? "startTime=" + startTime + ", " : "") +
+                (endTime != null ? "endTime=" + endTime + ", " : "") +
+                (duration != null ? "duration=" + duration + ", " : "") +
+                (minX != null ? "minX=" + minX + ", " : "") +
+                (minY != null ? "minY=" + minY + ", " : "") +
+                (maxX != null ? "maxX=" + maxX + ", " : "") +
+                (maxY != null ? "maxY=" + maxY + ", " : "") +
+                (meanPressure != null ? "meanPressure=" + meanPressure + ", " : "") +
             "}";
     }
 }
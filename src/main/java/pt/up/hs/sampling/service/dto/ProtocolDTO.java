@@ -48,6 +48,66 @@ public class ProtocolDTO extends AbstractAuditingDTO {
     @Size(max = 5)
     private String language;
 
+    /**
+     * Number of strokes (read-only).
+     */
+    @ApiModelProperty(value = "Number of strokes (read-only).")
+    private Integer strokeCount;
+
+    /**
+     * Number of dots (read-only).
+     */
+    @ApiModelProperty(value = "Number of dots (read-only).")
+    private Integer dotCount;
+
+    /**
+     * Timestamp at which the first stroke started (read-only).
+     */
+    @ApiModelProperty(value = "Timestamp at which the first stroke started (read-only).")
+    private Long startTime;
+
+    /**
+     * Timestamp at which the last stroke ended (read-only).
+     */
+    @ApiModelProperty(value = "Timestamp at which the last stroke ended (read-only).")
+    private Long endTime;
+
+    /**
+     * Writing duration, i.e., sum of the durations of the strokes (read-only).
+     */
+    @ApiModelProperty(value = "Writing duration, i.e., sum of the durations of the strokes (read-only).")
+    private Long duration;
+
+    /**
+     * Minimum x-coordinate of the dots (read-only).
+     */
+    @ApiModelProperty(value = "Minimum x-coordinate of the dots (read-only).")
+    private Double minX;
+
+    /**
+     * Minimum y-coordinate of the dots (read-only).
+     */
+    @ApiModelProperty(value = "Minimum y-coordinate of the dots (read-only).")
+    private Double minY;
+
+    /**
+     * Maximum x-coordinate of the dots (read-only).
+     */
+    @ApiModelProperty(value = "Maximum x-coordinate of the dots (read-only).")
+    private Double maxX;
+
+    /**
+     * Maximum y-coordinate of the dots (read-only).
+     */
+    @ApiModelProperty(value = "Maximum y-coordinate of the dots (read-only).")
+    private Double maxY;
+
+    /**
+     * Mean pressure of the dots (read-only).
+     */
+    @ApiModelProperty(value = "Mean pressure of the dots (read-only).")
+    private Double meanPressure;
+
     public Long getId() {
         return id;
     }
@@ -96,6 +156,86 @@ public class ProtocolDTO extends AbstractAuditingDTO {
         this.language = language;
     }
 
+    public Integer getStrokeCount() {
+        return strokeCount;
+    }
+
+    public void setStrokeCount(Integer strokeCount) {
+        this.strokeCount = strokeCount;
+    }
+
+    public Integer getDotCount() {
+        return dotCount;
+    }
+
+    public void setDotCount(Integer dotCount) {
+        this.dotCount = dotCount;
+    }
+
+    public Long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Long startTime) {
+        this.startTime = startTime;
+    }
+
+    public Long getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(Long endTime) {
+        this.endTime = endTime;
+    }
+
+    public Long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Long duration) {
+        this.duration = duration;
+    }
+
+    public Double getMinX() {
+        return minX;
+    }
+
+    public void setMinX(Double minX) {
+        this.minX = minX;
+    }
+
+    public Double getMinY() {
+        return minY;
+    }
+
+    public void setMinY(Double minY) {
+        this.minY = minY;
+    }
+
+    public Double getMaxX() {
+        return maxX;
+    }
+
+    public void setMaxX(Double maxX) {
+        this.maxX = maxX;
+    }
+
+    public Double getMaxY() {
+        return maxY;
+    }
+
+    public void setMaxY(Double maxY) {
+        this.maxY = maxY;
+    }
+
+    public Double getMeanPressure() {
+        return meanPressure;
+    }
+
+    public void setMeanPressure(Double meanPressure) {
+        this.meanPressure = meanPressure;
+    }
+
 
     @Override
     public boolean equals(Object o) {
@@ -127,6 +267,9 @@ public class ProtocolDTO extends AbstractAuditingDTO {
             ", participantId=" + getParticipantId() +
             ", pageNumber=" + getPageNumber() +
             ", language=" + getLanguage() +
+            ", strokeCount=" + getStrokeCount() +
+            ", dotCount=" + getDotCount() +
+            ", duration=" + getDuration() +
             "}";
     }
 }
@@ -0,0 +1,92 @@
+package pt.up.hs.sampling.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A DTO for a stroke of a protocol matched by a spatial query.
+ *
+ * @author José Carlos Paiva
+ */
+@ApiModel(description = "Stroke of a protocol matched by a spatial query.")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StrokeMatchDTO implements Serializable {
+
+    /**
+     * Index of the stroke in the protocol data.
+     */
+    @ApiModelProperty(value = "Index of the stroke in the protocol data.", required = true)
+    private int index;
+
+    /**
+     * Distance from the stroke to the point (hit-test only).
+     */
+    @ApiModelProperty(value = "Distance from the stroke to the point (hit-test only).")
+    private Double distance;
+
+    /**
+     * The stroke.
+     */
+    @ApiModelProperty(value = "The stroke.")
+    private Stroke stroke;
+
+    public StrokeMatchDTO() {
+    }
+
+    public StrokeMatchDTO(int index, Double distance, Stroke stroke) {
+        this.index = index;
+        this.distance = distance;
+        this.stroke = stroke;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Double getDistance() {
+        return distance;
+    }
+
+    public void setDistance(Double distance) {
+        this.distance = distance;
+    }
+
+    public Stroke getStroke() {
+        return stroke;
+    }
+
+    public void setStroke(Stroke stroke) {
+        this.stroke = stroke;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StrokeMatchDTO that = (StrokeMatchDTO) o;
+        return index == that.index &&
+            Objects.equals(distance, that.distance);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(index, distance);
+    }
+
+    @Override
+    public String toString() {
+        return "StrokeMatchDTO{" +
+            "index=" + index +
+            ", distance=" + distance +
+            '}';
+    }
+}
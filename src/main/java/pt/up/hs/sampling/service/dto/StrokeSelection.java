@@ -0,0 +1,118 @@
+package pt.up.hs.sampling.service.dto;
+
+import pt.up.hs.sampling.domain.codec.StrokeIndex;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+/**
+ * Selection of the strokes of a protocol, either by a time window or by a
+ * range of stroke indexes.
+ *
+ * @author José Carlos Paiva
+ */
+public final class StrokeSelection implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final StrokeSelection ALL = new StrokeSelection(null, null, null, null);
+
+    private final Long from;
+    private final Long to;
+    private final Integer first;
+    private final Integer last;
+
+    private StrokeSelection(Long from, Long to, Integer first, Integer last) {
+        this.from = from;
+        this.to = to;
+        this.first = first;
+        this.last = last;
+    }
+
+    public static StrokeSelection all() {
+        return ALL;
+    }
+
+    /**
+     * Select strokes whose time range overlaps a time window.
+     *
+     * @param from start timestamp (inclusive, {@code null} if unbounded).
+     * @param to   end timestamp (inclusive, {@code null} if unbounded).
+     * @return the selection.
+     */
+    public static StrokeSelection byTime(Long from, Long to) {
+        if (from == null && to == null) {
+            return ALL;
+        }
+        if (from != null && to != null && from > to) {
+            throw new IllegalArgumentException("Start of the time window is after its end.");
+        }
+        return new StrokeSelection(from, to, null, null);
+    }
+
+    /**
+     * Select strokes by index, from a range such as {@code 10..20} (both
+     * inclusive), {@code 10..} (until the last stroke) or {@code 10} (a
+     * single stroke).
+     *
+     * @param range the range.
+     * @return the selection.
+     */
+    public static StrokeSelection byRange(String range) {
+        if (range == null || range.trim().isEmpty()) {
+            return ALL;
+        }
+        String[] parts = range.trim().split("\\.\\.", -1);
+        if (parts.length > 2) {
+            throw new IllegalArgumentException("Invalid stroke range " + range + ".");
+        }
+        try {
+            int first = Integer.parseInt(parts[0].trim());
+            int last = parts.length == 1
+                ? first
+                : (parts[1].trim().isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(parts[1].trim()));
+            if (first < 0 || last < first) {
+                throw new IllegalArgumentException("Invalid stroke range " + range + ".");
+            }
+            return new StrokeSelection(null, null, first, last);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid stroke range " + range + ".", e);
+        }
+    }
+
+    public boolean isAll() {
+        return this == ALL;
+    }
+
+    /**
+     * Apply this selection to the strokes of a protocol.
+     *
+     * @param index the index of the strokes.
+     * @return indexes of the selected strokes.
+     */
+    public BitSet select(StrokeIndex index) {
+        if (first != null) {
+            BitSet selected = new BitSet(index.size());
+            if (first < index.size()) {
+                selected.set(first, (int) Math.min((long) last + 1, index.size()));
+            }
+            return selected;
+        }
+        if (isAll()) {
+            BitSet selected = new BitSet(index.size());
+            selected.set(0, index.size());
+            return selected;
+        }
+        return index.overlapping(from, to);
+    }
+
+    @Override
+    public String toString() {
+        return "StrokeSelection{" +
+            "from=" + from +
+            ", to=" + to +
+            ", first=" + first +
+            ", last=" + last +
+            '}';
+    }
+}
@@ -0,0 +1,84 @@
+package pt.up.hs.sampling.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import pt.up.hs.sampling.service.dto.BulkImportResultDTO;
+import pt.up.hs.sampling.service.dto.ImportFileResultDTO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Writes the results of a bulk import as newline-delimited JSON: one
+ * {@link ImportFileResultDTO} line per file, flushed as soon as the file is
+ * imported, followed by a {@link BulkImportResultDTO} line with the summary
+ * (without data). Nothing is kept once written, so memory does not grow with
+ * the number of files.
+ */
+class ImportResultsWriter {
+
+    private static final int NEWLINE = '\n';
+
+    private final ObjectWriter writer;
+
+    ImportResultsWriter(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    /**
+     * Run an import, writing its results as they are reported. If the
+     * client goes away, the import stops at the next result (what is
+     * already imported is kept).
+     *
+     * @param out      stream to write to.
+     * @param importer import to run, given the consumer of the results of
+     *                 each file and returning the summary.
+     * @param <T>      type of the imported entities.
+     * @throws IOException if the results could not be written.
+     */
+    <T extends Serializable> void write(
+        OutputStream out,
+        Function<Consumer<ImportFileResultDTO<T>>, BulkImportResultDTO<T>> importer
+    ) throws IOException {
+        BulkImportResultDTO<T> summary;
+        try {
+            summary = importer.apply(result -> {
+                try {
+                    writeLine(out, result);
+                } catch (IOException e) {
+                    throw new WriteException(e);
+                }
+            });
+        } catch (WriteException e) {
+            throw e.getCause();
+        }
+        summary.setData(null);
+        writeLine(out, summary);
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(writer.writeValueAsBytes(value));
+        out.write(NEWLINE);
+        out.flush();
+    }
+
+    /**
+     * Failure to write a result, carried through the import (distinct from
+     * failures to read the imported files).
+     */
+    private static class WriteException extends RuntimeException {
+
+        WriteException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
@@ -9,6 +9,7 @@ import pt.up.hs.sampling.constants.EntityNames;
 import pt.up.hs.sampling.constants.ErrorKeys;
 import pt.up.hs.sampling.domain.ProtocolData;
 import pt.up.hs.sampling.repository.ProtocolDataRepository;
+import pt.up.hs.sampling.repository.ProtocolStrokeDataRepository;
 import pt.up.hs.sampling.service.ProtocolExportService;
 import pt.up.hs.sampling.service.dto.ExportFormat;
 import pt.up.hs.sampling.service.exceptions.ServiceException;
@@ -37,16 +38,20 @@ public class ProtocolExportServiceImpl implements ProtocolExportService {
 
     private final ProtocolDataRepository protocolDataRepository;
 
+    private final ProtocolStrokeDataRepository protocolStrokeDataRepository;
+
     private final UhcPageMapper uhcPageMapper;
 
 
     public ProtocolExportServiceImpl(
         ApplicationProperties properties,
         ProtocolDataRepository protocolDataRepository,
+        ProtocolStrokeDataRepository protocolStrokeDataRepository,
         UhcPageMapper uhcPageMapper
     ) {
         this.properties = properties;
         this.protocolDataRepository = protocolDataRepository;
+        this.protocolStrokeDataRepository = protocolStrokeDataRepository;
         this.uhcPageMapper = uhcPageMapper;
     }
 
@@ -67,7 +72,10 @@ public class ProtocolExportServiceImpl implements ProtocolExportService {
         ProtocolData pd = optionalPd.get();
 
         UniversalHandwritingConverter uhc = new UniversalHandwritingConverter()
-            .page(uhcPageMapper.protocolDataToUhcPage(pd));
+            .page(uhcPageMapper.protocolDataToUhcPage(
+                pd,
+                protocolStrokeDataRepository.findById(pd.getProtocolId()).orElse(null)
+            ));
 
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
 
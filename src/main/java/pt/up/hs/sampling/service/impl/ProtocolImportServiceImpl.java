@@ -0,0 +1,1004 @@
+package pt.up.hs.sampling.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionException;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.zalando.problem.Status;
+import pt.up.hs.sampling.config.ApplicationProperties;
+import pt.up.hs.sampling.constants.EntityNames;
+import pt.up.hs.sampling.constants.ErrorKeys;
+import pt.up.hs.sampling.domain.Protocol;
+import pt.up.hs.sampling.domain.ProtocolData;
+import pt.up.hs.sampling.domain.ProtocolStrokeData;
+import pt.up.hs.sampling.domain.ProtocolSummary;
+import pt.up.hs.sampling.domain.codec.StrokeHash;
+import pt.up.hs.sampling.processing.importing.ImportProtocolJobLauncher;
+import pt.up.hs.sampling.processing.importing.ImportProtocolUploadStore;
+import pt.up.hs.sampling.processing.preview.ProtocolPreviewQueue;
+import pt.up.hs.sampling.repository.ProtocolDataRepository;
+import pt.up.hs.sampling.repository.ProtocolRepository;
+import pt.up.hs.sampling.security.SecurityUtils;
+import pt.up.hs.sampling.service.ProtocolImportService;
+import pt.up.hs.sampling.service.dto.BulkImportResultDTO;
+import pt.up.hs.sampling.service.dto.ImportFileResultDTO;
+import pt.up.hs.sampling.service.dto.ImportJobDTO;
+import pt.up.hs.sampling.service.dto.ImportUploadDTO;
+import pt.up.hs.sampling.service.dto.ProtocolDTO;
+import pt.up.hs.sampling.service.exceptions.ServiceException;
+import pt.up.hs.sampling.service.mapper.ProtocolMapper;
+import pt.up.hs.sampling.service.mapper.UhcPageMapper;
+import pt.up.hs.uhc.UniversalHandwritingConverter;
+import pt.up.hs.uhc.models.Format;
+import pt.up.hs.uhc.models.Page;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static pt.up.hs.sampling.processing.importing.BatchImportProtocolConstants.*;
+
+/**
+ * Service Implementation for importing {@link Protocol}.
+ */
+@Service
+@Transactional
+public class ProtocolImportServiceImpl implements ProtocolImportService {
+
+    private final Logger log = LoggerFactory.getLogger(ProtocolImportServiceImpl.class);
+
+    private final ApplicationProperties properties;
+
+    private final ProtocolRepository protocolRepository;
+    private final ProtocolMapper protocolMapper;
+
+    private final ProtocolDataRepository protocolDataRepository;
+
+    private final UhcPageMapper uhcPageMapper;
+
+    private final ProtocolPreviewQueue previewQueue;
+
+    private final AsyncTaskExecutor importExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ImportProtocolJobLauncher importProtocolJobLauncher;
+    private final ImportProtocolUploadStore importProtocolUploadStore;
+    private final JobExplorer jobExplorer;
+
+    private final ImportResultsWriter importResultsWriter;
+
+    private static final String IMPORT_UPLOADS_DIRECTORY = "uploads";
+    private static final String ARCHIVE_METADATA_DIRECTORY = "__MACOSX/";
+    private static final String ARCHIVE_ENTRIES_DIRECTORY = "entries";
+    private static final int ARCHIVE_ENTRY_MEMORY_LENGTH = 256 * 1024;
+    private static final String IMPORTS_CACHE = "protocol.imports";
+
+    public ProtocolImportServiceImpl(
+        ApplicationProperties properties,
+        ProtocolRepository protocolRepository,
+        ProtocolMapper protocolMapper,
+        ProtocolDataRepository protocolDataRepository,
+        UhcPageMapper uhcPageMapper,
+        ProtocolPreviewQueue previewQueue,
+        @Qualifier("importExecutor") AsyncTaskExecutor importExecutor,
+        PlatformTransactionManager transactionManager,
+        ImportProtocolJobLauncher importProtocolJobLauncher,
+        ImportProtocolUploadStore importProtocolUploadStore,
+        JobExplorer jobExplorer,
+        ObjectMapper objectMapper
+    ) {
+        this.properties = properties;
+        this.protocolRepository = protocolRepository;
+        this.protocolMapper = protocolMapper;
+        this.protocolDataRepository = protocolDataRepository;
+        this.uhcPageMapper = uhcPageMapper;
+        this.previewQueue = previewQueue;
+        this.importExecutor = importExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.importProtocolJobLauncher = importProtocolJobLauncher;
+        this.importProtocolUploadStore = importProtocolUploadStore;
+        this.jobExplorer = jobExplorer;
+        this.importResultsWriter = new ImportResultsWriter(objectMapper);
+    }
+
+    /**
+     * Upload and import protocols in bulk (see {@link #importFiles(Long, Iterator, Consumer)}).
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param type      type of protocols being uploaded.
+     * @param files     {@link MultipartFile} the multipart files.
+     * @return {@link BulkImportResultDTO} upload summary.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public BulkImportResultDTO<ProtocolDTO> bulkImportProtocols(
+        Long projectId, String type, MultipartFile[] files
+    ) {
+        log.debug("Request to bulk import Protocols in project {}", projectId);
+        return collectImport(listener -> importFiles(projectId, uploadFiles(type, files), listener));
+    }
+
+    /**
+     * Upload and import protocols in bulk, once per idempotency key. The
+     * results are kept in the {@value #IMPORTS_CACHE} cache, which is
+     * shared by the cluster and locks the key while importing, so a retry
+     * sent while the first import is running waits for its result.
+     *
+     * @param projectId      ID of the project to which this protocol belongs.
+     * @param type           type of protocols being uploaded.
+     * @param files          {@link MultipartFile} the multipart files.
+     * @param idempotencyKey key of the import (null to always import).
+     * @return {@link BulkImportResultDTO} upload summary.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    @Cacheable(
+        value = IMPORTS_CACHE,
+        key = "#projectId + '-' + #idempotencyKey",
+        condition = "#idempotencyKey != null",
+        sync = true
+    )
+    public BulkImportResultDTO<ProtocolDTO> bulkImportProtocols(
+        Long projectId, String type, MultipartFile[] files, String idempotencyKey
+    ) {
+        return bulkImportProtocols(projectId, type, files);
+    }
+
+    /**
+     * Import the protocols in a ZIP archive of protocol files, reading it as
+     * a stream (see {@link #importArchiveFiles(Long, String, InputStream, Consumer)}).
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param type      type of protocols in the archive.
+     * @param archive   {@link InputStream} the ZIP archive.
+     * @return {@link BulkImportResultDTO} import summary.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public BulkImportResultDTO<ProtocolDTO> importArchive(
+        Long projectId, String type, InputStream archive
+    ) {
+        log.debug("Request to import Protocols from archive in project {}", projectId);
+        return collectImport(listener -> importArchiveFiles(projectId, type, archive, listener));
+    }
+
+    /**
+     * Import the protocols in a ZIP archive of protocol files, once per
+     * idempotency key (see
+     * {@link #bulkImportProtocols(Long, String, MultipartFile[], String)}).
+     *
+     * @param projectId      ID of the project to which this protocol belongs.
+     * @param type           type of protocols in the archive.
+     * @param archive        {@link InputStream} the ZIP archive.
+     * @param idempotencyKey key of the import (null to always import).
+     * @return {@link BulkImportResultDTO} import summary.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    @Cacheable(
+        value = IMPORTS_CACHE,
+        key = "#projectId + '-' + #idempotencyKey",
+        condition = "#idempotencyKey != null",
+        sync = true
+    )
+    public BulkImportResultDTO<ProtocolDTO> importArchive(
+        Long projectId, String type, InputStream archive, String idempotencyKey
+    ) {
+        return importArchive(projectId, type, archive);
+    }
+
+    /**
+     * Upload and import protocols in bulk, writing the result of each file
+     * as newline-delimited JSON as soon as it is saved (see
+     * {@link ImportResultsWriter}).
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param type      type of protocols being uploaded.
+     * @param files     {@link MultipartFile} the multipart files.
+     * @return the body writing the results.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public StreamingResponseBody streamBulkImportProtocols(Long projectId, String type, MultipartFile[] files) {
+        log.debug("Request to bulk import Protocols in project {} (streaming results)", projectId);
+        return out -> importResultsWriter.<ProtocolDTO>write(out, listener ->
+            importFiles(projectId, uploadFiles(type, files), listener)
+        );
+    }
+
+    /**
+     * Import the protocols in a ZIP archive of protocol files, writing the
+     * result of each file as newline-delimited JSON as soon as it is saved
+     * (see {@link ImportResultsWriter}).
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param type      type of protocols in the archive.
+     * @param archive   {@link InputStream} the ZIP archive.
+     * @return the body writing the results.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public StreamingResponseBody streamImportArchive(Long projectId, String type, InputStream archive) {
+        log.debug("Request to import Protocols from archive in project {} (streaming results)", projectId);
+        return out -> importResultsWriter.<ProtocolDTO>write(out, listener ->
+            importArchiveFiles(projectId, type, archive, listener)
+        );
+    }
+
+    /**
+     * Upload protocols and import them in the background. Files are stored
+     * in a directory of their own under the importing path (in upload
+     * order) before the import job is launched, as uploads do not outlive
+     * the request.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param type      type of protocols being uploaded.
+     * @param files     {@link MultipartFile} the multipart files.
+     * @return {@link ImportJobDTO} the import job, just started.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ImportJobDTO startImport(Long projectId, String type, MultipartFile[] files) {
+        log.debug("Request to start import of {} Protocol files in project {}", files.length, projectId);
+        Path directory = Paths.get(
+            properties.getImporting().getPath(), IMPORT_UPLOADS_DIRECTORY, UUID.randomUUID().toString()
+        );
+        try {
+            Files.createDirectories(directory);
+            for (int i = 0; i < files.length; i++) {
+                try (InputStream in = files[i].getInputStream()) {
+                    Files.copy(in, directory.resolve(ImportProtocolJobLauncher.storedFilename(i, uploadFilename(files[i]))));
+                }
+            }
+            JobExecution jobExecution = importProtocolJobLauncher.run(
+                projectId, type, directory, files.length,
+                SecurityUtils.getCurrentUserLogin().orElse(null)
+            );
+            return toImportJobDTO(jobExecution);
+        } catch (IOException | JobExecutionException e) {
+            log.error("Could not start import in project {}", projectId, e);
+            FileSystemUtils.deleteRecursively(directory.toFile());
+            throw new ServiceException(
+                EntityNames.PROTOCOL,
+                ErrorKeys.ERR_READ_IMPORT,
+                "Could not start import."
+            );
+        }
+    }
+
+    /**
+     * Get the progress (or result, once finished) of a background import.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param jobId     ID of the import job.
+     * @return {@link ImportJobDTO} the import job.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ImportJobDTO> findImport(Long projectId, Long jobId) {
+        log.debug("Request to get import {} in project {}", jobId, projectId);
+        JobExecution jobExecution = jobExplorer.getJobExecution(jobId);
+        if (jobExecution == null ||
+            !IMPORT_PROTOCOL_JOB.equals(jobExecution.getJobInstance().getJobName()) ||
+            !projectId.equals(jobExecution.getJobParameters().getLong(IMPORT_PROTOCOL_PROJECT_ID_PARAMETER))) {
+            return Optional.empty();
+        }
+        return Optional.of(toImportJobDTO(jobExecution));
+    }
+
+    /**
+     * Create a resumable upload of a protocol file, to be sent in chunks.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param type      type of protocols in the file.
+     * @param filename  name of the file.
+     * @param length    length of the file (null if not known yet).
+     * @return {@link ImportUploadDTO} the upload created.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ImportUploadDTO createUpload(Long projectId, String type, String filename, Long length) {
+        log.debug("Request to create upload of Protocol file {} in project {}", filename, projectId);
+        Path name = Paths.get(filename.replace('\\', '/')).getFileName();
+        if (name == null || (length != null && (length < 0 || length > properties.getImporting().getUploadMaxLength()))) {
+            throw new ServiceException(
+                Status.BAD_REQUEST,
+                EntityNames.PROTOCOL,
+                ErrorKeys.ERR_INVALID_RANGE,
+                "File must have a name and at most " + properties.getImporting().getUploadMaxLength() + " bytes."
+            );
+        }
+        try {
+            return toImportUploadDTO(importProtocolUploadStore.create(projectId, name.toString(), type, length));
+        } catch (IOException e) {
+            log.error("Could not create upload in project {}", projectId, e);
+            throw new ServiceException(
+                EntityNames.PROTOCOL,
+                ErrorKeys.ERR_READ_IMPORT,
+                "Could not create upload."
+            );
+        }
+    }
+
+    /**
+     * Get a resumable upload (e.g., to know where to resume it).
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param uploadId  ID of the upload.
+     * @return {@link ImportUploadDTO} the upload.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<ImportUploadDTO> findUpload(Long projectId, String uploadId) {
+        log.debug("Request to get upload {} in project {}", uploadId, projectId);
+        return findStoredUpload(projectId, uploadId)
+            .map(ProtocolImportServiceImpl::toImportUploadDTO);
+    }
+
+    /**
+     * Append a chunk to a resumable upload. A chunk may overlap what was
+     * already received (e.g., if it is sent again), but not start after it.
+     *
+     * @param projectId   ID of the project to which the protocols belong.
+     * @param uploadId    ID of the upload.
+     * @param start       position of the first byte of the chunk in the file.
+     * @param chunkLength number of bytes of the chunk.
+     * @param total       length of the file (null if not known yet).
+     * @param chunk       {@link InputStream} the chunk.
+     * @return {@link ImportUploadDTO} the upload, after the chunk.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<ImportUploadDTO> appendUpload(
+        Long projectId, String uploadId, long start, long chunkLength, Long total, InputStream chunk
+    ) {
+        log.debug("Request to append {} bytes at {} to upload {} in project {}", chunkLength, start, uploadId, projectId);
+        if (!findStoredUpload(projectId, uploadId).isPresent()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(toImportUploadDTO(
+                importProtocolUploadStore.append(uploadId, start, chunkLength, total, chunk)
+            ));
+        } catch (IllegalStateException e) {
+            throw new ServiceException(Status.CONFLICT, EntityNames.PROTOCOL, ErrorKeys.ERR_UPLOAD_OFFSET, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ServiceException(Status.BAD_REQUEST, EntityNames.PROTOCOL, ErrorKeys.ERR_INVALID_RANGE, e.getMessage());
+        } catch (IOException e) {
+            log.warn("Could not append chunk to upload {} in project {}", uploadId, projectId, e);
+            throw new ServiceException(
+                EntityNames.PROTOCOL,
+                ErrorKeys.ERR_READ_IMPORT,
+                "Could not receive chunk."
+            );
+        }
+    }
+
+    /**
+     * Finish a resumable upload, importing its file in the background (see
+     * {@link #startImport(Long, String, MultipartFile[])}).
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param uploadId  ID of the upload.
+     * @return {@link ImportJobDTO} the import job, just started.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<ImportJobDTO> finishUpload(Long projectId, String uploadId) {
+        log.debug("Request to finish upload {} in project {}", uploadId, projectId);
+        Optional<ImportProtocolUploadStore.Upload> found = findStoredUpload(projectId, uploadId);
+        if (!found.isPresent()) {
+            return Optional.empty();
+        }
+        ImportProtocolUploadStore.Upload upload = found.get();
+        if (upload.getLength() != null && upload.getOffset() != upload.getLength()) {
+            throw new ServiceException(
+                Status.CONFLICT,
+                EntityNames.PROTOCOL,
+                ErrorKeys.ERR_UPLOAD_OFFSET,
+                "Upload has " + upload.getOffset() + " of " + upload.getLength() + " bytes."
+            );
+        }
+
+        Path directory = Paths.get(
+            properties.getImporting().getPath(), IMPORT_UPLOADS_DIRECTORY, UUID.randomUUID().toString()
+        );
+        try {
+            Files.createDirectories(directory);
+            importProtocolUploadStore.take(
+                uploadId, directory.resolve(ImportProtocolJobLauncher.storedFilename(0, upload.getFilename()))
+            );
+        } catch (IllegalStateException e) {
+            FileSystemUtils.deleteRecursively(directory.toFile());
+            throw new ServiceException(Status.CONFLICT, EntityNames.PROTOCOL, ErrorKeys.ERR_UPLOAD_OFFSET, e.getMessage());
+        } catch (IOException e) {
+            log.error("Could not finish upload {} in project {}", uploadId, projectId, e);
+            FileSystemUtils.deleteRecursively(directory.toFile());
+            throw new ServiceException(
+                EntityNames.PROTOCOL,
+                ErrorKeys.ERR_READ_IMPORT,
+                "Could not finish upload."
+            );
+        }
+        try {
+            JobExecution jobExecution = importProtocolJobLauncher.run(
+                projectId, upload.getType(), directory, 1,
+                SecurityUtils.getCurrentUserLogin().orElse(null)
+            );
+            return Optional.of(toImportJobDTO(jobExecution));
+        } catch (JobExecutionException e) {
+            log.error("Could not start import of upload {} in project {}", uploadId, projectId, e);
+            FileSystemUtils.deleteRecursively(directory.toFile());
+            throw new ServiceException(
+                EntityNames.PROTOCOL,
+                ErrorKeys.ERR_READ_IMPORT,
+                "Could not start import."
+            );
+        }
+    }
+
+    /**
+     * Cancel a resumable upload, deleting what was received.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param uploadId  ID of the upload.
+     * @return {@code true} if the upload existed.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean deleteUpload(Long projectId, String uploadId) {
+        log.debug("Request to delete upload {} in project {}", uploadId, projectId);
+        if (!findStoredUpload(projectId, uploadId).isPresent()) {
+            return false;
+        }
+        try {
+            importProtocolUploadStore.delete(uploadId);
+            return true;
+        } catch (IllegalStateException e) {
+            throw new ServiceException(Status.CONFLICT, EntityNames.PROTOCOL, ErrorKeys.ERR_UPLOAD_OFFSET, e.getMessage());
+        } catch (IOException e) {
+            log.error("Could not delete upload {} in project {}", uploadId, projectId, e);
+            throw new ServiceException(
+                EntityNames.PROTOCOL,
+                ErrorKeys.ERR_READ_IMPORT,
+                "Could not delete upload."
+            );
+        }
+    }
+
+    /**
+     * Parse and normalize the pages of an imported file.
+     *
+     * @param type     type of protocol (null to detect from the file name).
+     * @param filename name of the file.
+     * @param in       contents of the file.
+     * @return the pages of the file.
+     */
+    @Override
+    public List<Page> parseProtocol(String type, String filename, InputStream in) {
+        return new UniversalHandwritingConverter()
+            .inputFormat(formatFromString(type))
+            .file(filename, in)
+            .normalize(true, 3)
+            .center()
+            .getPages();
+    }
+
+    /**
+     * Save imported pages as new protocols. Pages whose strokes match those
+     * of a protocol of the project (see {@link StrokeHash}), or of a page
+     * before them, resolve to that protocol instead, so importing the same
+     * files again neither stores nor renders them again.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param pages     pages to save.
+     * @return {@link List} saved protocols, in the order of the pages.
+     */
+    @Override
+    public List<ProtocolDTO> importPages(Long projectId, List<Page> pages) {
+        List<ProtocolStrokeData> protocolsData = pages.parallelStream()
+            .map(uhcPageMapper::uhcPageToProtocolStrokeData)
+            .collect(Collectors.toList());
+        List<Protocol> protocols = protocolsData.parallelStream()
+            .map(strokeData -> new Protocol()
+                .projectId(projectId)
+                .summary(ProtocolSummary.of(strokeData.getStrokes()))
+                .contentHash(StrokeHash.of(strokeData.getStrokes())))
+            .collect(Collectors.toList());
+
+        Set<String> contentHashes = protocols.stream()
+            .map(Protocol::getContentHash)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        Map<String, Protocol> existing = new HashMap<>();
+        if (!contentHashes.isEmpty()) {
+            for (Protocol protocol : protocolRepository.findAllByProjectIdAndContentHashIn(projectId, contentHashes)) {
+                existing.putIfAbsent(protocol.getContentHash(), protocol);
+            }
+        }
+
+        List<ProtocolStrokeData> newProtocolsData = new ArrayList<>(pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            Protocol protocol = protocols.get(i);
+            if (protocol.getContentHash() != null) {
+                Protocol previous = existing.putIfAbsent(protocol.getContentHash(), protocol);
+                if (previous != null) {
+                    log.debug("Imported page {} is protocol {} of project {}", i, previous.getId(), projectId);
+                    protocols.set(i, previous);
+                    continue;
+                }
+            }
+            ProtocolData pd = uhcPageMapper.uhcPageToProtocolData(pages.get(i));
+            pd.setProtocol(protocol);
+            newProtocolsData.add(protocolsData.get(i).protocolData(pd));
+        }
+
+        // protocols, their data and strokes are inserted together
+        if (!newProtocolsData.isEmpty()) {
+            protocolDataRepository.bulkSave(newProtocolsData);
+            previewQueue.enqueue(newProtocolsData.stream()
+                .map(strokeData -> strokeData.getProtocolData().getProtocol().getId())
+                .collect(Collectors.toList()));
+        }
+
+        return protocols.stream()
+            .map(protocolMapper::toDto)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Parse and normalize an uploaded file.
+     *
+     * @param type type of protocol being uploaded.
+     * @param file {@link MultipartFile} the multipart file.
+     * @return {@link List} pages of the file.
+     */
+    private List<Page> parseUpload(String type, MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            return parseProtocol(type, uploadFilename(file), in);
+        } catch (IOException e) {
+            throw new ServiceException(
+                EntityNames.PROTOCOL,
+                ErrorKeys.ERR_READ_IMPORT,
+                "Could not process imported file."
+            );
+        }
+    }
+
+    /**
+     * Get the name of an uploaded file, without any directories.
+     *
+     * @param file {@link MultipartFile} the multipart file.
+     * @return the name of the file.
+     */
+    private static String uploadFilename(MultipartFile file) {
+        String filename = file.getOriginalFilename();
+        if (filename == null || filename.isEmpty()) {
+            filename = file.getName();
+        }
+        Path name = Paths.get(filename.replace('\\', '/')).getFileName();
+        return name == null ? file.getName() : name.toString();
+    }
+
+    /**
+     * Find a resumable upload of a project.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param uploadId  ID of the upload.
+     * @return the upload, if it exists and belongs to the project.
+     */
+    private Optional<ImportProtocolUploadStore.Upload> findStoredUpload(Long projectId, String uploadId) {
+        return importProtocolUploadStore.find(uploadId)
+            .filter(upload -> projectId.equals(upload.getProjectId()));
+    }
+
+    /**
+     * Convert a resumable upload to a {@link ImportUploadDTO}.
+     *
+     * @param upload the upload.
+     * @return the upload DTO.
+     */
+    private static ImportUploadDTO toImportUploadDTO(ImportProtocolUploadStore.Upload upload) {
+        ImportUploadDTO dto = new ImportUploadDTO();
+        dto.setId(upload.getId());
+        dto.setProjectId(upload.getProjectId());
+        dto.setFilename(upload.getFilename());
+        dto.setType(upload.getType());
+        dto.setLength(upload.getLength());
+        dto.setOffset(upload.getOffset());
+        return dto;
+    }
+
+    /**
+     * Convert an execution of the import job to a {@link ImportJobDTO}.
+     *
+     * @param jobExecution the job execution.
+     * @return the import job.
+     */
+    @SuppressWarnings("unchecked")
+    private static ImportJobDTO toImportJobDTO(JobExecution jobExecution) {
+        ImportJobDTO importJobDTO = new ImportJobDTO();
+        importJobDTO.setId(jobExecution.getId());
+        importJobDTO.setProjectId(jobExecution.getJobParameters().getLong(IMPORT_PROTOCOL_PROJECT_ID_PARAMETER));
+        importJobDTO.setStatus(jobExecution.getStatus().name());
+        importJobDTO.setTotalFiles(jobExecution.getJobParameters().getLong(IMPORT_PROTOCOL_FILES_PARAMETER).intValue());
+
+        List<Long> protocolIds = new ArrayList<>();
+        for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+            importJobDTO.setFilesDone(importJobDTO.getFilesDone() + stepExecution.getWriteCount());
+            importJobDTO.setFilesFailed(importJobDTO.getFilesFailed() + stepExecution.getSkipCount());
+            ExecutionContext context = stepExecution.getExecutionContext();
+            importJobDTO.setPagesCreated(importJobDTO.getPagesCreated() + context.getLong(IMPORT_PROTOCOL_PAGES_KEY, 0));
+            if (context.containsKey(IMPORT_PROTOCOL_IDS_KEY)) {
+                protocolIds.addAll((List<Long>) context.get(IMPORT_PROTOCOL_IDS_KEY));
+            }
+        }
+        importJobDTO.setProtocolIds(protocolIds);
+
+        if (jobExecution.getStartTime() != null) {
+            importJobDTO.setStartTime(jobExecution.getStartTime().toInstant());
+            Date endTime = jobExecution.getEndTime() == null ? new Date() : jobExecution.getEndTime();
+            importJobDTO.setEndTime(jobExecution.getEndTime() == null ? null : endTime.toInstant());
+            double seconds = (endTime.getTime() - jobExecution.getStartTime().getTime()) / 1000.0;
+            if (seconds > 0) {
+                importJobDTO.setFilesPerSecond(
+                    (importJobDTO.getFilesDone() + importJobDTO.getFilesFailed()) / seconds
+                );
+                importJobDTO.setPagesPerSecond(importJobDTO.getPagesCreated() / seconds);
+            }
+        }
+        return importJobDTO;
+    }
+
+    /**
+     * Run an import, collecting the saved protocols into its summary.
+     *
+     * @param importer import to run, given the consumer of the results of
+     *                 each file and returning the summary.
+     * @return {@link BulkImportResultDTO} import summary, with the saved
+     * protocols.
+     */
+    private BulkImportResultDTO<ProtocolDTO> collectImport(
+        Function<Consumer<ImportFileResultDTO<ProtocolDTO>>, BulkImportResultDTO<ProtocolDTO>> importer
+    ) {
+        List<ProtocolDTO> saved = new ArrayList<>();
+        BulkImportResultDTO<ProtocolDTO> importResult = importer.apply(result -> saved.addAll(result.getData()));
+        importResult.setData(saved);
+        return importResult;
+    }
+
+    /**
+     * Files to import from uploaded files.
+     *
+     * @param type  type of protocols being uploaded.
+     * @param files {@link MultipartFile} the multipart files.
+     * @return the files to import.
+     */
+    private Iterator<ImportFile> uploadFiles(String type, MultipartFile[] files) {
+        return Arrays.stream(files)
+            .map(file -> new ImportFile(uploadFilename(file), () -> parseUpload(type, file)))
+            .iterator();
+    }
+
+    /**
+     * Import the protocols in a ZIP archive of protocol files, reading it as
+     * a stream (see {@link #importFiles(Long, Iterator, Consumer)}). Only the
+     * entries being parsed are kept, so memory use does not grow with the
+     * size of the archive: entries up to {@code ARCHIVE_ENTRY_MEMORY_LENGTH}
+     * bytes are kept in memory, larger ones are spooled to a temporary file,
+     * and those above {@code uploadMaxLength} bytes are invalid (they are not
+     * read past that length). Directories and metadata entries are ignored.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param type      type of protocols in the archive.
+     * @param archive   {@link InputStream} the ZIP archive.
+     * @param listener  consumer of the result of each file.
+     * @return {@link BulkImportResultDTO} import summary (without data).
+     */
+    private BulkImportResultDTO<ProtocolDTO> importArchiveFiles(
+        Long projectId, String type, InputStream archive, Consumer<ImportFileResultDTO<ProtocolDTO>> listener
+    ) {
+        ZipInputStream zip = new ZipInputStream(archive);
+        Iterator<ImportFile> importFiles = new Iterator<ImportFile>() {
+
+            private ZipEntry entry;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (entry == null) {
+                        entry = zip.getNextEntry();
+                        if (entry == null) {
+                            return false;
+                        }
+                        if (entry.isDirectory() || entry.getName().startsWith(ARCHIVE_METADATA_DIRECTORY)) {
+                            entry = null;
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public ImportFile next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String name = entry.getName();
+                entry = null;
+                try {
+                    return readArchiveEntry(type, name, zip);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        try {
+            return importFiles(projectId, importFiles, listener);
+        } catch (UncheckedIOException e) {
+            log.warn("Could not read archive imported in project {}", projectId, e);
+            throw new ServiceException(
+                EntityNames.PROTOCOL,
+                ErrorKeys.ERR_READ_IMPORT,
+                "Could not read imported archive."
+            );
+        }
+    }
+
+    /**
+     * Read the current entry of a ZIP archive into a file to import, in
+     * memory if it is small, or spooled to a temporary file (deleted once
+     * parsed or discarded) otherwise. Entries above {@code uploadMaxLength}
+     * bytes are read only up to that length, and fail to parse.
+     *
+     * @param type type of protocols in the archive.
+     * @param name name of the entry.
+     * @param zip  the archive, positioned at the entry.
+     * @return the file to import.
+     * @throws IOException if the entry cannot be read or spooled.
+     */
+    private ImportFile readArchiveEntry(String type, String name, ZipInputStream zip) throws IOException {
+        long maxLength = properties.getImporting().getUploadMaxLength();
+
+        byte[] head = IOUtils.toByteArray(new BoundedInputStream(zip, ARCHIVE_ENTRY_MEMORY_LENGTH + 1));
+        if (head.length > maxLength) {
+            return tooLargeArchiveEntry(name, maxLength);
+        }
+        if (head.length <= ARCHIVE_ENTRY_MEMORY_LENGTH) {
+            return new ImportFile(name, () -> parseProtocol(type, name, new ByteArrayInputStream(head)));
+        }
+
+        Path directory = Files.createDirectories(Paths.get(
+            properties.getImporting().getPath(), IMPORT_UPLOADS_DIRECTORY, ARCHIVE_ENTRIES_DIRECTORY
+        ));
+        Path spooled = Files.createTempFile(directory, "entry", ".tmp");
+        long length;
+        try (OutputStream out = Files.newOutputStream(spooled)) {
+            out.write(head);
+            length = head.length + IOUtils.copyLarge(new BoundedInputStream(zip, maxLength + 1 - head.length), out);
+        } catch (IOException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+        if (length > maxLength) {
+            Files.deleteIfExists(spooled);
+            return tooLargeArchiveEntry(name, maxLength);
+        }
+        return new ImportFile(name, () -> {
+            try (InputStream in = Files.newInputStream(spooled)) {
+                return parseProtocol(type, name, in);
+            } finally {
+                Files.deleteIfExists(spooled);
+            }
+        }, spooled);
+    }
+
+    private ImportFile tooLargeArchiveEntry(String name, long maxLength) {
+        log.warn("Archive entry {} is above {} bytes", name, maxLength);
+        return new ImportFile(name, () -> {
+            throw new IOException("Archive entry " + name + " is above " + maxLength + " bytes");
+        });
+    }
+
+    /**
+     * Import protocol files. Files are parsed in parallel on the import
+     * executor, with at most {@code queueCapacity} files parsed or waiting
+     * to be saved at a time, and saved in file order in transactions of
+     * about {@code batchSize} pages (see {@link ApplicationProperties.Importing}).
+     * A file that cannot be parsed, or that belongs to a batch that cannot
+     * be saved, is counted (and listed) as invalid. The result of each file
+     * is reported as soon as it is known, and not kept afterwards.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param files     files to import, taken only as parsing capacity is
+     *                  available.
+     * @param listener  consumer of the result of each file.
+     * @return {@link BulkImportResultDTO} import summary (without data).
+     */
+    private BulkImportResultDTO<ProtocolDTO> importFiles(
+        Long projectId, Iterator<ImportFile> files, Consumer<ImportFileResultDTO<ProtocolDTO>> listener
+    ) {
+        BulkImportResultDTO<ProtocolDTO> importResult = new BulkImportResultDTO<>();
+
+        long startTime = new Date().getTime();
+
+        int queueCapacity = Math.max(1, properties.getImporting().getQueueCapacity());
+        int batchSize = Math.max(1, properties.getImporting().getBatchSize());
+
+        Deque<ImportFile> parsing = new ArrayDeque<>(queueCapacity);
+        List<ImportFile> batch = new ArrayList<>();
+        int batchPages = 0;
+        int total = 0;
+        try {
+            while (!parsing.isEmpty() || files.hasNext()) {
+                if (parsing.size() < queueCapacity && files.hasNext()) {
+                    ImportFile file = files.next();
+                    file.parsing = importExecutor.submit(file.parser);
+                    parsing.add(file);
+                    total++;
+                    continue;
+                }
+                ImportFile file = parsing.remove();
+                try {
+                    file.pages = file.parsing.get();
+                    batchPages += file.pages.size();
+                } catch (ExecutionException e) {
+                    importResult.getInvalidFiles().add(file.name);
+                    listener.accept(ImportFileResultDTO.invalid(file.name));
+                    continue;
+                }
+                batch.add(file);
+                if (batchPages >= batchSize) {
+                    saveImportBatch(projectId, batch, listener, importResult.getInvalidFiles());
+                    batch.clear();
+                    batchPages = 0;
+                }
+            }
+            if (!batch.isEmpty()) {
+                saveImportBatch(projectId, batch, listener, importResult.getInvalidFiles());
+            }
+        } catch (InterruptedException e) {
+            parsing.forEach(ImportFile::discard);
+            Thread.currentThread().interrupt();
+            throw new ServiceException(
+                EntityNames.PROTOCOL,
+                ErrorKeys.ERR_READ_IMPORT,
+                "Import was interrupted."
+            );
+        } catch (RuntimeException e) {
+            parsing.forEach(ImportFile::discard);
+            throw e;
+        }
+
+        importResult.setTotal(total);
+        importResult.setProcessingTime(new Date().getTime() - startTime);
+        importResult.setInvalid(importResult.getInvalidFiles().size());
+
+        return importResult;
+    }
+
+    /**
+     * Save the pages of a batch of imported files in one transaction.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param batch     parsed files.
+     * @param listener  consumer of the result of each file.
+     * @param invalid   list to which the names of files that could not be
+     *                  saved are added.
+     */
+    private void saveImportBatch(
+        Long projectId, List<ImportFile> batch,
+        Consumer<ImportFileResultDTO<ProtocolDTO>> listener, List<String> invalid
+    ) {
+        List<Page> pages = new ArrayList<>();
+        for (ImportFile file : batch) {
+            pages.addAll(file.pages);
+        }
+        List<ProtocolDTO> saved;
+        try {
+            saved = transactionTemplate.execute(status -> importPages(projectId, pages));
+        } catch (RuntimeException e) {
+            log.warn("Could not save {} imported files in project {}", batch.size(), projectId, e);
+            for (ImportFile file : batch) {
+                invalid.add(file.name);
+                listener.accept(ImportFileResultDTO.invalid(file.name));
+            }
+            return;
+        }
+        // pages are saved in file order
+        int from = 0;
+        for (ImportFile file : batch) {
+            int to = from + file.pages.size();
+            listener.accept(ImportFileResultDTO.valid(file.name, new ArrayList<>(saved.subList(from, to))));
+            from = to;
+        }
+    }
+
+    /**
+     * Get {@link Format} format from {@link String} string.
+     *
+     * @param str format string.
+     * @return {@link Format} format or null
+     */
+    private Format formatFromString(String str) {
+        if (str == null) {
+            return null;
+        }
+        try {
+            return Format.valueOf(str.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A file to import, as it goes through parsing.
+     */
+    private static class ImportFile {
+
+        private final String name;
+        private final Callable<List<Page>> parser;
+        private final Path spooled;
+
+        private Future<List<Page>> parsing;
+        private List<Page> pages;
+
+        ImportFile(String name, Callable<List<Page>> parser) {
+            this(name, parser, null);
+        }
+
+        ImportFile(String name, Callable<List<Page>> parser, Path spooled) {
+            this.name = name;
+            this.parser = parser;
+            this.spooled = spooled;
+        }
+
+        /**
+         * Cancel the parsing of this file, deleting its spooled content (if
+         * any), as it may never run.
+         */
+        void discard() {
+            parsing.cancel(true);
+            if (spooled != null) {
+                try {
+                    Files.deleteIfExists(spooled);
+                } catch (IOException e) {
+                    // ignore errors
+                }
+            }
+        }
+    }
+}
@@ -1,36 +1,62 @@
 package pt.up.hs.sampling.service.impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.zalando.problem.Status;
 import pt.up.hs.sampling.config.ApplicationProperties;
 import pt.up.hs.sampling.constants.EntityNames;
 import pt.up.hs.sampling.constants.ErrorKeys;
+import pt.up.hs.sampling.constants.MediaTypes;
 import pt.up.hs.sampling.domain.Protocol;
 import pt.up.hs.sampling.domain.ProtocolData;
+import pt.up.hs.sampling.domain.ProtocolStrokeData;
+import pt.up.hs.sampling.domain.ProtocolStrokeSegment;
+import pt.up.hs.sampling.domain.ProtocolSummary;
+import pt.up.hs.sampling.domain.codec.StrokeCodec;
+import pt.up.hs.sampling.domain.codec.StrokeHash;
+import pt.up.hs.sampling.domain.codec.StrokeIndex;
+import pt.up.hs.sampling.domain.codec.StrokePyramid;
+import pt.up.hs.sampling.domain.codec.StrokeSpatialIndex;
+import pt.up.hs.sampling.domain.pojo.Stroke;
 import pt.up.hs.sampling.processing.cloner.ProtocolClonerJobLauncher;
-import pt.up.hs.sampling.processing.preview.BatchProtocolPreviewGenerationJobLauncher;
+import pt.up.hs.sampling.processing.preview.ProtocolPreviewQueue;
+import pt.up.hs.sampling.processing.preview.ProtocolPreviewRenderer;
+import pt.up.hs.sampling.processing.preview.ProtocolPreviewRenditionCache;
 import pt.up.hs.sampling.repository.ProtocolDataRepository;
 import pt.up.hs.sampling.repository.ProtocolRepository;
+import pt.up.hs.sampling.repository.ProtocolStrokeDataRepository;
+import pt.up.hs.sampling.repository.ProtocolStrokeSegmentRepository;
 import pt.up.hs.sampling.service.ProtocolService;
-import pt.up.hs.sampling.service.dto.BulkImportResultDTO;
 import pt.up.hs.sampling.service.dto.ProtocolDTO;
 import pt.up.hs.sampling.service.dto.ProtocolDataDTO;
+import pt.up.hs.sampling.service.dto.StrokeMatchDTO;
+import pt.up.hs.sampling.service.dto.StrokeSelection;
 import pt.up.hs.sampling.service.exceptions.ServiceException;
 import pt.up.hs.sampling.service.mapper.ProtocolDataMapper;
 import pt.up.hs.sampling.service.mapper.ProtocolMapper;
 import pt.up.hs.sampling.service.mapper.UhcPageMapper;
-import pt.up.hs.uhc.UniversalHandwritingConverter;
-import pt.up.hs.uhc.models.Format;
+import pt.up.hs.uhc.models.Page;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 /**
@@ -50,30 +76,48 @@ public class ProtocolServiceImpl implements ProtocolService {
     private final ProtocolDataRepository protocolDataRepository;
     private final ProtocolDataMapper protocolDataMapper;
 
+    private final ProtocolStrokeDataRepository protocolStrokeDataRepository;
+    private final ProtocolStrokeSegmentRepository protocolStrokeSegmentRepository;
+
     private final UhcPageMapper uhcPageMapper;
 
-    private final BatchProtocolPreviewGenerationJobLauncher previewGenerationJobLauncher;
+    private final ProtocolPreviewQueue previewQueue;
+    private final ProtocolPreviewRenderer previewRenderer;
+    private final ProtocolPreviewRenditionCache previewRenditionCache;
 
     private final ProtocolClonerJobLauncher protocolClonerJobLauncher;
 
+    private final ObjectMapper objectMapper;
+    private final CBORFactory cborFactory = new CBORFactory();
+
     public ProtocolServiceImpl(
         ApplicationProperties properties,
         ProtocolRepository protocolRepository,
         ProtocolMapper protocolMapper,
         ProtocolDataRepository protocolDataRepository,
         ProtocolDataMapper protocolDataMapper,
+        ProtocolStrokeDataRepository protocolStrokeDataRepository,
+        ProtocolStrokeSegmentRepository protocolStrokeSegmentRepository,
         UhcPageMapper uhcPageMapper,
-        BatchProtocolPreviewGenerationJobLauncher previewGenerationJobLauncher,
-        ProtocolClonerJobLauncher protocolClonerJobLauncher
+        ProtocolPreviewQueue previewQueue,
+        ProtocolPreviewRenderer previewRenderer,
+        ProtocolPreviewRenditionCache previewRenditionCache,
+        ProtocolClonerJobLauncher protocolClonerJobLauncher,
+        ObjectMapper objectMapper
     ) {
         this.properties = properties;
         this.protocolRepository = protocolRepository;
         this.protocolMapper = protocolMapper;
         this.protocolDataRepository = protocolDataRepository;
         this.protocolDataMapper = protocolDataMapper;
+        this.protocolStrokeDataRepository = protocolStrokeDataRepository;
+        this.protocolStrokeSegmentRepository = protocolStrokeSegmentRepository;
         this.uhcPageMapper = uhcPageMapper;
-        this.previewGenerationJobLauncher = previewGenerationJobLauncher;
+        this.previewQueue = previewQueue;
+        this.previewRenderer = previewRenderer;
+        this.previewRenditionCache = previewRenditionCache;
         this.protocolClonerJobLauncher = protocolClonerJobLauncher;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -87,6 +131,12 @@ public class ProtocolServiceImpl implements ProtocolService {
         log.debug("Request to save Protocol {} in project {}", protocolDTO, projectId);
         protocolDTO.setProjectId(projectId);
         Protocol protocol = protocolMapper.toEntity(protocolDTO);
+        if (protocol.getId() != null) {
+            // summary and hash are derived from the data, so they are kept as they are
+            Optional<Protocol> existing = protocolRepository.findById(protocol.getId());
+            protocol.setSummary(existing.map(Protocol::getSummary).orElse(null));
+            protocol.setContentHash(existing.map(Protocol::getContentHash).orElse(null));
+        }
         protocol = protocolRepository.save(protocol);
         return protocolMapper.toDto(protocol);
     }
@@ -112,15 +162,82 @@ public class ProtocolServiceImpl implements ProtocolService {
             }
             protocol = optProtocol.get();
         } else {
-            protocol = new Protocol().projectId(projectId);
+            protocol = protocolRepository.save(new Protocol().projectId(projectId));
         }
-        ProtocolData pd = protocolDataMapper.toEntity(pdDTO);
-        pd.setProtocol(protocol);
-        pd = protocolDataRepository.save(pd);
-        previewGenerationJobLauncher.newExecution();
+        ProtocolData pd = saveProtocolData(protocol, pdDTO);
+        previewQueue.enqueue(pd.getProtocolId());
         return protocolMapper.toDto(pd.getProtocol());
     }
 
+    /**
+     * Append strokes to a protocol data. The strokes are stored in a new
+     * segment, after merging the trailing segments that are not larger than
+     * it (as in a binary counter), so that a protocol has O(log n) segments
+     * and each stroke is rewritten O(log n) times, regardless of the number
+     * of appends. Appends to the same protocol are serialized.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param id        the id of the protocol.
+     * @param strokes   the strokes to append.
+     */
+    @Override
+    public void appendStrokes(Long projectId, Long id, List<Stroke> strokes) {
+        log.debug("Request to append {} strokes to Protocol {} in project {}",
+            strokes == null ? 0 : strokes.size(), id, projectId);
+        ProtocolData pd = protocolDataRepository
+            .findForUpdateByProjectIdAndProtocolId(projectId, id)
+            .orElseThrow(() -> new ServiceException(
+                Status.NOT_FOUND, EntityNames.PROTOCOL_DATA, ErrorKeys.ERR_NOT_FOUND,
+                "Protocol data not found"
+            ));
+        if (strokes == null || strokes.isEmpty()) {
+            return;
+        }
+        if (!protocolStrokeDataRepository.existsById(id)) {
+            protocolStrokeDataRepository.save(new ProtocolStrokeData().protocolData(pd).strokes(new ArrayList<>()));
+        }
+
+        List<ProtocolStrokeSegmentRepository.SegmentInfo> segments =
+            protocolStrokeSegmentRepository.findInfoByProtocolId(id);
+        int seq = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).getSeq() + 1;
+        int count = strokes.size();
+        int first = segments.size();
+        while (first > 0 && segments.get(first - 1).getStrokeCount() <= count) {
+            first--;
+            count += segments.get(first).getStrokeCount();
+        }
+
+        List<Stroke> segmentStrokes = strokes;
+        if (first < segments.size()) {
+            List<Long> mergedIds = segments.subList(first, segments.size()).stream()
+                .map(ProtocolStrokeSegmentRepository.SegmentInfo::getId)
+                .collect(Collectors.toList());
+            segmentStrokes = new ArrayList<>(count);
+            List<ProtocolStrokeSegment> merged = protocolStrokeSegmentRepository.findAllById(mergedIds);
+            merged.sort(Comparator.comparing(ProtocolStrokeSegment::getSeq));
+            for (ProtocolStrokeSegment segment : merged) {
+                segmentStrokes.addAll(segment.getStrokes());
+            }
+            segmentStrokes.addAll(strokes);
+            protocolStrokeSegmentRepository.deleteAllByIdIn(mergedIds);
+        }
+        protocolStrokeSegmentRepository.save(new ProtocolStrokeSegment()
+            .strokeData(protocolStrokeDataRepository.getOne(id))
+            .seq(seq)
+            .strokes(segmentStrokes));
+
+        Protocol protocol = pd.getProtocol();
+        protocol.setSummary((protocol.getSummary() == null ? new ProtocolSummary() : protocol.getSummary())
+            .add(strokes));
+        // the strokes no longer match those imported
+        protocol.setContentHash(null);
+
+        // marked even if already outdated, as its preview may be being
+        // generated from the strokes before these
+        markDirtyPreview(pd);
+        previewQueue.enqueue(pd.getProtocolId());
+    }
+
     /**
      * Get all the protocols.
      *
@@ -165,7 +282,139 @@ public class ProtocolServiceImpl implements ProtocolService {
         log.debug("Request to get Protocol {}'s data in project {}", id, projectId);
         Optional<ProtocolData> pd = protocolDataRepository
             .findByProtocolProjectIdAndProtocolId(projectId, id);
-        return pd.map(protocolDataMapper::toDto);
+        return pd.map(data -> protocolDataMapper.toDto(
+            data,
+            protocolStrokeDataRepository.findById(data.getProtocolId()).orElse(null)
+        ));
+    }
+
+    /**
+     * Get the "id" protocol's data as a stream of JSON or, if requested,
+     * of CBOR with the strokes as stored. Levels of detail are only read
+     * from the stored pyramids (of the saved strokes and of each appended
+     * segment).
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param id        the id of the entity.
+     * @param mediaType the media type to write.
+     * @param selection the strokes to include.
+     * @param lod       level of detail (0 for full resolution).
+     * @return the body writing the entity data.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<StreamingResponseBody> streamOneData(
+        Long projectId, Long id, MediaType mediaType, StrokeSelection selection, int lod
+    ) {
+        log.debug("Request to stream Protocol {}'s data in project {} ({}, lod {})", id, projectId, selection, lod);
+        Optional<ProtocolData> pd = protocolDataRepository
+            .findByProtocolProjectIdAndProtocolId(projectId, id);
+        return pd.map(data -> {
+            ProtocolDataDTO pdDTO = protocolDataMapper.toDto(data);
+            List<byte[]> parts = new ArrayList<>();
+            List<StrokeIndex> indexes = new ArrayList<>();
+            if (lod > 0) {
+                for (ProtocolStrokeDataRepository.EncodedStrokeLods part : loadEncodedStrokeLods(data.getProtocolId())) {
+                    byte[] level = StrokePyramid.level(part.getStrokeLods(), lod);
+                    parts.add(level);
+                    indexes.add(timeIndex(part.getStrokeIndex(), level));
+                }
+            } else {
+                for (ProtocolStrokeDataRepository.EncodedStrokes part : loadEncodedStrokes(data.getProtocolId())) {
+                    parts.add(part.getStrokes());
+                    indexes.add(timeIndex(part.getStrokeIndex(), part.getStrokes()));
+                }
+            }
+            BitSet selected = selection.isAll() ? null : selection.select(StrokeIndex.concat(indexes));
+            boolean binary = MediaTypes.PROTOCOL_DATA_CBOR.isCompatibleWith(mediaType);
+            return out -> writeData(out, pdDTO, parts, selected, binary);
+        });
+    }
+
+    /**
+     * Get the strokes of the "id" protocol that intersect a box. Candidates
+     * are taken from the spatial indexes (of the saved strokes and of each
+     * appended segment) and only those are decoded.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param id        the id of the entity.
+     * @param minX      minimum x coordinate.
+     * @param minY      minimum y coordinate.
+     * @param maxX      maximum x coordinate.
+     * @param maxY      maximum y coordinate.
+     * @return the matched strokes.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<List<StrokeMatchDTO>> findStrokesInBox(
+        Long projectId, Long id, double minX, double minY, double maxX, double maxY
+    ) {
+        log.debug("Request to get strokes of Protocol {} in project {} within box [{}, {}, {}, {}]",
+            id, projectId, minX, minY, maxX, maxY);
+        return findEncodedStrokes(projectId, id).map(parts -> {
+            List<StrokeMatchDTO> matches = new ArrayList<>();
+            int offset = 0;
+            for (ProtocolStrokeDataRepository.EncodedStrokes part : parts) {
+                BitSet candidates = spatialIndex(part).search(minX, minY, maxX, maxY);
+                StrokeCodec.StrokeIterator it = StrokeCodec.iterate(part.getStrokes());
+                for (int i = 0; it.hasNext() && candidates.nextSetBit(i) >= 0; i++) {
+                    if (!candidates.get(i)) {
+                        it.skip();
+                        continue;
+                    }
+                    Stroke stroke = it.next();
+                    if (StrokeSpatialIndex.intersects(stroke.getDots(), minX, minY, maxX, maxY)) {
+                        matches.add(new StrokeMatchDTO(offset + i, null, stroke));
+                    }
+                }
+                offset += it.count();
+            }
+            return matches;
+        });
+    }
+
+    /**
+     * Get the strokes of the "id" protocol that pass within a distance of a
+     * point. Candidates are taken from the spatial indexes (of the saved
+     * strokes and of each appended segment) and only those are decoded.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param id        the id of the entity.
+     * @param x         x coordinate of the point.
+     * @param y         y coordinate of the point.
+     * @param tolerance maximum distance to the point.
+     * @return the matched strokes.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<List<StrokeMatchDTO>> findStrokesAtPoint(
+        Long projectId, Long id, double x, double y, double tolerance
+    ) {
+        log.debug("Request to get strokes of Protocol {} in project {} at ({}, {}) +/- {}",
+            id, projectId, x, y, tolerance);
+        return findEncodedStrokes(projectId, id).map(parts -> {
+            List<StrokeMatchDTO> matches = new ArrayList<>();
+            int offset = 0;
+            for (ProtocolStrokeDataRepository.EncodedStrokes part : parts) {
+                BitSet candidates = spatialIndex(part)
+                    .search(x - tolerance, y - tolerance, x + tolerance, y + tolerance);
+                StrokeCodec.StrokeIterator it = StrokeCodec.iterate(part.getStrokes());
+                for (int i = 0; it.hasNext() && candidates.nextSetBit(i) >= 0; i++) {
+                    if (!candidates.get(i)) {
+                        it.skip();
+                        continue;
+                    }
+                    Stroke stroke = it.next();
+                    double distance = StrokeSpatialIndex.distance(stroke.getDots(), x, y);
+                    if (distance <= tolerance) {
+                        matches.add(new StrokeMatchDTO(offset + i, distance, stroke));
+                    }
+                }
+                offset += it.count();
+            }
+            matches.sort(Comparator.comparingDouble(StrokeMatchDTO::getDistance));
+            return matches;
+        });
     }
 
     /**
@@ -177,9 +426,10 @@ public class ProtocolServiceImpl implements ProtocolService {
     @Override
     public void delete(Long projectId, Long id) {
         log.debug("Request to delete Protocol {} in project {}", id, projectId);
-        if (protocolDataRepository.existsById(id)) {
-            protocolDataRepository.deleteById(id);
-        }
+        List<Long> ids = Collections.singletonList(id);
+        protocolStrokeSegmentRepository.deleteAllByProjectIdAndProtocolIdIn(projectId, ids);
+        protocolStrokeDataRepository.deleteAllByProjectIdAndProtocolIdIn(projectId, ids);
+        protocolDataRepository.deleteAllByProjectIdAndProtocolIdIn(projectId, ids);
         protocolRepository.deleteByProjectIdAndId(projectId, id);
         try {
             Files.deleteIfExists(Paths.get(
@@ -191,6 +441,7 @@ public class ProtocolServiceImpl implements ProtocolService {
             log.error("Failed to delete protocol preview", e);
             // ignore errors
         }
+        previewRenditionCache.evict(projectId, id);
     }
 
     /**
@@ -202,7 +453,9 @@ public class ProtocolServiceImpl implements ProtocolService {
     @Override
     public void deleteMany(Long projectId, Long[] ids) {
         log.debug("Request to delete all protocols {} in project {}", ids, projectId);
-        protocolDataRepository.deleteAllByProtocolIdIn(Arrays.asList(ids));
+        protocolStrokeSegmentRepository.deleteAllByProjectIdAndProtocolIdIn(projectId, Arrays.asList(ids));
+        protocolStrokeDataRepository.deleteAllByProjectIdAndProtocolIdIn(projectId, Arrays.asList(ids));
+        protocolDataRepository.deleteAllByProjectIdAndProtocolIdIn(projectId, Arrays.asList(ids));
         protocolRepository.deleteAllByProjectIdAndIdIn(projectId, Arrays.asList(ids));
         for (Long id : ids) {
             try {
@@ -215,49 +468,10 @@ public class ProtocolServiceImpl implements ProtocolService {
                 log.error("Failed to delete protocol preview", e);
                 // ignore errors
             }
+            previewRenditionCache.evict(projectId, id);
         }
     }
 
-    /**
-     * Upload and import protocols in bulk.
-     *
-     * @param projectId ID of the project to which this protocol belongs.
-     * @param type      type of protocols being uploaded.
-     * @param files     {@link MultipartFile} the multipart files.
-     * @return {@link BulkImportResultDTO} upload summary.
-     */
-    @Override
-    public BulkImportResultDTO<ProtocolDTO> bulkImportProtocols(
-        Long projectId, String type, MultipartFile[] files
-    ) {
-        log.debug("Request to bulk import Protocols in project {}", projectId);
-        BulkImportResultDTO<ProtocolDTO> importResult = new BulkImportResultDTO<>();
-        importResult.setTotal(files.length);
-
-        long startTime = new Date().getTime();
-
-        List<ProtocolDTO> savedProtocolDTOs = new ArrayList<>();
-        int invalid = 0;
-        for (MultipartFile file : files) {
-            List<ProtocolDTO> protocolDTOs;
-            try {
-                protocolDTOs = importProtocol(projectId, type, file);
-            } catch (Exception e) {
-                invalid++;
-                continue;
-            }
-            savedProtocolDTOs.addAll(protocolDTOs);
-        }
-
-        previewGenerationJobLauncher.newExecution();
-
-        importResult.setProcessingTime(new Date().getTime() - startTime);
-        importResult.setInvalid(invalid);
-        importResult.setData(savedProtocolDTOs);
-
-        return importResult;
-    }
-
     @Override
     public Optional<byte[]> getPreview(Long projectId, Long id) {
         log.debug("Request to get preview for Protocol {} in project {}", id, projectId);
@@ -281,6 +495,79 @@ public class ProtocolServiceImpl implements ProtocolService {
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<byte[]> getPreview(Long projectId, Long id, Integer width, Integer height, Integer dpi) {
+        log.debug("Request to get preview for Protocol {} in project {} ({}x{} at {} dpi)",
+            id, projectId, width, height, dpi);
+
+        if (width == null && height == null && dpi == null) {
+            return getPreview(projectId, id);
+        }
+
+        Optional<ProtocolData> pdOpt = protocolDataRepository
+            .findByProtocolProjectIdAndProtocolId(projectId, id);
+        if (!pdOpt.isPresent()) {
+            return Optional.empty();
+        }
+        ProtocolData pd = pdOpt.get();
+
+        int renditionWidth = ProtocolPreviewRenditionCache.renditionWidth(
+            pd.getWidth(), pd.getHeight(), width, height, dpi);
+        // square, if the page has no size
+        int renditionHeight = pd.getWidth() > 0 && pd.getHeight() > 0
+            ? (int) Math.max(1, Math.round(renditionWidth * pd.getHeight() / pd.getWidth()))
+            : renditionWidth;
+        Callable<byte[]> render = () -> {
+            Page page = uhcPageMapper.protocolDataToUhcPage(
+                pd,
+                protocolStrokeDataRepository.findById(id).orElse(null)
+            );
+            try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+                previewRenderer.render(page, renditionWidth, renditionHeight, baos);
+                return baos.toByteArray();
+            }
+        };
+
+        try {
+            // outdated previews are rendered as they are now, but not kept
+            // (concurrent requests for the same version waiting for one render)
+            if (pd.isDirtyPreview()) {
+                return Optional.of(previewRenditionCache.render(
+                    projectId, id, renditionWidth, version(pd), render));
+            }
+            Path previewPath = Paths.get(
+                properties.getPreview().getPath(),
+                projectId.toString(),
+                id.toString() + ".png"
+            );
+            long generatedAt = Files.exists(previewPath)
+                ? Files.getLastModifiedTime(previewPath).toMillis()
+                : 0;
+            return Optional.of(previewRenditionCache.get(projectId, id, renditionWidth, generatedAt, render));
+        } catch (Exception e) {
+            log.error("Failed to render protocol preview", e);
+            throw new ServiceException(
+                EntityNames.PROTOCOL,
+                ErrorKeys.ERR_READING_PREVIEW,
+                "Failed to render protocol preview."
+            );
+        }
+    }
+
+    /**
+     * Get the version of a protocol, i.e., the time of its last modification
+     * (changes to strokes update the protocol's summary).
+     *
+     * @param pd the protocol data.
+     * @return the version of the protocol.
+     */
+    private static long version(ProtocolData pd) {
+        long version = pd.getLastModifiedDate() == null ? 0 : pd.getLastModifiedDate().toEpochMilli();
+        Instant protocolModified = pd.getProtocol().getLastModifiedDate();
+        return protocolModified == null ? version : Math.max(version, protocolModified.toEpochMilli());
+    }
+
     @Override
     public ProtocolDTO copy(
         Long projectId, Long id,
@@ -314,12 +601,8 @@ public class ProtocolServiceImpl implements ProtocolService {
         protocolDTO = save(toProjectId, protocolDTO);
 
         // protocol data
-        ProtocolData oldProtocolData = protocolDataRepository
-            .findByProtocolProjectIdAndProtocolId(projectId, id)
-            .orElse(null);
-        if (oldProtocolData != null) {
-            ProtocolDataDTO protocolDataDTO = protocolDataMapper
-                .toDto(oldProtocolData);
+        ProtocolDataDTO protocolDataDTO = findOneData(projectId, id).orElse(null);
+        if (protocolDataDTO != null) {
             protocolDataDTO.setProtocolId(protocolDTO.getId());
             saveData(toProjectId, protocolDataDTO);
         }
@@ -361,76 +644,169 @@ public class ProtocolServiceImpl implements ProtocolService {
     /* Helpers */
 
     /**
-     * Upload and import protocols.
+     * Save the data of a protocol, updating the existing rows (if any).
      *
-     * @param projectId ID of the project to which this protocol belongs.
-     * @param type      type of protocol being uploaded.
-     * @param file      {@link MultipartFile} the multipart file.
-     * @return {@link List} uploaded protocols.
+     * @param protocol the (persisted) protocol.
+     * @param pdDTO    the data to save.
+     * @return the persisted protocol data.
      */
-    private List<ProtocolDTO> importProtocol(
-        Long projectId, String type, MultipartFile file
-    ) {
-
-        List<pt.up.hs.uhc.models.Page> pages;
-        try {
-            String filename;
-            if (file.getOriginalFilename() == null) {
-                filename = file.getName();
-            } else {
-                filename = file.getOriginalFilename();
-            }
-            pages = new UniversalHandwritingConverter()
-                .inputFormat(formatFromString(type))
-                .file(filename, file.getInputStream())
-                .normalize(true, 3)
-                .center()
-                .getPages();
-        } catch (IOException e) {
-            throw new ServiceException(
-                EntityNames.PROTOCOL,
-                ErrorKeys.ERR_READ_IMPORT,
-                "Could not process imported file."
-            );
+    private ProtocolData saveProtocolData(Protocol protocol, ProtocolDataDTO pdDTO) {
+        ProtocolStrokeData strokeData = protocolDataMapper.toStrokeData(pdDTO);
+        protocol.setSummary(ProtocolSummary.of(strokeData.getStrokes()));
+        protocol.setContentHash(StrokeHash.of(strokeData.getStrokes()));
+        Optional<ProtocolData> existing = protocolDataRepository.findById(protocol.getId());
+        if (!existing.isPresent()) {
+            ProtocolData pd = protocolDataMapper.toEntity(pdDTO);
+            pd.setProtocol(protocol);
+            pd = protocolDataRepository.save(pd);
+            protocolStrokeDataRepository.save(strokeData.protocolData(pd));
+            return pd;
         }
+        ProtocolData pd = existing.get()
+            .width(pdDTO.getWidth())
+            .height(pdDTO.getHeight())
+            .metadata(pdDTO.getMetadata());
+        markDirtyPreview(pd);
+        protocolStrokeSegmentRepository.deleteAllByProtocolId(pd.getProtocolId());
+        ProtocolStrokeData existingStrokeData = protocolStrokeDataRepository
+            .findById(pd.getProtocolId())
+            .orElseGet(() -> new ProtocolStrokeData().protocolData(pd));
+        existingStrokeData.copyStrokes(strokeData);
+        protocolStrokeDataRepository.save(existingStrokeData);
+        return pd;
+    }
 
-        List<Protocol> protocols = pages.parallelStream()
-            .map(page -> new Protocol().projectId(projectId))
-            .collect(Collectors.toList());
-        protocols = protocolRepository.saveAll(protocols);
-        protocolRepository.flush();
+    /**
+     * Mark the preview of a protocol as dirty, releasing any claim on it, so
+     * that a worker generating it from its previous state does not clean it.
+     *
+     * @param pd the protocol data.
+     */
+    private void markDirtyPreview(ProtocolData pd) {
+        pd.dirtyPreview(true).previewClaimedBy(null).previewClaimedUntil(null);
+        protocolDataRepository.markDirtyPreview(pd.getProtocolId());
+    }
 
-        List<ProtocolData> protocolsData = pages.parallelStream()
-            .map(uhcPageMapper::uhcPageToProtocolData)
-            .collect(Collectors.toList());
+    private Optional<List<ProtocolStrokeDataRepository.EncodedStrokes>> findEncodedStrokes(Long projectId, Long id) {
+        return protocolDataRepository
+            .findByProtocolProjectIdAndProtocolId(projectId, id)
+            .map(data -> loadEncodedStrokes(data.getProtocolId()));
+    }
 
-        for (int i = 0; i < protocolsData.size(); i++) {
-            ProtocolData pd = protocolsData.get(i);
-            pd.setProtocol(protocols.get(i));
+    /**
+     * Get the strokes of a protocol as stored, followed by the strokes of
+     * each appended segment, all with their indexes (stroke positions
+     * relative to each part).
+     *
+     * @param protocolId ID of the protocol.
+     * @return the encoded parts, in order (empty if there are no strokes).
+     */
+    private List<ProtocolStrokeDataRepository.EncodedStrokes> loadEncodedStrokes(Long protocolId) {
+        Optional<ProtocolStrokeDataRepository.EncodedStrokes> encoded = protocolStrokeDataRepository
+            .findEncodedStrokesByProtocolId(protocolId);
+        if (!encoded.isPresent() || encoded.get().getStrokes() == null) {
+            return Collections.emptyList();
         }
+        List<ProtocolStrokeDataRepository.EncodedStrokes> parts = new ArrayList<>();
+        parts.add(encoded.get());
+        parts.addAll(protocolStrokeSegmentRepository.findEncodedByProtocolId(protocolId));
+        return parts;
+    }
 
-        protocolDataRepository.bulkSave(protocolsData);
-        protocolDataRepository.flush();
+    /**
+     * Get the levels of detail of the strokes of a protocol as stored,
+     * followed by those of each appended segment.
+     *
+     * @param protocolId ID of the protocol.
+     * @return the encoded parts, in order (empty if there are no strokes).
+     */
+    private List<ProtocolStrokeDataRepository.EncodedStrokeLods> loadEncodedStrokeLods(Long protocolId) {
+        Optional<ProtocolStrokeDataRepository.EncodedStrokeLods> encoded = protocolStrokeDataRepository
+            .findEncodedStrokeLodsByProtocolId(protocolId);
+        if (!encoded.isPresent() || encoded.get().getStrokeLods() == null) {
+            return Collections.emptyList();
+        }
+        List<ProtocolStrokeDataRepository.EncodedStrokeLods> parts = new ArrayList<>();
+        parts.add(encoded.get());
+        parts.addAll(protocolStrokeSegmentRepository.findEncodedLodsByProtocolId(protocolId));
+        return parts;
+    }
 
-        return protocols.parallelStream()
-            .map(protocolMapper::toDto)
-            .collect(Collectors.toList());
+    private static StrokeIndex timeIndex(byte[] index, byte[] strokes) {
+        return index != null
+            ? StrokeIndex.decode(index)
+            : StrokeIndex.of(StrokeCodec.decode(strokes));
+    }
+
+    private static StrokeSpatialIndex spatialIndex(ProtocolStrokeDataRepository.EncodedStrokes encoded) {
+        return encoded.getSpatialIndex() != null
+            ? StrokeSpatialIndex.decode(encoded.getSpatialIndex())
+            : StrokeSpatialIndex.of(StrokeCodec.decode(encoded.getStrokes()));
     }
 
     /**
-     * Get {@link Format} format from {@link String} string.
+     * Write the data of a protocol as JSON, decoding each stroke only when
+     * it is written, or as CBOR, copying the encoded strokes as they are.
+     * The strokes are written part after part (saved strokes, then each
+     * appended segment), without joining the parts first.
      *
-     * @param str format string.
-     * @return {@link Format} format or null
+     * @param out      the stream to write to.
+     * @param pdDTO    the data, without strokes.
+     * @param parts    the encoded strokes, in parts.
+     * @param selected indexes of the strokes to write ({@code null} if all).
+     * @param binary   write CBOR instead of JSON?
+     * @throws IOException if it fails to write.
      */
-    private Format formatFromString(String str) {
-        if (str == null) {
-            return null;
+    private void writeData(
+        OutputStream out, ProtocolDataDTO pdDTO, List<byte[]> parts, BitSet selected, boolean binary
+    ) throws IOException {
+        ObjectNode fields = objectMapper.valueToTree(pdDTO);
+        fields.remove("strokes");
+
+        JsonGenerator generator = binary
+            ? cborFactory.createGenerator(out)
+            : objectMapper.getFactory().createGenerator(out);
+        generator.setCodec(objectMapper);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartObject();
+        Iterator<Map.Entry<String, JsonNode>> it = fields.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> field = it.next();
+            generator.writeFieldName(field.getKey());
+            generator.writeTree(field.getValue());
         }
-        try {
-            return Format.valueOf(str.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            return null;
+        if (binary) {
+            List<byte[]> written = parts;
+            if (selected != null) {
+                written = new ArrayList<>(parts.size());
+                int offset = 0;
+                for (byte[] part : parts) {
+                    int count = StrokeCodec.iterate(part).count();
+                    written.add(StrokeCodec.slice(part, selected.get(offset, offset + count)));
+                    offset += count;
+                }
+            }
+            generator.writeFieldName("strokes");
+            generator.writeBinary(StrokeCodec.concatStream(written), StrokeCodec.concatLength(written));
+        } else {
+            ObjectWriter strokeWriter = objectMapper.writerFor(Stroke.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            generator.writeArrayFieldStart("strokes");
+            int offset = 0;
+            for (byte[] part : parts) {
+                StrokeCodec.StrokeIterator strokeIt = StrokeCodec.iterate(part);
+                for (int i = offset; strokeIt.hasNext(); i++) {
+                    if (selected == null || selected.get(i)) {
+                        strokeWriter.writeValue(generator, strokeIt.next());
+                    } else {
+                        strokeIt.skip();
+                    }
+                }
+                offset += strokeIt.count();
+            }
+            generator.writeEndArray();
         }
+        generator.writeEndObject();
+        generator.close();
     }
 }
@@ -1,14 +1,17 @@
 package pt.up.hs.sampling.service.impl;
 
-import org.apache.tika.Tika;
-import org.apache.tika.exception.TikaException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.zalando.problem.Status;
 import pt.up.hs.sampling.constants.EntityNames;
 import pt.up.hs.sampling.constants.ErrorKeys;
@@ -16,15 +19,19 @@ import pt.up.hs.sampling.domain.Protocol;
 import pt.up.hs.sampling.domain.Text;
 import pt.up.hs.sampling.processing.cloner.ProtocolClonerJobLauncher;
 import pt.up.hs.sampling.processing.cloner.TextClonerJobLauncher;
+import pt.up.hs.sampling.processing.text.TextExtractor;
 import pt.up.hs.sampling.repository.TextRepository;
 import pt.up.hs.sampling.service.TextService;
 import pt.up.hs.sampling.service.dto.BulkImportResultDTO;
+import pt.up.hs.sampling.service.dto.ImportFileResultDTO;
 import pt.up.hs.sampling.service.dto.TextDTO;
 import pt.up.hs.sampling.service.exceptions.ServiceException;
 import pt.up.hs.sampling.service.mapper.TextMapper;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -40,15 +47,25 @@ public class TextServiceImpl implements TextService {
     private final TextMapper textMapper;
 
     private final TextClonerJobLauncher textClonerJobLauncher;
+    private final TextExtractor textExtractor;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ImportResultsWriter importResultsWriter;
 
     public TextServiceImpl(
         TextRepository textRepository,
         TextMapper textMapper,
-        TextClonerJobLauncher textClonerJobLauncher
+        TextClonerJobLauncher textClonerJobLauncher,
+        TextExtractor textExtractor,
+        PlatformTransactionManager transactionManager,
+        ObjectMapper objectMapper
     ) {
         this.textRepository = textRepository;
         this.textMapper = textMapper;
         this.textClonerJobLauncher = textClonerJobLauncher;
+        this.textExtractor = textExtractor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.importResultsWriter = new ImportResultsWriter(objectMapper);
     }
 
     /**
@@ -156,47 +173,43 @@ public class TextServiceImpl implements TextService {
     }
 
     /**
-     * Upload and import texts in bulk.
+     * Upload and import texts in bulk (see {@link #importTexts(Long, MultipartFile[], Consumer)}).
      *
      * @param projectId ID of the project to which this text belongs.
      * @param files     {@link MultipartFile} the multipart files.
      * @return {@link BulkImportResultDTO} upload summary.
      */
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public BulkImportResultDTO<TextDTO> bulkImportTexts(
         Long projectId, MultipartFile[] files
     ) {
         log.debug("Request to bulk import Texts in project {}", projectId);
-        BulkImportResultDTO<TextDTO> importResult = new BulkImportResultDTO<>();
-        importResult.setTotal(files.length);
-
-        long startTime = new Date().getTime();
-
         List<TextDTO> textDTOs = new ArrayList<>();
-        int invalid = 0;
-        for (MultipartFile file : files) {
-            try {
-                textDTOs.add(parseFileToTextDTO(projectId, file));
-            } catch (Exception e) {
-                log.error("Failed to read text file", e);
-                invalid++;
-            }
-        }
-
-        try {
-            textDTOs = saveAll(projectId, textDTOs);
-        } catch (Exception e) {
-            log.error("Failed to save texts", e);
-            invalid = files.length;
-        }
-
-        importResult.setProcessingTime(new Date().getTime() - startTime);
-        importResult.setInvalid(invalid);
+        BulkImportResultDTO<TextDTO> importResult = importTexts(projectId, files,
+            result -> textDTOs.addAll(result.getData()));
         importResult.setData(textDTOs);
-
         return importResult;
     }
 
+    /**
+     * Upload and import texts in bulk, writing the result of each file as
+     * newline-delimited JSON as soon as it is saved (see
+     * {@link ImportResultsWriter}).
+     *
+     * @param projectId ID of the project to which this text belongs.
+     * @param files     {@link MultipartFile} the multipart files.
+     * @return the body writing the results.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public StreamingResponseBody streamBulkImportTexts(Long projectId, MultipartFile[] files) {
+        log.debug("Request to bulk import Texts in project {} (streaming results)", projectId);
+        return out -> importResultsWriter.<TextDTO>write(out, listener ->
+            importTexts(projectId, files, listener)
+        );
+    }
+
     @Override
     public TextDTO copy(
         Long projectId, Long id,
@@ -259,33 +272,93 @@ public class TextServiceImpl implements TextService {
     /* Helpers */
 
     /**
-     * Parse file to text DTO.
+     * Import texts. The text of the files is extracted in parallel (see
+     * {@link TextExtractor}) and each text is saved in its own transaction
+     * as soon as it is extracted, so a file that fails (e.g., is empty,
+     * unparseable or takes too long) only fails itself. The result of each
+     * file is reported as soon as it is known, and not kept afterwards.
      *
-     * @param projectId ID of the project to which this protocol belongs.
-     * @param file      {@link MultipartFile} the multipart file.
-     * @return {@link TextDTO} text DTO.
+     * @param projectId ID of the project to which the texts belong.
+     * @param files     {@link MultipartFile} the multipart files.
+     * @param listener  consumer of the result of each file.
+     * @return {@link BulkImportResultDTO} import summary (without data).
      */
-    private TextDTO parseFileToTextDTO(Long projectId, MultipartFile file) {
-        String text;
+    private BulkImportResultDTO<TextDTO> importTexts(
+        Long projectId, MultipartFile[] files, Consumer<ImportFileResultDTO<TextDTO>> listener
+    ) {
+        BulkImportResultDTO<TextDTO> importResult = new BulkImportResultDTO<>();
+        importResult.setTotal(files.length);
+
+        long startTime = new Date().getTime();
+
+        List<TextExtractor.Document> documents = Arrays.stream(files)
+            .map(UploadedDocument::new)
+            .collect(Collectors.toList());
+
         try {
-            Tika tika = new Tika();
-            tika.setMaxStringLength(-1);
-            text = tika.parseToString(file.getInputStream()).trim();
-            if (text.isEmpty()) {
-                throw new IOException("Unparseable text.");
-            }
-        } catch (IOException | TikaException e) {
+            textExtractor.extractAll(documents, result -> {
+                if (result.isValid()) {
+                    TextDTO textDTO;
+                    try {
+                        textDTO = transactionTemplate.execute(status ->
+                            saveImportedText(projectId, result.getText())
+                        );
+                    } catch (RuntimeException e) {
+                        log.error("Failed to save text {}", result.getName(), e);
+                        textDTO = null;
+                    }
+                    if (textDTO != null) {
+                        log.debug("Imported text {} in project {}", result.getName(), projectId);
+                        listener.accept(ImportFileResultDTO.valid(
+                            result.getName(), new ArrayList<>(Collections.singletonList(textDTO))
+                        ));
+                        return;
+                    }
+                }
+                importResult.getInvalidFiles().add(result.getName());
+                listener.accept(ImportFileResultDTO.invalid(result.getName()));
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new ServiceException(
                 EntityNames.TEXT,
                 ErrorKeys.ERR_READ_IMPORT,
-                "Could not process imported file."
+                "Interrupted while processing imported files."
             );
         }
 
-        TextDTO textDTO = new TextDTO();
-        textDTO.setProjectId(projectId);
-        textDTO.setText(text);
+        importResult.setProcessingTime(new Date().getTime() - startTime);
+        importResult.setInvalid(importResult.getInvalidFiles().size());
 
-        return textDTO;
+        return importResult;
+    }
+
+    private TextDTO saveImportedText(Long projectId, String text) {
+        Text entity = new Text();
+        entity.setProjectId(projectId);
+        entity.setText(text);
+        return textMapper.toDto(textRepository.save(entity));
+    }
+
+    /**
+     * A {@link MultipartFile} to extract the text from.
+     */
+    private static class UploadedDocument implements TextExtractor.Document {
+
+        private final MultipartFile file;
+
+        UploadedDocument(MultipartFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public String getName() {
+            return file.getOriginalFilename() != null ? file.getOriginalFilename() : file.getName();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return file.getInputStream();
+        }
     }
 }
@@ -4,21 +4,44 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import pt.up.hs.sampling.domain.Protocol;
 import pt.up.hs.sampling.domain.ProtocolData;
+import pt.up.hs.sampling.domain.ProtocolStrokeData;
 import pt.up.hs.sampling.service.dto.ProtocolDataDTO;
 
+import java.util.ArrayList;
+
 /**
  * Mapper for the entity {@link ProtocolData} and its DTO {@link ProtocolDataDTO}.
+ * Strokes are kept in {@link ProtocolStrokeData}.
  */
 @Mapper(componentModel = "spring")
 public interface ProtocolDataMapper extends EntityMapper<ProtocolDataDTO, ProtocolData> {
 
     @Mapping(source = "protocol.id", target = "protocolId")
+    @Mapping(target = "strokes", ignore = true)
     ProtocolDataDTO toDto(ProtocolData pd);
 
     @Mapping(source = "protocolId", target = "protocol.id")
     @Mapping(target = "dirtyPreview", constant = "true")
+    @Mapping(target = "previewClaimedBy", ignore = true)
+    @Mapping(target = "previewClaimedUntil", ignore = true)
     ProtocolData toEntity(ProtocolDataDTO pdDTO);
 
+    default ProtocolDataDTO toDto(ProtocolData pd, ProtocolStrokeData strokeData) {
+        ProtocolDataDTO pdDTO = toDto(pd);
+        if (pdDTO != null && strokeData != null) {
+            pdDTO.setStrokes(strokeData.getAllStrokes());
+        }
+        return pdDTO;
+    }
+
+    default ProtocolStrokeData toStrokeData(ProtocolDataDTO pdDTO) {
+        if (pdDTO == null) {
+            return null;
+        }
+        return new ProtocolStrokeData()
+            .strokes(pdDTO.getStrokes() == null ? new ArrayList<>() : pdDTO.getStrokes());
+    }
+
     default ProtocolData fromId(Long id) {
         if (id == null) {
             return null;
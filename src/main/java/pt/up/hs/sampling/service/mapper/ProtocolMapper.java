@@ -1,6 +1,7 @@
 package pt.up.hs.sampling.service.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import pt.up.hs.sampling.domain.Protocol;
 import pt.up.hs.sampling.service.dto.ProtocolDTO;
 
@@ -10,8 +11,20 @@ import pt.up.hs.sampling.service.dto.ProtocolDTO;
 @Mapper(componentModel = "spring")
 public interface ProtocolMapper extends EntityMapper<ProtocolDTO, Protocol> {
 
+    @Mapping(source = "summary.strokeCount", target = "strokeCount")
+    @Mapping(source = "summary.dotCount", target = "dotCount")
+    @Mapping(source = "summary.startTime", target = "startTime")
+    @Mapping(source = "summary.endTime", target = "endTime")
+    @Mapping(source = "summary.duration", target = "duration")
+    @Mapping(source = "summary.minX", target = "minX")
+    @Mapping(source = "summary.minY", target = "minY")
+    @Mapping(source = "summary.maxX", target = "maxX")
+    @Mapping(source = "summary.maxY", target = "maxY")
+    @Mapping(source = "summary.meanPressure", target = "meanPressure")
     ProtocolDTO toDto(Protocol protocol);
 
+    @Mapping(target = "summary", ignore = true)
+    @Mapping(target = "contentHash", ignore = true)
     Protocol toEntity(ProtocolDTO protocolDTO);
 
     default Protocol fromId(Long id) {
@@ -3,8 +3,7 @@ package pt.up.hs.sampling.service.mapper;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import pt.up.hs.sampling.domain.ProtocolData;
-import pt.up.hs.sampling.service.dto.ProtocolDTO;
-import pt.up.hs.sampling.service.dto.ProtocolDataDTO;
+import pt.up.hs.sampling.domain.ProtocolStrokeData;
 import pt.up.hs.uhc.models.Page;
 
 @Mapper(componentModel = "spring", uses = {UhcStrokeMapper.class})
@@ -16,7 +15,15 @@ public interface UhcPageMapper {
     @Mapping(target = "lastModifiedDate", ignore = true)
     @Mapping(target = "protocol", ignore = true)
     @Mapping(target = "dirtyPreview", constant = "true")
+    @Mapping(target = "previewClaimedBy", ignore = true)
+    @Mapping(target = "previewClaimedUntil", ignore = true)
     ProtocolData uhcPageToProtocolData(Page page);
 
-    Page protocolDataToUhcPage(ProtocolData pd);
+    @Mapping(target = "protocolData", ignore = true)
+    @Mapping(target = "segments", ignore = true)
+    @Mapping(target = "allStrokes", ignore = true)
+    ProtocolStrokeData uhcPageToProtocolStrokeData(Page page);
+
+    @Mapping(target = "strokes", source = "strokeData.allStrokes")
+    Page protocolDataToUhcPage(ProtocolData pd, ProtocolStrokeData strokeData);
 }
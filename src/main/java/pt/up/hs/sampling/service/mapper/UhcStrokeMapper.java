@@ -1,13 +1,60 @@
 package pt.up.hs.sampling.service.mapper;
 
 import org.mapstruct.Mapper;
-import org.mapstruct.Mapping;
+import pt.up.hs.sampling.domain.enumeration.DotType;
 import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.domain.pojo.StrokeBuffer;
 
-@Mapper(componentModel = "spring", uses = {UhcDotMapper.class})
+import java.util.List;
+import java.util.Map;
+
+@Mapper(componentModel = "spring")
 public interface UhcStrokeMapper {
 
     Stroke uhcStrokeToStroke(pt.up.hs.uhc.models.Stroke stroke);
 
-    pt.up.hs.uhc.models.Stroke strokeToUhcStroke(Stroke stroke);
+    /**
+     * Expose a stored stroke as an UHC stroke, without copying its dots (see
+     * {@link UhcStrokeView}).
+     *
+     * @param stroke the stored stroke.
+     * @return the UHC stroke.
+     */
+    default pt.up.hs.uhc.models.Stroke strokeToUhcStroke(Stroke stroke) {
+        if (stroke == null) {
+            return null;
+        }
+        return new UhcStrokeView(stroke);
+    }
+
+    /**
+     * Copy the dots of an UHC stroke straight into a {@link StrokeBuffer}.
+     *
+     * @param dots the UHC dots.
+     * @return the buffer.
+     */
+    default StrokeBuffer uhcDotsToStrokeBuffer(List<pt.up.hs.uhc.models.Dot> dots) {
+        if (dots == null) {
+            return null;
+        }
+        StrokeBuffer buffer = new StrokeBuffer(dots.size());
+        for (pt.up.hs.uhc.models.Dot dot : dots) {
+            Double x = dot.getX();
+            Double y = dot.getY();
+            Long timestamp = dot.getTimestamp();
+            Double pressure = dot.getPressure();
+            buffer.add(
+                x == null ? Double.NaN : x,
+                y == null ? Double.NaN : y,
+                timestamp == null ? StrokeBuffer.NO_TIMESTAMP : timestamp,
+                dot.getType() == null ? null : DotType.valueOf(dot.getType().name()),
+                pressure == null ? Double.NaN : pressure
+            );
+            Map<String, Object> metadata = dot.getMetadata();
+            if (metadata != null) {
+                buffer.setMetadata(buffer.size() - 1, metadata);
+            }
+        }
+        return buffer;
+    }
 }
@@ -0,0 +1,191 @@
+package pt.up.hs.sampling.service.mapper;
+
+import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.domain.pojo.StrokeBuffer;
+import pt.up.hs.uhc.models.Dot;
+import pt.up.hs.uhc.models.DotType;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * UHC stroke backed by a stored {@link Stroke}, so that stored strokes can
+ * be handed to the converter (e.g., to export or preview them) without
+ * copying each dot into a UHC {@link Dot}. Its dots are views of the
+ * {@link StrokeBuffer}, created as they are first accessed, that read the
+ * buffer on each call. A dot that is changed copies its values and leaves
+ * the buffer alone, as stored strokes must never be modified through it.
+ *
+ * @author José Carlos Paiva
+ */
+final class UhcStrokeView extends pt.up.hs.uhc.models.Stroke {
+
+    private static final DotType[] TYPES = new DotType[pt.up.hs.sampling.domain.enumeration.DotType.values().length];
+
+    static {
+        for (pt.up.hs.sampling.domain.enumeration.DotType type : pt.up.hs.sampling.domain.enumeration.DotType.values()) {
+            TYPES[type.ordinal()] = DotType.valueOf(type.name());
+        }
+    }
+
+    private final StrokeBuffer buffer;
+    private List<Dot> dots;
+
+    UhcStrokeView(Stroke stroke) {
+        this.buffer = stroke.getDots();
+        setStartTime(stroke.getStartTime());
+        setEndTime(stroke.getEndTime());
+        setMetadata(stroke.getMetadata());
+    }
+
+    @Override
+    public List<Dot> getDots() {
+        if (dots == null && buffer != null) {
+            dots = new DotList(buffer);
+        }
+        return dots;
+    }
+
+    @Override
+    public void setDots(List<Dot> dots) {
+        this.dots = dots;
+    }
+
+    /**
+     * Dots of a {@link StrokeBuffer}, each created on first access.
+     */
+    private static final class DotList extends AbstractList<Dot> implements RandomAccess {
+
+        private final StrokeBuffer buffer;
+        private final DotView[] views;
+
+        DotList(StrokeBuffer buffer) {
+            this.buffer = buffer;
+            this.views = new DotView[buffer.size()];
+        }
+
+        @Override
+        public Dot get(int index) {
+            DotView view = views[index];
+            if (view == null) {
+                view = new DotView(buffer, index);
+                views[index] = view;
+            }
+            return view;
+        }
+
+        @Override
+        public int size() {
+            return views.length;
+        }
+    }
+
+    /**
+     * A dot of a {@link StrokeBuffer}, read from the buffer until it is
+     * changed (then from the copy in the {@link Dot} fields).
+     */
+    private static final class DotView extends Dot {
+
+        private final StrokeBuffer buffer;
+        private final int index;
+        private boolean detached;
+
+        DotView(StrokeBuffer buffer, int index) {
+            this.buffer = buffer;
+            this.index = index;
+        }
+
+        @Override
+        public Double getX() {
+            return detached ? super.getX() : orNull(buffer.getX(index));
+        }
+
+        @Override
+        public void setX(Double x) {
+            detach();
+            super.setX(x);
+        }
+
+        @Override
+        public Double getY() {
+            return detached ? super.getY() : orNull(buffer.getY(index));
+        }
+
+        @Override
+        public void setY(Double y) {
+            detach();
+            super.setY(y);
+        }
+
+        @Override
+        public Double getPressure() {
+            return detached ? super.getPressure() : orNull(buffer.getPressure(index));
+        }
+
+        @Override
+        public void setPressure(Double pressure) {
+            detach();
+            super.setPressure(pressure);
+        }
+
+        @Override
+        public Long getTimestamp() {
+            if (detached) {
+                return super.getTimestamp();
+            }
+            long timestamp = buffer.getTimestamp(index);
+            return timestamp == StrokeBuffer.NO_TIMESTAMP ? null : timestamp;
+        }
+
+        @Override
+        public void setTimestamp(Long timestamp) {
+            detach();
+            super.setTimestamp(timestamp);
+        }
+
+        @Override
+        public DotType getType() {
+            if (detached) {
+                return super.getType();
+            }
+            byte type = buffer.getTypeOrdinal(index);
+            return type < 0 ? null : TYPES[type];
+        }
+
+        @Override
+        public void setType(DotType type) {
+            detach();
+            super.setType(type);
+        }
+
+        @Override
+        public Map<String, Object> getMetadata() {
+            return detached ? super.getMetadata() : buffer.getMetadata(index);
+        }
+
+        @Override
+        public void setMetadata(Map<String, Object> metadata) {
+            detach();
+            super.setMetadata(metadata);
+        }
+
+        private void detach() {
+            if (detached) {
+                return;
+            }
+            super.setX(getX());
+            super.setY(getY());
+            super.setPressure(getPressure());
+            super.setTimestamp(getTimestamp());
+            super.setType(getType());
+            super.setMetadata(getMetadata());
+            detached = true;
+        }
+
+        private static Double orNull(double value) {
+            return Double.isNaN(value) ? null : value;
+        }
+    }
+}
@@ -5,28 +5,41 @@ import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pt.up.hs.sampling.constants.EntityNames;
 import pt.up.hs.sampling.constants.ErrorKeys;
+import pt.up.hs.sampling.constants.MediaTypes;
+import pt.up.hs.sampling.domain.codec.StrokePyramid;
+import pt.up.hs.sampling.domain.pojo.Stroke;
 import pt.up.hs.sampling.service.ProtocolQueryService;
+import pt.up.hs.sampling.service.ProtocolImportService;
 import pt.up.hs.sampling.service.ProtocolService;
 import pt.up.hs.sampling.service.dto.BulkImportResultDTO;
+import pt.up.hs.sampling.service.dto.ImportJobDTO;
+import pt.up.hs.sampling.service.dto.ImportUploadDTO;
 import pt.up.hs.sampling.service.dto.ProtocolCriteria;
 import pt.up.hs.sampling.service.dto.ProtocolDTO;
 import pt.up.hs.sampling.service.dto.ProtocolDataDTO;
+import pt.up.hs.sampling.service.dto.StrokeMatchDTO;
+import pt.up.hs.sampling.service.dto.StrokeSelection;
 import pt.up.hs.sampling.web.rest.errors.BadRequestAlertException;
 import pt.up.hs.sampling.web.rest.vm.CopyPayload;
 
 import javax.validation.Valid;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -36,16 +49,23 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/projects/{projectId}")
 public class ProtocolResource {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+    private static final int MAX_PREVIEW_SIZE = 10000;
+    private static final int MAX_PREVIEW_DPI = 1200;
+
     private final Logger log = LoggerFactory.getLogger(ProtocolResource.class);
 
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
     private final ProtocolService protocolService;
+    private final ProtocolImportService protocolImportService;
     private final ProtocolQueryService protocolQueryService;
 
-    public ProtocolResource(ProtocolService protocolService, ProtocolQueryService protocolQueryService) {
+    public ProtocolResource(ProtocolService protocolService, ProtocolImportService protocolImportService, ProtocolQueryService protocolQueryService) {
         this.protocolService = protocolService;
+        this.protocolImportService = protocolImportService;
         this.protocolQueryService = protocolQueryService;
     }
 
@@ -82,6 +102,8 @@ public class ProtocolResource {
      * @param projectId ID of the project to which this protocol belongs.
      * @param type      Type of protocols uploaded.
      * @param files     {@link MultipartFile[]} files from multipart/form-data.
+     * @param idempotencyKey Key of the import, so that retries with the
+     *                       same key get the result of the first import.
      * @return {@link ResponseEntity} with status {@code 200 (OK)} and with
      * body the {@link BulkImportResultDTO}.
      */
@@ -93,13 +115,320 @@ public class ProtocolResource {
     public ResponseEntity<BulkImportResultDTO<ProtocolDTO>> importProtocols(
         @PathVariable("projectId") Long projectId,
         @RequestParam(value = "type", required = false) String type,
-        @RequestParam("file") MultipartFile[] files
+        @RequestParam("file") MultipartFile[] files,
+        @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
     ) {
         log.debug("REST request to import Protocol sent in multipart/form-data in project {}", projectId);
-        BulkImportResultDTO<ProtocolDTO> result = protocolService.bulkImportProtocols(projectId, type, files);
+        BulkImportResultDTO<ProtocolDTO> result = protocolImportService
+            .bulkImportProtocols(projectId, type, files, idempotencyKey);
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * {@code POST /protocols/import} : import protocols sent in a ZIP
+     * archive, reading the request body as it arrives.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param type      Type of protocols in the archive.
+     * @param archive   {@link InputStream} the ZIP archive.
+     * @param idempotencyKey Key of the import, so that retries with the
+     *                       same key get the result of the first import.
+     * @return {@link ResponseEntity} with status {@code 200 (OK)} and with
+     * body the {@link BulkImportResultDTO}.
+     */
+    @PostMapping(value = "/protocols/import", consumes = {
+        MediaTypes.APPLICATION_ZIP_VALUE,
+        MediaTypes.APPLICATION_X_ZIP_COMPRESSED_VALUE
+    })
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'WRITE')"
+    )
+    public ResponseEntity<BulkImportResultDTO<ProtocolDTO>> importProtocolsArchive(
+        @PathVariable("projectId") Long projectId,
+        @RequestParam(value = "type", required = false) String type,
+        InputStream archive,
+        @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
+    ) {
+        log.debug("REST request to import Protocol sent in ZIP archive in project {}", projectId);
+        BulkImportResultDTO<ProtocolDTO> result = protocolImportService
+            .importArchive(projectId, type, archive, idempotencyKey);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * {@code POST /protocols/import} : import protocols sent in
+     * multipart/form-data, streaming the result of each file as it is saved.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param type      Type of protocols uploaded.
+     * @param files     {@link MultipartFile[]} files from multipart/form-data.
+     * @return {@link ResponseEntity} with status {@code 200 (OK)} and with
+     * body a line per file and a {@link BulkImportResultDTO} line (streamed).
+     */
+    @PostMapping(
+        value = "/protocols/import",
+        consumes = "multipart/form-data",
+        produces = MediaTypes.APPLICATION_NDJSON_VALUE
+    )
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'WRITE')"
+    )
+    public ResponseEntity<StreamingResponseBody> importProtocolsStreaming(
+        @PathVariable("projectId") Long projectId,
+        @RequestParam(value = "type", required = false) String type,
+        @RequestParam("file") MultipartFile[] files
+    ) {
+        log.debug("REST request to import Protocol sent in multipart/form-data in project {} (streaming)", projectId);
+        return ResponseEntity.ok()
+            .contentType(MediaTypes.APPLICATION_NDJSON)
+            .body(protocolImportService.streamBulkImportProtocols(projectId, type, files));
+    }
+
+    /**
+     * {@code POST /protocols/import} : import protocols sent in a ZIP
+     * archive, streaming the result of each file as it is saved.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param type      Type of protocols in the archive.
+     * @param archive   {@link InputStream} the ZIP archive.
+     * @return {@link ResponseEntity} with status {@code 200 (OK)} and with
+     * body a line per file and a {@link BulkImportResultDTO} line (streamed).
+     */
+    @PostMapping(
+        value = "/protocols/import",
+        consumes = {
+            MediaTypes.APPLICATION_ZIP_VALUE,
+            MediaTypes.APPLICATION_X_ZIP_COMPRESSED_VALUE
+        },
+        produces = MediaTypes.APPLICATION_NDJSON_VALUE
+    )
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'WRITE')"
+    )
+    public ResponseEntity<StreamingResponseBody> importProtocolsArchiveStreaming(
+        @PathVariable("projectId") Long projectId,
+        @RequestParam(value = "type", required = false) String type,
+        InputStream archive
+    ) {
+        log.debug("REST request to import Protocol sent in ZIP archive in project {} (streaming)", projectId);
+        return ResponseEntity.ok()
+            .contentType(MediaTypes.APPLICATION_NDJSON)
+            .body(protocolImportService.streamImportArchive(projectId, type, archive));
+    }
+
+    /**
+     * {@code POST /protocols/imports} : import protocols sent in
+     * multipart/form-data in the background.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param type      Type of protocols uploaded.
+     * @param files     {@link MultipartFile[]} files from multipart/form-data.
+     * @return {@link ResponseEntity} with status {@code 202 (Accepted)} and
+     * with body the {@link ImportJobDTO} to follow the import with.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping(value = "/protocols/imports", consumes = "multipart/form-data")
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'WRITE')"
+    )
+    public ResponseEntity<ImportJobDTO> startProtocolsImport(
+        @PathVariable("projectId") Long projectId,
+        @RequestParam(value = "type", required = false) String type,
+        @RequestParam("file") MultipartFile[] files
+    ) throws URISyntaxException {
+        log.debug("REST request to start import of Protocol sent in multipart/form-data in project {}", projectId);
+        ImportJobDTO result = protocolImportService.startImport(projectId, type, files);
+        return ResponseEntity.accepted()
+            .location(new URI("/api/projects/" + projectId + "/protocols/imports/" + result.getId()))
+            .body(result);
+    }
+
+    /**
+     * {@code GET /protocols/imports/:jobId} : get the progress (or result)
+     * of the "jobId" import.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param jobId     ID of the import.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and
+     * with body the {@link ImportJobDTO}, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/protocols/imports/{jobId}")
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'READ')"
+    )
+    public ResponseEntity<ImportJobDTO> getProtocolsImport(
+        @PathVariable("projectId") Long projectId,
+        @PathVariable Long jobId
+    ) {
+        log.debug("REST request to get import {} of Protocol in project {}", jobId, projectId);
+        return ResponseUtil.wrapOrNotFound(protocolImportService.findImport(projectId, jobId));
+    }
+
+    /**
+     * {@code POST /protocols/uploads} : create a resumable upload of a
+     * protocol file, whose chunks are then sent with
+     * {@code PUT /protocols/uploads/:uploadId}.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param type      Type of protocols in the file.
+     * @param filename  Name of the file.
+     * @param length    Length of the file in bytes, if known.
+     * @return {@link ResponseEntity} with status {@code 201 (Created)} and
+     * with body the {@link ImportUploadDTO}.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping("/protocols/uploads")
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'WRITE')"
+    )
+    public ResponseEntity<ImportUploadDTO> createProtocolsUpload(
+        @PathVariable("projectId") Long projectId,
+        @RequestParam(value = "type", required = false) String type,
+        @RequestParam("filename") String filename,
+        @RequestParam(value = "length", required = false) Long length
+    ) throws URISyntaxException {
+        log.debug("REST request to create upload of Protocol file {} in project {}", filename, projectId);
+        ImportUploadDTO result = protocolImportService.createUpload(projectId, type, filename, length);
+        return ResponseEntity.created(new URI("/api/projects/" + projectId + "/protocols/uploads/" + result.getId()))
+            .body(result);
+    }
+
+    /**
+     * {@code GET /protocols/uploads/:uploadId} : get the "uploadId" upload,
+     * whose offset is where the next chunk must start.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param uploadId  ID of the upload.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and
+     * with body the {@link ImportUploadDTO}, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/protocols/uploads/{uploadId}")
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'WRITE')"
+    )
+    public ResponseEntity<ImportUploadDTO> getProtocolsUpload(
+        @PathVariable("projectId") Long projectId,
+        @PathVariable String uploadId
+    ) {
+        log.debug("REST request to get upload {} of Protocol file in project {}", uploadId, projectId);
+        return ResponseUtil.wrapOrNotFound(protocolImportService.findUpload(projectId, uploadId));
+    }
+
+    /**
+     * {@code PUT /protocols/uploads/:uploadId} : append the chunk in the
+     * body (positioned by the {@code Content-Range} header, e.g.
+     * {@code bytes 0-1048575/52428800}, with {@code *} as length if it is
+     * not known) to the "uploadId" upload.
+     *
+     * @param projectId    ID of the project to which the protocols belong.
+     * @param uploadId     ID of the upload.
+     * @param contentRange position of the chunk in the file.
+     * @param chunk        {@link InputStream} the chunk.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and
+     * with body the {@link ImportUploadDTO}, with status {@code 409 (Conflict)}
+     * if the chunk starts after the offset of the upload, or with status
+     * {@code 404 (Not Found)}.
+     */
+    @PutMapping(value = "/protocols/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'WRITE')"
+    )
+    public ResponseEntity<ImportUploadDTO> appendProtocolsUpload(
+        @PathVariable("projectId") Long projectId,
+        @PathVariable String uploadId,
+        @RequestHeader(HttpHeaders.CONTENT_RANGE) String contentRange,
+        InputStream chunk
+    ) {
+        log.debug("REST request to append {} to upload {} of Protocol file in project {}", contentRange, uploadId, projectId);
+        Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+        long start;
+        long end;
+        Long total;
+        try {
+            if (!matcher.matches()) {
+                throw new NumberFormatException();
+            }
+            start = Long.parseLong(matcher.group(1));
+            end = Long.parseLong(matcher.group(2));
+            total = "*".equals(matcher.group(3)) ? null : Long.valueOf(matcher.group(3));
+        } catch (NumberFormatException e) {
+            throw new BadRequestAlertException(
+                "Content-Range must be given as bytes start-end/length",
+                EntityNames.PROTOCOL, ErrorKeys.ERR_INVALID_RANGE
+            );
+        }
+        if (end < start || (total != null && end >= total)) {
+            throw new BadRequestAlertException(
+                "Content-Range must be within the file",
+                EntityNames.PROTOCOL, ErrorKeys.ERR_INVALID_RANGE
+            );
+        }
+        return ResponseUtil.wrapOrNotFound(
+            protocolImportService.appendUpload(projectId, uploadId, start, end - start + 1, total, chunk)
+        );
+    }
+
+    /**
+     * {@code POST /protocols/uploads/:uploadId/finish} : finish the
+     * "uploadId" upload, importing its file in the background.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param uploadId  ID of the upload.
+     * @return {@link ResponseEntity} with status {@code 202 (Accepted)} and
+     * with body the {@link ImportJobDTO} to follow the import with, with
+     * status {@code 409 (Conflict)} if the file was not received in full,
+     * or with status {@code 404 (Not Found)}.
+     */
+    @PostMapping("/protocols/uploads/{uploadId}/finish")
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'WRITE')"
+    )
+    public ResponseEntity<ImportJobDTO> finishProtocolsUpload(
+        @PathVariable("projectId") Long projectId,
+        @PathVariable String uploadId
+    ) {
+        log.debug("REST request to finish upload {} of Protocol file in project {}", uploadId, projectId);
+        return protocolImportService.finishUpload(projectId, uploadId)
+            .map(result -> ResponseEntity.accepted()
+                .location(URI.create("/api/projects/" + projectId + "/protocols/imports/" + result.getId()))
+                .body(result))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * {@code DELETE /protocols/uploads/:uploadId} : cancel the "uploadId"
+     * upload.
+     *
+     * @param projectId ID of the project to which the protocols belong.
+     * @param uploadId  ID of the upload.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)},
+     * or with status {@code 404 (Not Found)}.
+     */
+    @DeleteMapping("/protocols/uploads/{uploadId}")
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'WRITE')"
+    )
+    public ResponseEntity<Void> deleteProtocolsUpload(
+        @PathVariable("projectId") Long projectId,
+        @PathVariable String uploadId
+    ) {
+        log.debug("REST request to delete upload {} of Protocol file in project {}", uploadId, projectId);
+        if (!protocolImportService.deleteUpload(projectId, uploadId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
     /**
      * {@code PUT  /protocols} : Updates an existing protocol.
      *
@@ -154,6 +483,33 @@ public class ProtocolResource {
             .body(result);
     }
 
+    /**
+     * {@code POST  /protocols/:id/strokes} : append strokes to the "id"
+     * protocol's data (e.g., while a capture session is in progress).
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param id        the id of the protocol.
+     * @param strokes   the strokes to append.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)},
+     * or with status {@code 404 (Not Found)} if the protocol has no data.
+     */
+    @PostMapping("/protocols/{id}/strokes")
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'WRITE')"
+    )
+    public ResponseEntity<Void> appendProtocolStrokes(
+        @PathVariable("projectId") Long projectId,
+        @PathVariable("id") Long id,
+        @RequestBody List<Stroke> strokes
+    ) {
+        log.debug("REST request to append {} strokes to Protocol {} in project {}", strokes.size(), id, projectId);
+        protocolService.appendStrokes(projectId, id, strokes);
+        return ResponseEntity.noContent()
+            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, EntityNames.PROTOCOL_DATA, id.toString()))
+            .build();
+    }
+
     /**
      * {@code GET  /protocols} : get all the protocols.
      *
@@ -220,31 +576,143 @@ public class ProtocolResource {
     }
 
     /**
-     * {@code GET  /protocols/:id/strokes} : get the "id" protocol's strokes.
+     * {@code GET  /protocols/:id/data} : get the "id" protocol's data,
+     * optionally restricted to the strokes within a time window
+     * ({@code from}, {@code to}) or to a range of strokes ({@code strokes},
+     * e.g. {@code 10..20}), and optionally simplified for zoomed-out
+     * rendering ({@code lod}, 0 being full resolution).
      *
      * @param projectId ID of the project to which this protocol belongs.
      * @param id        the id of the protocolDTO to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the protocolDTO, or with status {@code 404 (Not Found)}.
+     * @param from      start timestamp of the time window (inclusive).
+     * @param to        end timestamp of the time window (inclusive).
+     * @param strokes   range of stroke indexes (inclusive).
+     * @param lod       level of detail (0 for full resolution).
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the protocol data (streamed), or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/protocols/{id}/data")
     @PreAuthorize(
         "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
             "hasPermission(#projectId, 'Project', 'READ')"
     )
-    public ResponseEntity<ProtocolDataDTO> getProtocolData(
+    public ResponseEntity<StreamingResponseBody> getProtocolData(
         @PathVariable("projectId") Long projectId,
-        @PathVariable Long id
+        @PathVariable Long id,
+        @RequestParam(value = "from", required = false) Long from,
+        @RequestParam(value = "to", required = false) Long to,
+        @RequestParam(value = "strokes", required = false) String strokes,
+        @RequestParam(value = "lod", defaultValue = "0") int lod
     ) {
         log.debug("REST request to get Protocol {} data in project {}", id, projectId);
-        Optional<ProtocolDataDTO> pdDTO = protocolService.findOneData(projectId, id);
-        return ResponseUtil.wrapOrNotFound(pdDTO);
+        return streamProtocolData(projectId, id, MediaType.APPLICATION_JSON, strokeSelection(from, to, strokes), lod);
+    }
+
+    /**
+     * {@code GET  /protocols/:id/data} : get the "id" protocol's data in
+     * binary (CBOR, see {@code /schema/protocol-data.cddl}).
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param id        the id of the protocolDTO to retrieve.
+     * @param from      start timestamp of the time window (inclusive).
+     * @param to        end timestamp of the time window (inclusive).
+     * @param strokes   range of stroke indexes (inclusive).
+     * @param lod       level of detail (0 for full resolution).
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the protocol data (streamed), or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping(value = "/protocols/{id}/data", produces = MediaTypes.PROTOCOL_DATA_CBOR_VALUE)
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'READ')"
+    )
+    public ResponseEntity<StreamingResponseBody> getProtocolDataBinary(
+        @PathVariable("projectId") Long projectId,
+        @PathVariable Long id,
+        @RequestParam(value = "from", required = false) Long from,
+        @RequestParam(value = "to", required = false) Long to,
+        @RequestParam(value = "strokes", required = false) String strokes,
+        @RequestParam(value = "lod", defaultValue = "0") int lod
+    ) {
+        log.debug("REST request to get Protocol {} binary data in project {}", id, projectId);
+        return streamProtocolData(projectId, id, MediaTypes.PROTOCOL_DATA_CBOR, strokeSelection(from, to, strokes), lod);
+    }
+
+    /**
+     * {@code GET  /protocols/:id/strokes?bbox=minX,minY,maxX,maxY} : get the
+     * strokes of the "id" protocol that intersect a box.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param id        the id of the protocol.
+     * @param bbox      the box as {@code minX,minY,maxX,maxY} (inclusive).
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the matched strokes, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/protocols/{id}/strokes")
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'READ')"
+    )
+    public ResponseEntity<List<StrokeMatchDTO>> getProtocolStrokesInBox(
+        @PathVariable("projectId") Long projectId,
+        @PathVariable Long id,
+        @RequestParam("bbox") double[] bbox
+    ) {
+        log.debug("REST request to get strokes of Protocol {} in project {} within box {}", id, projectId, bbox);
+        if (bbox.length != 4 || !(bbox[0] <= bbox[2]) || !(bbox[1] <= bbox[3])) {
+            throw new BadRequestAlertException(
+                "Box must be given as minX,minY,maxX,maxY",
+                EntityNames.PROTOCOL_DATA, ErrorKeys.ERR_INVALID_RANGE
+            );
+        }
+        Optional<List<StrokeMatchDTO>> matches = protocolService
+            .findStrokesInBox(projectId, id, bbox[0], bbox[1], bbox[2], bbox[3]);
+        return ResponseUtil.wrapOrNotFound(matches);
+    }
+
+    /**
+     * {@code GET  /protocols/:id/strokes/hit?x=&y=&tolerance=} : get the
+     * strokes of the "id" protocol that pass within {@code tolerance} of a
+     * point, nearest first.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param id        the id of the protocol.
+     * @param x         x coordinate of the point.
+     * @param y         y coordinate of the point.
+     * @param tolerance maximum distance to the point.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the matched strokes, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/protocols/{id}/strokes/hit")
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'READ')"
+    )
+    public ResponseEntity<List<StrokeMatchDTO>> getProtocolStrokesAtPoint(
+        @PathVariable("projectId") Long projectId,
+        @PathVariable Long id,
+        @RequestParam("x") double x,
+        @RequestParam("y") double y,
+        @RequestParam(value = "tolerance", defaultValue = "1") double tolerance
+    ) {
+        log.debug("REST request to get strokes of Protocol {} in project {} at ({}, {})", id, projectId, x, y);
+        if (Double.isNaN(x) || Double.isNaN(y) || !(tolerance >= 0)) {
+            throw new BadRequestAlertException(
+                "Point must be a number and tolerance non-negative",
+                EntityNames.PROTOCOL_DATA, ErrorKeys.ERR_INVALID_RANGE
+            );
+        }
+        Optional<List<StrokeMatchDTO>> matches = protocolService
+            .findStrokesAtPoint(projectId, id, x, y, tolerance);
+        return ResponseUtil.wrapOrNotFound(matches);
     }
 
     /**
      * {@code GET  /protocols/:id/preview} : get the "id" protocol's preview.
+     * If a size is requested, it is a rendition of the whole page in (at
+     * least) that size, rendered on first request and cached.
      *
      * @param projectId ID of the project to which this protocol belongs.
      * @param id        the id of the protocolDTO to retrieve.
+     * @param width     requested width (optional).
+     * @param height    requested height (optional).
+     * @param dpi       resolution of the requested width and height (optional, defaults to 96).
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the protocolDTO, or with status {@code 404 (Not Found)}.
      */
     @GetMapping(value = "/protocols/{id}/preview", produces = {
@@ -257,10 +725,22 @@ public class ProtocolResource {
     )
     public ResponseEntity<byte[]> getProtocolPreview(
         @PathVariable("projectId") Long projectId,
-        @PathVariable Long id
+        @PathVariable Long id,
+        @RequestParam(value = "w", required = false) Integer width,
+        @RequestParam(value = "h", required = false) Integer height,
+        @RequestParam(value = "dpi", required = false) Integer dpi
     ) {
         log.debug("REST request to get preview for Protocol {} in project {}", id, projectId);
-        return ResponseUtil.wrapOrNotFound(protocolService.getPreview(projectId, id));
+        if ((width != null && (width < 1 || width > MAX_PREVIEW_SIZE)) ||
+            (height != null && (height < 1 || height > MAX_PREVIEW_SIZE)) ||
+            (dpi != null && (dpi < 1 || dpi > MAX_PREVIEW_DPI))) {
+            throw new BadRequestAlertException(
+                "Preview size must be between 1 and " + MAX_PREVIEW_SIZE +
+                    " and dpi between 1 and " + MAX_PREVIEW_DPI,
+                EntityNames.PROTOCOL, ErrorKeys.ERR_INVALID_RANGE
+            );
+        }
+        return ResponseUtil.wrapOrNotFound(protocolService.getPreview(projectId, id, width, height, dpi));
     }
 
     /**
@@ -345,4 +825,38 @@ public class ProtocolResource {
         protocolService.bulkCopy(projectId, ids, payload.getProjectId(), payload.isMove(), payload.getTaskMapping(), payload.getParticipantMapping());
         return ResponseEntity.ok().build();
     }
+
+    private ResponseEntity<StreamingResponseBody> streamProtocolData(
+        Long projectId, Long id, MediaType mediaType, StrokeSelection selection, int lod
+    ) {
+        if (lod < 0 || lod > StrokePyramid.TOLERANCES.length) {
+            throw new BadRequestAlertException(
+                "Level of detail must be between 0 and " + StrokePyramid.TOLERANCES.length,
+                EntityNames.PROTOCOL_DATA, ErrorKeys.ERR_INVALID_RANGE
+            );
+        }
+        Optional<StreamingResponseBody> body = protocolService
+            .streamOneData(projectId, id, mediaType, selection, lod);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(mediaType);
+        return ResponseUtil.wrapOrNotFound(body, headers);
+    }
+
+    private static StrokeSelection strokeSelection(Long from, Long to, String strokes) {
+        if (strokes != null && (from != null || to != null)) {
+            throw new BadRequestAlertException(
+                "Select strokes either by time or by index",
+                EntityNames.PROTOCOL_DATA, ErrorKeys.ERR_INVALID_RANGE
+            );
+        }
+        try {
+            return strokes != null
+                ? StrokeSelection.byRange(strokes)
+                : StrokeSelection.byTime(from, to);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(
+                e.getMessage(), EntityNames.PROTOCOL_DATA, ErrorKeys.ERR_INVALID_RANGE
+            );
+        }
+    }
 }
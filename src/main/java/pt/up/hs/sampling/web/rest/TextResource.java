@@ -10,8 +10,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pt.up.hs.sampling.constants.EntityNames;
 import pt.up.hs.sampling.constants.ErrorKeys;
+import pt.up.hs.sampling.constants.MediaTypes;
 import pt.up.hs.sampling.service.TextQueryService;
 import pt.up.hs.sampling.service.TextService;
 import pt.up.hs.sampling.service.dto.BulkImportResultDTO;
@@ -99,6 +101,34 @@ public class TextResource {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * {@code POST /texts/import} : import texts sent in multipart/form-data,
+     * streaming the result of each file as it is saved.
+     *
+     * @param projectId ID of the project to which this protocol belongs.
+     * @param files     {@link MultipartFile[]} files from multipart/form-data.
+     * @return {@link ResponseEntity} with status {@code 200 (OK)} and with
+     * body a line per file and a {@link BulkImportResultDTO} line (streamed).
+     */
+    @PostMapping(
+        value = "/texts/import",
+        consumes = "multipart/form-data",
+        produces = MediaTypes.APPLICATION_NDJSON_VALUE
+    )
+    @PreAuthorize(
+        "hasAnyRole('ROLE_USER', 'ROLE_ADVANCED_USER', 'ROLE_ADMIN') and " +
+            "hasPermission(#projectId, 'Project', 'WRITE')"
+    )
+    public ResponseEntity<StreamingResponseBody> importTextsStreaming(
+        @PathVariable("projectId") Long projectId,
+        @RequestParam("file") MultipartFile[] files
+    ) {
+        log.debug("REST request to import Texts sent in multipart/form-data in project {} (streaming)", projectId);
+        return ResponseEntity.ok()
+            .contentType(MediaTypes.APPLICATION_NDJSON)
+            .body(textService.streamBulkImportTexts(projectId, files));
+    }
+
     /**
      * {@code PUT  /texts} : Updates an existing text.
      *
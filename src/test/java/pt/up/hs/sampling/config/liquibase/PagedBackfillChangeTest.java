@@ -0,0 +1,95 @@
+package pt.up.hs.sampling.config.liquibase;
+
+import liquibase.database.core.H2Database;
+import liquibase.database.jvm.JdbcConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PagedBackfillChangeTest {
+
+    private static final int ROWS = 123;
+
+    private Connection connection;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:backfill;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE item (id BIGINT PRIMARY KEY, value INT, doubled INT)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO item (id, value) VALUES (?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                // IDs out of order and with gaps
+                insert.setLong(1, (i * 37L) % 1000 - 500);
+                insert.setInt(2, i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE item");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void updatesEveryRowAcrossPages() throws Exception {
+        DoubleChange change = new DoubleChange();
+        H2Database database = new H2Database();
+        database.setConnection(new JdbcConnection(connection));
+
+        change.execute(database);
+
+        assertThat(change.getConfirmationMessage()).isEqualTo("Updated " + ROWS + " rows (doubled values)");
+        try (
+            Statement statement = connection.createStatement();
+            ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM item WHERE doubled = 2 * value")
+        ) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getInt(1)).isEqualTo(ROWS);
+        }
+    }
+
+    private static class DoubleChange extends PagedBackfillChange<Integer> {
+
+        @Override
+        protected String getSelectSql() {
+            return "SELECT id, value FROM item WHERE id > ? ORDER BY id";
+        }
+
+        @Override
+        protected String getUpdateSql() {
+            return "UPDATE item SET doubled = ? WHERE id = ?";
+        }
+
+        @Override
+        protected Integer read(ResultSet rs) throws SQLException {
+            return rs.getInt(2);
+        }
+
+        @Override
+        protected void bind(PreparedStatement update, long id, Integer value) throws SQLException {
+            update.setInt(1, 2 * value);
+            update.setLong(2, id);
+        }
+
+        @Override
+        protected String getDescription() {
+            return "doubled values";
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package pt.up.hs.sampling.domain;
+
+import org.junit.jupiter.api.Test;
+import pt.up.hs.sampling.domain.codec.StrokeIndex;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pt.up.hs.sampling.domain.codec.StrokeCodecTest.generatePage;
+
+public class ProtocolStrokeDataTest {
+
+    @Test
+    public void indexesAreRebuiltOnlyWhenStrokesAreReplaced() {
+        List<Stroke> strokes = generatePage(new Random(5), 200, 3);
+        ProtocolStrokeData strokeData = new ProtocolStrokeData().strokes(strokes);
+
+        byte[] strokeIndex = strokeData.getStrokeIndex();
+        byte[] spatialIndex = strokeData.getSpatialIndex();
+        byte[] strokeLods = strokeData.getStrokeLods();
+        assertThat(strokeIndex).isEqualTo(StrokeIndex.of(strokes).encode());
+        assertThat(spatialIndex).isNotNull();
+        assertThat(strokeLods).isNotNull();
+
+        // same list, indexes kept
+        strokeData.setStrokes(strokes);
+        assertThat(strokeData.getStrokeIndex()).isSameAs(strokeIndex);
+        assertThat(strokeData.getSpatialIndex()).isSameAs(spatialIndex);
+        assertThat(strokeData.getStrokeLods()).isSameAs(strokeLods);
+
+        // new list, indexes rebuilt
+        List<Stroke> others = generatePage(new Random(6), 100, 3);
+        strokeData.setStrokes(others);
+        assertThat(strokeData.getStrokeIndex()).isEqualTo(StrokeIndex.of(others).encode());
+
+        // copied along with the strokes
+        ProtocolStrokeData copy = new ProtocolStrokeData();
+        copy.copyStrokes(strokeData);
+        assertThat(copy.getStrokes()).isSameAs(others);
+        assertThat(copy.getStrokeIndex()).isSameAs(strokeData.getStrokeIndex());
+        assertThat(copy.getSpatialIndex()).isSameAs(strokeData.getSpatialIndex());
+        assertThat(copy.getStrokeLods()).isSameAs(strokeData.getStrokeLods());
+    }
+}
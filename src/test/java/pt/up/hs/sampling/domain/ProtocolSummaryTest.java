@@ -0,0 +1,69 @@
+package pt.up.hs.sampling.domain;
+
+import org.junit.jupiter.api.Test;
+import pt.up.hs.sampling.domain.pojo.Dot;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static pt.up.hs.sampling.domain.codec.StrokeCodecTest.generatePage;
+
+public class ProtocolSummaryTest {
+
+    @Test
+    public void summarize() {
+        Stroke first = new Stroke().startTime(10L).endTime(30L);
+        first.addDot(new Dot().x(1.5).y(2.5).timestamp(10L).pressure(100D));
+        first.addDot(new Dot().x(3.25).y(-4D).timestamp(30L).pressure(200D));
+        Stroke second = new Stroke();
+        second.addDot(new Dot().x(2D).timestamp(40L).pressure(300D));
+        second.addDot(new Dot().y(5D).timestamp(45L));
+
+        ProtocolSummary summary = ProtocolSummary.of(Arrays.asList(first, new Stroke(), second));
+        assertThat(summary.getStrokeCount()).isEqualTo(3);
+        assertThat(summary.getDotCount()).isEqualTo(4);
+        assertThat(summary.getStartTime()).isEqualTo(10L);
+        assertThat(summary.getEndTime()).isEqualTo(45L);
+        assertThat(summary.getDuration()).isEqualTo(25L);
+        assertThat(summary.getMinX()).isEqualTo(1.5);
+        assertThat(summary.getMaxX()).isEqualTo(3.25);
+        assertThat(summary.getMinY()).isEqualTo(-4D);
+        assertThat(summary.getMaxY()).isEqualTo(5D);
+        assertThat(summary.getMeanPressure()).isEqualTo(200D);
+    }
+
+    @Test
+    public void empty() {
+        ProtocolSummary summary = ProtocolSummary.of(Collections.singletonList(new Stroke()));
+        assertThat(summary.getStrokeCount()).isEqualTo(1);
+        assertThat(summary.getDotCount()).isZero();
+        assertThat(summary.getDuration()).isNull();
+        assertThat(summary.getMinX()).isNull();
+        assertThat(summary.getMeanPressure()).isNull();
+    }
+
+    @Test
+    public void addMatchesWholeSummary() {
+        List<Stroke> strokes = generatePage(new Random(3), 2000, 2);
+        ProtocolSummary whole = ProtocolSummary.of(strokes);
+
+        ProtocolSummary added = new ProtocolSummary();
+        for (int i = 0; i < strokes.size(); i += 300) {
+            added.add(new ArrayList<>(strokes.subList(i, Math.min(strokes.size(), i + 300))));
+        }
+        assertThat(added.getStrokeCount()).isEqualTo(whole.getStrokeCount());
+        assertThat(added.getDotCount()).isEqualTo(whole.getDotCount());
+        assertThat(added.getStartTime()).isEqualTo(whole.getStartTime());
+        assertThat(added.getEndTime()).isEqualTo(whole.getEndTime());
+        assertThat(added.getDuration()).isEqualTo(whole.getDuration());
+        assertThat(added.getMinX()).isEqualTo(whole.getMinX());
+        assertThat(added.getMaxY()).isEqualTo(whole.getMaxY());
+        assertThat(added.getMeanPressure()).isCloseTo(whole.getMeanPressure(), within(1e-9));
+    }
+}
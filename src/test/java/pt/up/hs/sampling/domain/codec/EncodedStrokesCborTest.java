@@ -0,0 +1,148 @@
+package pt.up.hs.sampling.domain.codec;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import pt.up.hs.sampling.config.JacksonConfiguration;
+import pt.up.hs.sampling.service.dto.ProtocolDataDTO;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static pt.up.hs.sampling.domain.codec.StrokeCodecTest.assertSameStrokes;
+import static pt.up.hs.sampling.domain.codec.StrokeCodecTest.generatePage;
+
+/**
+ * Tests the CBOR representation of {@link ProtocolDataDTO} against JSON.
+ */
+public class EncodedStrokesCborTest {
+
+    private static final Logger log = LoggerFactory.getLogger(EncodedStrokesCborTest.class);
+
+    private static final int PAGE_DOTS = 50000;
+
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cborMapper = JacksonConfiguration
+        .protocolDataCborMapper(Jackson2ObjectMapperBuilder.json());
+
+    @Test
+    public void roundTrip() throws Exception {
+        ProtocolDataDTO pdDTO = createProtocolData(new Random(1), 1000);
+
+        byte[] cbor = cborMapper.writeValueAsBytes(pdDTO);
+        ProtocolDataDTO read = cborMapper.readValue(cbor, ProtocolDataDTO.class);
+
+        assertThat(read.getProtocolId()).isEqualTo(pdDTO.getProtocolId());
+        assertThat(read.getWidth()).isEqualTo(pdDTO.getWidth());
+        assertThat(read.getHeight()).isEqualTo(pdDTO.getHeight());
+        assertThat(read.getMetadata()).isEqualTo(pdDTO.getMetadata());
+        assertSameStrokes(read.getStrokes(), pdDTO.getStrokes());
+
+        // strokes are kept as a single byte string in the codec's format
+        Map<?, ?> generic = new ObjectMapper(new CBORFactory()).readValue(cbor, Map.class);
+        assertThat(generic.get("strokes")).isInstanceOf(byte[].class);
+        assertThat(StrokeCodec.isEncoded((byte[]) generic.get("strokes"))).isTrue();
+    }
+
+    @Test
+    public void invalidStrokes() throws Exception {
+        Map<String, Object> generic = new HashMap<>();
+        generic.put("protocolId", 1);
+        generic.put("strokes", new byte[]{1, 2, 3});
+        byte[] cbor = new ObjectMapper(new CBORFactory()).writeValueAsBytes(generic);
+
+        assertThatThrownBy(() -> cborMapper.readValue(cbor, ProtocolDataDTO.class))
+            .isInstanceOf(JsonMappingException.class);
+    }
+
+    /**
+     * Counts declared larger than the payload (or negative) are rejected as
+     * invalid input before anything is allocated for them.
+     */
+    @Test
+    public void hostileCounts() throws Exception {
+        // 2^31 - 1 strokes
+        assertInvalidStrokes(new byte[]{'H', 'S', 'K', 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+        // a stroke of 2^31 - 1 dots
+        assertInvalidStrokes(new byte[]{'H', 'S', 'K', 1, 1, 7,
+            0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0});
+        // a stroke of -1 dots
+        assertInvalidStrokes(new byte[]{'H', 'S', 'K', 1, 1, 12,
+            0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01});
+        // metadata of 2^31 - 1 bytes
+        assertInvalidStrokes(new byte[]{'H', 'S', 'K', 1, 1, 7,
+            0x04, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+        // malformed metadata
+        assertInvalidStrokes(new byte[]{'H', 'S', 'K', 1, 1, 7, 0x04, 0, 2, '{', '{', 0, 0});
+    }
+
+    private void assertInvalidStrokes(byte[] strokes) throws Exception {
+        Map<String, Object> generic = new HashMap<>();
+        generic.put("protocolId", 1);
+        generic.put("strokes", strokes);
+        byte[] cbor = new ObjectMapper(new CBORFactory()).writeValueAsBytes(generic);
+
+        assertThatThrownBy(() -> cborMapper.readValue(cbor, ProtocolDataDTO.class))
+            .isInstanceOf(JsonMappingException.class);
+    }
+
+    /**
+     * Compares payload size and encode/decode time against JSON.
+     */
+    @Test
+    public void sizeAndThroughputAgainstJson() throws Exception {
+        ProtocolDataDTO pdDTO = createProtocolData(new Random(3), PAGE_DOTS);
+
+        byte[] json = jsonMapper.writeValueAsBytes(pdDTO);
+        byte[] cbor = cborMapper.writeValueAsBytes(pdDTO);
+
+        int iterations = 5;
+        long jsonWrite = 0, jsonRead = 0, cborWrite = 0, cborRead = 0;
+        for (int i = 0; i < iterations + 1; i++) {
+            long t0 = System.nanoTime();
+            jsonMapper.writeValueAsBytes(pdDTO);
+            long t1 = System.nanoTime();
+            jsonMapper.readValue(json, ProtocolDataDTO.class);
+            long t2 = System.nanoTime();
+            cborMapper.writeValueAsBytes(pdDTO);
+            long t3 = System.nanoTime();
+            cborMapper.readValue(cbor, ProtocolDataDTO.class);
+            long t4 = System.nanoTime();
+            if (i > 0) { // first round is warm-up
+                jsonWrite += t1 - t0;
+                jsonRead += t2 - t1;
+                cborWrite += t3 - t2;
+                cborRead += t4 - t3;
+            }
+        }
+
+        log.info("{} dots: json {} bytes, cbor {} bytes ({}%)",
+            PAGE_DOTS, json.length, cbor.length, cbor.length * 100 / json.length);
+        log.info("json encode {} ms, decode {} ms",
+            jsonWrite / iterations / 1000000, jsonRead / iterations / 1000000);
+        log.info("cbor encode {} ms, decode {} ms",
+            cborWrite / iterations / 1000000, cborRead / iterations / 1000000);
+
+        assertThat(cbor.length).isLessThan(json.length / 5);
+    }
+
+    private static ProtocolDataDTO createProtocolData(Random random, int dots) {
+        ProtocolDataDTO pdDTO = new ProtocolDataDTO();
+        pdDTO.setProtocolId(1L);
+        pdDTO.setWidth(88.9);
+        pdDTO.setHeight(114.3);
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("notebook", "neo");
+        pdDTO.setMetadata(metadata);
+        pdDTO.setStrokes(generatePage(random, dots, 3));
+        return pdDTO;
+    }
+}
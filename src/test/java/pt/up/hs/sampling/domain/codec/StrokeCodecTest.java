@@ -0,0 +1,227 @@
+package pt.up.hs.sampling.domain.codec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StreamUtils;
+import pt.up.hs.sampling.domain.enumeration.DotType;
+import pt.up.hs.sampling.domain.pojo.Dot;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StrokeCodecTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StrokeCodecTest.class);
+
+    private static final int PAGE_DOTS = 50000;
+
+    @Test
+    public void roundTripNormalizedPage() {
+        List<Stroke> strokes = generatePage(new Random(1), PAGE_DOTS, 3);
+        assertSameStrokes(StrokeCodec.decode(StrokeCodec.encode(strokes)), strokes);
+    }
+
+    @Test
+    public void roundTripRawValuesNullsAndMetadata() {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("pen", "neo");
+        metadata.put("color", 3);
+
+        Stroke stroke = new Stroke()
+            .startTime(null)
+            .endTime(-5L)
+            .metadata(metadata);
+        stroke.addDot(new Dot().x(Math.PI).y(-0.0).pressure(0.25F * 1D).timestamp(null).type(DotType.MOVE));
+        stroke.addDot(new Dot().x(1e300).y(null).pressure(null).timestamp(-10L).metadata(metadata));
+        stroke.addDot(new Dot().x(null).y(2.5).pressure(Double.MIN_VALUE).timestamp(Long.MAX_VALUE).type(DotType.DOWN));
+
+        List<Stroke> strokes = new ArrayList<>();
+        strokes.add(stroke);
+        strokes.add(new Stroke());
+
+        assertSameStrokes(StrokeCodec.decode(StrokeCodec.encode(strokes)), strokes);
+    }
+
+    @Test
+    public void roundTripDotsWithoutValues() {
+        Stroke stroke = new Stroke();
+        for (int i = 0; i < 100; i++) {
+            stroke.addDot(new Dot());
+        }
+
+        // the types take a byte per dot, so that the count can be checked
+        byte[] encoded = StrokeCodec.encode(Collections.singletonList(stroke));
+        assertThat(encoded.length).isGreaterThan(100);
+        assertSameStrokes(StrokeCodec.decode(encoded), Collections.singletonList(stroke));
+    }
+
+    @Test
+    public void iterateLazily() {
+        List<Stroke> strokes = generatePage(new Random(4), 1000, 3);
+        StrokeCodec.StrokeIterator it = StrokeCodec.iterate(StrokeCodec.encode(strokes));
+        assertThat(it.count()).isEqualTo(strokes.size());
+
+        List<Stroke> decoded = new ArrayList<>();
+        it.forEachRemaining(decoded::add);
+        assertSameStrokes(decoded, strokes);
+        assertThat(it.hasNext()).isFalse();
+        assertThatThrownBy(it::next).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    public void sliceAndSkip() {
+        List<Stroke> strokes = generatePage(new Random(5), 1000, 3);
+        byte[] encoded = StrokeCodec.encode(strokes);
+        BitSet selected = new BitSet();
+        selected.set(1);
+        selected.set(3, 6);
+
+        List<Stroke> expected = new ArrayList<>();
+        selected.stream().forEach(i -> expected.add(strokes.get(i)));
+        assertSameStrokes(StrokeCodec.decode(StrokeCodec.slice(encoded, selected)), expected);
+
+        StrokeCodec.StrokeIterator it = StrokeCodec.iterate(encoded);
+        it.skip();
+        it.skip();
+        assertSameStrokes(Collections.singletonList(it.next()), strokes.subList(2, 3));
+    }
+
+    @Test
+    public void concat() throws IOException {
+        List<Stroke> strokes = generatePage(new Random(6), 1000, 3);
+        List<byte[]> parts = new ArrayList<>();
+        parts.add(StrokeCodec.encode(strokes.subList(0, 3)));
+        parts.add(StrokeCodec.encode(Collections.emptyList()));
+        parts.add(StrokeCodec.encode(strokes.subList(3, strokes.size())));
+        byte[] concatenated = StrokeCodec.concat(parts);
+        assertSameStrokes(StrokeCodec.decode(concatenated), strokes);
+
+        // Streamed from the parts, with the same bytes
+        assertThat(StrokeCodec.concatLength(parts)).isEqualTo(concatenated.length);
+        assertThat(StreamUtils.copyToByteArray(StrokeCodec.concatStream(parts))).isEqualTo(concatenated);
+    }
+
+    @Test
+    public void emptyAndCorrupted() {
+        byte[] encoded = StrokeCodec.encode(Collections.emptyList());
+        assertThat(StrokeCodec.isEncoded(encoded)).isTrue();
+        assertThat(StrokeCodec.decode(encoded)).isEmpty();
+
+        assertThat(StrokeCodec.isEncoded("[]".getBytes())).isFalse();
+        assertThatThrownBy(() -> StrokeCodec.decode("[{}]".getBytes()))
+            .isInstanceOf(IllegalArgumentException.class);
+
+        byte[] full = StrokeCodec.encode(generatePage(new Random(2), 100, 3));
+        byte[] truncated = new byte[full.length / 2];
+        System.arraycopy(full, 0, truncated, 0, truncated.length);
+        assertThatThrownBy(() -> StrokeCodec.decode(truncated))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Compares size and throughput against the JSON representation
+     * previously stored in the jsonb column.
+     */
+    @Test
+    public void sizeAndThroughputAgainstJson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        TypeReference<List<Stroke>> type = new TypeReference<List<Stroke>>() {};
+        List<Stroke> strokes = generatePage(new Random(3), PAGE_DOTS, 3);
+
+        byte[] json = mapper.writeValueAsBytes(strokes);
+        byte[] binary = StrokeCodec.encode(strokes);
+
+        int iterations = 5;
+        long jsonWrite = 0, jsonRead = 0, binaryWrite = 0, binaryRead = 0;
+        for (int i = 0; i < iterations + 1; i++) {
+            long t0 = System.nanoTime();
+            mapper.writeValueAsBytes(strokes);
+            long t1 = System.nanoTime();
+            mapper.readValue(json, type);
+            long t2 = System.nanoTime();
+            StrokeCodec.encode(strokes);
+            long t3 = System.nanoTime();
+            StrokeCodec.decode(binary);
+            long t4 = System.nanoTime();
+            if (i > 0) { // first round is warm-up
+                jsonWrite += t1 - t0;
+                jsonRead += t2 - t1;
+                binaryWrite += t3 - t2;
+                binaryRead += t4 - t3;
+            }
+        }
+
+        log.info("{} dots: json {} bytes, binary {} bytes ({}%)",
+            PAGE_DOTS, json.length, binary.length, binary.length * 100 / json.length);
+        log.info("json write {} dots/ms, read {} dots/ms",
+            dotsPerMs(jsonWrite, iterations), dotsPerMs(jsonRead, iterations));
+        log.info("binary write {} dots/ms, read {} dots/ms",
+            dotsPerMs(binaryWrite, iterations), dotsPerMs(binaryRead, iterations));
+
+        assertThat(binary.length).isLessThan(json.length / 5);
+    }
+
+    private static long dotsPerMs(long nanos, int iterations) {
+        return PAGE_DOTS * 1000000L * iterations / Math.max(1, nanos);
+    }
+
+    /**
+     * Generates a page similar to a normalized import: coordinates with
+     * {@code decimals} decimal places, integer pressure and timestamps a few
+     * milliseconds apart.
+     */
+    public static List<Stroke> generatePage(Random random, int totalDots, int decimals) {
+        double scale = Math.pow(10, decimals);
+        List<Stroke> strokes = new ArrayList<>();
+        long time = 1596540000000L;
+        int dots = 0;
+        while (dots < totalDots) {
+            int n = Math.min(totalDots - dots, 20 + random.nextInt(80));
+            double x = random.nextInt(200) + random.nextInt((int) scale) / scale;
+            double y = random.nextInt(280) + random.nextInt((int) scale) / scale;
+            Stroke stroke = new Stroke().startTime(time);
+            for (int i = 0; i < n; i++) {
+                stroke.addDot(new Dot()
+                    .x(Math.round(x * scale) / scale)
+                    .y(Math.round(y * scale) / scale)
+                    .pressure((double) random.nextInt(1024))
+                    .timestamp(time)
+                    .type(i == 0 ? DotType.DOWN : (i == n - 1 ? DotType.UP : DotType.MOVE)));
+                x += (random.nextInt(2001) - 1000) / scale;
+                y += (random.nextInt(2001) - 1000) / scale;
+                time += 5 + random.nextInt(10);
+            }
+            stroke.setEndTime(time);
+            strokes.add(stroke);
+            time += 100 + random.nextInt(500);
+            dots += n;
+        }
+        return strokes;
+    }
+
+    static void assertSameStrokes(List<Stroke> actual, List<Stroke> expected) {
+        assertThat(actual).hasSameSizeAs(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            Stroke a = actual.get(i);
+            Stroke e = expected.get(i);
+            assertThat(a.getStartTime()).isEqualTo(e.getStartTime());
+            assertThat(a.getEndTime()).isEqualTo(e.getEndTime());
+            assertThat(a.getMetadata()).isEqualTo(e.getMetadata());
+            assertThat(a.getDots()).isEqualTo(e.getDots());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package pt.up.hs.sampling.domain.codec;
+
+import org.junit.jupiter.api.Test;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StrokeHashTest {
+
+    @Test
+    public void sameStrokesHaveSameHash() {
+        List<Stroke> strokes = StrokeCodecTest.generatePage(new Random(7), 100, 3);
+        List<Stroke> decoded = StrokeCodec.decode(StrokeCodec.encode(strokes));
+
+        String hash = StrokeHash.of(strokes);
+        assertThat(hash).hasSize(64).matches("[0-9a-f]+");
+        assertThat(StrokeHash.of(decoded)).isEqualTo(hash);
+    }
+
+    @Test
+    public void differentStrokesHaveDifferentHash() {
+        List<Stroke> strokes = StrokeCodecTest.generatePage(new Random(7), 100, 3);
+        List<Stroke> changed = StrokeCodec.decode(StrokeCodec.encode(strokes));
+        changed.get(0).getDots().setX(0, changed.get(0).getDots().getX(0) + 0.01);
+
+        assertThat(StrokeHash.of(changed)).isNotEqualTo(StrokeHash.of(strokes));
+        assertThat(StrokeHash.of(strokes.subList(1, strokes.size()))).isNotEqualTo(StrokeHash.of(strokes));
+    }
+
+    @Test
+    public void noStrokesHaveNoHash() {
+        assertThat(StrokeHash.of(null)).isNull();
+        assertThat(StrokeHash.of(Collections.emptyList())).isNull();
+    }
+}
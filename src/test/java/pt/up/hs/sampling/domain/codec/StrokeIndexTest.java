@@ -0,0 +1,91 @@
+package pt.up.hs.sampling.domain.codec;
+
+import org.junit.jupiter.api.Test;
+import pt.up.hs.sampling.domain.pojo.Dot;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pt.up.hs.sampling.domain.codec.StrokeCodecTest.generatePage;
+
+public class StrokeIndexTest {
+
+    @Test
+    public void roundTrip() {
+        List<Stroke> strokes = generatePage(new Random(1), 5000, 3);
+        StrokeIndex index = StrokeIndex.of(strokes);
+        StrokeIndex decoded = StrokeIndex.decode(index.encode());
+
+        assertThat(decoded.size()).isEqualTo(strokes.size());
+        for (int i = 0; i < strokes.size(); i++) {
+            assertThat(decoded.hasTime(i)).isTrue();
+            assertThat(decoded.getStart(i)).isEqualTo(strokes.get(i).getStartTime());
+            assertThat(decoded.getEnd(i)).isEqualTo(strokes.get(i).getEndTime());
+        }
+        assertThat(index.encode().length).isLessThan(strokes.size() * 8);
+    }
+
+    @Test
+    public void rangeFromDotsWhenTimesAreMissing() {
+        Stroke fromDots = new Stroke();
+        fromDots.addDot(new Dot().x(1D).y(1D).timestamp(200L));
+        fromDots.addDot(new Dot().x(1D).y(1D).timestamp(150L));
+        fromDots.addDot(new Dot().x(1D).y(1D).timestamp(null));
+        Stroke untimed = new Stroke();
+        untimed.addDot(new Dot().x(1D).y(1D));
+
+        StrokeIndex index = StrokeIndex.decode(StrokeIndex.of(Arrays.asList(fromDots, untimed)).encode());
+
+        assertThat(index.hasTime(0)).isTrue();
+        assertThat(index.getStart(0)).isEqualTo(150L);
+        assertThat(index.getEnd(0)).isEqualTo(200L);
+        assertThat(index.hasTime(1)).isFalse();
+    }
+
+    @Test
+    public void overlapping() {
+        List<Stroke> strokes = Arrays.asList(
+            new Stroke().startTime(0L).endTime(10L),
+            new Stroke().startTime(20L).endTime(30L),
+            new Stroke().startTime(40L).endTime(50L),
+            new Stroke()
+        );
+        StrokeIndex index = StrokeIndex.of(strokes);
+
+        assertThat(index.overlapping(10L, 20L)).isEqualTo(bits(0, 1));
+        assertThat(index.overlapping(11L, 19L)).isEqualTo(bits());
+        assertThat(index.overlapping(25L, null)).isEqualTo(bits(1, 2));
+        assertThat(index.overlapping(null, 5L)).isEqualTo(bits(0));
+    }
+
+    @Test
+    public void concat() {
+        List<Stroke> strokes = Arrays.asList(
+            new Stroke().startTime(0L).endTime(10L),
+            new Stroke(),
+            new Stroke().startTime(20L).endTime(30L),
+            new Stroke().startTime(40L).endTime(50L)
+        );
+        StrokeIndex index = StrokeIndex.concat(Arrays.asList(
+            StrokeIndex.of(strokes.subList(0, 2)),
+            StrokeIndex.of(strokes.subList(2, 2)),
+            StrokeIndex.of(strokes.subList(2, 4))
+        ));
+
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.encode()).isEqualTo(StrokeIndex.of(strokes).encode());
+        assertThat(index.overlapping(25L, null)).isEqualTo(bits(2, 3));
+    }
+
+    private static BitSet bits(int... indexes) {
+        BitSet bits = new BitSet();
+        for (int i : indexes) {
+            bits.set(i);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,117 @@
+package pt.up.hs.sampling.domain.codec;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pt.up.hs.sampling.domain.enumeration.DotType;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.domain.pojo.StrokeBuffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StrokePyramidTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StrokePyramidTest.class);
+
+    @Test
+    public void simplifyKeepsEndpointsAndCorners() {
+        StrokeBuffer dots = new StrokeBuffer();
+        for (int i = 0; i <= 10; i++) {
+            double jitter = 0.01 * (i % 2);
+            dots.add(Math.min(i, 5) + (i > 5 ? jitter : 0), i > 5 ? i - 5 : jitter, 100L + i,
+                i == 0 ? DotType.DOWN : (i == 10 ? DotType.UP : DotType.MOVE), i);
+        }
+
+        StrokeBuffer simplified = StrokePyramid.simplify(dots, 0.1);
+        assertThat(simplified.size()).isEqualTo(3);
+        int[] kept = { 0, 5, 10 };
+        for (int i = 0; i < kept.length; i++) {
+            assertThat(simplified.getX(i)).isEqualTo(dots.getX(kept[i]));
+            assertThat(simplified.getY(i)).isEqualTo(dots.getY(kept[i]));
+            assertThat(simplified.getTimestamp(i)).isEqualTo(dots.getTimestamp(kept[i]));
+            assertThat(simplified.getType(i)).isEqualTo(dots.getType(kept[i]));
+            assertThat(simplified.getPressure(i)).isEqualTo(dots.getPressure(kept[i]));
+        }
+
+        assertThat(StrokePyramid.simplify(dots, 5).size()).isEqualTo(2);
+        assertThat(StrokePyramid.simplify(dots, 0.001)).isSameAs(dots);
+    }
+
+    @Test
+    public void simplifyLeavesIncompleteStrokesAlone() {
+        StrokeBuffer dots = new StrokeBuffer()
+            .add(0, 0, StrokeBuffer.NO_TIMESTAMP, null, Double.NaN)
+            .add(1, Double.NaN, StrokeBuffer.NO_TIMESTAMP, null, Double.NaN)
+            .add(2, 0, StrokeBuffer.NO_TIMESTAMP, null, Double.NaN);
+        assertThat(StrokePyramid.simplify(dots, 10)).isSameAs(dots);
+        assertThat(StrokePyramid.simplify(new StrokeBuffer(), 10).size()).isZero();
+    }
+
+    @Test
+    public void levelsKeepStrokeCountAndShrink() {
+        List<Stroke> strokes = generateHandwriting(new Random(1), 50000);
+        strokes.add(3, new Stroke());
+        byte[] full = StrokeCodec.encode(strokes);
+        byte[] pyramid = StrokePyramid.encode(strokes);
+
+        int previous = full.length;
+        for (int level = 1; level <= StrokePyramid.TOLERANCES.length; level++) {
+            byte[] encoded = StrokePyramid.level(pyramid, level);
+            List<Stroke> decoded = StrokeCodec.decode(encoded);
+            assertThat(decoded).hasSameSizeAs(strokes);
+            StrokeCodecTest.assertSameStrokes(decoded,
+                StrokePyramid.simplify(strokes, StrokePyramid.TOLERANCES[level - 1]));
+            log.info("level {} (tolerance {}): {} bytes ({}% of full resolution)",
+                level, StrokePyramid.TOLERANCES[level - 1], encoded.length, encoded.length * 100 / full.length);
+            assertThat(encoded.length).isLessThanOrEqualTo(previous);
+            previous = encoded.length;
+        }
+        assertThat(previous).isLessThan(full.length / 10);
+
+        assertThatThrownBy(() -> StrokePyramid.level(pyramid, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StrokePyramid.level(pyramid, StrokePyramid.TOLERANCES.length + 1))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThat(StrokeCodec.decode(StrokePyramid.level(StrokePyramid.encode(Collections.emptyList()), 1)))
+            .isEmpty();
+    }
+
+    /**
+     * Generates a page of smooth strokes (arcs sampled every ~0.2 units,
+     * coordinates with 3 decimal places), closer to handwriting than a
+     * random walk.
+     */
+    private static List<Stroke> generateHandwriting(Random random, int totalDots) {
+        List<Stroke> strokes = new ArrayList<>();
+        long time = 1596540000000L;
+        int dots = 0;
+        while (dots < totalDots) {
+            int n = Math.min(totalDots - dots, 20 + random.nextInt(80));
+            double cx = random.nextInt(200), cy = random.nextInt(280);
+            double r = 2 + random.nextDouble() * 8;
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double step = 0.2 / r * (random.nextBoolean() ? 1 : -1);
+            Stroke stroke = new Stroke().startTime(time);
+            for (int i = 0; i < n; i++) {
+                stroke.getDots().add(
+                    Math.round((cx + r * Math.cos(angle)) * 1000) / 1000D,
+                    Math.round((cy + r * Math.sin(angle)) * 1000) / 1000D,
+                    time, i == 0 ? DotType.DOWN : (i == n - 1 ? DotType.UP : DotType.MOVE),
+                    random.nextInt(1024));
+                angle += step;
+                time += 5 + random.nextInt(10);
+            }
+            stroke.setEndTime(time);
+            strokes.add(stroke);
+            time += 100 + random.nextInt(500);
+            dots += n;
+        }
+        return strokes;
+    }
+}
@@ -0,0 +1,125 @@
+package pt.up.hs.sampling.domain.codec;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pt.up.hs.sampling.domain.pojo.Dot;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.domain.pojo.StrokeBuffer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static pt.up.hs.sampling.domain.codec.StrokeCodecTest.generatePage;
+
+public class StrokeSpatialIndexTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StrokeSpatialIndexTest.class);
+
+    @Test
+    public void searchMatchesBruteForce() {
+        Random random = new Random(1);
+        List<Stroke> strokes = generatePage(random, 50000, 3);
+        strokes.add(7, new Stroke());
+        StrokeSpatialIndex index = StrokeSpatialIndex.decode(StrokeSpatialIndex.of(strokes).encode());
+        assertThat(index.size()).isEqualTo(strokes.size() - 1);
+
+        for (int q = 0; q < 200; q++) {
+            double minX = random.nextInt(220) - 10, minY = random.nextInt(300) - 10;
+            double maxX = minX + random.nextInt(30), maxY = minY + random.nextInt(30);
+            assertThat(index.search(minX, minY, maxX, maxY))
+                .isEqualTo(bruteForce(strokes, minX, minY, maxX, maxY));
+        }
+    }
+
+    @Test
+    public void emptyAndSingle() {
+        StrokeSpatialIndex empty = StrokeSpatialIndex.decode(StrokeSpatialIndex.of(Collections.emptyList()).encode());
+        assertThat(empty.size()).isZero();
+        assertThat(empty.search(-1e9, -1e9, 1e9, 1e9).isEmpty()).isTrue();
+
+        Stroke stroke = new Stroke();
+        stroke.addDot(new Dot().x(0.1).y(0.2));
+        List<Stroke> strokes = new ArrayList<>();
+        strokes.add(new Stroke());
+        strokes.add(stroke);
+        StrokeSpatialIndex single = StrokeSpatialIndex.decode(StrokeSpatialIndex.of(strokes).encode());
+        assertThat(single.search(0.1, 0.2, 0.1, 0.2).stream().toArray()).containsExactly(1);
+        assertThat(single.search(0.2, 0.2, 1, 1).isEmpty()).isTrue();
+
+        assertThatThrownBy(() -> StrokeSpatialIndex.decode(new byte[] { 9 }))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void intersectsAndDistance() {
+        StrokeBuffer dots = new StrokeBuffer()
+            .add(0, 0, StrokeBuffer.NO_TIMESTAMP, null, Double.NaN)
+            .add(Double.NaN, 5, StrokeBuffer.NO_TIMESTAMP, null, Double.NaN)
+            .add(10, 0, StrokeBuffer.NO_TIMESTAMP, null, Double.NaN);
+
+        assertThat(StrokeSpatialIndex.intersects(dots, 4, -1, 6, 1)).isTrue();
+        assertThat(StrokeSpatialIndex.intersects(dots, 4, 1, 6, 2)).isFalse();
+        assertThat(StrokeSpatialIndex.distance(dots, 5, 3)).isEqualTo(3);
+        assertThat(StrokeSpatialIndex.distance(dots, 13, 4)).isEqualTo(5);
+        assertThat(StrokeSpatialIndex.distance(new StrokeBuffer(), 0, 0)).isEqualTo(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Compares queries against a scan of all the decoded strokes, as done by
+     * clients before the index.
+     */
+    @Test
+    public void throughputAgainstScan() {
+        Random random = new Random(2);
+        List<Stroke> strokes = generatePage(random, 50000, 3);
+        byte[] encoded = StrokeSpatialIndex.of(strokes).encode();
+        byte[] encodedStrokes = StrokeCodec.encode(strokes);
+
+        int queries = 1000;
+        long indexTime = 0, scanTime = 0;
+        for (int round = 0; round < 2; round++) { // first round is warm-up
+            long t0 = System.nanoTime();
+            StrokeSpatialIndex index = StrokeSpatialIndex.decode(encoded);
+            for (int q = 0; q < queries; q++) {
+                index.search(q % 200, q % 280, q % 200 + 10, q % 280 + 10);
+            }
+            long t1 = System.nanoTime();
+            List<Stroke> decoded = StrokeCodec.decode(encodedStrokes);
+            for (int q = 0; q < queries / 100; q++) {
+                bruteForce(decoded, q % 200, q % 280, q % 200 + 10, q % 280 + 10);
+            }
+            long t2 = System.nanoTime();
+            indexTime = (t1 - t0) / queries;
+            scanTime = (t2 - t1) / (queries / 100);
+        }
+
+        log.info("{} strokes: index {} bytes, {} ns/query; scan {} ns/query (decoding amortized)",
+            strokes.size(), encoded.length, indexTime, scanTime);
+        assertThat(indexTime).isLessThan(scanTime);
+    }
+
+    private static BitSet bruteForce(List<Stroke> strokes, double minX, double minY, double maxX, double maxY) {
+        BitSet selected = new BitSet();
+        for (int i = 0; i < strokes.size(); i++) {
+            StrokeBuffer dots = strokes.get(i).getDots();
+            double sMinX = Double.POSITIVE_INFINITY, sMinY = Double.POSITIVE_INFINITY;
+            double sMaxX = Double.NEGATIVE_INFINITY, sMaxY = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < dots.size(); j++) {
+                sMinX = Math.min(sMinX, dots.getX(j));
+                sMinY = Math.min(sMinY, dots.getY(j));
+                sMaxX = Math.max(sMaxX, dots.getX(j));
+                sMaxY = Math.max(sMaxY, dots.getY(j));
+            }
+            if (sMinX <= maxX && sMinY <= maxY && sMaxX >= minX && sMaxY >= minY) {
+                selected.set(i);
+            }
+        }
+        return selected;
+    }
+}
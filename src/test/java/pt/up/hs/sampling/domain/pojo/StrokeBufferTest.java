@@ -0,0 +1,106 @@
+package pt.up.hs.sampling.domain.pojo;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import pt.up.hs.sampling.domain.enumeration.DotType;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StrokeBufferTest {
+
+    private static final String STROKE_JSON = "{\"startTime\":10,\"endTime\":30,\"dots\":[" +
+        "{\"x\":1.5,\"y\":2.0,\"timestamp\":10,\"type\":\"DOWN\",\"pressure\":512.0,\"metadata\":null}," +
+        "{\"x\":1.75,\"y\":null,\"timestamp\":null,\"type\":null,\"pressure\":null,\"metadata\":{\"k\":\"v\"}}," +
+        "{\"x\":2,\"y\":3.25,\"timestamp\":30,\"type\":\"UP\",\"pressure\":0,\"metadata\":null}" +
+        "],\"metadata\":null}";
+
+    @Test
+    public void growsAndIteratesWithCursor() {
+        StrokeBuffer buffer = new StrokeBuffer(1);
+        for (int i = 0; i < 100; i++) {
+            buffer.add(i, -i, 1000L + i, i == 0 ? DotType.DOWN : DotType.MOVE, i / 10D);
+        }
+        assertThat(buffer.size()).isEqualTo(100);
+
+        StrokeBuffer.Cursor cursor = buffer.cursor();
+        int count = 0;
+        while (cursor.next()) {
+            assertThat(cursor.x()).isEqualTo(count);
+            assertThat(cursor.y()).isEqualTo(-count);
+            assertThat(cursor.timestamp()).isEqualTo(1000L + count);
+            assertThat(cursor.metadata()).isNull();
+            count++;
+        }
+        assertThat(count).isEqualTo(100);
+        assertThat(cursor.moveTo(0).type()).isEqualTo(DotType.DOWN);
+
+        assertThatThrownBy(() -> buffer.getX(100)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void convertsFromAndToDots() {
+        Dot dot = new Dot().x(1D).y(null).timestamp(null).type(DotType.UP).pressure(3D)
+            .metadata(Collections.singletonMap("k", "v"));
+        StrokeBuffer buffer = new StrokeBuffer().add(dot);
+
+        assertThat(buffer.getY(0)).isNaN();
+        assertThat(buffer.getTimestamp(0)).isEqualTo(StrokeBuffer.NO_TIMESTAMP);
+        assertThat(buffer.hasMetadata()).isTrue();
+
+        Dot copy = buffer.getDot(0);
+        assertThat(copy.getX()).isEqualTo(1D);
+        assertThat(copy.getY()).isNull();
+        assertThat(copy.getTimestamp()).isNull();
+        assertThat(copy.getType()).isEqualTo(DotType.UP);
+        assertThat(copy.getPressure()).isEqualTo(3D);
+        assertThat(copy.getMetadata()).containsEntry("k", "v");
+    }
+
+    @Test
+    public void keepsJsonRepresentationOfDots() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+
+        Stroke stroke = mapper.readValue(STROKE_JSON, Stroke.class);
+        StrokeBuffer dots = stroke.getDots();
+        assertThat(dots.size()).isEqualTo(3);
+        assertThat(dots.getX(2)).isEqualTo(2D);
+        assertThat(dots.getY(1)).isNaN();
+        assertThat(dots.getType(1)).isNull();
+        assertThat(dots.getMetadata(1)).containsEntry("k", "v");
+
+        JsonNode expected = mapper.readTree(STROKE_JSON);
+        JsonNode actual = mapper.readTree(mapper.writeValueAsString(stroke));
+        assertThat(actual.get("dots").size()).isEqualTo(3);
+        for (int i = 0; i < 3; i++) {
+            JsonNode a = actual.get("dots").get(i);
+            JsonNode e = expected.get("dots").get(i);
+            assertThat(a.fieldNames()).toIterable().containsExactlyElementsOf(() -> e.fieldNames());
+            e.fields().forEachRemaining(field -> {
+                if (field.getValue().isNumber()) {
+                    assertThat(a.get(field.getKey()).asDouble()).isEqualTo(field.getValue().asDouble());
+                } else {
+                    assertThat(a.get(field.getKey())).isEqualTo(field.getValue());
+                }
+            });
+        }
+
+        assertThat(mapper.readValue(mapper.writeValueAsString(stroke), Stroke.class)).isEqualTo(stroke);
+    }
+
+    @Test
+    public void rejectsUnknownDotTypes() {
+        ObjectMapper mapper = new ObjectMapper();
+
+        assertThatThrownBy(() -> mapper.readValue("{\"dots\":[{\"x\":1,\"type\":\"SIDEWAYS\"}]}", Stroke.class))
+            .isInstanceOf(JsonMappingException.class)
+            .hasMessageContaining("Invalid dot type: SIDEWAYS");
+        assertThatThrownBy(() -> mapper.readValue("{\"dots\":[{\"x\":1,\"type\":{}}]}", Stroke.class))
+            .isInstanceOf(JsonMappingException.class)
+            .hasMessageContaining("Invalid dot type");
+    }
+}
@@ -0,0 +1,125 @@
+package pt.up.hs.sampling.processing.importing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.util.FileSystemUtils;
+import pt.up.hs.sampling.SamplingApp;
+import pt.up.hs.sampling.config.ApplicationProperties;
+import pt.up.hs.sampling.domain.Protocol;
+import pt.up.hs.sampling.repository.ProtocolRepository;
+import pt.up.hs.sampling.service.ProtocolService;
+import pt.up.hs.sampling.web.rest.TestUtil;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pt.up.hs.sampling.processing.importing.ImportProtocolFolderWatcher.*;
+
+@SpringBootTest(classes = SamplingApp.class)
+public class ImportProtocolFolderWatcherIT {
+
+    private static final Long IMPORT_PROJECT_ID = 4L;
+
+    @Autowired
+    private ImportProtocolFolderWatcher watcher;
+
+    @Autowired
+    private ApplicationProperties properties;
+
+    @Autowired
+    private JobExplorer jobExplorer;
+
+    @Autowired
+    private ProtocolService protocolService;
+
+    @Autowired
+    private ProtocolRepository protocolRepository;
+
+    private String importingPath;
+
+    private Path root;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        importingPath = properties.getImporting().getPath();
+        root = Files.createTempDirectory("sampling-importing");
+        properties.getImporting().setPath(root.toString());
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        properties.getImporting().setPath(importingPath);
+        FileSystemUtils.deleteRecursively(root);
+        Long[] ids = protocolRepository.findAllByProjectId(IMPORT_PROJECT_ID).stream()
+            .map(Protocol::getId)
+            .toArray(Long[]::new);
+        if (ids.length > 0) {
+            protocolService.deleteMany(IMPORT_PROJECT_ID, ids);
+        }
+    }
+
+    @Test
+    public void importDroppedFiles() throws Exception {
+        Path inbox = Files.createDirectories(root.resolve(INBOX_DIRECTORY).resolve(IMPORT_PROJECT_ID.toString()));
+        Path full = Files.write(inbox.resolve("page_full.data"),
+            TestUtil.readFileFromResourcesFolder("data/protocols/page_full.data"));
+        Path invalid = Files.write(inbox.resolve("page_invalid.data"), new byte[] { 1, 2, 3 });
+        Path copying = Files.write(inbox.resolve("page_copying.data"),
+            TestUtil.readFileFromResourcesFolder("data/protocols/page_full.data"));
+        long settled = System.currentTimeMillis() - 60000;
+        assertThat(full.toFile().setLastModified(settled)).isTrue();
+        assertThat(invalid.toFile().setLastModified(settled)).isTrue();
+
+        List<JobExecution> jobExecutions = watcher.poll();
+        assertThat(jobExecutions).hasSize(1);
+
+        JobExecution jobExecution = jobExecutions.get(0);
+        long deadline = System.currentTimeMillis() + 30000;
+        while (jobExecution.getStatus() == BatchStatus.STARTING || jobExecution.isRunning()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(100);
+            jobExecution = jobExplorer.getJobExecution(jobExecution.getId());
+        }
+
+        assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(protocolRepository.findAllByProjectId(IMPORT_PROJECT_ID)).hasSize(1);
+
+        // files still being copied are left for the next poll
+        assertThat(copying).exists();
+        assertThat(full).doesNotExist();
+        assertThat(invalid).doesNotExist();
+        assertThat(root.resolve(DONE_DIRECTORY).resolve(IMPORT_PROJECT_ID.toString()).resolve("page_full.data"))
+            .exists();
+        assertThat(root.resolve(FAILED_DIRECTORY).resolve(IMPORT_PROJECT_ID.toString()).resolve("page_invalid.data"))
+            .exists();
+    }
+
+    @Test
+    public void recoverFilesLeftInProcessing() throws Exception {
+        Path inbox = Files.createDirectories(root.resolve(INBOX_DIRECTORY).resolve(IMPORT_PROJECT_ID.toString()));
+        Path processing = Files.createDirectories(root.resolve(PROCESSING_DIRECTORY)
+            .resolve(IMPORT_PROJECT_ID.toString()).resolve("interrupted"));
+        Files.write(processing.resolve(ImportProtocolJobLauncher.storedFilename(0, "page_full.data")),
+            TestUtil.readFileFromResourcesFolder("data/protocols/page_full.data"));
+        Files.write(processing.resolve(ImportProtocolJobLauncher.storedFilename(1, "page_again.data")),
+            new byte[] { 1, 2, 3 });
+        // dropped again meanwhile
+        Files.write(inbox.resolve("page_again.data"), new byte[] { 4, 5, 6 });
+
+        watcher.recover();
+
+        assertThat(processing).doesNotExist();
+        assertThat(inbox.resolve("page_full.data")).exists();
+        assertThat(inbox.resolve("page_again.data")).hasBinaryContent(new byte[] { 4, 5, 6 });
+        assertThat(root.resolve(FAILED_DIRECTORY).resolve(IMPORT_PROJECT_ID.toString()).resolve("page_again.data"))
+            .hasBinaryContent(new byte[] { 1, 2, 3 });
+    }
+}
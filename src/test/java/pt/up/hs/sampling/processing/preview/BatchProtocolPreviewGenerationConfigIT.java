@@ -6,16 +6,21 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.test.JobLauncherTestUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import pt.up.hs.sampling.SamplingApp;
 import pt.up.hs.sampling.config.ApplicationProperties;
 import pt.up.hs.sampling.domain.Protocol;
+import pt.up.hs.sampling.domain.ProtocolData;
 import pt.up.hs.sampling.processing.BatchTestConfiguration;
 import pt.up.hs.sampling.repository.ProtocolDataRepository;
 import pt.up.hs.sampling.repository.ProtocolRepository;
+import pt.up.hs.sampling.repository.ProtocolStrokeDataRepository;
 import pt.up.hs.sampling.service.ProtocolService;
 import pt.up.hs.sampling.service.mapper.ProtocolDataMapper;
 import pt.up.hs.sampling.service.mapper.ProtocolMapper;
@@ -27,10 +32,14 @@ import javax.persistence.EntityManager;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.nio.file.Paths;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.io.FileMatchers.anExistingFile;
+import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_MAX_ID_PARAMETER;
+import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_MIN_ID_PARAMETER;
 import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_GENERATION_STEP;
 
 
@@ -48,6 +57,9 @@ public class BatchProtocolPreviewGenerationConfigIT {
     @Autowired
     private BatchProtocolPreviewGenerationConfig config;
 
+    @Autowired
+    private ProtocolPreviewGenerationPartitioner partitioner;
+
     @Autowired
     ApplicationProperties properties;
 
@@ -68,26 +80,33 @@ public class BatchProtocolPreviewGenerationConfigIT {
     private ProtocolRepository protocolRepository;
     @Autowired
     private ProtocolDataRepository protocolDataRepository;
+    @Autowired
+    private ProtocolStrokeDataRepository protocolStrokeDataRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     private List<Protocol> protocols;
 
     @BeforeEach
     @Transactional
     public void setup() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
         protocols = new UniversalHandwritingConverter()
             .file("data/protocols/page_full.data", new ByteArrayInputStream(TestUtil.readFileFromResourcesFolder("data/protocols/page_full.data")))
             .file("data/protocols/page_empty.data", new ByteArrayInputStream(TestUtil.readFileFromResourcesFolder("data/protocols/page_empty.data")))
             .getPages()
             .stream()
-            .map(uhcPageMapper::uhcPageToProtocolData)
-            .map(pd -> {
+            .map(page -> transaction.execute(status -> {
                 Protocol protocol = new Protocol().projectId(DEFAULT_PROJECT_ID);
 
+                ProtocolData pd = uhcPageMapper.uhcPageToProtocolData(page);
                 pd.setProtocol(protocol);
                 protocolDataRepository.saveAndFlush(pd);
+                protocolStrokeDataRepository.saveAndFlush(
+                    uhcPageMapper.uhcPageToProtocolStrokeData(page).protocolData(pd));
 
                 return pd.getProtocol();
-            })
+            }))
             .collect(Collectors.toList());
     }
 
@@ -95,6 +114,7 @@ public class BatchProtocolPreviewGenerationConfigIT {
     @Transactional
     public void cleanup() {
         for (Protocol protocol: protocols) {
+            protocolStrokeDataRepository.deleteById(protocol.getId());
             protocolDataRepository.deleteById(protocol.getId());
             protocolRepository.deleteByProjectIdAndId(protocol.getProjectId(), protocol.getId());
         }
@@ -115,6 +135,28 @@ public class BatchProtocolPreviewGenerationConfigIT {
                     protocol.getProjectId().toString(),
                     protocol.getId().toString() + ".png"
                 ).toFile()));
+            Assertions.assertFalse(protocolDataRepository.findById(protocol.getId()).get().isDirtyPreview());
+        }
+    }
+
+    @Test
+    public void testPartitions() {
+        Map<String, ExecutionContext> partitions = partitioner.partition(2);
+        Assertions.assertFalse(partitions.isEmpty());
+        Assertions.assertTrue(partitions.size() <= 2);
+
+        List<ExecutionContext> ranges = partitions.values().stream()
+            .sorted(Comparator.comparingLong(context -> context.getLong(PROTOCOL_PREVIEW_GENERATION_MIN_ID_PARAMETER)))
+            .collect(Collectors.toList());
+        for (int i = 1; i < ranges.size(); i++) {
+            Assertions.assertEquals(
+                ranges.get(i - 1).getLong(PROTOCOL_PREVIEW_GENERATION_MAX_ID_PARAMETER) + 1,
+                ranges.get(i).getLong(PROTOCOL_PREVIEW_GENERATION_MIN_ID_PARAMETER));
+        }
+        for (Protocol protocol: protocols) {
+            Assertions.assertTrue(ranges.stream().anyMatch(context ->
+                context.getLong(PROTOCOL_PREVIEW_GENERATION_MIN_ID_PARAMETER) <= protocol.getId() &&
+                    protocol.getId() <= context.getLong(PROTOCOL_PREVIEW_GENERATION_MAX_ID_PARAMETER)));
         }
     }
 
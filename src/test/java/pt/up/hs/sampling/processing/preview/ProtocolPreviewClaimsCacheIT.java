@@ -0,0 +1,117 @@
+package pt.up.hs.sampling.processing.preview;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.up.hs.sampling.SamplingApp;
+import pt.up.hs.sampling.domain.Protocol;
+import pt.up.hs.sampling.domain.ProtocolData;
+import pt.up.hs.sampling.repository.ProtocolDataRepository;
+import pt.up.hs.sampling.repository.ProtocolRepository;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the second-level caching of protocol data whose
+ * previews are claimed and cleaned by {@link ProtocolPreviewClaims}: only
+ * the claimed and cleaned protocol data are evicted.
+ */
+@SpringBootTest(classes = SamplingApp.class, properties = {
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+    "spring.jpa.properties.hibernate.cache.region.factory_class=com.hazelcast.hibernate.HazelcastCacheRegionFactory",
+    "spring.jpa.properties.hibernate.cache.hazelcast.instance_name=sampling"
+})
+public class ProtocolPreviewClaimsCacheIT {
+
+    private static final Long DEFAULT_PROJECT_ID = 1L;
+
+    private static final int PROTOCOLS = 3;
+
+    @Autowired
+    private ProtocolPreviewClaims claims;
+
+    @Autowired
+    private ProtocolRepository protocolRepository;
+
+    @Autowired
+    private ProtocolDataRepository protocolDataRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private TransactionTemplate transaction;
+
+    private List<Long> ids;
+
+    @BeforeEach
+    public void setup() {
+        transaction = new TransactionTemplate(transactionManager);
+        ids = transaction.execute(status -> {
+            List<Long> created = new ArrayList<>(PROTOCOLS);
+            for (int i = 0; i < PROTOCOLS; i++) {
+                Protocol protocol = protocolRepository.save(new Protocol().projectId(DEFAULT_PROJECT_ID));
+                ProtocolData pd = protocolDataRepository.save(new ProtocolData()
+                    .protocol(protocol)
+                    .width(210D)
+                    .height(297D));
+                created.add(pd.getProtocolId());
+            }
+            return created;
+        });
+    }
+
+    @AfterEach
+    public void cleanup() {
+        transaction.execute(status -> {
+            protocolDataRepository.deleteAllByProjectIdAndProtocolIdIn(DEFAULT_PROJECT_ID, ids);
+            protocolRepository.deleteAll(protocolRepository.findAllById(ids));
+            return null;
+        });
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    public void claimAndCleanEvictOnlyTheirProtocolData() {
+        Cache cache = entityManagerFactory.getCache();
+        ids.forEach(this::load);
+        for (Long id : ids) {
+            assertThat(cache.contains(ProtocolData.class, id)).isTrue();
+        }
+        List<Long> claimed = Collections.singletonList(ids.get(0));
+
+        assertThat(claims.claim(claimed)).containsExactlyElementsOf(claimed);
+
+        assertThat(cache.contains(ProtocolData.class, ids.get(0))).isFalse();
+        assertThat(cache.contains(ProtocolData.class, ids.get(1))).isTrue();
+        assertThat(cache.contains(ProtocolData.class, ids.get(2))).isTrue();
+        // the claim is seen once loaded again
+        assertThat(load(ids.get(0)).getPreviewClaimedBy()).isNotNull();
+
+        Integer cleaned = transaction.execute(status -> claims.clean(claimed));
+        assertThat(cleaned).isEqualTo(1);
+
+        assertThat(cache.contains(ProtocolData.class, ids.get(0))).isFalse();
+        assertThat(cache.contains(ProtocolData.class, ids.get(1))).isTrue();
+        assertThat(cache.contains(ProtocolData.class, ids.get(2))).isTrue();
+        ProtocolData pd = load(ids.get(0));
+        assertThat(pd.isDirtyPreview()).isFalse();
+        assertThat(pd.getPreviewClaimedBy()).isNull();
+    }
+
+    private ProtocolData load(Long id) {
+        return transaction.execute(status -> protocolDataRepository.findById(id).orElse(null));
+    }
+}
@@ -0,0 +1,192 @@
+package pt.up.hs.sampling.processing.preview;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.up.hs.sampling.SamplingApp;
+import pt.up.hs.sampling.config.ApplicationProperties;
+import pt.up.hs.sampling.domain.Protocol;
+import pt.up.hs.sampling.domain.ProtocolData;
+import pt.up.hs.sampling.repository.ProtocolDataRepository;
+import pt.up.hs.sampling.repository.ProtocolRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for {@link ProtocolPreviewClaims}, with several workers
+ * (threads) claiming the same previews, as workers of several instances do.
+ */
+@SpringBootTest(classes = SamplingApp.class)
+public class ProtocolPreviewClaimsIT {
+
+    private static final Long DEFAULT_PROJECT_ID = 1L;
+
+    private static final int PROTOCOLS = 60;
+    private static final int WORKERS = 4;
+    private static final int CHUNK_SIZE = 3;
+
+    @Autowired
+    private ProtocolPreviewClaims claims;
+
+    @Autowired
+    private ApplicationProperties properties;
+
+    @Autowired
+    private ProtocolRepository protocolRepository;
+
+    @Autowired
+    private ProtocolDataRepository protocolDataRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    private long lease;
+
+    private List<Long> ids;
+
+    @BeforeEach
+    public void setup() {
+        lease = properties.getPreview().getLease();
+        transaction = new TransactionTemplate(transactionManager);
+        ids = transaction.execute(status -> {
+            List<Long> created = new ArrayList<>(PROTOCOLS);
+            for (int i = 0; i < PROTOCOLS; i++) {
+                Protocol protocol = protocolRepository.save(new Protocol().projectId(DEFAULT_PROJECT_ID));
+                ProtocolData pd = protocolDataRepository.save(new ProtocolData()
+                    .protocol(protocol)
+                    .width(210D)
+                    .height(297D));
+                created.add(pd.getProtocolId());
+            }
+            return created;
+        });
+    }
+
+    @AfterEach
+    public void cleanup() {
+        properties.getPreview().setLease(lease);
+        transaction.execute(status -> {
+            protocolDataRepository.deleteAllByProjectIdAndProtocolIdIn(DEFAULT_PROJECT_ID, ids);
+            protocolRepository.deleteAll(protocolRepository.findAllById(ids));
+            return null;
+        });
+    }
+
+    @Test
+    public void workersClaimDisjointChunks() throws Exception {
+        long first = ids.get(0) - 1;
+        long last = ids.get(ids.size() - 1);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+        try {
+            List<Future<List<Long>>> workers = new ArrayList<>();
+            for (int i = 0; i < WORKERS; i++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    List<Long> claimed = new ArrayList<>();
+                    long after = first;
+                    List<Long> chunk;
+                    while (!(chunk = claims.claim(after, last, CHUNK_SIZE)).isEmpty()) {
+                        assertThat(chunk.size()).isLessThanOrEqualTo(CHUNK_SIZE);
+                        claimed.addAll(chunk);
+                        after = chunk.get(chunk.size() - 1);
+                    }
+                    return claimed;
+                }));
+            }
+            start.countDown();
+
+            List<Long> claimed = new ArrayList<>();
+            for (Future<List<Long>> worker : workers) {
+                claimed.addAll(worker.get(30, TimeUnit.SECONDS));
+            }
+            // each once, and all of them
+            assertThat(claimed).doesNotHaveDuplicates();
+            assertThat(claimed).containsExactlyInAnyOrderElementsOf(ids);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void claimedPreviewIsNotClaimedByOthers() throws Exception {
+        List<Long> protocolIds = ids.subList(0, 2);
+
+        assertThat(claims.claim(protocolIds)).containsExactlyElementsOf(protocolIds);
+
+        assertThat(inOtherWorker(() -> claims.claim(protocolIds))).isEmpty();
+        assertThat(inOtherWorker(() -> claims.claim(ids.get(0) - 1, ids.get(1), CHUNK_SIZE))).isEmpty();
+    }
+
+    @Test
+    public void expiredClaimIsClaimedByOthers() throws Exception {
+        List<Long> protocolIds = Collections.singletonList(ids.get(0));
+        properties.getPreview().setLease(0);
+
+        assertThat(claims.claim(protocolIds)).containsExactlyElementsOf(protocolIds);
+        Thread.sleep(10);
+
+        assertThat(inOtherWorker(() -> claims.claim(protocolIds))).containsExactlyElementsOf(protocolIds);
+    }
+
+    @Test
+    public void previewIsCleanedOnlyByWorkerClaimingIt() throws Exception {
+        List<Long> protocolIds = Collections.singletonList(ids.get(0));
+        claims.claim(protocolIds);
+
+        int cleanedByOthers = inOtherWorker(() -> clean(protocolIds));
+        assertThat(cleanedByOthers).isEqualTo(0);
+        assertThat(protocolDataRepository.findById(ids.get(0)).get().isDirtyPreview()).isTrue();
+
+        assertThat(clean(protocolIds)).isEqualTo(1);
+        assertThat(protocolDataRepository.findById(ids.get(0)).get().isDirtyPreview()).isFalse();
+    }
+
+    @Test
+    public void changedPreviewIsNotCleaned() {
+        List<Long> protocolIds = Collections.singletonList(ids.get(0));
+        claims.claim(protocolIds);
+
+        // changed while being generated
+        transaction.execute(status -> {
+            protocolDataRepository.markDirtyPreview(ids.get(0));
+            return null;
+        });
+
+        assertThat(clean(protocolIds)).isEqualTo(0);
+        assertThat(protocolDataRepository.findById(ids.get(0)).get().isDirtyPreview()).isTrue();
+        // and it can be claimed again
+        assertThat(claims.claim(protocolIds)).containsExactlyElementsOf(protocolIds);
+    }
+
+    private int clean(List<Long> protocolIds) {
+        Integer cleaned = transaction.execute(status -> claims.clean(protocolIds));
+        return cleaned == null ? 0 : cleaned;
+    }
+
+    private static <T> T inOtherWorker(Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(task).get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
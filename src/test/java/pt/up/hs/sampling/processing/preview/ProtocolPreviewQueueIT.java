@@ -0,0 +1,123 @@
+package pt.up.hs.sampling.processing.preview;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.up.hs.sampling.SamplingApp;
+import pt.up.hs.sampling.config.ApplicationProperties;
+import pt.up.hs.sampling.domain.enumeration.DotType;
+import pt.up.hs.sampling.domain.pojo.Dot;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.repository.ProtocolDataRepository;
+import pt.up.hs.sampling.service.ProtocolService;
+import pt.up.hs.sampling.service.dto.ProtocolDTO;
+import pt.up.hs.sampling.service.dto.ProtocolDataDTO;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = SamplingApp.class)
+public class ProtocolPreviewQueueIT {
+
+    private static final Long DEFAULT_PROJECT_ID = 1L;
+    private static final Long UNKNOWN_PROTOCOL_ID = -1L;
+
+    @Autowired
+    private ProtocolPreviewQueue queue;
+
+    @Autowired
+    private ApplicationProperties properties;
+
+    @Autowired
+    private ProtocolService protocolService;
+
+    @Autowired
+    private ProtocolDataRepository protocolDataRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private long queueDelay;
+
+    private Long protocolId;
+
+    @BeforeEach
+    public void setup() {
+        queueDelay = properties.getPreview().getQueueDelay();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        properties.getPreview().setQueueDelay(queueDelay);
+        if (protocolId != null) {
+            protocolService.delete(DEFAULT_PROJECT_ID, protocolId);
+        }
+    }
+
+    @Test
+    public void savedProtocolIsGenerated() throws Exception {
+        properties.getPreview().setQueueDelay(100);
+
+        Stroke stroke = new Stroke().startTime(10L).endTime(30L);
+        stroke.addDot(new Dot().x(1.5).y(2.5).timestamp(10L).type(DotType.DOWN).pressure(100D));
+        stroke.addDot(new Dot().x(30D).y(40D).timestamp(30L).type(DotType.UP).pressure(200D));
+        ProtocolDataDTO pdDTO = new ProtocolDataDTO();
+        pdDTO.setWidth(210D);
+        pdDTO.setHeight(297D);
+        pdDTO.setStrokes(Collections.singletonList(stroke));
+        ProtocolDTO protocolDTO = protocolService.saveData(DEFAULT_PROJECT_ID, pdDTO);
+        protocolId = protocolDTO.getId();
+
+        Path preview = Paths.get(properties.getPreview().getPath(),
+            DEFAULT_PROJECT_ID.toString(), protocolId + ".png");
+        long timeout = System.currentTimeMillis() + 10000;
+        while (protocolDataRepository.findById(protocolId).get().isDirtyPreview() &&
+            System.currentTimeMillis() < timeout) {
+            Thread.sleep(50);
+        }
+
+        assertThat(protocolDataRepository.findById(protocolId).get().isDirtyPreview()).isFalse();
+        assertThat(preview).exists();
+    }
+
+    @Test
+    public void protocolIsQueuedOnce() {
+        properties.getPreview().setQueueDelay(60000);
+        int size = queue.size();
+
+        queue.enqueue(UNKNOWN_PROTOCOL_ID);
+        queue.enqueue(UNKNOWN_PROTOCOL_ID);
+        queue.enqueue(Collections.singletonList(UNKNOWN_PROTOCOL_ID));
+
+        assertThat(queue.size()).isEqualTo(size + 1);
+    }
+
+    @Test
+    public void protocolIsQueuedOnCommit() {
+        properties.getPreview().setQueueDelay(60000);
+        int size = queue.size();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.execute(status -> {
+            queue.enqueue(UNKNOWN_PROTOCOL_ID - 1);
+            assertThat(queue.size()).isEqualTo(size);
+            status.setRollbackOnly();
+            return null;
+        });
+        assertThat(queue.size()).isEqualTo(size);
+
+        transaction.execute(status -> {
+            queue.enqueue(UNKNOWN_PROTOCOL_ID - 2);
+            assertThat(queue.size()).isEqualTo(size);
+            return null;
+        });
+        assertThat(queue.size()).isEqualTo(size + 1);
+    }
+}
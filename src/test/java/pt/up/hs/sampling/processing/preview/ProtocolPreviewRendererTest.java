@@ -0,0 +1,140 @@
+package pt.up.hs.sampling.processing.preview;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pt.up.hs.sampling.domain.codec.StrokeCodecTest;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.service.mapper.UhcStrokeMapper;
+import pt.up.hs.sampling.service.mapper.UhcStrokeMapperImpl;
+import pt.up.hs.uhc.models.Dot;
+import pt.up.hs.uhc.models.Page;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_HEIGHT;
+import static pt.up.hs.sampling.processing.preview.ProtocolPreviewGenerationConstants.PROTOCOL_PREVIEW_WIDTH;
+
+public class ProtocolPreviewRendererTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProtocolPreviewRendererTest.class);
+
+    private static final int PAGE_DOTS = 10000;
+
+    private final UhcStrokeMapper uhcStrokeMapper = new UhcStrokeMapperImpl();
+
+    @Test
+    public void java2dDrawsStrokesOnTransparentImage() throws Exception {
+        Page page = new Page();
+        page.setWidth(210.0);
+        page.setHeight(297.0);
+        page.getStrokes().add(stroke(dot(10.0, 10.0, 100.0), dot(100.0, 100.0, 1000.0)));
+        page.getStrokes().add(stroke(dot(150.0, 20.0, null)));
+        page.getStrokes().add(stroke(dot(null, 5.0, 1.0)));
+
+        BufferedImage image = render(new Java2dProtocolPreviewRenderer(), page);
+
+        assertThat(image.getWidth()).isEqualTo(PROTOCOL_PREVIEW_WIDTH);
+        assertThat(image.getHeight()).isEqualTo(PROTOCOL_PREVIEW_HEIGHT);
+        double scale = PROTOCOL_PREVIEW_WIDTH / 210.0;
+        // on the segment
+        assertThat(alpha(image, (int) (55 * scale), (int) (55 * scale))).isGreaterThan(0);
+        // the single dot
+        assertThat(alpha(image, (int) (150 * scale), (int) (20 * scale))).isGreaterThan(0);
+        // background
+        assertThat(alpha(image, (int) (100 * scale), (int) (10 * scale))).isEqualTo(0);
+        assertThat(alpha(image, PROTOCOL_PREVIEW_WIDTH - 1, PROTOCOL_PREVIEW_HEIGHT - 1)).isEqualTo(0);
+    }
+
+    @Test
+    public void java2dRendersEmptyPage() throws Exception {
+        Page page = new Page();
+        page.setWidth(210.0);
+        page.setHeight(297.0);
+
+        BufferedImage image = render(new Java2dProtocolPreviewRenderer(), page);
+
+        assertThat(image.getWidth()).isEqualTo(PROTOCOL_PREVIEW_WIDTH);
+        assertThat(alpha(image, PROTOCOL_PREVIEW_WIDTH / 2, PROTOCOL_PREVIEW_HEIGHT / 2)).isEqualTo(0);
+    }
+
+    @Test
+    public void java2dVersusSvgBenchmark() throws Exception {
+        List<Stroke> strokes = StrokeCodecTest.generatePage(new Random(3), PAGE_DOTS, 3);
+
+        int warmUp = 30;
+        int iterations = 20;
+        double java2d = imagesPerSecond(new Java2dProtocolPreviewRenderer(), strokes, warmUp, iterations);
+        double svg = imagesPerSecond(new SvgProtocolPreviewRenderer(), strokes, warmUp, iterations);
+
+        log.info("per {} dots: java2d renders {} images/s and svg renders {} images/s",
+            PAGE_DOTS, Math.round(java2d), Math.round(svg));
+
+        assertThat(java2d).isPositive();
+        assertThat(svg).isPositive();
+    }
+
+    private double imagesPerSecond(
+        ProtocolPreviewRenderer renderer,
+        List<Stroke> strokes,
+        int warmUp,
+        int iterations
+    ) throws Exception {
+        long time = 0;
+        for (int i = 0; i < warmUp + iterations; i++) {
+            Page page = page(strokes);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            long t0 = System.nanoTime();
+            renderer.render(page, PROTOCOL_PREVIEW_WIDTH, PROTOCOL_PREVIEW_HEIGHT, baos);
+            long t1 = System.nanoTime();
+            if (i >= warmUp) {
+                time += t1 - t0;
+            }
+            assertThat(baos.size()).isPositive();
+        }
+        return iterations * 1e9 / time;
+    }
+
+    private Page page(List<Stroke> strokes) {
+        Page page = new Page();
+        page.setWidth(210.0);
+        page.setHeight(297.0);
+        page.setStrokes(strokes.stream()
+            .map(uhcStrokeMapper::strokeToUhcStroke)
+            .collect(Collectors.toList()));
+        return page;
+    }
+
+    private static BufferedImage render(ProtocolPreviewRenderer renderer, Page page) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        renderer.render(page, PROTOCOL_PREVIEW_WIDTH, PROTOCOL_PREVIEW_HEIGHT, baos);
+        return ImageIO.read(new ByteArrayInputStream(baos.toByteArray()));
+    }
+
+    private static int alpha(BufferedImage image, int x, int y) {
+        return image.getRGB(x, y) >>> 24;
+    }
+
+    private static pt.up.hs.uhc.models.Stroke stroke(Dot... dots) {
+        pt.up.hs.uhc.models.Stroke stroke = new pt.up.hs.uhc.models.Stroke();
+        for (Dot dot : dots) {
+            stroke.getDots().add(dot);
+        }
+        return stroke;
+    }
+
+    private static Dot dot(Double x, Double y, Double pressure) {
+        Dot dot = new Dot();
+        dot.setX(x);
+        dot.setY(y);
+        dot.setPressure(pressure);
+        return dot;
+    }
+}
@@ -0,0 +1,202 @@
+package pt.up.hs.sampling.processing.preview;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.FileSystemUtils;
+import pt.up.hs.sampling.config.ApplicationProperties;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ProtocolPreviewRenditionCacheTest {
+
+    private Path folder;
+
+    private ApplicationProperties properties;
+    private ProtocolPreviewRenditionCache cache;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        folder = Files.createTempDirectory("sampling-previews");
+        properties = new ApplicationProperties();
+        properties.getPreview().setPath(folder.toString());
+        cache = new ProtocolPreviewRenditionCache(properties);
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        FileSystemUtils.deleteRecursively(folder);
+    }
+
+    @Test
+    public void renditionWidthIsBucketed() {
+        // no size
+        assertThat(ProtocolPreviewRenditionCache.renditionWidth(210, 297, null, null, null)).isEqualTo(300);
+        // width
+        assertThat(ProtocolPreviewRenditionCache.renditionWidth(210, 297, 150, null, null)).isEqualTo(150);
+        assertThat(ProtocolPreviewRenditionCache.renditionWidth(210, 297, 151, null, null)).isEqualTo(300);
+        // width at higher resolution
+        assertThat(ProtocolPreviewRenditionCache.renditionWidth(210, 297, 300, null, 192)).isEqualTo(600);
+        // whole page within the height
+        assertThat(ProtocolPreviewRenditionCache.renditionWidth(210, 297, null, 800, null)).isEqualTo(600);
+        assertThat(ProtocolPreviewRenditionCache.renditionWidth(210, 297, 1000, 400, null)).isEqualTo(300);
+        // larger than the largest
+        assertThat(ProtocolPreviewRenditionCache.renditionWidth(210, 297, 10000, null, 1200)).isEqualTo(2400);
+    }
+
+    @Test
+    public void renditionIsRenderedOnce() throws Exception {
+        AtomicInteger renders = new AtomicInteger();
+
+        byte[] first = cache.get(1, 2, 600, 0, () -> new byte[] { (byte) renders.incrementAndGet() });
+        byte[] second = cache.get(1, 2, 600, 0, () -> new byte[] { (byte) renders.incrementAndGet() });
+
+        assertThat(renders.get()).isEqualTo(1);
+        assertThat(second).isEqualTo(first);
+        assertThat(folder.resolve("renditions/1/2-600.png")).exists();
+    }
+
+    @Test
+    public void outdatedRenditionIsRenderedAgain() throws Exception {
+        cache.get(1, 2, 600, 0, () -> new byte[] { 1 });
+
+        byte[] rendition = cache.get(1, 2, 600, System.currentTimeMillis() + 60000, () -> new byte[] { 2 });
+
+        assertThat(rendition).containsExactly(2);
+    }
+
+    @Test
+    public void concurrentRequestsCollapseIntoOneRender() throws Exception {
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<byte[]>> requests = new ArrayList<>();
+            requests.add(executor.submit(() -> cache.get(1, 2, 600, 0, () -> {
+                renders.incrementAndGet();
+                rendering.countDown();
+                release.await();
+                return new byte[] { 7 };
+            })));
+            assertThat(rendering.await(10, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 3; i++) {
+                requests.add(executor.submit(() -> cache.get(1, 2, 600, 0, () -> {
+                    renders.incrementAndGet();
+                    return new byte[] { 8 };
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<byte[]> request : requests) {
+                assertThat(request.get(10, TimeUnit.SECONDS)).containsExactly(7);
+            }
+            assertThat(renders.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentRendersOfSameVersionCollapseAndAreNotKept() throws Exception {
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<byte[]>> requests = new ArrayList<>();
+            requests.add(executor.submit(() -> cache.render(1, 2, 600, 10, () -> {
+                renders.incrementAndGet();
+                rendering.countDown();
+                release.await();
+                return new byte[] { 7 };
+            })));
+            assertThat(rendering.await(10, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 3; i++) {
+                requests.add(executor.submit(() -> cache.render(1, 2, 600, 10, () -> {
+                    renders.incrementAndGet();
+                    return new byte[] { 8 };
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<byte[]> request : requests) {
+                assertThat(request.get(10, TimeUnit.SECONDS)).containsExactly(7);
+            }
+            assertThat(renders.get()).isEqualTo(1);
+            assertThat(folder.resolve("renditions/1/2-600.png")).doesNotExist();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // not kept, so rendered again (as is another version)
+        assertThat(cache.render(1, 2, 600, 10, () -> new byte[] { 9 })).containsExactly(9);
+        assertThat(cache.render(1, 2, 600, 11, () -> new byte[] { 10 })).containsExactly(10);
+    }
+
+    @Test
+    public void failedRenderIsNotKept() throws Exception {
+        assertThatThrownBy(() -> cache.get(1, 2, 600, 0, () -> {
+            throw new IllegalStateException("broken");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(folder.resolve("renditions/1/2-600.png")).doesNotExist();
+        assertThat(cache.get(1, 2, 600, 0, () -> new byte[] { 1 })).containsExactly(1);
+    }
+
+    @Test
+    public void leastRecentlyUsedAreEvictedOverBudget() throws Exception {
+        properties.getPreview().setRenditionCacheSize(25);
+
+        cache.get(1, 1, 150, 0, () -> new byte[10]);
+        cache.get(1, 2, 150, 0, () -> new byte[10]);
+        // used again, so the second is the least recently used
+        cache.get(1, 1, 150, 0, () -> new byte[10]);
+        cache.get(1, 3, 150, 0, () -> new byte[10]);
+
+        assertThat(folder.resolve("renditions/1/1-150.png")).exists();
+        assertThat(folder.resolve("renditions/1/2-150.png")).doesNotExist();
+        assertThat(folder.resolve("renditions/1/3-150.png")).exists();
+    }
+
+    @Test
+    public void renditionsLeftOnDiskCountTowardsBudget() throws Exception {
+        Files.createDirectories(folder.resolve("renditions/1"));
+        Files.write(folder.resolve("renditions/1/1-150.png"), new byte[20]);
+        properties.getPreview().setRenditionCacheSize(25);
+
+        cache.get(1, 2, 150, 0, () -> new byte[10]);
+
+        assertThat(folder.resolve("renditions/1/1-150.png")).doesNotExist();
+        assertThat(folder.resolve("renditions/1/2-150.png")).exists();
+    }
+
+    @Test
+    public void evictDeletesRenditionsOfProtocol() throws Exception {
+        cache.get(1, 2, 150, 0, () -> new byte[] { 1 });
+        cache.get(1, 2, 600, 0, () -> new byte[] { 1 });
+        cache.get(1, 20, 150, 0, () -> new byte[] { 1 });
+
+        cache.evict(1, 2);
+
+        assertThat(folder.resolve("renditions/1/2-150.png")).doesNotExist();
+        assertThat(folder.resolve("renditions/1/2-600.png")).doesNotExist();
+        assertThat(folder.resolve("renditions/1/20-150.png")).exists();
+    }
+}
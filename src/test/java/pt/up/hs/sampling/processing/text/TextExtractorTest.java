@@ -0,0 +1,149 @@
+package pt.up.hs.sampling.processing.text;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.XHTMLContentHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import pt.up.hs.sampling.config.ApplicationProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TextExtractorTest {
+
+    private static final String STUCK_PREFIX = "stuck";
+
+    private final CountDownLatch unstick = new CountDownLatch(1);
+    private final CountDownLatch stuck = new CountDownLatch(1);
+
+    private ApplicationProperties properties;
+    private TextExtractor extractor;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new ApplicationProperties();
+        properties.getImporting().setThreads(1).setTextTimeout(300);
+        extractor = new TextExtractor(properties, new InterruptIgnoringParser());
+    }
+
+    @AfterEach
+    public void cleanup() {
+        unstick.countDown();
+    }
+
+    @Test
+    public void stuckParseDoesNotHoldBackFollowingDocuments() throws Exception {
+        long start = System.currentTimeMillis();
+
+        List<TextExtractor.Result> results = extractAll("stuck.pdf", "a.txt", "b.txt");
+
+        assertThat(results).extracting(TextExtractor.Result::getName).containsExactly("stuck.pdf", "a.txt", "b.txt");
+        assertThat(results.get(0).isValid()).isFalse();
+        assertThat(results.get(0).getError()).isInstanceOf(TimeoutException.class);
+        assertThat(results.get(1).getText()).isEqualTo("text of a.txt");
+        assertThat(results.get(2).getText()).isEqualTo("text of b.txt");
+        assertThat(System.currentTimeMillis() - start).isLessThan(5000);
+
+        // the stuck parse is still running, but does not hold the only turn
+        assertThat(extractAll("c.txt").get(0).getText()).isEqualTo("text of c.txt");
+    }
+
+    @Test
+    public void documentNotStartedInTimeFails() throws Exception {
+        properties.getImporting().setTextTimeout(10000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // takes the only turn, for longer than the others may wait
+            Future<List<TextExtractor.Result>> first = executor.submit(() -> extractAll("stuck.pdf"));
+            assertThat(stuck.await(10, TimeUnit.SECONDS)).isTrue();
+            properties.getImporting().setTextTimeout(200);
+
+            long start = System.currentTimeMillis();
+            List<TextExtractor.Result> results = extractAll("a.txt");
+
+            assertThat(results.get(0).isValid()).isFalse();
+            assertThat(results.get(0).getError()).isInstanceOf(TimeoutException.class);
+            assertThat(System.currentTimeMillis() - start).isLessThan(5000);
+
+            unstick.countDown();
+            assertThat(first.get(10, TimeUnit.SECONDS).get(0).getText()).isEqualTo("text of stuck.pdf");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<TextExtractor.Result> extractAll(String... names) throws InterruptedException {
+        List<TextExtractor.Document> documents = new ArrayList<>();
+        for (String name : names) {
+            documents.add(new TextExtractor.Document() {
+
+                @Override
+                public String getName() {
+                    return name;
+                }
+
+                @Override
+                public InputStream getInputStream() {
+                    return new ByteArrayInputStream(name.getBytes());
+                }
+            });
+        }
+        List<TextExtractor.Result> results = Collections.synchronizedList(new ArrayList<>());
+        extractor.extractAll(documents, results::add);
+        return results;
+    }
+
+    /**
+     * Parser writing "text of <name>", which gets stuck (ignoring
+     * interrupts, as some parsers do) on documents named "stuck*".
+     */
+    private class InterruptIgnoringParser implements Parser {
+
+        @Override
+        public Set<MediaType> getSupportedTypes(ParseContext context) {
+            return new HashSet<>(Arrays.asList(MediaType.TEXT_PLAIN, MediaType.application("pdf")));
+        }
+
+        @Override
+        public void parse(
+            InputStream stream, ContentHandler handler, Metadata metadata, ParseContext context
+        ) throws SAXException {
+            String name = metadata.get(Metadata.RESOURCE_NAME_KEY);
+            if (name.startsWith(STUCK_PREFIX)) {
+                stuck.countDown();
+                boolean done = false;
+                while (!done) {
+                    try {
+                        done = unstick.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        // ignored
+                    }
+                }
+            }
+            XHTMLContentHandler xhtml = new XHTMLContentHandler(handler, metadata);
+            xhtml.startDocument();
+            xhtml.element("p", "text of " + name);
+            xhtml.endDocument();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package pt.up.hs.sampling.repository;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import pt.up.hs.sampling.SamplingApp;
+import pt.up.hs.sampling.config.Constants;
+import pt.up.hs.sampling.config.SecurityBeanOverrideConfiguration;
+import pt.up.hs.sampling.domain.Protocol;
+import pt.up.hs.sampling.domain.ProtocolData;
+import pt.up.hs.sampling.domain.ProtocolStrokeData;
+import pt.up.hs.sampling.domain.ProtocolSummary;
+import pt.up.hs.sampling.domain.codec.StrokeCodecTest;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for {@link CustomProtocolDataRepositoryImpl}.
+ */
+@SpringBootTest(classes = {SecurityBeanOverrideConfiguration.class, SamplingApp.class})
+public class CustomProtocolDataRepositoryIT {
+
+    private static final Long DEFAULT_PROJECT_ID = 1L;
+
+    private static final int BENCHMARK_ROWS = 500;
+
+    private final Logger log = LoggerFactory.getLogger(CustomProtocolDataRepositoryIT.class);
+
+    @Autowired
+    private ProtocolDataRepository protocolDataRepository;
+
+    @Autowired
+    private ProtocolRepository protocolRepository;
+
+    @Autowired
+    private ProtocolStrokeDataRepository protocolStrokeDataRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    @Transactional
+    public void bulkSave() {
+        List<ProtocolStrokeData> protocolsData = createProtocolsData(new Random(7), 3);
+
+        protocolDataRepository.bulkSave(protocolsData);
+        em.clear();
+
+        for (ProtocolStrokeData expected : protocolsData) {
+            Protocol expectedProtocol = expected.getProtocolData().getProtocol();
+            assertThat(expectedProtocol.getId()).isNotNull();
+
+            Protocol protocol = protocolRepository.findById(expectedProtocol.getId()).orElse(null);
+            assertThat(protocol).isNotNull();
+            assertThat(protocol.getProjectId()).isEqualTo(DEFAULT_PROJECT_ID);
+            assertThat(protocol.getSummary()).isEqualTo(expectedProtocol.getSummary());
+            assertThat(protocol.getCreatedBy()).isEqualTo(Constants.SYSTEM_ACCOUNT);
+            assertThat(protocol.getCreatedDate()).isNotNull();
+
+            ProtocolData protocolData = protocolDataRepository.findById(protocol.getId()).orElse(null);
+            assertThat(protocolData).isNotNull();
+            assertThat(protocolData.getProtocolId()).isEqualTo(protocol.getId());
+            assertThat(protocolData.getWidth()).isEqualTo(expected.getProtocolData().getWidth());
+            assertThat(protocolData.getHeight()).isEqualTo(expected.getProtocolData().getHeight());
+            assertThat(protocolData.getMetadata()).isEqualTo(expected.getProtocolData().getMetadata());
+            assertThat(protocolData.isDirtyPreview()).isTrue();
+
+            ProtocolStrokeData strokeData = protocolStrokeDataRepository.findById(protocol.getId()).orElse(null);
+            assertThat(strokeData).isNotNull();
+            assertThat(strokeData.getStrokes()).isEqualTo(expected.getStrokes());
+            assertThat(strokeData.getStrokeIndex()).isNotNull();
+            assertThat(strokeData.getSpatialIndex()).isNotNull();
+            assertThat(strokeData.getStrokeLods()).isNotNull();
+        }
+    }
+
+    /**
+     * Every mapped property (but associations and collections) must be
+     * written by the bulk save, so an entity gaining a property which is
+     * not written (or not set below) fails this test.
+     */
+    @Test
+    @Transactional
+    public void bulkSaveWritesEveryMappedProperty() {
+        ProtocolStrokeData expected = createProtocolsData(new Random(11), 1).get(0);
+        Protocol expectedProtocol = expected.getProtocolData().getProtocol()
+            .pageNumber(2)
+            .taskId(3L)
+            .participantId(4L)
+            .language("pt")
+            .contentHash("hash");
+        ProtocolData expectedProtocolData = expected.getProtocolData()
+            .previewClaimedBy("worker")
+            .previewClaimedUntil(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+
+        protocolDataRepository.bulkSave(Collections.singletonList(expected));
+        em.clear();
+
+        Long id = expectedProtocol.getId();
+        assertWritten(Protocol.class, expectedProtocol, em.find(Protocol.class, id));
+        assertWritten(ProtocolData.class, expectedProtocolData, em.find(ProtocolData.class, id));
+        assertWritten(ProtocolStrokeData.class, expected, em.find(ProtocolStrokeData.class, id));
+    }
+
+    private void assertWritten(Class<?> entityClass, Object expected, Object actual) {
+        assertThat(actual).isNotNull();
+        EntityPersister persister = em.unwrap(SessionImplementor.class).getFactory()
+            .getMetamodel().entityPersister(entityClass);
+        String[] names = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+        Object[] expectedValues = persister.getPropertyValues(expected);
+        Object[] actualValues = persister.getPropertyValues(actual);
+        for (int i = 0; i < names.length; i++) {
+            if (types[i].isAssociationType()) {
+                continue;
+            }
+            String property = entityClass.getSimpleName() + "." + names[i];
+            assertThat(expectedValues[i]).as("%s is not set in the test", property).isNotNull();
+            assertThat(Objects.deepEquals(truncated(expectedValues[i]), truncated(actualValues[i])))
+                .as("%s is not written by the bulk save", property).isTrue();
+        }
+    }
+
+    /**
+     * Instants as stored (the precision of the clock may exceed that of the
+     * database).
+     */
+    private static Object truncated(Object value) {
+        return value instanceof Instant ? ((Instant) value).truncatedTo(ChronoUnit.MILLIS) : value;
+    }
+
+    /**
+     * Compare the rows saved per second with JDBC batches against saving
+     * each row through the entity manager (merge and persist, flushing
+     * every 25 rows, as done before).
+     */
+    @Test
+    @Transactional
+    public void bulkSaveBenchmark() {
+        Random random = new Random(42);
+
+        // warm up both paths
+        saveWithEntityManager(createProtocolsData(random, 25));
+        protocolDataRepository.bulkSave(createProtocolsData(random, 25));
+        em.clear();
+
+        List<ProtocolStrokeData> perRow = createProtocolsData(random, BENCHMARK_ROWS);
+        long start = System.nanoTime();
+        saveWithEntityManager(perRow);
+        double perRowSeconds = (System.nanoTime() - start) / 1e9;
+
+        List<ProtocolStrokeData> batched = createProtocolsData(random, BENCHMARK_ROWS);
+        start = System.nanoTime();
+        protocolDataRepository.bulkSave(batched);
+        em.flush();
+        double batchedSeconds = (System.nanoTime() - start) / 1e9;
+        em.clear();
+
+        log.info("Saved {} protocols: entity manager {} rows/s, JDBC batches {} rows/s",
+            BENCHMARK_ROWS,
+            String.format("%.0f", BENCHMARK_ROWS / perRowSeconds),
+            String.format("%.0f", BENCHMARK_ROWS / batchedSeconds));
+
+        assertThat(protocolStrokeDataRepository.findAllById(ids(perRow))).hasSize(BENCHMARK_ROWS);
+        assertThat(protocolStrokeDataRepository.findAllById(ids(batched))).hasSize(BENCHMARK_ROWS);
+    }
+
+    private void saveWithEntityManager(List<ProtocolStrokeData> protocolsData) {
+        for (int i = 1; i <= protocolsData.size(); i++) {
+            ProtocolStrokeData strokeData = protocolsData.get(i - 1);
+            ProtocolData protocolData = strokeData.getProtocolData();
+            protocolData.setProtocol(em.merge(protocolData.getProtocol()));
+            em.persist(protocolData);
+            em.persist(strokeData);
+            if (i % 25 == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    private static List<ProtocolStrokeData> createProtocolsData(Random random, int count) {
+        List<ProtocolStrokeData> protocolsData = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<Stroke> strokes = StrokeCodecTest.generatePage(random, 600, 3);
+            Protocol protocol = new Protocol()
+                .projectId(DEFAULT_PROJECT_ID)
+                .summary(ProtocolSummary.of(strokes));
+            ProtocolData protocolData = new ProtocolData()
+                .protocol(protocol)
+                .width(210D)
+                .height(297D)
+                .metadata(Collections.singletonMap("pen", "test"));
+            protocolsData.add(new ProtocolStrokeData().protocolData(protocolData).strokes(strokes));
+        }
+        return protocolsData;
+    }
+
+    private static List<Long> ids(List<ProtocolStrokeData> protocolsData) {
+        List<Long> ids = new ArrayList<>(protocolsData.size());
+        for (ProtocolStrokeData strokeData : protocolsData) {
+            ids.add(strokeData.getProtocolData().getProtocol().getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,200 @@
+package pt.up.hs.sampling.service.mapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pt.up.hs.sampling.domain.codec.StrokeCodecTest;
+import pt.up.hs.sampling.domain.enumeration.DotType;
+import pt.up.hs.sampling.domain.pojo.Dot;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.domain.pojo.StrokeBuffer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UhcStrokeMapperTest {
+
+    private static final Logger log = LoggerFactory.getLogger(UhcStrokeMapperTest.class);
+
+    private static final int PAGE_DOTS = 10000;
+
+    private UhcStrokeMapper uhcStrokeMapper;
+
+    @BeforeEach
+    public void setUp() {
+        uhcStrokeMapper = new UhcStrokeMapperImpl();
+    }
+
+    @Test
+    public void strokeToUhcStrokeExposesStoredDots() {
+        Map<String, Object> metadata = Collections.singletonMap("pen", "neo");
+        Stroke stroke = new Stroke().startTime(10L).endTime(30L).metadata(metadata);
+        stroke.addDot(new Dot().x(1.5).y(2.5).pressure(100.0).timestamp(10L).type(DotType.DOWN));
+        stroke.addDot(new Dot().x(null).y(3.0).pressure(null).timestamp(null).metadata(metadata));
+
+        pt.up.hs.uhc.models.Stroke uhcStroke = uhcStrokeMapper.strokeToUhcStroke(stroke);
+
+        assertThat(uhcStroke.getStartTime()).isEqualTo(10L);
+        assertThat(uhcStroke.getEndTime()).isEqualTo(30L);
+        assertThat(uhcStroke.getMetadata()).isEqualTo(metadata);
+        assertThat(uhcStroke.getDots()).hasSize(2);
+        pt.up.hs.uhc.models.Dot first = uhcStroke.getDots().get(0);
+        assertThat(first.getX()).isEqualTo(1.5);
+        assertThat(first.getY()).isEqualTo(2.5);
+        assertThat(first.getPressure()).isEqualTo(100.0);
+        assertThat(first.getTimestamp()).isEqualTo(10L);
+        assertThat(first.getType()).isEqualTo(pt.up.hs.uhc.models.DotType.DOWN);
+        assertThat(first.getMetadata()).isNull();
+        pt.up.hs.uhc.models.Dot second = uhcStroke.getDots().get(1);
+        assertThat(second.getX()).isNull();
+        assertThat(second.getY()).isEqualTo(3.0);
+        assertThat(second.getPressure()).isNull();
+        assertThat(second.getTimestamp()).isNull();
+        assertThat(second.getType()).isNull();
+        assertThat(second.getMetadata()).isEqualTo(metadata);
+        assertThat(uhcStroke.getDots().get(1)).isSameAs(second);
+
+        assertThat(uhcStrokeMapper.uhcStrokeToStroke(uhcStroke)).isEqualTo(stroke);
+    }
+
+    @Test
+    public void changesToUhcStrokeLeaveStoredDotsAlone() {
+        Stroke stroke = new Stroke();
+        stroke.addDot(new Dot().x(1.0).y(2.0).pressure(3.0).timestamp(4L).type(DotType.MOVE));
+
+        pt.up.hs.uhc.models.Dot dot = uhcStrokeMapper.strokeToUhcStroke(stroke).getDots().get(0);
+        dot.setX(10.0);
+
+        assertThat(dot.getX()).isEqualTo(10.0);
+        assertThat(dot.getY()).isEqualTo(2.0);
+        assertThat(dot.getPressure()).isEqualTo(3.0);
+        assertThat(dot.getTimestamp()).isEqualTo(4L);
+        assertThat(dot.getType()).isEqualTo(pt.up.hs.uhc.models.DotType.MOVE);
+        assertThat(stroke.getDots().getX(0)).isEqualTo(1.0);
+    }
+
+    @Test
+    public void viewVersusCopyBenchmark() {
+        List<Stroke> strokes = StrokeCodecTest.generatePage(new Random(2), PAGE_DOTS, 3);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean
+            ? (com.sun.management.ThreadMXBean) threads
+            : null;
+
+        int warmUp = 20;
+        int iterations = 20;
+        long[] copy = new long[4], view = new long[4];
+        double copySum = 0, viewSum = 0;
+        for (int i = 0; i < warmUp + iterations; i++) {
+            long[] round = new long[4];
+            copySum = measure(allocations, round, () -> copy(strokes));
+            if (i >= warmUp) {
+                accumulate(copy, round);
+            }
+            viewSum = measure(allocations, round, () -> view(strokes));
+            if (i >= warmUp) {
+                accumulate(view, round);
+            }
+        }
+
+        log.info("per {} dots: copy maps in {} us ({} bytes) and is read in {} us ({} bytes)",
+            PAGE_DOTS, copy[0] / iterations / 1000, copy[1] / iterations,
+            copy[2] / iterations / 1000, copy[3] / iterations);
+        log.info("per {} dots: view maps in {} us ({} bytes) and is read in {} us ({} bytes)",
+            PAGE_DOTS, view[0] / iterations / 1000, view[1] / iterations,
+            view[2] / iterations / 1000, view[3] / iterations);
+
+        assertThat(viewSum).isEqualTo(copySum);
+    }
+
+    /**
+     * Map strokes and then read them, keeping the time and bytes allocated
+     * by each phase in {@code round}.
+     */
+    private static double measure(
+        com.sun.management.ThreadMXBean allocations,
+        long[] round,
+        Supplier<List<pt.up.hs.uhc.models.Stroke>> mapping
+    ) {
+        long b0 = allocatedBytes(allocations);
+        long t0 = System.nanoTime();
+        List<pt.up.hs.uhc.models.Stroke> uhcStrokes = mapping.get();
+        long t1 = System.nanoTime();
+        long b1 = allocatedBytes(allocations);
+        double sum = traverse(uhcStrokes);
+        long t2 = System.nanoTime();
+        long b2 = allocatedBytes(allocations);
+        round[0] = t1 - t0;
+        round[1] = b1 - b0;
+        round[2] = t2 - t1;
+        round[3] = b2 - b1;
+        return sum;
+    }
+
+    private static void accumulate(long[] total, long[] round) {
+        for (int i = 0; i < total.length; i++) {
+            total[i] += round[i];
+        }
+    }
+
+    private List<pt.up.hs.uhc.models.Stroke> view(List<Stroke> strokes) {
+        List<pt.up.hs.uhc.models.Stroke> uhcStrokes = new ArrayList<>(strokes.size());
+        for (Stroke stroke : strokes) {
+            uhcStrokes.add(uhcStrokeMapper.strokeToUhcStroke(stroke));
+        }
+        return uhcStrokes;
+    }
+
+    /**
+     * Copy strokes into UHC strokes, dot by dot, as they were before views.
+     */
+    private static List<pt.up.hs.uhc.models.Stroke> copy(List<Stroke> strokes) {
+        List<pt.up.hs.uhc.models.Stroke> uhcStrokes = new ArrayList<>(strokes.size());
+        for (Stroke stroke : strokes) {
+            pt.up.hs.uhc.models.Stroke uhcStroke = new pt.up.hs.uhc.models.Stroke();
+            uhcStroke.setStartTime(stroke.getStartTime());
+            uhcStroke.setEndTime(stroke.getEndTime());
+            List<pt.up.hs.uhc.models.Dot> dots = new ArrayList<>(stroke.getDots().size());
+            StrokeBuffer.Cursor cursor = stroke.getDots().cursor();
+            while (cursor.next()) {
+                pt.up.hs.uhc.models.Dot dot = new pt.up.hs.uhc.models.Dot();
+                dot.setX(cursor.x());
+                dot.setY(cursor.y());
+                dot.setTimestamp(cursor.timestamp());
+                dot.setType(pt.up.hs.uhc.models.DotType.valueOf(cursor.type().name()));
+                dot.setPressure(cursor.pressure());
+                dot.setMetadata(cursor.metadata());
+                dots.add(dot);
+            }
+            uhcStroke.setDots(dots);
+            uhcStrokes.add(uhcStroke);
+        }
+        return uhcStrokes;
+    }
+
+    /**
+     * Read every dot once, as a converter writing them would.
+     */
+    private static double traverse(List<pt.up.hs.uhc.models.Stroke> strokes) {
+        double sum = 0;
+        for (pt.up.hs.uhc.models.Stroke stroke : strokes) {
+            for (pt.up.hs.uhc.models.Dot dot : stroke.getDots()) {
+                sum += dot.getX() + dot.getY() + dot.getPressure() + dot.getTimestamp() + dot.getType().ordinal();
+            }
+        }
+        return sum;
+    }
+
+    private static long allocatedBytes(com.sun.management.ThreadMXBean allocations) {
+        return allocations == null ? 0 : allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -1,33 +1,68 @@
 package pt.up.hs.sampling.web.rest;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.Validator;
 import pt.up.hs.sampling.SamplingApp;
+import pt.up.hs.sampling.config.ApplicationProperties;
 import pt.up.hs.sampling.config.SecurityBeanOverrideConfiguration;
+import pt.up.hs.sampling.constants.MediaTypes;
 import pt.up.hs.sampling.domain.Protocol;
+import pt.up.hs.sampling.domain.codec.StrokeIndex;
+import pt.up.hs.sampling.domain.codec.StrokeSpatialIndex;
+import pt.up.hs.sampling.domain.enumeration.DotType;
+import pt.up.hs.sampling.domain.pojo.Dot;
+import pt.up.hs.sampling.domain.pojo.Stroke;
+import pt.up.hs.sampling.repository.ProtocolDataRepository;
 import pt.up.hs.sampling.repository.ProtocolRepository;
+import pt.up.hs.sampling.repository.ProtocolStrokeDataRepository;
+import pt.up.hs.sampling.repository.ProtocolStrokeSegmentRepository;
 import pt.up.hs.sampling.service.ProtocolQueryService;
+import pt.up.hs.sampling.service.ProtocolImportService;
 import pt.up.hs.sampling.service.ProtocolService;
+import pt.up.hs.sampling.service.dto.ImportJobDTO;
 import pt.up.hs.sampling.service.dto.ProtocolDTO;
+import pt.up.hs.sampling.service.dto.ProtocolDataDTO;
 import pt.up.hs.sampling.service.mapper.ProtocolMapper;
 import pt.up.hs.sampling.web.rest.errors.ExceptionTranslator;
 import pt.up.hs.sampling.web.rest.users.WithMockCustomUser;
 
+import javax.imageio.ImageIO;
 import javax.persistence.EntityManager;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -45,6 +80,7 @@ public class ProtocolResourceIT {
 
     private static final Long DEFAULT_PROJECT_ID = 1L;
     private static final Long OTHER_PROJECT_ID = 2L;
+    private static final Long IMPORT_PROJECT_ID = 3L;
 
     private static final Integer DEFAULT_PAGE_NUMBER = 1;
     private static final Integer UPDATED_PAGE_NUMBER = 2;
@@ -53,18 +89,33 @@ public class ProtocolResourceIT {
     @Autowired
     private ProtocolRepository protocolRepository;
 
+    @Autowired
+    private ProtocolDataRepository protocolDataRepository;
+
+    @Autowired
+    private ProtocolStrokeDataRepository protocolStrokeDataRepository;
+
+    @Autowired
+    private ProtocolStrokeSegmentRepository protocolStrokeSegmentRepository;
+
     @Autowired
     private ProtocolMapper protocolMapper;
 
     @Autowired
     private ProtocolService protocolService;
 
+    @Autowired
+    private ProtocolImportService protocolImportService;
+
     @Autowired
     private ProtocolQueryService protocolQueryService;
 
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborMessageConverter;
+
     @Autowired
     private PageableHandlerMethodArgumentResolver pageableArgumentResolver;
 
@@ -80,6 +131,9 @@ public class ProtocolResourceIT {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
     private MockMvc restProtocolMockMvc;
 
     private Protocol protocol;
@@ -87,12 +141,12 @@ public class ProtocolResourceIT {
     @BeforeEach
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final ProtocolResource protocolResource = new ProtocolResource(protocolService, protocolQueryService);
+        final ProtocolResource protocolResource = new ProtocolResource(protocolService, protocolImportService, protocolQueryService);
         this.restProtocolMockMvc = MockMvcBuilders.standaloneSetup(protocolResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
             .setConversionService(createFormattingConversionService())
-            .setMessageConverters(jacksonMessageConverter)
+            .setMessageConverters(jacksonMessageConverter, cborMessageConverter, new ByteArrayHttpMessageConverter())
             .setValidator(validator)
             .build();
     }
@@ -120,6 +174,18 @@ public class ProtocolResourceIT {
             .projectId(OTHER_PROJECT_ID);
     }
 
+    private static ProtocolDataDTO createProtocolData(Long protocolId) {
+        Stroke stroke = new Stroke().startTime(10L).endTime(30L);
+        stroke.addDot(new Dot().x(1.5).y(2.5).timestamp(10L).type(DotType.DOWN).pressure(100D));
+        stroke.addDot(new Dot().x(3.25).y(4D).timestamp(30L).type(DotType.UP).pressure(200D));
+        ProtocolDataDTO pdDTO = new ProtocolDataDTO();
+        pdDTO.setProtocolId(protocolId);
+        pdDTO.setWidth(210D);
+        pdDTO.setHeight(297D);
+        pdDTO.setStrokes(Arrays.asList(stroke, new Stroke()));
+        return pdDTO;
+    }
+
     @BeforeEach
     public void initTest() {
         protocol = createEntity(em);
@@ -319,6 +385,46 @@ public class ProtocolResourceIT {
         defaultProtocolShouldBeFound("pageNumber.greaterThan=" + SMALLER_PAGE_NUMBER);
     }
 
+    @Test
+    @Transactional
+    public void getAllProtocolsBySummaryFiltering() throws Exception {
+        // Initialize the database
+        protocolRepository.saveAndFlush(protocol);
+        defaultProtocolShouldNotBeFound("strokeCount.specified=true");
+        protocolService.saveData(DEFAULT_PROJECT_ID, createProtocolData(protocol.getId()));
+
+        // Summary is computed from the saved strokes
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.strokeCount").value(2))
+            .andExpect(jsonPath("$.dotCount").value(2))
+            .andExpect(jsonPath("$.startTime").value(10))
+            .andExpect(jsonPath("$.endTime").value(30))
+            .andExpect(jsonPath("$.duration").value(20))
+            .andExpect(jsonPath("$.minX").value(1.5))
+            .andExpect(jsonPath("$.maxY").value(4D))
+            .andExpect(jsonPath("$.meanPressure").value(150D));
+        defaultProtocolShouldBeFound("strokeCount.equals=2");
+        defaultProtocolShouldNotBeFound("strokeCount.greaterThan=2");
+        defaultProtocolShouldBeFound("dotCount.greaterThanOrEqual=2&duration.lessThan=21");
+        defaultProtocolShouldBeFound("minX.lessThanOrEqual=1.5&maxX.greaterThan=3");
+        defaultProtocolShouldNotBeFound("meanPressure.lessThan=150");
+
+        // Summary is extended with appended strokes
+        Stroke stroke = new Stroke().startTime(40L).endTime(50L);
+        stroke.addDot(new Dot().x(0.5).y(1D).timestamp(40L).pressure(300D));
+        protocolService.appendStrokes(DEFAULT_PROJECT_ID, protocol.getId(), Collections.singletonList(stroke));
+        defaultProtocolShouldBeFound("strokeCount.equals=3&dotCount.equals=3&duration.equals=30&endTime.equals=50");
+        defaultProtocolShouldBeFound("minX.equals=0.5&meanPressure.equals=200");
+
+        // Summary is not changed by updates of the protocol
+        ProtocolDTO protocolDTO = protocolMapper.toDto(protocolRepository.findById(protocol.getId()).get());
+        protocolDTO.setStrokeCount(null);
+        protocolDTO.setPageNumber(UPDATED_PAGE_NUMBER);
+        protocolService.save(DEFAULT_PROJECT_ID, protocolDTO);
+        assertThat(protocolRepository.findById(protocol.getId()).get().getSummary().getStrokeCount()).isEqualTo(3);
+    }
+
     /**
      * Executes the search, and checks that the default entity is returned.
      */
@@ -363,6 +469,419 @@ public class ProtocolResourceIT {
             .andExpect(status().isNotFound());
     }
 
+    @Test
+    @Transactional
+    public void getProtocolData() throws Exception {
+        // Initialize the database
+        protocolRepository.saveAndFlush(protocol);
+
+        protocolService.saveData(DEFAULT_PROJECT_ID, createProtocolData(protocol.getId()));
+
+        // Get the protocol data
+        MvcResult result = restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restProtocolMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.protocolId").value(protocol.getId().intValue()))
+            .andExpect(jsonPath("$.width").value(210D))
+            .andExpect(jsonPath("$.height").value(297D))
+            .andExpect(jsonPath("$.strokes", hasSize(2)))
+            .andExpect(jsonPath("$.strokes[0].startTime").value(10))
+            .andExpect(jsonPath("$.strokes[0].dots", hasSize(2)))
+            .andExpect(jsonPath("$.strokes[0].dots[1].x").value(3.25))
+            .andExpect(jsonPath("$.strokes[0].dots[1].type").value("UP"))
+            .andExpect(jsonPath("$.strokes[1].dots", hasSize(0)));
+    }
+
+    @Test
+    @Transactional
+    public void getProtocolDataSlices() throws Exception {
+        // Initialize the database
+        protocolRepository.saveAndFlush(protocol);
+
+        ProtocolDataDTO pdDTO = createProtocolData(protocol.getId());
+        pdDTO.setStrokes(Arrays.asList(
+            new Stroke().startTime(0L).endTime(10L),
+            new Stroke().startTime(20L).endTime(30L),
+            new Stroke().startTime(40L).endTime(50L)
+        ));
+        protocolService.saveData(DEFAULT_PROJECT_ID, pdDTO);
+        assertThat(protocolStrokeDataRepository.findEncodedStrokesByProtocolId(protocol.getId()).get().getStrokeIndex())
+            .isNotNull();
+
+        // Get the strokes within a time window
+        MvcResult result = restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data?from=25&to=45", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restProtocolMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.strokes", hasSize(2)))
+            .andExpect(jsonPath("$.strokes[0].startTime").value(20))
+            .andExpect(jsonPath("$.strokes[1].startTime").value(40));
+
+        // Get a range of strokes
+        result = restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data?strokes=0..1", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restProtocolMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.strokes", hasSize(2)))
+            .andExpect(jsonPath("$.strokes[0].startTime").value(0))
+            .andExpect(jsonPath("$.strokes[1].startTime").value(20));
+
+        // Invalid ranges
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data?strokes=3..1", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isBadRequest());
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data?strokes=1&from=3", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void appendProtocolStrokes() throws Exception {
+        // Initialize the database
+        protocolRepository.saveAndFlush(protocol);
+        protocolService.saveData(DEFAULT_PROJECT_ID, createProtocolData(protocol.getId()));
+
+        // Append batches of 1, 1 and 2 strokes
+        int[] batches = { 1, 1, 2 };
+        long time = 100L;
+        for (int batch : batches) {
+            Stroke[] strokes = new Stroke[batch];
+            for (int i = 0; i < batch; i++, time += 10) {
+                strokes[i] = new Stroke().startTime(time).endTime(time + 5);
+                strokes[i].addDot(new Dot().x((double) time).y(1D).timestamp(time));
+            }
+            restProtocolMockMvc.perform(post("/api/projects/{projectId}/protocols/{id}/strokes", DEFAULT_PROJECT_ID, protocol.getId())
+                .contentType(TestUtil.APPLICATION_JSON)
+                .content(TestUtil.convertObjectToJsonBytes(strokes)))
+                .andExpect(status().isNoContent());
+        }
+
+        // Trailing segments of the same size are merged
+        List<ProtocolStrokeSegmentRepository.SegmentInfo> segments =
+            protocolStrokeSegmentRepository.findInfoByProtocolId(protocol.getId());
+        assertThat(segments).hasSize(1);
+        assertThat(segments.get(0).getStrokeCount()).isEqualTo(4);
+
+        // Appended strokes are read after the saved ones
+        MvcResult result = restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restProtocolMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.strokes", hasSize(6)))
+            .andExpect(jsonPath("$.strokes[0].startTime").value(10))
+            .andExpect(jsonPath("$.strokes[2].startTime").value(100))
+            .andExpect(jsonPath("$.strokes[5].startTime").value(130));
+        result = restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data?from=116&lod=1", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restProtocolMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.strokes[*].startTime").value(contains(120, 130)));
+        result = restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data?strokes=1..2", DEFAULT_PROJECT_ID, protocol.getId())
+            .accept(MediaTypes.PROTOCOL_DATA_CBOR))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        byte[] content = restProtocolMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+        assertThat(cborMessageConverter.getObjectMapper().readValue(content, ProtocolDataDTO.class).getStrokes())
+            .extracting(Stroke::getStartTime)
+            .containsExactly(null, 100L);
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/strokes?bbox=105,0,125,2", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].index").value(contains(3, 4)));
+
+        em.flush();
+        em.clear();
+        assertThat(protocolService.findOneData(DEFAULT_PROJECT_ID, protocol.getId()).get().getStrokes()).hasSize(6);
+
+        // Saving the data replaces the appended strokes
+        protocolService.saveData(DEFAULT_PROJECT_ID, createProtocolData(protocol.getId()));
+        assertThat(protocolStrokeSegmentRepository.existsByStrokeDataProtocolId(protocol.getId())).isFalse();
+
+        // Protocols without data
+        restProtocolMockMvc.perform(post("/api/projects/{projectId}/protocols/{id}/strokes", DEFAULT_PROJECT_ID, Long.MAX_VALUE)
+            .contentType(TestUtil.APPLICATION_JSON)
+            .content("[]"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void getAppendedProtocolStrokesFromIndexes() throws Exception {
+        // Initialize the database
+        protocolRepository.saveAndFlush(protocol);
+        protocolService.saveData(DEFAULT_PROJECT_ID, createProtocolData(protocol.getId()));
+
+        Stroke[] strokes = new Stroke[2];
+        for (int i = 0; i < strokes.length; i++) {
+            long time = 100L + i * 10;
+            strokes[i] = new Stroke().startTime(time).endTime(time + 5);
+            strokes[i].addDot(new Dot().x((double) time).y(1D).timestamp(time));
+        }
+        restProtocolMockMvc.perform(post("/api/projects/{projectId}/protocols/{id}/strokes", DEFAULT_PROJECT_ID, protocol.getId())
+            .contentType(TestUtil.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(strokes)))
+            .andExpect(status().isNoContent());
+        em.flush();
+
+        // The segment is indexed on its own
+        List<ProtocolStrokeDataRepository.EncodedStrokes> segments =
+            protocolStrokeSegmentRepository.findEncodedByProtocolId(protocol.getId());
+        assertThat(segments).hasSize(1);
+        assertThat(segments.get(0).getStrokeIndex()).isNotNull();
+        assertThat(segments.get(0).getSpatialIndex()).isNotNull();
+        assertThat(protocolStrokeSegmentRepository.findEncodedLodsByProtocolId(protocol.getId()))
+            .allSatisfy(segment -> assertThat(segment.getStrokeLods()).isNotNull());
+
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/strokes?bbox=95,0,115,2", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].index").value(contains(2, 3)));
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/strokes/hit?x=110&y=1&tolerance=1", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].index").value(contains(3)));
+        MvcResult result = restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data?from=100&lod=1", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restProtocolMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.strokes[*].startTime").value(contains(100, 110)));
+
+        // Queries go through the stored indexes of the segment (which leave
+        // out every stroke once replaced by indexes of untimed strokes
+        // without dots), not through indexes rebuilt from its strokes
+        List<Stroke> blank = Arrays.asList(new Stroke(), new Stroke());
+        em.createNativeQuery("update protocol_stroke_segment set spatial_index = ?1, stroke_index = ?2 where protocol_id = ?3")
+            .setParameter(1, StrokeSpatialIndex.of(blank).encode())
+            .setParameter(2, StrokeIndex.of(blank).encode())
+            .setParameter(3, protocol.getId())
+            .executeUpdate();
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/strokes?bbox=95,0,115,2", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(0)));
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/strokes/hit?x=110&y=1&tolerance=1", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(0)));
+        result = restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data?from=100&lod=1", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restProtocolMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.strokes", hasSize(0)));
+    }
+
+    @Test
+    @Transactional
+    public void getProtocolDataLevelOfDetail() throws Exception {
+        // Initialize the database
+        protocolRepository.saveAndFlush(protocol);
+
+        ProtocolDataDTO pdDTO = createProtocolData(protocol.getId());
+        Stroke line = new Stroke().startTime(40L).endTime(50L);
+        for (int i = 0; i <= 100; i++) {
+            line.addDot(new Dot().x(i / 10D).y(i % 2 == 0 ? 0D : 0.01).timestamp(40L + i / 10));
+        }
+        pdDTO.setStrokes(Arrays.asList(pdDTO.getStrokes().get(0), line));
+        protocolService.saveData(DEFAULT_PROJECT_ID, pdDTO);
+
+        // Full resolution
+        MvcResult result = restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data?lod=0", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restProtocolMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.strokes[1].dots", hasSize(101)));
+
+        // Simplified, with selection
+        result = restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data?lod=1&strokes=1", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restProtocolMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.width").value(210D))
+            .andExpect(jsonPath("$.strokes", hasSize(1)))
+            .andExpect(jsonPath("$.strokes[0].dots", hasSize(2)))
+            .andExpect(jsonPath("$.strokes[0].dots[1].x").value(10D));
+
+        // Invalid levels
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data?lod=-1", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isBadRequest());
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data?lod=4", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void getProtocolStrokesInBoxAndAtPoint() throws Exception {
+        // Initialize the database
+        protocolRepository.saveAndFlush(protocol);
+
+        ProtocolDataDTO pdDTO = createProtocolData(protocol.getId());
+        Stroke diagonal = new Stroke().startTime(40L).endTime(50L);
+        diagonal.addDot(new Dot().x(10D).y(10D).timestamp(40L));
+        diagonal.addDot(new Dot().x(20D).y(20D).timestamp(50L));
+        pdDTO.setStrokes(Arrays.asList(pdDTO.getStrokes().get(0), new Stroke(), diagonal));
+        protocolService.saveData(DEFAULT_PROJECT_ID, pdDTO);
+        assertThat(protocolStrokeDataRepository.findEncodedStrokesByProtocolId(protocol.getId()).get().getSpatialIndex())
+            .isNotNull();
+
+        // Box crossed by the diagonal, with no dot inside
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/strokes?bbox=14,14,16,16", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].index").value(2))
+            .andExpect(jsonPath("$.[0].stroke.dots", hasSize(2)));
+
+        // Box within the bounding box of the diagonal only
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/strokes?bbox=11,18,12,19", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(0)));
+
+        // Box around all strokes
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/strokes?bbox=0,0,100,100", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].index").value(contains(0, 2)));
+
+        // Hit-test
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/strokes/hit?x=15&y=16&tolerance=1", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].index").value(2))
+            .andExpect(jsonPath("$.[0].distance").value(Math.sqrt(0.5)));
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/strokes/hit?x=15&y=17&tolerance=1", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(0)));
+
+        // Invalid queries
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/strokes?bbox=5,5,1,1", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isBadRequest());
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/strokes/hit?x=1&y=1&tolerance=-1", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isBadRequest());
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/strokes?bbox=0,0,1,1", DEFAULT_PROJECT_ID, Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void getProtocolPreviewRendition() throws Exception {
+        // Initialize the database
+        protocolRepository.saveAndFlush(protocol);
+        protocolService.saveData(DEFAULT_PROJECT_ID, createProtocolData(protocol.getId()));
+
+        // Outdated preview is rendered, but not kept
+        byte[] png = restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/preview?w=500", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.IMAGE_PNG))
+            .andReturn().getResponse().getContentAsByteArray();
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertThat(image.getWidth()).isEqualTo(600);
+        assertThat(image.getHeight()).isEqualTo(849);
+        Path rendition = Paths.get(applicationProperties.getPreview().getPath(),
+            "renditions", DEFAULT_PROJECT_ID.toString(), protocol.getId() + "-600.png");
+        assertThat(rendition).doesNotExist();
+
+        // Up-to-date preview is kept, in the bucket of the requested size
+        em.flush();
+        Instant now = Instant.now();
+        List<Long> ids = Collections.singletonList(protocol.getId());
+        assertThat(protocolDataRepository.claimDirtyPreviews("test", now, now.plusSeconds(60), ids))
+            .containsExactly(protocol.getId());
+        assertThat(protocolDataRepository.cleanClaimedPreviews(ids, "test")).isEqualTo(1);
+        em.clear();
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/preview?w=250&dpi=192", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().bytes(png));
+        assertThat(rendition).exists();
+
+        // Deleted with the protocol
+        protocolService.delete(DEFAULT_PROJECT_ID, protocol.getId());
+        assertThat(rendition).doesNotExist();
+
+        // Invalid sizes
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/preview?w=0", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isBadRequest());
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/preview?h=100&dpi=5000", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isBadRequest());
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/preview?w=100", DEFAULT_PROJECT_ID, Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void getProtocolPreviewRenditionOfPageWithoutSize() throws Exception {
+        // Initialize the database
+        protocolRepository.saveAndFlush(protocol);
+        ProtocolDataDTO pdDTO = createProtocolData(protocol.getId());
+        pdDTO.setWidth(0D);
+        protocolService.saveData(DEFAULT_PROJECT_ID, pdDTO);
+
+        // Rendered square
+        byte[] png = restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/preview?w=300", DEFAULT_PROJECT_ID, protocol.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.IMAGE_PNG))
+            .andReturn().getResponse().getContentAsByteArray();
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertThat(image.getWidth()).isEqualTo(300);
+        assertThat(image.getHeight()).isEqualTo(300);
+    }
+
+    @Test
+    @Transactional
+    public void getProtocolDataBinary() throws Exception {
+        // Initialize the database
+        protocolRepository.saveAndFlush(protocol);
+
+        ProtocolDataDTO pdDTO = createProtocolData(protocol.getId());
+        protocolService.saveData(DEFAULT_PROJECT_ID, pdDTO);
+
+        // Get the protocol data
+        MvcResult result = restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data", DEFAULT_PROJECT_ID, protocol.getId())
+            .accept(MediaTypes.PROTOCOL_DATA_CBOR))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        byte[] content = restProtocolMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaTypes.PROTOCOL_DATA_CBOR))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        ProtocolDataDTO read = cborMessageConverter.getObjectMapper().readValue(content, ProtocolDataDTO.class);
+        assertThat(read.getProtocolId()).isEqualTo(protocol.getId());
+        assertThat(read.getWidth()).isEqualTo(pdDTO.getWidth());
+        assertThat(read.getStrokes()).hasSize(2);
+        assertThat(read.getStrokes().get(0).getDots()).isEqualTo(pdDTO.getStrokes().get(0).getDots());
+    }
+
+    @Test
+    @Transactional
+    public void updateProtocolDataBinary() throws Exception {
+        // Initialize the database
+        protocolRepository.saveAndFlush(protocol);
+
+        ProtocolDataDTO pdDTO = createProtocolData(protocol.getId());
+        restProtocolMockMvc.perform(post("/api/projects/{projectId}/protocols/{id}/data", DEFAULT_PROJECT_ID, protocol.getId())
+            .contentType(MediaTypes.PROTOCOL_DATA_CBOR)
+            .content(cborMessageConverter.getObjectMapper().writeValueAsBytes(pdDTO)))
+            .andExpect(status().isOk());
+
+        ProtocolDataDTO saved = protocolService.findOneData(DEFAULT_PROJECT_ID, protocol.getId()).get();
+        assertThat(saved.getHeight()).isEqualTo(pdDTO.getHeight());
+        assertThat(saved.getStrokes()).hasSize(2);
+        assertThat(saved.getStrokes().get(0).getDots()).isEqualTo(pdDTO.getStrokes().get(0).getDots());
+    }
+
+    @Test
+    @Transactional
+    public void getNonExistingProtocolData() throws Exception {
+        // Get the protocol data
+        restProtocolMockMvc.perform(get("/api/projects/{projectId}/protocols/{id}/data", DEFAULT_PROJECT_ID, Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
     @Test
     @Transactional
     public void updateProtocol() throws Exception {
@@ -560,4 +1079,415 @@ public class ProtocolResourceIT {
             .andExpect(jsonPath("$.data.[*].strokes.[*].protocolId").value(everyItem(isA(Integer.class))))
             .andExpect(jsonPath("$.data.[*].strokes.[*].dots.[*].strokeId").value(everyItem(isA(Integer.class))));
     }
+
+    @Test
+    @Transactional
+    public void bulkImportProtocolsInBatches() throws Exception {
+        // read files
+        byte[] contentPageEmpty = TestUtil.readFileFromResourcesFolder("data/protocols/page_empty.data");
+        byte[] contentPageFull = TestUtil.readFileFromResourcesFolder("data/protocols/page_full.data");
+
+        ApplicationProperties.Importing importing = applicationProperties.getImporting();
+        int queueCapacity = importing.getQueueCapacity();
+        int batchSize = importing.getBatchSize();
+        importing.setQueueCapacity(2).setBatchSize(1);
+        try {
+            // Import the protocols, one page per transaction
+            restProtocolMockMvc
+                .perform(
+                    MockMvcRequestBuilders
+                        .multipart("/api/projects/{projectId}/protocols/import", DEFAULT_PROJECT_ID)
+                        .file(new MockMultipartFile("file", "page_full.data", null, contentPageFull))
+                        .file(new MockMultipartFile("file", "page_invalid.data", null, new byte[] { 1, 2, 3 }))
+                        .file(new MockMultipartFile("file", "page_empty.data", null, contentPageEmpty))
+                        .file(new MockMultipartFile("file", "page_full.data", null, contentPageFull))
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(4))
+                .andExpect(jsonPath("$.invalid").value(1))
+                .andExpect(jsonPath("$.invalidFiles").value(contains("page_invalid.data")))
+                .andExpect(jsonPath("$.data").value(hasSize(3)))
+                .andExpect(jsonPath("$.data.[*].id").value(everyItem(isA(Integer.class))));
+        } finally {
+            importing.setQueueCapacity(queueCapacity).setBatchSize(batchSize);
+        }
+    }
+
+    @Test
+    @Transactional
+    public void importProtocolsAgain() throws Exception {
+        // read file
+        byte[] contentPageFull = TestUtil.readFileFromResourcesFolder("data/protocols/page_full.data");
+
+        int databaseSizeBeforeImport = protocolRepository.findAll().size();
+
+        // Import it twice
+        MvcResult first = restProtocolMockMvc
+            .perform(
+                MockMvcRequestBuilders
+                    .multipart("/api/projects/{projectId}/protocols/import", DEFAULT_PROJECT_ID)
+                    .file(new MockMultipartFile("file", "page_full.data", null, contentPageFull))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.data").value(hasSize(1)))
+            .andReturn();
+        Integer id = JsonPath.read(first.getResponse().getContentAsString(), "$.data[0].id");
+
+        restProtocolMockMvc
+            .perform(
+                MockMvcRequestBuilders
+                    .multipart("/api/projects/{projectId}/protocols/import", DEFAULT_PROJECT_ID)
+                    .file(new MockMultipartFile("file", "page_full_copy.data", null, contentPageFull))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.invalid").value(0))
+            .andExpect(jsonPath("$.data.[*].id").value(contains(id)));
+
+        // The page is stored once
+        assertThat(protocolRepository.findAll()).hasSize(databaseSizeBeforeImport + 1);
+        assertThat(protocolRepository.findById(id.longValue()).map(Protocol::getContentHash)).isPresent();
+    }
+
+    @Test
+    @Transactional
+    public void importProtocolsWithIdempotencyKey() throws Exception {
+        // read files
+        byte[] contentPageEmpty = TestUtil.readFileFromResourcesFolder("data/protocols/page_empty.data");
+        byte[] contentPageFull = TestUtil.readFileFromResourcesFolder("data/protocols/page_full.data");
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        int databaseSizeBeforeImport = protocolRepository.findAll().size();
+
+        // Import the files
+        MvcResult first = restProtocolMockMvc
+            .perform(
+                MockMvcRequestBuilders
+                    .multipart("/api/projects/{projectId}/protocols/import", DEFAULT_PROJECT_ID)
+                    .file(new MockMultipartFile("file", "page_empty.data", null, contentPageEmpty))
+                    .file(new MockMultipartFile("file", "page_full.data", null, contentPageFull))
+                    .header("Idempotency-Key", idempotencyKey)
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.data").value(hasSize(2)))
+            .andReturn();
+        List<Integer> ids = JsonPath.read(first.getResponse().getContentAsString(), "$.data[*].id");
+
+        // Retry with the same key
+        restProtocolMockMvc
+            .perform(
+                MockMvcRequestBuilders
+                    .multipart("/api/projects/{projectId}/protocols/import", DEFAULT_PROJECT_ID)
+                    .file(new MockMultipartFile("file", "page_empty.data", null, contentPageEmpty))
+                    .file(new MockMultipartFile("file", "page_full.data", null, contentPageFull))
+                    .header("Idempotency-Key", idempotencyKey)
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(2))
+            .andExpect(jsonPath("$.data.[*].id").value(contains(ids.toArray())));
+
+        // Nothing is imported again, not even the empty page
+        assertThat(protocolRepository.findAll()).hasSize(databaseSizeBeforeImport + 2);
+    }
+
+    @Test
+    @Transactional
+    public void importProtocolsArchive() throws Exception {
+        // read files
+        byte[] contentPageEmpty = TestUtil.readFileFromResourcesFolder("data/protocols/page_empty.data");
+        byte[] contentPageFull = TestUtil.readFileFromResourcesFolder("data/protocols/page_full.data");
+
+        // Archive them, with a directory and an entry that cannot be parsed
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("class/"));
+            zip.putNextEntry(new ZipEntry("class/page_full.data"));
+            zip.write(contentPageFull);
+            zip.putNextEntry(new ZipEntry("class/page_invalid.data"));
+            zip.write(new byte[] { 1, 2, 3 });
+            zip.putNextEntry(new ZipEntry("class/page_empty.data"));
+            zip.write(contentPageEmpty);
+        }
+
+        int databaseSizeBeforeImport = protocolRepository.findAll().size();
+
+        // Import the archive
+        restProtocolMockMvc
+            .perform(
+                post("/api/projects/{projectId}/protocols/import", DEFAULT_PROJECT_ID)
+                    .contentType(MediaTypes.APPLICATION_ZIP_VALUE)
+                    .content(archive.toByteArray())
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(3))
+            .andExpect(jsonPath("$.invalid").value(1))
+            .andExpect(jsonPath("$.invalidFiles").value(contains("class/page_invalid.data")))
+            .andExpect(jsonPath("$.data").value(hasSize(2)))
+            .andExpect(jsonPath("$.data.[*].projectId").value(everyItem(is(DEFAULT_PROJECT_ID.intValue()))));
+
+        assertThat(protocolRepository.findAll()).hasSize(databaseSizeBeforeImport + 2);
+    }
+
+    @Test
+    @Transactional
+    public void importProtocolsArchiveWithTooLargeEntry() throws Exception {
+        // read files
+        byte[] contentPageEmpty = TestUtil.readFileFromResourcesFolder("data/protocols/page_empty.data");
+        byte[] contentPageFull = TestUtil.readFileFromResourcesFolder("data/protocols/page_full.data");
+
+        // Archive them, the full page (spooled to disk) above the maximum length
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("page_full.data"));
+            zip.write(contentPageFull);
+            zip.putNextEntry(new ZipEntry("page_empty.data"));
+            zip.write(contentPageEmpty);
+        }
+
+        ApplicationProperties.Importing importing = applicationProperties.getImporting();
+        long uploadMaxLength = importing.getUploadMaxLength();
+        importing.setUploadMaxLength(contentPageFull.length - 1);
+        try {
+            // Import the archive
+            restProtocolMockMvc
+                .perform(
+                    post("/api/projects/{projectId}/protocols/import", DEFAULT_PROJECT_ID)
+                        .contentType(MediaTypes.APPLICATION_ZIP_VALUE)
+                        .content(archive.toByteArray())
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.invalid").value(1))
+                .andExpect(jsonPath("$.invalidFiles").value(contains("page_full.data")))
+                .andExpect(jsonPath("$.data").value(hasSize(1)));
+        } finally {
+            importing.setUploadMaxLength(uploadMaxLength);
+        }
+    }
+
+    @Test
+    public void importProtocolsStreaming() throws Exception {
+        // read files
+        byte[] contentPageEmpty = TestUtil.readFileFromResourcesFolder("data/protocols/page_empty.data");
+        byte[] contentPageFull = TestUtil.readFileFromResourcesFolder("data/protocols/page_full.data");
+
+        // Import the protocols, with the results streamed (and saved out of
+        // the test transaction)
+        MvcResult result = restProtocolMockMvc
+            .perform(
+                MockMvcRequestBuilders
+                    .multipart("/api/projects/{projectId}/protocols/import", IMPORT_PROJECT_ID)
+                    .file(new MockMultipartFile("file", "page_full.data", null, contentPageFull))
+                    .file(new MockMultipartFile("file", "page_invalid.data", null, new byte[] { 1, 2, 3 }))
+                    .file(new MockMultipartFile("file", "page_empty.data", null, contentPageEmpty))
+                    .accept(MediaTypes.APPLICATION_NDJSON)
+            )
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        result = restProtocolMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaTypes.APPLICATION_NDJSON))
+            .andReturn();
+
+        List<Long> ids = new ArrayList<>();
+        try {
+            String[] lines = result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+            assertThat(lines).hasSize(4);
+
+            // a line per file, as they are imported
+            Map<String, JsonNode> files = new HashMap<>();
+            for (int i = 0; i < 3; i++) {
+                JsonNode line = objectMapper.readTree(lines[i]);
+                files.put(line.get("file").asText(), line);
+                line.get("data").forEach(protocol -> ids.add(protocol.get("id").asLong()));
+            }
+            assertThat(files).containsOnlyKeys("page_full.data", "page_invalid.data", "page_empty.data");
+            assertThat(files.get("page_full.data").get("valid").asBoolean()).isTrue();
+            assertThat(files.get("page_full.data").get("data")).hasSize(1);
+            assertThat(files.get("page_invalid.data").get("valid").asBoolean()).isFalse();
+            assertThat(files.get("page_invalid.data").get("data")).isEmpty();
+            assertThat(files.get("page_empty.data").get("valid").asBoolean()).isTrue();
+
+            // then the summary
+            JsonNode summary = objectMapper.readTree(lines[3]);
+            assertThat(summary.get("total").asInt()).isEqualTo(3);
+            assertThat(summary.get("invalid").asInt()).isEqualTo(1);
+            assertThat(summary.get("invalidFiles").get(0).asText()).isEqualTo("page_invalid.data");
+
+            assertThat(protocolRepository.findAllByProjectId(IMPORT_PROJECT_ID)).hasSize(2);
+        } finally {
+            protocolService.deleteMany(IMPORT_PROJECT_ID, ids.toArray(new Long[0]));
+        }
+    }
+
+    @Test
+    public void importProtocolsInBackground() throws Exception {
+        // read files
+        byte[] contentPageFull = TestUtil.readFileFromResourcesFolder("data/protocols/page_full.data");
+
+        // Start the import
+        MvcResult result = restProtocolMockMvc
+            .perform(
+                MockMvcRequestBuilders
+                    .multipart("/api/projects/{projectId}/protocols/imports", IMPORT_PROJECT_ID)
+                    .file(new MockMultipartFile("file", "page_full.data", null, contentPageFull))
+                    .file(new MockMultipartFile("file", "page_invalid.data", null, new byte[] { 1, 2, 3 }))
+            )
+            .andExpect(status().isAccepted())
+            .andExpect(header().exists("Location"))
+            .andExpect(jsonPath("$.id").value(isA(Integer.class)))
+            .andExpect(jsonPath("$.projectId").value(IMPORT_PROJECT_ID.intValue()))
+            .andExpect(jsonPath("$.totalFiles").value(2))
+            .andReturn();
+        ImportJobDTO importJob = objectMapper.readValue(result.getResponse().getContentAsString(), ImportJobDTO.class);
+
+        // Poll it until it finishes
+        long deadline = System.currentTimeMillis() + 30000;
+        while (!"COMPLETED".equals(importJob.getStatus()) && !"FAILED".equals(importJob.getStatus())) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(100);
+            result = restProtocolMockMvc
+                .perform(get("/api/projects/{projectId}/protocols/imports/{jobId}", IMPORT_PROJECT_ID, importJob.getId()))
+                .andExpect(status().isOk())
+                .andReturn();
+            importJob = objectMapper.readValue(result.getResponse().getContentAsString(), ImportJobDTO.class);
+        }
+
+        try {
+            assertThat(importJob.getStatus()).isEqualTo("COMPLETED");
+            assertThat(importJob.getFilesDone()).isEqualTo(1);
+            assertThat(importJob.getFilesFailed()).isEqualTo(1);
+            assertThat(importJob.getPagesCreated()).isEqualTo(1);
+            assertThat(importJob.getProtocolIds()).hasSize(1);
+            assertThat(importJob.getEndTime()).isNotNull();
+            assertThat(protocolRepository.findAllByProjectId(IMPORT_PROJECT_ID)).hasSize(1);
+
+            // The import is not visible from other projects
+            restProtocolMockMvc
+                .perform(get("/api/projects/{projectId}/protocols/imports/{jobId}", DEFAULT_PROJECT_ID, importJob.getId()))
+                .andExpect(status().isNotFound());
+        } finally {
+            protocolService.deleteMany(IMPORT_PROJECT_ID, importJob.getProtocolIds().toArray(new Long[0]));
+        }
+    }
+
+    @Test
+    public void importProtocolsInResumableUpload() throws Exception {
+        // read file
+        byte[] contentPageFull = TestUtil.readFileFromResourcesFolder("data/protocols/page_full.data");
+        int length = contentPageFull.length;
+        int half = length / 2;
+
+        // Create the upload
+        MvcResult result = restProtocolMockMvc
+            .perform(
+                post("/api/projects/{projectId}/protocols/uploads", IMPORT_PROJECT_ID)
+                    .param("filename", "page_full.data")
+                    .param("length", String.valueOf(length))
+            )
+            .andExpect(status().isCreated())
+            .andExpect(header().exists("Location"))
+            .andExpect(jsonPath("$.projectId").value(IMPORT_PROJECT_ID.intValue()))
+            .andExpect(jsonPath("$.filename").value("page_full.data"))
+            .andExpect(jsonPath("$.length").value(length))
+            .andExpect(jsonPath("$.offset").value(0))
+            .andReturn();
+        String uploadId = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+
+        // Send the first half
+        restProtocolMockMvc
+            .perform(
+                put("/api/projects/{projectId}/protocols/uploads/{uploadId}", IMPORT_PROJECT_ID, uploadId)
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes 0-" + (half - 1) + "/" + length)
+                    .content(Arrays.copyOfRange(contentPageFull, 0, half))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.offset").value(half));
+
+        // A chunk after the offset is refused, and so is finishing the upload
+        restProtocolMockMvc
+            .perform(
+                put("/api/projects/{projectId}/protocols/uploads/{uploadId}", IMPORT_PROJECT_ID, uploadId)
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + (half + 1) + "-" + (length - 1) + "/" + length)
+                    .content(Arrays.copyOfRange(contentPageFull, half + 1, length))
+            )
+            .andExpect(status().isConflict());
+        restProtocolMockMvc
+            .perform(post("/api/projects/{projectId}/protocols/uploads/{uploadId}/finish", IMPORT_PROJECT_ID, uploadId))
+            .andExpect(status().isConflict());
+
+        // The upload is not visible from other projects
+        restProtocolMockMvc
+            .perform(get("/api/projects/{projectId}/protocols/uploads/{uploadId}", DEFAULT_PROJECT_ID, uploadId))
+            .andExpect(status().isNotFound());
+
+        // Resume from the offset, with a chunk overlapping what was received
+        restProtocolMockMvc
+            .perform(get("/api/projects/{projectId}/protocols/uploads/{uploadId}", IMPORT_PROJECT_ID, uploadId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.offset").value(half));
+        restProtocolMockMvc
+            .perform(
+                put("/api/projects/{projectId}/protocols/uploads/{uploadId}", IMPORT_PROJECT_ID, uploadId)
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes 1-" + (length - 1) + "/" + length)
+                    .content(Arrays.copyOfRange(contentPageFull, 1, length))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.offset").value(length));
+
+        // Finish the upload
+        result = restProtocolMockMvc
+            .perform(post("/api/projects/{projectId}/protocols/uploads/{uploadId}/finish", IMPORT_PROJECT_ID, uploadId))
+            .andExpect(status().isAccepted())
+            .andExpect(header().exists("Location"))
+            .andExpect(jsonPath("$.totalFiles").value(1))
+            .andReturn();
+        ImportJobDTO importJob = objectMapper.readValue(result.getResponse().getContentAsString(), ImportJobDTO.class);
+        restProtocolMockMvc
+            .perform(get("/api/projects/{projectId}/protocols/uploads/{uploadId}", IMPORT_PROJECT_ID, uploadId))
+            .andExpect(status().isNotFound());
+
+        // Poll the import until it finishes
+        long deadline = System.currentTimeMillis() + 30000;
+        while (!"COMPLETED".equals(importJob.getStatus()) && !"FAILED".equals(importJob.getStatus())) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(100);
+            result = restProtocolMockMvc
+                .perform(get("/api/projects/{projectId}/protocols/imports/{jobId}", IMPORT_PROJECT_ID, importJob.getId()))
+                .andExpect(status().isOk())
+                .andReturn();
+            importJob = objectMapper.readValue(result.getResponse().getContentAsString(), ImportJobDTO.class);
+        }
+
+        try {
+            assertThat(importJob.getStatus()).isEqualTo("COMPLETED");
+            assertThat(importJob.getFilesDone()).isEqualTo(1);
+            assertThat(importJob.getProtocolIds()).hasSize(1);
+            assertThat(protocolRepository.findAllByProjectId(IMPORT_PROJECT_ID)).hasSize(1);
+        } finally {
+            protocolService.deleteMany(IMPORT_PROJECT_ID, importJob.getProtocolIds().toArray(new Long[0]));
+        }
+    }
+
+    @Test
+    public void deleteResumableUpload() throws Exception {
+        MvcResult result = restProtocolMockMvc
+            .perform(
+                post("/api/projects/{projectId}/protocols/uploads", DEFAULT_PROJECT_ID)
+                    .param("filename", "page_full.data")
+            )
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.length").doesNotExist())
+            .andReturn();
+        String uploadId = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+
+        restProtocolMockMvc
+            .perform(delete("/api/projects/{projectId}/protocols/uploads/{uploadId}", DEFAULT_PROJECT_ID, uploadId))
+            .andExpect(status().isNoContent());
+        restProtocolMockMvc
+            .perform(get("/api/projects/{projectId}/protocols/uploads/{uploadId}", DEFAULT_PROJECT_ID, uploadId))
+            .andExpect(status().isNotFound());
+    }
 }
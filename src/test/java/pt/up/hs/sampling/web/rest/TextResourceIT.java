@@ -1,5 +1,7 @@
 package pt.up.hs.sampling.web.rest;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
@@ -10,12 +12,14 @@ import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.Validator;
 import pt.up.hs.sampling.SamplingApp;
 import pt.up.hs.sampling.config.SecurityBeanOverrideConfiguration;
+import pt.up.hs.sampling.constants.MediaTypes;
 import pt.up.hs.sampling.domain.Text;
 import pt.up.hs.sampling.repository.TextRepository;
 import pt.up.hs.sampling.service.TextQueryService;
@@ -25,6 +29,7 @@ import pt.up.hs.sampling.service.mapper.TextMapper;
 import pt.up.hs.sampling.web.rest.errors.ExceptionTranslator;
 
 import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -40,6 +45,7 @@ import static pt.up.hs.sampling.web.rest.TestUtil.createFormattingConversionServ
 public class TextResourceIT {
 
     private static final Long DEFAULT_PROJECT_ID = 1L;
+    private static final Long IMPORT_PROJECT_ID = 3L;
     private static final Long OTHER_PROJECT_ID = 2L;
 
     private static final String DEFAULT_TEXT = "AAAAAAAAAA";
@@ -75,6 +81,9 @@ public class TextResourceIT {
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private PageableHandlerMethodArgumentResolver pageableArgumentResolver;
 
@@ -410,8 +419,55 @@ public class TextResourceIT {
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
             .andExpect(jsonPath("$.total").value(3))
             .andExpect(jsonPath("$.invalid").value(1))
+            .andExpect(jsonPath("$.invalidFiles").value(contains("empty.txt")))
             .andExpect(jsonPath("$.data").value(hasSize(2)))
             .andExpect(jsonPath("$.data.[*].projectId").value(everyItem(is(DEFAULT_PROJECT_ID.intValue()))))
             .andExpect(jsonPath("$.data.[*].text").value(everyItem(is(SAMPLE_TEXT))));
     }
+
+    @Test
+    public void bulkImportTextsStreaming() throws Exception {
+        // read files
+        byte[] docxContent = TestUtil.readFileFromResourcesFolder("data/texts/sample.docx");
+        MockMultipartFile docxFile = new MockMultipartFile("file", "sample.docx", null, docxContent);
+        byte[] txtContent = TestUtil.readFileFromResourcesFolder("data/texts/empty.txt");
+        MockMultipartFile txtFile = new MockMultipartFile("file", "empty.txt", null, txtContent);
+
+        // Import the texts, with the results streamed (and saved out of the
+        // test transaction)
+        MvcResult result = restTextMockMvc
+            .perform(
+                MockMvcRequestBuilders
+                    .multipart("/api/projects/{projectId}/texts/import", IMPORT_PROJECT_ID)
+                    .file(docxFile)
+                    .file(txtFile)
+                    .accept(MediaTypes.APPLICATION_NDJSON)
+            )
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        result = restTextMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaTypes.APPLICATION_NDJSON))
+            .andReturn();
+
+        try {
+            // a line per file, then the summary
+            String[] lines = result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+            assertThat(lines).hasSize(3);
+            JsonNode docx = objectMapper.readTree(lines[0]);
+            assertThat(docx.get("file").asText()).isEqualTo("sample.docx");
+            assertThat(docx.get("valid").asBoolean()).isTrue();
+            assertThat(docx.get("data").get(0).get("text").asText()).isEqualTo(SAMPLE_TEXT);
+            JsonNode txt = objectMapper.readTree(lines[1]);
+            assertThat(txt.get("file").asText()).isEqualTo("empty.txt");
+            assertThat(txt.get("valid").asBoolean()).isFalse();
+            JsonNode summary = objectMapper.readTree(lines[2]);
+            assertThat(summary.get("total").asInt()).isEqualTo(2);
+            assertThat(summary.get("invalid").asInt()).isEqualTo(1);
+
+            assertThat(textRepository.findAllByProjectId(IMPORT_PROJECT_ID)).hasSize(1);
+        } finally {
+            textRepository.deleteAll(textRepository.findAllByProjectId(IMPORT_PROJECT_ID));
+        }
+    }
 }